@@ -0,0 +1,182 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * An Aggregate accumulates summary statistics of a set of pollution values: the
+ * count, sum, minimum, maximum, mean and variance.
+ *
+ * The mean and variance are updated with Welford's method, which stays accurate for
+ * long runs of similar values, and two aggregates built over different parts of the
+ * data can be merged (Chan et al.), so that partial results computed in parallel
+ * give the same answer as a single pass.
+ */
+public class Aggregate
+{
+    private long count;
+    private double sum;
+    private double min;
+    private double max;
+    private double mean;
+    private double m2; // sum of squared differences from the mean
+
+    /**
+     * Create an empty aggregate.
+     */
+    public Aggregate()
+    {
+        min = Double.POSITIVE_INFINITY;
+        max = Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * Create an aggregate from already accumulated figures.
+     *
+     * @param count The number of values
+     * @param sum The sum of the values
+     * @param min The smallest value
+     * @param max The largest value
+     * @param mean The mean of the values
+     * @param m2 The sum of the squared differences from the mean
+     */
+    public Aggregate(long count, double sum, double min, double max, double mean, double m2)
+    {
+        this.count = count;
+        this.sum = sum;
+        this.min = min;
+        this.max = max;
+        this.mean = mean;
+        this.m2 = m2;
+    }
+
+    /**
+     * Add a value.
+     */
+    public void add(double value)
+    {
+        count++;
+        sum += value;
+        if (value < min) min = value;
+        if (value > max) max = value;
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+    }
+
+    /**
+     * Add all values of another aggregate to this one.
+     */
+    public void merge(Aggregate other)
+    {
+        if (other.count == 0) return;
+        if (count == 0) {
+            count = other.count;
+            sum = other.sum;
+            min = other.min;
+            max = other.max;
+            mean = other.mean;
+            m2 = other.m2;
+            return;
+        }
+        long total = count + other.count;
+        double delta = other.mean - mean;
+        mean += delta * other.count / total;
+        m2 += other.m2 + delta * delta * ((double) count * other.count / total);
+        count = total;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Return the number of values.
+     */
+    public long getCount()
+    {
+        return count;
+    }
+
+    /**
+     * Return the sum of the values.
+     */
+    public double getSum()
+    {
+        return sum;
+    }
+
+    /**
+     * Return the smallest value, or NaN if there are no values.
+     */
+    public double getMin()
+    {
+        return count == 0 ? Double.NaN : min;
+    }
+
+    /**
+     * Return the largest value, or NaN if there are no values.
+     */
+    public double getMax()
+    {
+        return count == 0 ? Double.NaN : max;
+    }
+
+    /**
+     * Return the mean of the values, or NaN if there are no values.
+     */
+    public double getMean()
+    {
+        return count == 0 ? Double.NaN : mean;
+    }
+
+    /**
+     * Return the (population) variance of the values, or NaN if there are no values.
+     */
+    public double getVariance()
+    {
+        return count == 0 ? Double.NaN : m2 / count;
+    }
+
+    /**
+     * Return the (population) standard deviation of the values, or NaN if there are no values.
+     */
+    public double getStandardDeviation()
+    {
+        return Math.sqrt(getVariance());
+    }
+
+    /**
+     * Writes the aggregate to a stream, so that it can be read back with read().
+     *
+     * @param out The stream to write to
+     */
+    public void write(DataOutputStream out) throws IOException
+    {
+        out.writeLong(count);
+        out.writeDouble(sum);
+        out.writeDouble(min);
+        out.writeDouble(max);
+        out.writeDouble(mean);
+        out.writeDouble(m2);
+    }
+
+    /**
+     * Reads an aggregate written with write().
+     *
+     * @param in The stream to read from
+     * @return The aggregate
+     */
+    public static Aggregate read(DataInputStream in) throws IOException
+    {
+        return new Aggregate(in.readLong(), in.readDouble(), in.readDouble(), in.readDouble(), in.readDouble(), in.readDouble());
+    }
+
+    /**
+     * Return a short summary of the aggregate.
+     */
+    @Override
+    public String toString()
+    {
+        return String.format("count=%d mean=%.2f min=%.2f max=%.2f sd=%.2f",
+                             count, getMean(), getMin(), getMax(), getStandardDeviation());
+    }
+}
@@ -0,0 +1,131 @@
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * AggregateEngine computes the summary of the points of a dataset in an area straight
+ * from the dataset's columns, without copying points into lists: the count, sum,
+ * minimum, maximum, mean and variance of the valid values and the centroid of their
+ * locations, using the masked ReductionKernels over the runs of the selection.
+ *
+ * A quantile sketch of the values (for medians and percentiles) is only built by an
+ * engine created for it, since feeding every value into the sketch costs more than all
+ * the other figures together.
+ */
+public class AggregateEngine
+{
+    private final boolean withQuantiles;
+
+    /**
+     * Create an engine that does not build quantile sketches.
+     */
+    public AggregateEngine()
+    {
+        this(false);
+    }
+
+    /**
+     * Create an engine.
+     *
+     * @param withQuantiles True to build a quantile sketch for every summary
+     */
+    public AggregateEngine(boolean withQuantiles)
+    {
+        this.withQuantiles = withQuantiles;
+    }
+
+    /**
+     * Summarises the selected points of a dataset.
+     *
+     * @param dataSet The dataset
+     * @param selected The indices of the points to include, or null for all points
+     * @return The summary
+     */
+    public AreaSummary summarise(DataSet dataSet, BitSet selected)
+    {
+        return summarise(dataSet, selected, 0, dataSet.size());
+    }
+
+    /**
+     * Summarises the selected points of a dataset within a range of positions, e.g.
+     * one partition of the columns.
+     *
+     * @param dataSet The dataset
+     * @param selected The indices of the points to include, or null for all points
+     * @param from The first position (inclusive)
+     * @param to The last position (exclusive)
+     * @return The summary of the range
+     */
+    public AreaSummary summarise(DataSet dataSet, BitSet selected, int from, int to)
+    {
+        PointColumns columns = dataSet.getColumns();
+        int size = Math.min(to, columns.size());
+        double[] values = columns.getValues();
+
+        long points = 0;
+        if (selected == null) {
+            points = Math.max(0, size - from);
+        }
+        else {
+            for (int start = selected.nextSetBit(from); start >= 0 && start < size; ) {
+                int end = Math.min(selected.nextClearBit(start), size);
+                points += end - start;
+                start = selected.nextSetBit(end);
+            }
+        }
+
+        Aggregate statistics = ReductionKernels.aggregate(values, selected, from, size);
+        long count = statistics.getCount();
+        double centroidX = Double.NaN;
+        double centroidY = Double.NaN;
+        if (count > 0) {
+            centroidX = ReductionKernels.sumWhereValid(columns.getEastings(), values, selected, from, size) / count;
+            centroidY = ReductionKernels.sumWhereValid(columns.getNorthings(), values, selected, from, size) / count;
+        }
+        return new AreaSummary(points, statistics, centroidX, centroidY,
+                               withQuantiles ? sketch(values, selected, from, size) : null);
+    }
+
+    /**
+     * Feeds the selected valid values of a range into a new quantile sketch.
+     */
+    private static KllSketch sketch(double[] values, BitSet selected, int from, int to)
+    {
+        KllSketch quantiles = new KllSketch();
+        int first = selected == null ? (from < to ? from : -1) : selected.nextSetBit(from);
+        for (int i = first; i >= 0 && i < to; i = selected == null ? i + 1 : selected.nextSetBit(i + 1)) {
+            if (values[i] >= 0) quantiles.update(values[i]);
+        }
+        return quantiles;
+    }
+
+    /**
+     * Combines the summaries of several datasets (or areas) into one. The result has a
+     * quantile sketch only if all the summaries have one.
+     *
+     * @param summaries The summaries
+     * @return The summary of all their points
+     */
+    public AreaSummary combine(List<AreaSummary> summaries)
+    {
+        long points = 0;
+        Aggregate statistics = new Aggregate();
+        double sumX = 0;
+        double sumY = 0;
+        KllSketch quantiles = new KllSketch();
+        boolean allSketched = true;
+        for (AreaSummary summary : summaries) {
+            points += summary.pointCount();
+            long count = summary.statistics().getCount();
+            statistics.merge(summary.statistics());
+            if (summary.quantiles() != null) quantiles.merge(summary.quantiles());
+            else allSketched = false;
+            if (count > 0) {
+                sumX += summary.centroidX() * count;
+                sumY += summary.centroidY() * count;
+            }
+        }
+        long count = statistics.getCount();
+        return new AreaSummary(points, statistics, count > 0 ? sumX / count : Double.NaN, count > 0 ? sumY / count : Double.NaN,
+                               allSketched ? quantiles : null);
+    }
+}
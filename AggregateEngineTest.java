@@ -0,0 +1,145 @@
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the AggregateEngine class, comparing its summaries with figures
+ * computed directly from the points.
+ */
+public class AggregateEngineTest {
+
+    /**
+     * Creates a dataset of points on a row, one per value, 1km apart.
+     */
+    private DataSet dataSet(double... values) {
+        List<DataPoint> points = new ArrayList<>();
+        for (int i = 0; i < values.length; i++) {
+            points.add(new DataPoint(i, 500 + 1000 * i, 1500, values[i]));
+        }
+        DataSet dataSet = new DataSet("no2", "2023", "annual mean", "ug m-3");
+        dataSet.setData(points);
+        return dataSet;
+    }
+
+    /**
+     * Tests the summary of all points and of a selection, with missing values.
+     * Verifies the point count (missing values included), the statistics and centroid of
+     * the valid values, and that a quantile sketch is only built when asked for.
+     */
+    @Test
+    public void testSummarise() {
+        DataSet data = dataSet(10, -1, 20, 30, -1, 40);
+        AreaSummary all = new AggregateEngine().summarise(data, null);
+        assertEquals(6, all.pointCount());
+        assertEquals(4, all.statistics().getCount());
+        assertEquals(100, all.statistics().getSum(), 1e-9);
+        assertEquals(10, all.statistics().getMin());
+        assertEquals(40, all.statistics().getMax());
+        assertEquals(25, all.statistics().getMean(), 1e-9);
+        assertEquals(125, all.statistics().getVariance(), 1e-9);
+        assertEquals((500 + 2500 + 3500 + 5500) / 4.0, all.centroidX(), 1e-9);
+        assertEquals(1500, all.centroidY(), 1e-9);
+        assertNull(all.quantiles());
+
+        BitSet selected = new BitSet();
+        selected.set(1, 4);
+        AreaSummary some = new AggregateEngine(true).summarise(data, selected);
+        assertEquals(3, some.pointCount());
+        assertEquals(2, some.statistics().getCount());
+        assertEquals(25, some.statistics().getMean(), 1e-9);
+        assertEquals(3000, some.centroidX(), 1e-9);
+        assertEquals(2, some.quantiles().getCount());
+        assertEquals(20, some.quantiles().getQuantile(0.5));
+    }
+
+    /**
+     * Tests combining the summaries of several areas of one dataset and of two datasets.
+     * Verifies the same figures as summarising all their points at once, a centroid
+     * weighted by the valid values, and merged quantiles.
+     */
+    @Test
+    public void testCombine() {
+        AggregateEngine engine = new AggregateEngine(true);
+        DataSet first = dataSet(10, -1, 20, 30, -1, 40, 5, 15);
+        DataSet second = dataSet(-1, 50, 60);
+        BitSet west = new BitSet();
+        west.set(0, 3);
+        BitSet east = new BitSet();
+        east.set(3, 8);
+
+        AreaSummary combined = engine.combine(Arrays.asList(
+                engine.summarise(first, west), engine.summarise(first, east), engine.summarise(second, null)));
+        AreaSummary direct = engine.summarise(dataSet(10, -1, 20, 30, -1, 40, 5, 15, -1, 50, 60), null);
+        assertEquals(11, combined.pointCount());
+        assertEquals(8, combined.statistics().getCount());
+        assertEquals(direct.statistics().getSum(), combined.statistics().getSum(), 1e-9);
+        assertEquals(direct.statistics().getMin(), combined.statistics().getMin());
+        assertEquals(direct.statistics().getMax(), combined.statistics().getMax());
+        assertEquals(direct.statistics().getMean(), combined.statistics().getMean(), 1e-9);
+        assertEquals(direct.statistics().getVariance(), combined.statistics().getVariance(), 1e-9);
+        assertEquals(1500, combined.centroidY(), 1e-9);
+        // the second dataset's points lie at 1500 and 2500 here, not after the first's
+        double sumX = 500 + 2500 + 3500 + 5500 + 6500 + 7500 + 1500 + 2500;
+        assertEquals(sumX / 8, combined.centroidX(), 1e-9);
+        assertEquals(8, combined.quantiles().getCount());
+        assertEquals(direct.quantiles().getQuantile(0.5), combined.quantiles().getQuantile(0.5));
+    }
+
+    /**
+     * Tests combining summaries when one of them has no quantile sketch.
+     * Verifies the statistics are combined but the result has no sketch.
+     */
+    @Test
+    public void testCombine_WithoutQuantiles() {
+        DataSet data = dataSet(10, 20, 30);
+        AreaSummary combined = new AggregateEngine().combine(Arrays.asList(
+                new AggregateEngine(true).summarise(data, null), new AggregateEngine().summarise(data, null)));
+        assertEquals(6, combined.statistics().getCount());
+        assertNull(combined.quantiles());
+    }
+
+    /**
+     * Tests an area with no points, an area whose points are all missing, and combining
+     * them with each other, with a non-empty area and with nothing.
+     * Verifies empty statistics and a NaN centroid for the empty areas, and that they
+     * leave the figures of the non-empty area unchanged.
+     */
+    @Test
+    public void testEmptyAreas() {
+        AggregateEngine engine = new AggregateEngine(true);
+        DataSet data = dataSet(-1, -1, 12, 18);
+        AreaSummary noPoints = engine.summarise(data, new BitSet());
+        AreaSummary allMissing = engine.summarise(data, null, 0, 2);
+        AreaSummary valid = engine.summarise(data, null, 2, 4);
+
+        assertTrue(noPoints.isEmpty());
+        assertEquals(0, noPoints.statistics().getCount());
+        assertTrue(Double.isNaN(noPoints.centroidX()));
+        assertEquals(0, noPoints.getMeanOrZero());
+        assertFalse(allMissing.isEmpty());
+        assertEquals(2, allMissing.pointCount());
+        assertEquals(0, allMissing.statistics().getCount());
+        assertTrue(Double.isNaN(allMissing.centroidY()));
+        assertEquals(0, allMissing.quantiles().getCount());
+
+        AreaSummary bothEmpty = engine.combine(Arrays.asList(noPoints, allMissing));
+        assertEquals(2, bothEmpty.pointCount());
+        assertEquals(0, bothEmpty.statistics().getCount());
+        assertTrue(Double.isNaN(bothEmpty.centroidX()));
+
+        AreaSummary withValid = engine.combine(Arrays.asList(noPoints, valid, allMissing));
+        assertEquals(4, withValid.pointCount());
+        assertEquals(2, withValid.statistics().getCount());
+        assertEquals(15, withValid.statistics().getMean(), 1e-9);
+        assertEquals(9, withValid.statistics().getVariance(), 1e-9);
+        assertEquals(3000, withValid.centroidX(), 1e-9);
+
+        AreaSummary nothing = engine.combine(new ArrayList<>());
+        assertTrue(nothing.isEmpty());
+        assertTrue(Double.isNaN(nothing.centroidX()));
+    }
+}
@@ -0,0 +1,27 @@
+/**
+ * An AreaSummary holds the figures the AggregateEngine computes for the points of a
+ * dataset in an area: the number of points (including those with a missing value),
+ * the statistics of the valid values, the centroid of the points with a valid value,
+ * and a quantile sketch of the valid values for medians and percentiles (null if the
+ * summary was made without one, see AggregateEngine).
+ */
+public record AreaSummary(long pointCount, Aggregate statistics, double centroidX, double centroidY,
+                          KllSketch quantiles)
+{
+    /**
+     * Returns true if the area holds no points at all.
+     */
+    public boolean isEmpty()
+    {
+        return pointCount == 0;
+    }
+
+    /**
+     * Returns the mean of the valid values, or 0 if there are none (as the statistics
+     * tabs show it).
+     */
+    public double getMeanOrZero()
+    {
+        return statistics.getCount() > 0 ? statistics.getMean() : 0;
+    }
+}
@@ -0,0 +1,194 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * ColumnarExporter writes loaded datasets to a self-describing columnar binary file,
+ * so that other tools can use the data without parsing the DEFRA csv files again.
+ *
+ * File layout (all numbers little-endian):
+ *
+ *   - 8 bytes   magic "LPCOL1" followed by two zero bytes
+ *   - 4 bytes   length of the schema header in bytes
+ *   - header    UTF-8 JSON schema, padded with spaces so the body starts on an 8-byte boundary
+ *   - body      the column buffers, each starting on an 8-byte boundary
+ *   - 8 bytes   the magic again, marking a complete file
+ *
+ * The schema header describes one batch per dataset (pollutant, year, metric, units
+ * and row count) and, for each of the columns gridCode (int32), x (int32), y (int32)
+ * and value (float64), the buffer's offset from the start of the body and its length
+ * in bytes. The buffers use the same alignment and byte order as Apache Arrow, so a
+ * reader can map them straight into typed arrays (e.g. numpy.frombuffer). Missing
+ * values are stored as -1, as in DataSet, rather than with a validity bitmap.
+ */
+public class ColumnarExporter
+{
+    public static final byte[] MAGIC = {'L', 'P', 'C', 'O', 'L', '1', 0, 0};
+    public static final int ALIGNMENT = 8;
+
+    private static final int CHUNK_SIZE = 1 << 20; // bytes copied per write call
+
+    /**
+     * Write one dataset to a columnar file.
+     *
+     * @param dataSet The dataset to export
+     * @param file The file to write to
+     * @return True if the file was written, false if an error occurred
+     */
+    public boolean exportDataSet(DataSet dataSet, File file)
+    {
+        return exportDataSets(List.of(dataSet), file);
+    }
+
+    /**
+     * Write several datasets (e.g. all years of a pollutant) to one columnar file.
+     * Each dataset becomes one batch of the file.
+     *
+     * @param dataSets The datasets to export
+     * @param file The file to write to
+     * @return True if the file was written, false if an error occurred
+     */
+    public boolean exportDataSets(Collection<DataSet> dataSets, File file)
+    {
+        System.out.println("Exporting " + dataSets.size() + " datasets to " + file + "...");
+
+        byte[] header = buildHeader(dataSets);
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+            buffer.put(MAGIC).putInt(header.length);
+            writeFully(channel, buffer);
+            ByteBuffer headerBuffer = ByteBuffer.wrap(header);
+            while (headerBuffer.hasRemaining()) channel.write(headerBuffer);
+
+            for (DataSet dataSet : dataSets) {
+                PointColumns columns = dataSet.getColumns();
+                int rows = columns.size();
+                writeInts(channel, buffer, columns.getGridCodes(), rows);
+                writeInts(channel, buffer, columns.getEastings(), rows);
+                writeInts(channel, buffer, columns.getNorthings(), rows);
+                writeDoubles(channel, buffer, columns.getValues(), rows);
+            }
+
+            buffer.put(MAGIC);
+            writeFully(channel, buffer);
+
+            System.out.println("Exporting... done.");
+            return true;
+        }
+        catch (IOException e) {
+            System.out.println("Could not write file " + file);
+            return false;
+        }
+    }
+
+    /**
+     * Builds the JSON schema header, padded so that the body is 8-byte aligned.
+     */
+    private byte[] buildHeader(Collection<DataSet> dataSets)
+    {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"format\":\"LPCOL\",\"version\":1,\"byteOrder\":\"little\",\"missingValue\":-1,\"batches\":[");
+
+        long offset = 0;
+        boolean first = true;
+        for (DataSet dataSet : dataSets) {
+            int rows = dataSet.size();
+            if (!first) json.append(',');
+            first = false;
+
+            json.append(String.format("{\"pollutant\":\"%s\",\"year\":\"%s\",\"metric\":\"%s\",\"units\":\"%s\",\"rows\":%d,\"columns\":[",
+                                      JsonReader.escape(dataSet.getPollutant()), JsonReader.escape(dataSet.getYear()),
+                                      JsonReader.escape(dataSet.getMetric()), JsonReader.escape(dataSet.getUnits()), rows));
+            offset = appendColumn(json, "gridCode", "int32", offset, rows * 4L, true);
+            offset = appendColumn(json, "x", "int32", offset, rows * 4L, false);
+            offset = appendColumn(json, "y", "int32", offset, rows * 4L, false);
+            offset = appendColumn(json, "value", "float64", offset, rows * 8L, false);
+            json.append("]}");
+        }
+        json.append("]}");
+
+        // pad the encoded bytes (non-ASCII text takes more than one byte per char) with
+        // spaces so that magic + length + header ends on an 8-byte boundary
+        byte[] bytes = json.toString().getBytes(StandardCharsets.UTF_8);
+        int prefix = MAGIC.length + 4;
+        byte[] header = Arrays.copyOf(bytes, (int) padded(prefix + bytes.length) - prefix);
+        Arrays.fill(header, bytes.length, header.length, (byte) ' ');
+        return header;
+    }
+
+    /**
+     * Appends one column description and returns the offset of the next buffer.
+     */
+    private long appendColumn(StringBuilder json, String name, String type, long offset, long length, boolean first)
+    {
+        if (!first) json.append(',');
+        json.append(String.format("{\"name\":\"%s\",\"type\":\"%s\",\"offset\":%d,\"length\":%d}", name, type, offset, length));
+        return offset + padded(length);
+    }
+
+    /**
+     * Writes an int column in chunks, followed by padding up to the alignment.
+     */
+    private void writeInts(FileChannel channel, ByteBuffer buffer, int[] column, int rows) throws IOException
+    {
+        int perChunk = CHUNK_SIZE / 4;
+        for (int start = 0; start < rows; start += perChunk) {
+            int count = Math.min(perChunk, rows - start);
+            buffer.asIntBuffer().put(column, start, count);
+            buffer.position(count * 4);
+            writeFully(channel, buffer);
+        }
+        writePadding(channel, buffer, rows * 4L);
+    }
+
+    /**
+     * Writes a double column in chunks, followed by padding up to the alignment.
+     */
+    private void writeDoubles(FileChannel channel, ByteBuffer buffer, double[] column, int rows) throws IOException
+    {
+        int perChunk = CHUNK_SIZE / 8;
+        for (int start = 0; start < rows; start += perChunk) {
+            int count = Math.min(perChunk, rows - start);
+            buffer.asDoubleBuffer().put(column, start, count);
+            buffer.position(count * 8);
+            writeFully(channel, buffer);
+        }
+        writePadding(channel, buffer, rows * 8L);
+    }
+
+    /**
+     * Writes zero bytes up to the next alignment boundary.
+     */
+    private void writePadding(FileChannel channel, ByteBuffer buffer, long length) throws IOException
+    {
+        for (long i = length; i < padded(length); i++) buffer.put((byte) 0);
+        writeFully(channel, buffer);
+    }
+
+    /**
+     * Writes the buffer's content and clears it for the next chunk.
+     */
+    private void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException
+    {
+        buffer.flip();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * Rounds a length up to the alignment.
+     */
+    static long padded(long length)
+    {
+        return (length + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+}
@@ -0,0 +1,104 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the ColumnarExporter and ColumnarReader classes, writing columnar
+ * files to a temporary file and reading them back.
+ */
+public class ColumnarExporterTest {
+
+    private File file;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        file = File.createTempFile("columnar", ".lpcol");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        file.delete();
+    }
+
+    /**
+     * Creates a dataset from the given points.
+     */
+    private DataSet dataSet(String year, String units, DataPoint... points) {
+        DataSet dataSet = new DataSet("pm10", year, "annual mean", units);
+        dataSet.setData(List.of(points));
+        return dataSet;
+    }
+
+    /**
+     * Tests exporting two datasets, one with non-ASCII units, and reading them back.
+     * Verifies the header keeps the body 8-byte aligned in bytes and that every column
+     * and field survives the round trip.
+     */
+    @Test
+    public void testRoundTrip_NonAsciiUnits() throws Exception {
+        DataSet first = dataSet("2022", "µg/m³", new DataPoint(1, 1000, 2000, 10.5),
+                                new DataPoint(2, 3000, 4000, -1), new DataPoint(3, 5000, 6000, 7.25));
+        DataSet second = dataSet("2023", "ug m-3", new DataPoint(4, 7000, 8000, 1));
+        assertTrue(new ColumnarExporter().exportDataSets(List.of(first, second), file));
+
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file.toPath())).order(ByteOrder.LITTLE_ENDIAN);
+        int headerLength = bytes.getInt(ColumnarExporter.MAGIC.length);
+        assertEquals(0, (ColumnarExporter.MAGIC.length + 4 + headerLength) % ColumnarExporter.ALIGNMENT);
+
+        ColumnarReader reader = ColumnarReader.open(file);
+        assertNotNull(reader);
+        assertEquals(2, reader.getBatchCount());
+        assertEquals("µg/m³", reader.getUnits(0));
+        assertEquals("2023", reader.getYear(1));
+        assertEquals(3, reader.getRowCount(0));
+
+        DataSet copy = reader.toDataSet(0);
+        assertEquals("pm10", copy.getPollutant());
+        assertEquals("annual mean", copy.getMetric());
+        for (int i = 0; i < first.size(); i++) {
+            assertEquals(first.getData().get(i), copy.getData().get(i));
+        }
+        assertEquals(7.25, copy.getMinPollutionValue());
+        assertEquals(10.5, copy.getMaxPollutionValue());
+        assertEquals(new DataPoint(4, 7000, 8000, 1), reader.toDataSet(1).getData().get(0));
+    }
+
+    /**
+     * Tests opening a file whose header gives a column offset as text.
+     * Verifies the reader reports a format error (returns null) instead of throwing.
+     */
+    @Test
+    public void testOpen_MalformedHeader() throws Exception {
+        String header = "{\"format\":\"LPCOL\",\"batches\":[{\"pollutant\":\"pm10\",\"year\":\"2023\",\"metric\":\"m\","
+                        + "\"units\":\"u\",\"rows\":0,\"columns\":[{\"name\":\"gridCode\",\"type\":\"int32\","
+                        + "\"offset\":\"zero\",\"length\":0}]}]}";
+        byte[] headerBytes = header.getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(ColumnarExporter.MAGIC);
+        out.write(ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(headerBytes.length).array());
+        out.write(headerBytes);
+        out.write(ColumnarExporter.MAGIC);
+        Files.write(file.toPath(), out.toByteArray());
+
+        assertNull(ColumnarReader.open(file));
+    }
+
+    /**
+     * Tests opening a file that is not a columnar file.
+     * Verifies null is returned.
+     */
+    @Test
+    public void testOpen_NotColumnar() throws Exception {
+        Files.writeString(file.toPath(), "Grid code,x,y,value\n");
+        assertNull(ColumnarReader.open(file));
+    }
+}
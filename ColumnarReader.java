@@ -0,0 +1,280 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ColumnarReader reads files written by ColumnarExporter (see there for the layout).
+ *
+ * The file is memory-mapped, and the column getters return typed views straight onto
+ * the mapped bytes, so nothing is copied until a caller asks for a DataSet. Files are
+ * limited to 2 GB by the mapping.
+ */
+public class ColumnarReader
+{
+    private final MappedByteBuffer mapped;
+    private final int bodyStart;
+    private final List<Object> batches;
+
+    /**
+     * Open a columnar file. In case of any problem (e.g. the file does not exist or
+     * is not a complete columnar file) this method returns null.
+     *
+     * @param file The file to open
+     * @return The reader, or null if the file could not be read
+     */
+    public static ColumnarReader open(File file)
+    {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+            return new ColumnarReader(mapped);
+        }
+        catch (IOException | IndexOutOfBoundsException e) {
+            System.out.println("Could not read file " + file);
+            return null;
+        }
+        catch (IllegalArgumentException e) {
+            System.out.println("Could not read file " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Constructor for objects of class ColumnarReader
+     */
+    @SuppressWarnings("unchecked")
+    private ColumnarReader(MappedByteBuffer mapped)
+    {
+        this.mapped = mapped;
+        byte[] magic = ColumnarExporter.MAGIC;
+        if (mapped.limit() < 2 * magic.length + 4 || !hasMagic(0) || !hasMagic(mapped.limit() - magic.length)) {
+            throw new IllegalArgumentException("Not a complete columnar file");
+        }
+
+        int headerLength = mapped.getInt(magic.length);
+        if (headerLength < 0 || headerLength > mapped.limit() - 2 * magic.length - 4) {
+            throw new IllegalArgumentException("Malformed header: invalid header length " + headerLength);
+        }
+        byte[] header = new byte[headerLength];
+        mapped.get(magic.length + 4, header);
+        bodyStart = magic.length + 4 + headerLength;
+
+        Object schema = JsonReader.parse(new String(header, StandardCharsets.UTF_8));
+        if (!(schema instanceof Map) || !"LPCOL".equals(((Map<String, Object>) schema).get("format"))) {
+            throw new IllegalArgumentException("Unknown format");
+        }
+        Object batchList = ((Map<String, Object>) schema).get("batches");
+        if (!(batchList instanceof List)) throw new IllegalArgumentException("Malformed header: no batches");
+        batches = (List<Object>) batchList;
+        checkSchema(mapped.limit() - magic.length - bodyStart);
+    }
+
+    /**
+     * Checks that every batch has its text fields, a row count and the four columns
+     * inside the body, so that the getters below can read the schema without failing.
+     *
+     * @param bodyLength The number of bytes between the header and the closing magic
+     * @throws IllegalArgumentException if the header is malformed
+     */
+    @SuppressWarnings("unchecked")
+    private void checkSchema(int bodyLength)
+    {
+        for (int batch = 0; batch < batches.size(); batch++) {
+            if (!(batches.get(batch) instanceof Map)) throw new IllegalArgumentException("Malformed header: batch " + batch);
+            Map<String, Object> description = batch(batch);
+            for (String field : new String[] {"pollutant", "year", "metric", "units"}) {
+                if (!(description.get(field) instanceof String)) {
+                    throw new IllegalArgumentException("Malformed header: no " + field + " in batch " + batch);
+                }
+            }
+            long rows = number(description, "rows", batch);
+            if (!(description.get("columns") instanceof List)) {
+                throw new IllegalArgumentException("Malformed header: no columns in batch " + batch);
+            }
+            for (Object entry : (List<Object>) description.get("columns")) {
+                if (!(entry instanceof Map) || !(((Map<String, Object>) entry).get("name") instanceof String)) {
+                    throw new IllegalArgumentException("Malformed header: column in batch " + batch);
+                }
+                Map<String, Object> column = (Map<String, Object>) entry;
+                long offset = number(column, "offset", batch);
+                long length = number(column, "length", batch);
+                if (offset + length > bodyLength) {
+                    throw new IllegalArgumentException("Malformed header: column " + column.get("name") + " of batch " + batch
+                                                       + " lies outside the body");
+                }
+            }
+            for (String name : new String[] {"gridCode", "x", "y", "value"}) {
+                long length = column(batch, name).limit();
+                if (length != rows * (name.equals("value") ? 8 : 4)) {
+                    throw new IllegalArgumentException("Malformed header: column " + name + " of batch " + batch
+                                                       + " does not hold " + rows + " rows");
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns a non-negative whole number of the schema.
+     *
+     * @throws IllegalArgumentException if the field is missing or not such a number
+     */
+    private static long number(Map<String, Object> description, String field, int batch)
+    {
+        Object value = description.get(field);
+        if (!(value instanceof Double) || (Double) value < 0 || (Double) value != Math.floor((Double) value)
+                || (Double) value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Malformed header: invalid " + field + " in batch " + batch);
+        }
+        return ((Double) value).longValue();
+    }
+
+    /**
+     * Return the number of datasets (batches) in the file.
+     */
+    public int getBatchCount()
+    {
+        return batches.size();
+    }
+
+    /**
+     * Return the pollutant of a batch.
+     */
+    public String getPollutant(int batch)
+    {
+        return (String) batch(batch).get("pollutant");
+    }
+
+    /**
+     * Return the year of a batch.
+     */
+    public String getYear(int batch)
+    {
+        return (String) batch(batch).get("year");
+    }
+
+    /**
+     * Return the metric of a batch.
+     */
+    public String getMetric(int batch)
+    {
+        return (String) batch(batch).get("metric");
+    }
+
+    /**
+     * Return the units of a batch.
+     */
+    public String getUnits(int batch)
+    {
+        return (String) batch(batch).get("units");
+    }
+
+    /**
+     * Return the number of rows (data points) of a batch.
+     */
+    public int getRowCount(int batch)
+    {
+        return ((Double) batch(batch).get("rows")).intValue();
+    }
+
+    /**
+     * Return a view of the grid code column of a batch.
+     */
+    public IntBuffer getGridCodes(int batch)
+    {
+        return column(batch, "gridCode").asIntBuffer();
+    }
+
+    /**
+     * Return a view of the easting (x) column of a batch.
+     */
+    public IntBuffer getEastings(int batch)
+    {
+        return column(batch, "x").asIntBuffer();
+    }
+
+    /**
+     * Return a view of the northing (y) column of a batch.
+     */
+    public IntBuffer getNorthings(int batch)
+    {
+        return column(batch, "y").asIntBuffer();
+    }
+
+    /**
+     * Return a view of the value column of a batch.
+     */
+    public DoubleBuffer getValues(int batch)
+    {
+        return column(batch, "value").asDoubleBuffer();
+    }
+
+    /**
+     * Copies a batch into a new DataSet. Each column is copied with one bulk transfer.
+     *
+     * @param batch The batch index
+     * @return A DataSet holding the batch's data
+     */
+    public DataSet toDataSet(int batch)
+    {
+        int rows = getRowCount(batch);
+        int[] gridCodes = new int[rows];
+        int[] eastings = new int[rows];
+        int[] northings = new int[rows];
+        double[] values = new double[rows];
+        getGridCodes(batch).get(gridCodes);
+        getEastings(batch).get(eastings);
+        getNorthings(batch).get(northings);
+        getValues(batch).get(values);
+
+        DataSet dataSet = new DataSet(getPollutant(batch), getYear(batch), getMetric(batch), getUnits(batch));
+        dataSet.setData(new PointColumns(gridCodes, eastings, northings, values, rows));
+        dataSet.updateMinMaxPollutionValues();
+        return dataSet;
+    }
+
+    /**
+     * Returns the schema description of a batch.
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> batch(int batch)
+    {
+        return (Map<String, Object>) batches.get(batch);
+    }
+
+    /**
+     * Returns a little-endian byte view of one column buffer of a batch.
+     */
+    @SuppressWarnings("unchecked")
+    private ByteBuffer column(int batch, String name)
+    {
+        for (Object entry : (List<Object>) batch(batch).get("columns")) {
+            Map<String, Object> column = (Map<String, Object>) entry;
+            if (name.equals(column.get("name"))) {
+                int offset = bodyStart + ((Double) column.get("offset")).intValue();
+                int length = ((Double) column.get("length")).intValue();
+                return mapped.slice(offset, length).order(ByteOrder.LITTLE_ENDIAN);
+            }
+        }
+        throw new IllegalArgumentException("No column " + name + " in batch " + batch);
+    }
+
+    /**
+     * Returns true if the magic bytes are found at the given position.
+     */
+    private boolean hasMagic(int position)
+    {
+        byte[] magic = ColumnarExporter.MAGIC;
+        byte[] found = new byte[magic.length];
+        mapped.get(position, found);
+        return Arrays.equals(found, magic);
+    }
+}
@@ -0,0 +1,187 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.DoubleStream;
+
+/**
+ * ContourGenerator draws contour lines (isolines) through a dataset at given pollution
+ * levels, for example at the annual limit value, using marching squares over the
+ * dataset's raster.
+ *
+ * Every square between four neighbouring cell centres that the level passes through
+ * gives one or two line segments, whose ends lie on the square's edges at linearly
+ * interpolated positions. Squares with a missing corner are skipped, so lines stop at
+ * gaps in the data instead of guessing. Ambiguous (saddle) squares are resolved with
+ * the mean of the four corners. The segments are then joined into polylines through
+ * the edges they share, which needs one hash lookup per segment end.
+ *
+ * Each level is independent, so several levels are computed in parallel.
+ */
+public class ContourGenerator
+{
+    // square edges: the bottom and top edges are horizontal, the left and right edges vertical
+    private static final int BOTTOM = 0;
+    private static final int RIGHT = 1;
+    private static final int TOP = 2;
+    private static final int LEFT = 3;
+
+    // the segments of each marching squares case (corner bits: 1 bottom-left, 2 bottom-right,
+    // 4 top-right, 8 top-left); the saddle cases 5 and 10 are handled separately
+    private static final int[][] SEGMENTS = {
+        {}, {LEFT, BOTTOM}, {BOTTOM, RIGHT}, {LEFT, RIGHT},
+        {RIGHT, TOP}, {}, {BOTTOM, TOP}, {LEFT, TOP},
+        {LEFT, TOP}, {BOTTOM, TOP}, {}, {RIGHT, TOP},
+        {LEFT, RIGHT}, {BOTTOM, RIGHT}, {LEFT, BOTTOM}, {}
+    };
+
+    /**
+     * Computes the contour lines of a dataset at several levels.
+     *
+     * @param dataSet The dataset
+     * @param levels The pollution levels
+     * @return One isoline per level, in the order given
+     */
+    public List<Isoline> generate(DataSet dataSet, double... levels)
+    {
+        GridRaster raster = dataSet.getRaster();
+        return DoubleStream.of(levels).parallel()
+                           .mapToObj(level -> generate(raster, level))
+                           .collect(Collectors.toList());
+    }
+
+    /**
+     * Computes the contour lines of a raster at one level.
+     *
+     * @param raster The raster of a dataset
+     * @param level The pollution level
+     * @return The isoline
+     */
+    public Isoline generate(GridRaster raster, double level)
+    {
+        GridGeometry geometry = raster.getGeometry();
+        int columns = geometry.columns();
+        int rows = geometry.rows();
+        double[] values = raster.getValues();
+
+        // marching squares: the segments as pairs of edge ids
+        int[] segmentEdges = new int[64];
+        int segments = 0;
+        int[] edges = new int[4];
+        for (int row = 0; row + 1 < rows; row++) {
+            for (int column = 0; column + 1 < columns; column++) {
+                int cell = row * columns + column;
+                double bottomLeft = values[cell];
+                double bottomRight = values[cell + 1];
+                double topRight = values[cell + columns + 1];
+                double topLeft = values[cell + columns];
+                if (Double.isNaN(bottomLeft) || Double.isNaN(bottomRight) || Double.isNaN(topRight) || Double.isNaN(topLeft)) continue;
+
+                int index = (bottomLeft > level ? 1 : 0) | (bottomRight > level ? 2 : 0)
+                          | (topRight > level ? 4 : 0) | (topLeft > level ? 8 : 0);
+                if (index == 0 || index == 15) continue;
+
+                edges[BOTTOM] = 2 * cell;
+                edges[RIGHT] = 2 * (cell + 1) + 1;
+                edges[TOP] = 2 * (cell + columns);
+                edges[LEFT] = 2 * cell + 1;
+
+                int[] pairs = SEGMENTS[index];
+                if (index == 5 || index == 10) {
+                    boolean centreAbove = (bottomLeft + bottomRight + topRight + topLeft) / 4 > level;
+                    // the corners on the other side of the centre are cut off on their own
+                    pairs = (index == 5) == centreAbove ? new int[] {BOTTOM, RIGHT, LEFT, TOP}
+                                                        : new int[] {LEFT, BOTTOM, RIGHT, TOP};
+                }
+                for (int p = 0; p < pairs.length; p += 2) {
+                    if (2 * segments + 2 > segmentEdges.length) segmentEdges = Arrays.copyOf(segmentEdges, segmentEdges.length * 2);
+                    segmentEdges[2 * segments] = edges[pairs[p]];
+                    segmentEdges[2 * segments + 1] = edges[pairs[p + 1]];
+                    segments++;
+                }
+            }
+        }
+        return new Isoline(level, joinSegments(raster, level, segmentEdges, segments));
+    }
+
+    /**
+     * Joins the segments into polylines through their shared edges: first the open lines
+     * (starting at an edge used by only one segment), then the closed ones.
+     */
+    private List<double[]> joinSegments(GridRaster raster, double level, int[] segmentEdges, int segments)
+    {
+        // every edge is used by at most two segments
+        IntIntMap firstSegment = new IntIntMap(2 * segments);
+        IntIntMap secondSegment = new IntIntMap(segments);
+        for (int end = 0; end < 2 * segments; end++) {
+            int edge = segmentEdges[end];
+            if (firstSegment.containsKey(edge)) secondSegment.put(edge, end / 2);
+            else firstSegment.put(edge, end / 2);
+        }
+
+        boolean[] used = new boolean[segments];
+        List<double[]> lines = new ArrayList<>();
+        for (int segment = 0; segment < segments; segment++) {
+            if (used[segment]) continue;
+            int firstEdge = segmentEdges[2 * segment];
+            int secondEdge = segmentEdges[2 * segment + 1];
+            if (!secondSegment.containsKey(firstEdge)) {
+                lines.add(walk(raster, level, segmentEdges, segment, firstEdge, firstSegment, secondSegment, used));
+            }
+            else if (!secondSegment.containsKey(secondEdge)) {
+                lines.add(walk(raster, level, segmentEdges, segment, secondEdge, firstSegment, secondSegment, used));
+            }
+        }
+        for (int segment = 0; segment < segments; segment++) {
+            if (used[segment]) continue;
+            lines.add(walk(raster, level, segmentEdges, segment, segmentEdges[2 * segment], firstSegment, secondSegment, used));
+        }
+        return lines;
+    }
+
+    /**
+     * Follows a line from a segment, starting at one of its edges, until it ends or
+     * comes back to the start.
+     */
+    private double[] walk(GridRaster raster, double level, int[] segmentEdges, int segment, int startEdge,
+                          IntIntMap firstSegment, IntIntMap secondSegment, boolean[] used)
+    {
+        double[] line = new double[16];
+        int length = 0;
+        line = addPoint(raster, level, startEdge, line, length++);
+        int edge = startEdge;
+        while (segment >= 0 && !used[segment]) {
+            used[segment] = true;
+            edge = segmentEdges[2 * segment] == edge ? segmentEdges[2 * segment + 1] : segmentEdges[2 * segment];
+            line = addPoint(raster, level, edge, line, length++);
+
+            int next = firstSegment.get(edge);
+            segment = next == segment ? secondSegment.get(edge) : next;
+        }
+        return Arrays.copyOf(line, 2 * length);
+    }
+
+    /**
+     * Stores the point where the level crosses an edge as the point with the given
+     * number, growing the line array if needed.
+     */
+    private double[] addPoint(GridRaster raster, double level, int edge, double[] line, int point)
+    {
+        if (2 * point + 2 > line.length) line = Arrays.copyOf(line, line.length * 2);
+        GridGeometry geometry = raster.getGeometry();
+        int columns = geometry.columns();
+        int cell = edge / 2;
+        int otherCell = edge % 2 == 0 ? cell + 1 : cell + columns; // the edge's other end
+        double from = raster.getValue(cell);
+        double to = raster.getValue(otherCell);
+        double t = (level - from) / (to - from);
+
+        double x = geometry.centreX(cell % columns);
+        double y = geometry.centreY(cell / columns);
+        if (edge % 2 == 0) x += t * geometry.cellSize();
+        else y += t * geometry.cellSize();
+        line[2 * point] = x;
+        line[2 * point + 1] = y;
+        return line;
+    }
+}
@@ -0,0 +1,120 @@
+import org.junit.jupiter.api.Test;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the ContourGenerator class, on small grids of 1km cells whose centres
+ * lie at 500, 1500, ... metres.
+ */
+public class ContourGeneratorTest {
+
+    /**
+     * Returns the lines of one level.
+     */
+    private List<double[]> lines(double[][] grid, double level) {
+        return new ContourGenerator().generate(TestGrids.dataSet(grid), level).get(0).lines();
+    }
+
+    /**
+     * Checks that the lines hold a two-point line between the given points, in either direction.
+     */
+    private void assertHasSegment(List<double[]> lines, double x1, double y1, double x2, double y2) {
+        for (double[] line : lines) {
+            if (line.length != 4) continue;
+            boolean forwards = close(line[0], x1) && close(line[1], y1) && close(line[2], x2) && close(line[3], y2);
+            boolean backwards = close(line[0], x2) && close(line[1], y2) && close(line[2], x1) && close(line[3], y1);
+            if (forwards || backwards) return;
+        }
+        fail("No line from (" + x1 + ", " + y1 + ") to (" + x2 + ", " + y2 + ")");
+    }
+
+    private boolean close(double a, double b) {
+        return Math.abs(a - b) < 1e-9;
+    }
+
+    /**
+     * Tests the saddle case 5 (bottom-left and top-right above), with the mean of the
+     * corners above and below the level.
+     * Verifies the lines cut off the corners on the other side of the centre.
+     */
+    @Test
+    public void testSaddle_Case5() {
+        double[][] grid = {
+            {50, 0},
+            {0, 50}
+        };
+        // mean 25 is above 20: the high corners are joined, the low ones cut off
+        List<double[]> lines = lines(grid, 20);
+        assertEquals(2, lines.size());
+        assertHasSegment(lines, 1100, 500, 1500, 900);
+        assertHasSegment(lines, 500, 1100, 900, 1500);
+
+        // mean 25 is below 30: the high corners are cut off
+        lines = lines(grid, 30);
+        assertEquals(2, lines.size());
+        assertHasSegment(lines, 500, 900, 900, 500);
+        assertHasSegment(lines, 1500, 1100, 1100, 1500);
+    }
+
+    /**
+     * Tests the saddle case 10 (bottom-right and top-left above), with the mean of the
+     * corners above and below the level.
+     * Verifies the lines cut off the corners on the other side of the centre.
+     */
+    @Test
+    public void testSaddle_Case10() {
+        double[][] grid = {
+            {0, 50},
+            {50, 0}
+        };
+        List<double[]> lines = lines(grid, 20);
+        assertEquals(2, lines.size());
+        assertHasSegment(lines, 500, 900, 900, 500);
+        assertHasSegment(lines, 1500, 1100, 1100, 1500);
+
+        lines = lines(grid, 30);
+        assertEquals(2, lines.size());
+        assertHasSegment(lines, 1100, 500, 1500, 900);
+        assertHasSegment(lines, 500, 1100, 900, 1500);
+    }
+
+    /**
+     * Tests a single high cell inside a ring of low ones.
+     * Verifies one closed line around it that ends on its first point.
+     */
+    @Test
+    public void testClosedLine() {
+        double[][] grid = {
+            {0, 0, 0},
+            {0, 50, 0},
+            {0, 0, 0}
+        };
+        List<double[]> lines = lines(grid, 25);
+        assertEquals(1, lines.size());
+        double[] line = lines.get(0);
+        assertEquals(10, line.length);
+        assertEquals(line[0], line[8], 1e-9);
+        assertEquals(line[1], line[9], 1e-9);
+        for (int i = 0; i < 8; i += 2) {
+            // every crossing lies halfway between the centre and one of its neighbours
+            assertEquals(500, Math.abs(line[i] - 1500) + Math.abs(line[i + 1] - 1500), 1e-9);
+        }
+    }
+
+    /**
+     * Tests a level crossing a row with a missing cell.
+     * Verifies the line stops at the squares around the gap, leaving two open lines.
+     */
+    @Test
+    public void testLinesStopAtMissingCells() {
+        double[][] grid = {
+            {0, 0, 0, 0, 0},
+            {50, 50, -1, 50, 50}
+        };
+        List<double[]> lines = lines(grid, 25);
+        assertEquals(2, lines.size());
+        assertHasSegment(lines, 500, 1000, 1500, 1000);
+        assertHasSegment(lines, 3500, 1000, 4500, 1000);
+    }
+}
@@ -1,6 +1,5 @@
 import java.io.*;
 import java.net.*;
-import java.util.HashMap;
 
 /**
  * This class loads a UK DEFRA air pollution file from disk and returns the file data
@@ -26,13 +25,11 @@ public class DataLoader
     {
         System.out.println("Loading file " + fileName + "...");
         
-        // Checks whether the file as already been loaded before.
-        HashMap<String, DataSet> dataSets = DataSets.getInstance().getDataSets(isLondon);
-        
         // Returns a DataSet if it is already contained within the DataSets singleton class
-        if (dataSets.containsKey(fileName)) {
+        DataSet loadedDataSet = DataSets.getDataSet(fileName, isLondon);
+        if (loadedDataSet != null) {
             System.out.println("Loading file... done.");
-            return dataSets.get(fileName);
+            return loadedDataSet;
         }
         
         try {
@@ -59,6 +56,9 @@ public class DataLoader
                 dataSet.addData(values);
             }
             
+            // Records the file's summary (from the complete data, before any London filtering)
+            SummaryStore.getInstance().record(fileName, dataSet);
+            
             // Add the dataSet to the Location singleton class
             DataSets.putDataSets(fileName, dataSet, isLondon); 
             
@@ -1,4 +1,5 @@
 import java.util.*;
+import java.util.function.IntConsumer;
 
 /**
  * A DataSet object holds all the data from a pollution data file.
@@ -7,7 +8,7 @@ import java.util.*;
  * https://uk-air.defra.gov.uk/data/pcm-data). 
  * 
  * The data consists of a few bits of information about the nature of the data, and a list
- * of data points.
+ * of data points. The points are stored column-wise (see PointColumns).
  * 
  * @author Michael Kölling and Patrick Dunham
  * @version 24.03.2025
@@ -19,10 +20,23 @@ public class DataSet
     private String metric;
     private String units;
     
-    private List<DataPoint> data;
+    private PointColumns data;
+    private GridGeometry grid; // the grid the points lie on, or null to infer it from them
     private double minPollutionValue;
     private double maxPollutionValue;
     private static final int MISSING_VALUE = -1; // Represents a data point missing its pollution value (value set to -1)
+    
+    // Lookup structures built on first use; each remembers the data version it was built for
+    private SpatialIndex spatialIndex;
+    private int spatialIndexVersion;
+    private LatLonTable latLonTable;
+    private int latLonTableVersion;
+    private GridRaster raster;
+    private int rasterVersion;
+    private SummedAreaTable summedAreaTable;
+    private int summedAreaTableVersion;
+    private ValueIndex valueIndex;
+    private int valueIndexVersion;
 
     /**
      * Constructor for objects of class DataSet
@@ -34,7 +48,7 @@ public class DataSet
         this.metric = metric;
         this.units = units;
         
-        data = new ArrayList<DataPoint>();
+        data = new PointColumns();
         minPollutionValue = Double.MAX_VALUE;
         maxPollutionValue = 0;
     }
@@ -93,13 +107,228 @@ public class DataSet
         return data;
     }
     
+    /**
+     * Return the data points of this dataset as primitive columns.
+     */
+    public PointColumns getColumns()
+    {
+        return data;
+    }
+    
+    /**
+     * Return the spatial index of this dataset, building it on first use and
+     * rebuilding it if the data has changed since.
+     */
+    public synchronized SpatialIndex getSpatialIndex()
+    {
+        if (spatialIndex == null || spatialIndexVersion != data.getVersion()) {
+            spatialIndex = new SpatialIndex(data);
+            spatialIndexVersion = data.getVersion();
+        }
+        return spatialIndex;
+    }
+    
+    /**
+     * Return the latitude/longitude table of this dataset, building it on first use
+     * and rebuilding it if the data has changed since.
+     */
+    public synchronized LatLonTable getLatLonTable()
+    {
+        if (latLonTable == null || latLonTableVersion != data.getVersion()) {
+            latLonTable = new LatLonTable(data);
+            latLonTableVersion = data.getVersion();
+        }
+        return latLonTable;
+    }
+    
+    /**
+     * Return the raster form of this dataset, building it on first use and
+     * rebuilding it if the data has changed since.
+     */
+    public synchronized GridRaster getRaster()
+    {
+        if (raster == null || rasterVersion != data.getVersion()) {
+            raster = grid != null ? new GridRaster(data, grid) : new GridRaster(data);
+            rasterVersion = data.getVersion();
+        }
+        return raster;
+    }
+    
+    /**
+     * Return the summed-area table of this dataset, building it on first use and
+     * rebuilding it if the data has changed since.
+     */
+    public synchronized SummedAreaTable getSummedAreaTable()
+    {
+        if (summedAreaTable == null || summedAreaTableVersion != data.getVersion()) {
+            summedAreaTable = new SummedAreaTable(getRaster());
+            summedAreaTableVersion = data.getVersion();
+        }
+        return summedAreaTable;
+    }
+    
+    /**
+     * Return the value index of this dataset, building it on first use and rebuilding
+     * it if the data has changed since.
+     */
+    public synchronized ValueIndex getValueIndex()
+    {
+        if (valueIndex == null || valueIndexVersion != data.getVersion()) {
+            valueIndex = new ValueIndex(data);
+            valueIndexVersion = data.getVersion();
+        }
+        return valueIndex;
+    }
+    
+    /**
+     * Returns the statistics of the valid values of the points inside a rectangle
+     * (bounds inclusive). Only the points in the spatial index buckets that overlap
+     * the rectangle are looked at.
+     */
+    public Aggregate aggregateInBox(double minX, double minY, double maxX, double maxY)
+    {
+        Aggregate aggregate = new Aggregate();
+        double[] values = data.getValues();
+        getSpatialIndex().forEachInBox(minX, minY, maxX, maxY, point -> {
+            if (values[point] >= 0) aggregate.add(values[point]);
+        });
+        return aggregate;
+    }
+    
+    /**
+     * Returns the indices of the points inside a rectangle (bounds inclusive),
+     * including points with a missing value.
+     */
+    public int[] indicesInBox(double minX, double minY, double maxX, double maxY)
+    {
+        return getSpatialIndex().inBox(minX, minY, maxX, maxY);
+    }
+    
+    /**
+     * Returns the statistics of the valid values of the points within a distance of a location.
+     */
+    public Aggregate aggregateWithinRadius(double easting, double northing, double radius)
+    {
+        Aggregate aggregate = new Aggregate();
+        double[] values = data.getValues();
+        getSpatialIndex().forEachWithinRadius(easting, northing, radius, point -> {
+            if (values[point] >= 0) aggregate.add(values[point]);
+        });
+        return aggregate;
+    }
+    
+    /**
+     * Returns the indices of the points within a distance of a location, including
+     * points with a missing value.
+     */
+    public int[] indicesWithinRadius(double easting, double northing, double radius)
+    {
+        return getSpatialIndex().withinRadius(easting, northing, radius);
+    }
+    
+    /**
+     * Returns the statistics of the valid values of the points inside a polygon.
+     * Only the points inside the polygon's bounding box are tested.
+     *
+     * @param rings The boundary rings (x1, y1, x2, y2, ...), see RegionRegistry.addRegion
+     */
+    public Aggregate aggregateInPolygon(List<double[]> rings)
+    {
+        Aggregate aggregate = new Aggregate();
+        double[] values = data.getValues();
+        forEachInPolygon(rings, point -> {
+            if (values[point] >= 0) aggregate.add(values[point]);
+        });
+        return aggregate;
+    }
+    
+    /**
+     * Returns the indices of the points inside a polygon, including points with a missing value.
+     *
+     * @param rings The boundary rings (x1, y1, x2, y2, ...), see RegionRegistry.addRegion
+     */
+    public int[] indicesInPolygon(List<double[]> rings)
+    {
+        return SpatialIndex.collect(action -> forEachInPolygon(rings, action));
+    }
+    
+    /**
+     * Returns the statistics of the valid values in a region of the RegionRegistry,
+     * reduced over the runs of the region's points (see ReductionKernels).
+     */
+    public Aggregate aggregateInRegion(String name)
+    {
+        return ReductionKernels.aggregate(data.getValues(), RegionRegistry.getInstance().selectPoints(name, this), 0, size());
+    }
+    
+    /**
+     * Returns the indices of the points in a region of the RegionRegistry, including
+     * points with a missing value.
+     */
+    public int[] indicesInRegion(String name)
+    {
+        return RegionRegistry.getInstance().selectPoints(name, this).stream().toArray();
+    }
+    
+    /**
+     * Passes the index of every point inside a polygon to the action.
+     */
+    private void forEachInPolygon(List<double[]> rings, IntConsumer action)
+    {
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (double[] ring : rings) {
+            for (int i = 0; i + 1 < ring.length; i += 2) {
+                minX = Math.min(minX, ring[i]);
+                maxX = Math.max(maxX, ring[i]);
+                minY = Math.min(minY, ring[i + 1]);
+                maxY = Math.max(maxY, ring[i + 1]);
+            }
+        }
+        int[] eastings = data.getEastings();
+        int[] northings = data.getNorthings();
+        getSpatialIndex().forEachInBox(minX, minY, maxX, maxY, point -> {
+            if (RegionRegistry.containsPoint(rings, eastings[point], northings[point])) action.accept(point);
+        });
+    }
+    
+    /**
+     * Return the number of data points in this dataset.
+     */
+    public int size()
+    {
+        return data.size();
+    }
+    
     /**
      * Set data to the given list of data points.
      * 
      * @param dataPoints A list of data points
      */
-    public void setData(List<DataPoint> dataPoints) {
-        data = dataPoints;
+    public synchronized void setData(List<DataPoint> dataPoints) {
+        if (dataPoints instanceof PointColumns) {
+            data = (PointColumns) dataPoints;
+        }
+        else {
+            data = new PointColumns(dataPoints.size());
+            for (DataPoint dataPoint : dataPoints) {
+                data.add(dataPoint.gridCode(), dataPoint.x(), dataPoint.y(), dataPoint.value());
+            }
+        }
+        grid = null;
+        clearLookups();
+    }
+    
+    /**
+     * Set data to the given point columns, whose points lie on the cells of a known grid.
+     * The raster then uses that grid instead of inferring one from the points.
+     * 
+     * @param points The point columns
+     * @param grid The grid holding every point
+     */
+    public synchronized void setData(PointColumns points, GridGeometry grid) {
+        setData(points);
+        this.grid = grid;
     }
     
     /**
@@ -118,15 +347,36 @@ public class DataSet
     public void addData(String[] values)
     {
         double pollutionValue = toDouble(values[3]);
-        data.add(new DataPoint(toInt(values[0]), 
-                               toInt(values[1]), 
-                               toInt(values[2]), 
-                               pollutionValue));
+        data.add(toInt(values[0]), toInt(values[1]), toInt(values[2]), pollutionValue);
+        grid = null;
         
         setMinPollutionValue(pollutionValue);
         setMaxPollutionValue(pollutionValue);
     }
     
+    /**
+     * Recalculates the minimum and maximum pollution values from all data points.
+     * Used when the data has been set as a whole rather than added line by line.
+     */
+    public void updateMinMaxPollutionValues() {
+        double[] values = data.getValues();
+        double min = ReductionKernels.min(values, null, 0, data.size());
+        double max = ReductionKernels.max(values, null, 0, data.size());
+        minPollutionValue = Double.isInfinite(min) ? Double.MAX_VALUE : min;
+        maxPollutionValue = Math.max(max, 0);
+    }
+    
+    /**
+     * Drops all lookup structures so that they are rebuilt for new data.
+     */
+    private void clearLookups() {
+        spatialIndex = null;
+        latLonTable = null;
+        raster = null;
+        summedAreaTable = null;
+        valueIndex = null;
+    }
+    
     /**
      * Sets the minimum pollution value.
      * 
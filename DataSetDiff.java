@@ -0,0 +1,310 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * DataSetDiff compares two versions of the same DEFRA file (same pollutant and year),
+ * for example a cached DataSet and a file DEFRA has re-issued.
+ *
+ * The two datasets are joined on the grid code with a primitive hash join, so the
+ * comparison takes linear time and does not create any DataPoint objects. The result
+ * lists the added, removed and changed cells as point indices into the two datasets,
+ * together with summary figures for the value changes.
+ *
+ * A cell counts as changed if its value differs by more than the tolerance, or if
+ * it is missing (negative) in one version but not in the other.
+ *
+ * Grid codes are normally unique, but unreadable codes are all loaded as -1. Rows whose
+ * code is repeated in either dataset are therefore matched on their location as well,
+ * through a second hash map keyed by code and location, and counted by
+ * getDuplicateCount.
+ */
+public class DataSetDiff
+{
+    private static final double DEFAULT_TOLERANCE = 1e-9;
+
+    private final DataSet oldDataSet;
+    private final DataSet newDataSet;
+
+    private int[] addedIndices;      // indices into the new dataset
+    private int[] removedIndices;    // indices into the old dataset
+    private int[] changedOldIndices; // indices into the old dataset...
+    private int[] changedNewIndices; // ...and the matching indices into the new dataset
+    private int matchedCount;
+    private int duplicateCount;      // rows of either dataset whose grid code is used by another row
+
+    private int comparedCount;       // matched cells that are valid in both versions
+    private double sumDelta;
+    private double sumAbsDelta;
+    private double maxIncrease;
+    private double maxDecrease;
+
+    /**
+     * Compare two datasets, treating any value difference as a change.
+     *
+     * @param oldDataSet The previous version of the data
+     * @param newDataSet The new version of the data
+     */
+    public DataSetDiff(DataSet oldDataSet, DataSet newDataSet)
+    {
+        this(oldDataSet, newDataSet, DEFAULT_TOLERANCE);
+    }
+
+    /**
+     * Compare two datasets.
+     *
+     * @param oldDataSet The previous version of the data
+     * @param newDataSet The new version of the data
+     * @param tolerance The largest value difference that does not count as a change
+     * @throws IllegalArgumentException if the datasets are for different pollutants or years
+     */
+    public DataSetDiff(DataSet oldDataSet, DataSet newDataSet, double tolerance)
+    {
+        if (!oldDataSet.getPollutant().equals(newDataSet.getPollutant())
+                || !oldDataSet.getYear().equals(newDataSet.getYear())) {
+            throw new IllegalArgumentException("Cannot compare " + oldDataSet + " with " + newDataSet);
+        }
+        this.oldDataSet = oldDataSet;
+        this.newDataSet = newDataSet;
+        compare(tolerance);
+    }
+
+    /**
+     * Joins the two datasets on grid code and collects the differences.
+     */
+    private void compare(double tolerance)
+    {
+        PointColumns oldColumns = oldDataSet.getColumns();
+        PointColumns newColumns = newDataSet.getColumns();
+        int oldSize = oldColumns.size();
+        int newSize = newColumns.size();
+        int[] oldCodes = oldColumns.getGridCodes();
+        int[] newCodes = newColumns.getGridCodes();
+        double[] oldValues = oldColumns.getValues();
+        double[] newValues = newColumns.getValues();
+        int[] oldEastings = oldColumns.getEastings();
+        int[] oldNorthings = oldColumns.getNorthings();
+        int[] newEastings = newColumns.getEastings();
+        int[] newNorthings = newColumns.getNorthings();
+
+        // Build side: grid code -> index in the old dataset, and the number of rows
+        // using each code on both sides
+        IntIntMap oldIndex = new IntIntMap(oldSize);
+        IntIntMap oldCodeCounts = countCodes(oldCodes, oldSize);
+        IntIntMap newCodeCounts = countCodes(newCodes, newSize);
+        for (int i = 0; i < oldSize; i++) {
+            oldIndex.put(oldCodes[i], i);
+        }
+
+        // A repeated code does not identify a cell, so the old rows with such a code are
+        // keyed by code and location instead, the rows sharing both chained in file order
+        Map<Cell, Integer> oldByCell = new HashMap<>();
+        int[] nextInCell = new int[oldSize];
+        for (int i = oldSize - 1; i >= 0; i--) {
+            if (oldCodeCounts.get(oldCodes[i]) > 1 || newCodeCounts.get(oldCodes[i]) > 1) {
+                Integer next = oldByCell.put(new Cell(oldCodes[i], oldEastings[i], oldNorthings[i]), i);
+                nextInCell[i] = next == null ? IntIntMap.NO_VALUE : next;
+            }
+            if (oldCodeCounts.get(oldCodes[i]) > 1) duplicateCount++;
+        }
+        for (int j = 0; j < newSize; j++) {
+            if (newCodeCounts.get(newCodes[j]) > 1) duplicateCount++;
+        }
+
+        boolean[] oldMatched = new boolean[oldSize];
+        int[] added = new int[newSize];
+        int[] changedOld = new int[Math.min(oldSize, newSize)];
+        int[] changedNew = new int[changedOld.length];
+        int addedCount = 0;
+        int changedCount = 0;
+        maxIncrease = 0;
+        maxDecrease = 0;
+
+        // Probe side: look up every new cell in the old dataset
+        for (int j = 0; j < newSize; j++) {
+            int code = newCodes[j];
+            int i;
+            if (oldCodeCounts.get(code) > 1 || newCodeCounts.get(code) > 1) {
+                // take the first old row of the cell that is not matched yet
+                Cell cell = new Cell(code, newEastings[j], newNorthings[j]);
+                Integer first = oldByCell.get(cell);
+                i = first == null ? IntIntMap.NO_VALUE : first;
+                if (i != IntIntMap.NO_VALUE) {
+                    if (nextInCell[i] == IntIntMap.NO_VALUE) oldByCell.remove(cell);
+                    else oldByCell.put(cell, nextInCell[i]);
+                }
+            }
+            else {
+                i = oldIndex.get(code);
+            }
+            if (i == IntIntMap.NO_VALUE) {
+                added[addedCount++] = j;
+                continue;
+            }
+            oldMatched[i] = true;
+            matchedCount++;
+
+            double oldValue = oldValues[i];
+            double newValue = newValues[j];
+            boolean oldValid = oldValue >= 0;
+            boolean newValid = newValue >= 0;
+            boolean changed;
+            if (oldValid && newValid) {
+                double delta = newValue - oldValue;
+                comparedCount++;
+                sumDelta += delta;
+                sumAbsDelta += Math.abs(delta);
+                if (delta > maxIncrease) maxIncrease = delta;
+                if (delta < maxDecrease) maxDecrease = delta;
+                changed = Math.abs(delta) > tolerance;
+            }
+            else {
+                changed = oldValid != newValid;
+            }
+            if (changed) {
+                changedOld[changedCount] = i;
+                changedNew[changedCount] = j;
+                changedCount++;
+            }
+        }
+
+        int[] removed = new int[oldSize - matchedCount];
+        int removedCount = 0;
+        for (int i = 0; i < oldSize; i++) {
+            if (!oldMatched[i]) removed[removedCount++] = i;
+        }
+
+        addedIndices = Arrays.copyOf(added, addedCount);
+        removedIndices = removed;
+        changedOldIndices = Arrays.copyOf(changedOld, changedCount);
+        changedNewIndices = Arrays.copyOf(changedNew, changedCount);
+    }
+
+    /**
+     * Returns a map from each grid code to the number of rows using it.
+     */
+    private static IntIntMap countCodes(int[] codes, int size)
+    {
+        IntIntMap counts = new IntIntMap(size);
+        for (int i = 0; i < size; i++) {
+            int count = counts.get(codes[i]);
+            counts.put(codes[i], count == IntIntMap.NO_VALUE ? 1 : count + 1);
+        }
+        return counts;
+    }
+
+    /**
+     * The grid code and location of a row, identifying a cell whose code is repeated.
+     */
+    private record Cell(int gridCode, int easting, int northing)
+    {
+    }
+
+    /**
+     * Return the indices (into the new dataset) of cells that are not in the old dataset.
+     */
+    public int[] getAddedIndices()
+    {
+        return addedIndices;
+    }
+
+    /**
+     * Return the indices (into the old dataset) of cells that are not in the new dataset.
+     */
+    public int[] getRemovedIndices()
+    {
+        return removedIndices;
+    }
+
+    /**
+     * Return the indices (into the old dataset) of the changed cells.
+     */
+    public int[] getChangedOldIndices()
+    {
+        return changedOldIndices;
+    }
+
+    /**
+     * Return the indices (into the new dataset) of the changed cells, in the same
+     * order as getChangedOldIndices.
+     */
+    public int[] getChangedNewIndices()
+    {
+        return changedNewIndices;
+    }
+
+    /**
+     * Return the number of cells present in both datasets.
+     */
+    public int getMatchedCount()
+    {
+        return matchedCount;
+    }
+
+    /**
+     * Return the number of rows, in both datasets together, whose grid code is shared
+     * with another row of the same dataset. These rows were matched by location.
+     */
+    public int getDuplicateCount()
+    {
+        return duplicateCount;
+    }
+
+    /**
+     * Return the number of changed cells.
+     */
+    public int getChangedCount()
+    {
+        return changedOldIndices.length;
+    }
+
+    /**
+     * Return true if the two datasets hold the same cells with the same values.
+     */
+    public boolean isIdentical()
+    {
+        return addedIndices.length == 0 && removedIndices.length == 0 && changedOldIndices.length == 0;
+    }
+
+    /**
+     * Return the mean value change (new - old) over cells that are valid in both datasets.
+     */
+    public double getMeanDelta()
+    {
+        return comparedCount > 0 ? sumDelta / comparedCount : 0;
+    }
+
+    /**
+     * Return the mean absolute value change over cells that are valid in both datasets.
+     */
+    public double getMeanAbsoluteDelta()
+    {
+        return comparedCount > 0 ? sumAbsDelta / comparedCount : 0;
+    }
+
+    /**
+     * Return the largest increase of a cell value (0 if no value went up).
+     */
+    public double getMaxIncrease()
+    {
+        return maxIncrease;
+    }
+
+    /**
+     * Return the largest decrease of a cell value as a negative number (0 if no value went down).
+     */
+    public double getMaxDecrease()
+    {
+        return maxDecrease;
+    }
+
+    /**
+     * Return a string representation of this comparison.
+     */
+    public String toString()
+    {
+        return String.format("Diff %s %s: %d added, %d removed, %d changed of %d matched (mean delta %.3f, max +%.3f / %.3f)",
+                             newDataSet.getPollutant(), newDataSet.getYear(), addedIndices.length, removedIndices.length,
+                             changedOldIndices.length, matchedCount, getMeanDelta(), maxIncrease, maxDecrease);
+    }
+}
@@ -0,0 +1,147 @@
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the DataSetDiff class, comparing small versions of the same dataset.
+ */
+public class DataSetDiffTest {
+
+    /**
+     * Creates a dataset from the given points.
+     */
+    private DataSet dataSet(DataPoint... points) {
+        DataSet dataSet = new DataSet("pm10", "2023", "annual mean", "ug m-3");
+        dataSet.setData(List.of(points));
+        return dataSet;
+    }
+
+    /**
+     * Tests comparing a dataset with itself.
+     * Verifies every cell is matched and nothing is reported.
+     */
+    @Test
+    public void testIdentical() {
+        DataSet data = dataSet(new DataPoint(1, 1000, 1000, 10), new DataPoint(2, 2000, 1000, -1));
+        DataSetDiff diff = new DataSetDiff(data, data);
+        assertTrue(diff.isIdentical());
+        assertEquals(2, diff.getMatchedCount());
+        assertEquals(0, diff.getDuplicateCount());
+    }
+
+    /**
+     * Tests a new version with an added, a removed, a changed, a newly missing and an
+     * unchanged cell.
+     * Verifies the indices of each kind of difference and the summary deltas.
+     */
+    @Test
+    public void testAddedRemovedChanged() {
+        DataSet oldData = dataSet(new DataPoint(1, 1000, 1000, 10),
+                                  new DataPoint(2, 2000, 1000, 20),
+                                  new DataPoint(3, 3000, 1000, 30),
+                                  new DataPoint(4, 4000, 1000, 40),
+                                  new DataPoint(5, 5000, 1000, 50));
+        DataSet newData = dataSet(new DataPoint(5, 5000, 1000, 50),
+                                  new DataPoint(2, 2000, 1000, 24),
+                                  new DataPoint(3, 3000, 1000, 28),
+                                  new DataPoint(4, 4000, 1000, -1),
+                                  new DataPoint(6, 6000, 1000, 60));
+        DataSetDiff diff = new DataSetDiff(oldData, newData);
+
+        assertFalse(diff.isIdentical());
+        assertArrayEquals(new int[] {4}, diff.getAddedIndices());
+        assertArrayEquals(new int[] {0}, diff.getRemovedIndices());
+        assertArrayEquals(new int[] {1, 2, 3}, diff.getChangedOldIndices());
+        assertArrayEquals(new int[] {1, 2, 3}, diff.getChangedNewIndices());
+        assertEquals(4, diff.getMatchedCount());
+        assertEquals(3, diff.getChangedCount());
+
+        // valid in both versions: +4, -2 and 0
+        assertEquals(2.0 / 3, diff.getMeanDelta(), 1e-12);
+        assertEquals(2.0, diff.getMeanAbsoluteDelta(), 1e-12);
+        assertEquals(4.0, diff.getMaxIncrease(), 1e-12);
+        assertEquals(-2.0, diff.getMaxDecrease(), 1e-12);
+    }
+
+    /**
+     * Tests a tolerance larger than a value change.
+     * Verifies the change is not reported but still counts towards the deltas.
+     */
+    @Test
+    public void testTolerance() {
+        DataSet oldData = dataSet(new DataPoint(1, 1000, 1000, 10));
+        DataSet newData = dataSet(new DataPoint(1, 1000, 1000, 10.05));
+        DataSetDiff diff = new DataSetDiff(oldData, newData, 0.1);
+        assertTrue(diff.isIdentical());
+        assertEquals(0.05, diff.getMeanDelta(), 1e-9);
+    }
+
+    /**
+     * Tests rows with unreadable (-1) grid codes, which repeat within each dataset.
+     * Verifies they are matched by location rather than reported as added and removed.
+     */
+    @Test
+    public void testDuplicateCodes_MatchedByLocation() {
+        DataSet oldData = dataSet(new DataPoint(-1, 1000, 1000, 10),
+                                  new DataPoint(-1, 2000, 1000, 20),
+                                  new DataPoint(-1, 3000, 1000, 30),
+                                  new DataPoint(7, 4000, 1000, 40));
+        DataSet newData = dataSet(new DataPoint(-1, 3000, 1000, 30),
+                                  new DataPoint(-1, 1000, 1000, 11),
+                                  new DataPoint(-1, 9000, 1000, 90),
+                                  new DataPoint(7, 4000, 1000, 40));
+        DataSetDiff diff = new DataSetDiff(oldData, newData);
+
+        assertEquals(6, diff.getDuplicateCount());
+        assertEquals(3, diff.getMatchedCount());
+        assertArrayEquals(new int[] {2}, diff.getAddedIndices());
+        assertArrayEquals(new int[] {1}, diff.getRemovedIndices());
+        assertArrayEquals(new int[] {0}, diff.getChangedOldIndices());
+        assertArrayEquals(new int[] {1}, diff.getChangedNewIndices());
+    }
+
+    /**
+     * Tests a large file whose codes are all unreadable, re-issued in another row order
+     * with a value changed and a row added, where the old file held two rows at the
+     * same location and the new one only the first.
+     * Verifies that every row is matched to the row at its location, rows at a shared
+     * location in file order, and only the differences are reported.
+     */
+    @Test
+    public void testDuplicateCodes_LargeFile() {
+        List<DataPoint> oldPoints = new ArrayList<>();
+        for (int i = 0; i < 50000; i++) {
+            oldPoints.add(new DataPoint(-1, 500 + 1000 * (i % 250), 500 + 1000 * (i / 250), i % 70));
+        }
+        oldPoints.add(new DataPoint(-1, 500, 500, 5)); // a second row at the first location
+        List<DataPoint> newPoints = new ArrayList<>(oldPoints.subList(0, oldPoints.size() - 1));
+        newPoints.set(100, new DataPoint(-1, newPoints.get(100).x(), newPoints.get(100).y(), 99));
+        newPoints.add(new DataPoint(-1, 999500, 999500, 1));
+        Collections.shuffle(newPoints, new Random(5));
+        DataSetDiff diff = new DataSetDiff(dataSet(oldPoints.toArray(new DataPoint[0])),
+                                           dataSet(newPoints.toArray(new DataPoint[0])));
+
+        assertEquals(oldPoints.size() + newPoints.size(), diff.getDuplicateCount());
+        assertEquals(newPoints.size() - 1, diff.getMatchedCount());
+        assertEquals(1, diff.getAddedIndices().length);
+        assertEquals(999500, newPoints.get(diff.getAddedIndices()[0]).x());
+        // the first row at (500, 500) is matched first, so the second one is removed
+        assertArrayEquals(new int[] {oldPoints.size() - 1}, diff.getRemovedIndices());
+        assertArrayEquals(new int[] {100}, diff.getChangedOldIndices());
+        assertEquals(99, newPoints.get(diff.getChangedNewIndices()[0]).value());
+    }
+
+    /**
+     * Tests comparing datasets of different years.
+     * Verifies an IllegalArgumentException is thrown.
+     */
+    @Test
+    public void testDifferentYears() {
+        DataSet other = new DataSet("pm10", "2022", "annual mean", "ug m-3");
+        assertThrows(IllegalArgumentException.class, () -> new DataSetDiff(dataSet(), other));
+    }
+}
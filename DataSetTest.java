@@ -0,0 +1,178 @@
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntPredicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the range queries of the DataSet class, comparing the points and
+ * statistics they find with a linear filter over all points.
+ */
+public class DataSetTest {
+
+    // a square from (10000, 10000) to (20000, 20000) with a square hole from (14000, 14000) to (16000, 16000)
+    private static final List<double[]> POLYGON = Arrays.asList(
+        new double[] {10000, 10000, 20000, 10000, 20000, 20000, 10000, 20000},
+        new double[] {14000, 14000, 16000, 14000, 16000, 16000, 14000, 16000});
+
+    /**
+     * Creates a dataset of random points in a 30km square, about one in eight with a
+     * missing value, plus points exactly on the edges and corners of the test box and
+     * on the test circle.
+     */
+    private DataSet dataSet(long seed) {
+        Random random = new Random(seed);
+        List<DataPoint> points = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            double value = random.nextInt(8) == 0 ? -1 : random.nextDouble() * 70;
+            points.add(new DataPoint(i, random.nextInt(30000), random.nextInt(30000), value));
+        }
+        int[][] boundary = {{5000, 5000}, {12000, 5000}, {5000, 9000}, {12000, 9000}, {8000, 5000}, {12000, 7000},
+                            {15000, 25000}, {18000, 21000}, {11999, 9001}};
+        for (int[] location : boundary) {
+            points.add(new DataPoint(points.size(), location[0], location[1], random.nextDouble() * 70));
+        }
+        DataSet dataSet = new DataSet("no2", "2023", "annual mean", "ug m-3");
+        dataSet.setData(points);
+        return dataSet;
+    }
+
+    /**
+     * Returns the indices of the points that pass a filter, by testing every point.
+     */
+    private int[] linear(DataSet dataSet, IntPredicate filter) {
+        List<Integer> found = new ArrayList<>();
+        for (int i = 0; i < dataSet.size(); i++) {
+            if (filter.test(i)) found.add(i);
+        }
+        return found.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Checks that a query found the same points as the linear filter (in any order) and
+     * the same statistics of their valid values.
+     */
+    private void assertSameAsLinear(DataSet dataSet, int[] expected, int[] indices, Aggregate statistics) {
+        int[] sorted = indices.clone();
+        Arrays.sort(sorted);
+        assertArrayEquals(expected, sorted);
+
+        Aggregate direct = new Aggregate();
+        double[] values = dataSet.getColumns().getValues();
+        for (int point : expected) {
+            if (values[point] >= 0) direct.add(values[point]);
+        }
+        assertEquals(direct.getCount(), statistics.getCount());
+        assertEquals(direct.getSum(), statistics.getSum(), 1e-9);
+        assertEquals(direct.getMin(), statistics.getMin());
+        assertEquals(direct.getMax(), statistics.getMax());
+        assertEquals(direct.getMean(), statistics.getMean(), 1e-9);
+        assertEquals(direct.getVariance(), statistics.getVariance(), 1e-9);
+    }
+
+    /**
+     * Tests boxes of several sizes, one whose edges pass through points, a box of a
+     * single location, an upside-down box and one outside the data.
+     * Verifies the same points as the linear filter, with the edges included.
+     */
+    @Test
+    public void testInBox() {
+        DataSet data = dataSet(1);
+        int[] eastings = data.getColumns().getEastings();
+        int[] northings = data.getColumns().getNorthings();
+        double[][] boxes = {{5000, 5000, 12000, 9000}, {0, 0, 30000, 30000}, {2500.5, 100, 2600.5, 29000},
+                            {5000, 5000, 5000, 5000}, {9000, 9000, 3000, 3000}, {40000, 40000, 50000, 50000}};
+        for (double[] box : boxes) {
+            int[] expected = linear(data, i -> eastings[i] >= box[0] && eastings[i] <= box[2]
+                                               && northings[i] >= box[1] && northings[i] <= box[3]);
+            assertSameAsLinear(data, expected, data.indicesInBox(box[0], box[1], box[2], box[3]),
+                               data.aggregateInBox(box[0], box[1], box[2], box[3]));
+        }
+        // the four corners and two edge points of the first box are in it
+        assertTrue(data.indicesInBox(5000, 5000, 12000, 9000).length >= 6);
+        assertEquals(1, data.indicesInBox(5000, 5000, 5000, 5000).length);
+        assertEquals(0, data.indicesInBox(9000, 9000, 3000, 3000).length);
+    }
+
+    /**
+     * Tests circles of several radii, one passing through points, and a radius of zero.
+     * Verifies the same points as the linear filter, with the circle included.
+     */
+    @Test
+    public void testWithinRadius() {
+        DataSet data = dataSet(2);
+        int[] eastings = data.getColumns().getEastings();
+        int[] northings = data.getColumns().getNorthings();
+        double[][] circles = {{15000, 20000, 5000}, {0, 0, 8000}, {12345.5, 23456.5, 1500}, {15000, 25000, 0}, {-9000, 0, 100}};
+        for (double[] circle : circles) {
+            int[] expected = linear(data, i -> {
+                double dx = eastings[i] - circle[0];
+                double dy = northings[i] - circle[1];
+                return dx * dx + dy * dy <= circle[2] * circle[2];
+            });
+            assertSameAsLinear(data, expected, data.indicesWithinRadius(circle[0], circle[1], circle[2]),
+                               data.aggregateWithinRadius(circle[0], circle[1], circle[2]));
+        }
+        // (15000, 25000) and (18000, 21000) lie exactly on the first circle
+        int[] onCircle = data.indicesWithinRadius(15000, 20000, 5000);
+        assertTrue(Arrays.stream(onCircle).anyMatch(i -> eastings[i] == 15000 && northings[i] == 25000));
+        assertTrue(Arrays.stream(onCircle).anyMatch(i -> eastings[i] == 18000 && northings[i] == 21000));
+        assertEquals(1, data.indicesWithinRadius(15000, 25000, 0).length);
+    }
+
+    /**
+     * Tests a polygon with a hole, a triangle and a polygon outside the data.
+     * Verifies the same points as the point-in-polygon test applied to every point.
+     */
+    @Test
+    public void testInPolygon() {
+        DataSet data = dataSet(3);
+        int[] eastings = data.getColumns().getEastings();
+        int[] northings = data.getColumns().getNorthings();
+        List<List<double[]>> polygons = Arrays.asList(
+            POLYGON,
+            List.of(new double[] {0, 0, 25000, 3000, 6000, 28000}),
+            List.of(new double[] {40000, 40000, 41000, 40000, 41000, 41000}));
+        for (List<double[]> rings : polygons) {
+            int[] expected = linear(data, i -> RegionRegistry.containsPoint(rings, eastings[i], northings[i]));
+            assertSameAsLinear(data, expected, data.indicesInPolygon(rings), data.aggregateInPolygon(rings));
+        }
+        // nothing inside the hole
+        for (int point : data.indicesInPolygon(POLYGON)) {
+            assertFalse(eastings[point] > 14000 && eastings[point] < 16000 && northings[point] > 14000 && northings[point] < 16000);
+        }
+    }
+
+    /**
+     * Tests a registered region on a 1km grid, and an unknown region.
+     * Verifies the same points as testing every point's location against the region,
+     * and no points for the unknown region.
+     */
+    @Test
+    public void testInRegion() {
+        Random random = new Random(4);
+        List<DataPoint> points = new ArrayList<>();
+        for (int row = 0; row < 30; row++) {
+            for (int column = 0; column < 30; column++) {
+                double value = random.nextInt(8) == 0 ? -1 : random.nextDouble() * 70;
+                points.add(new DataPoint(points.size(), 500 + 1000 * column, 500 + 1000 * row, value));
+            }
+        }
+        DataSet data = new DataSet("no2", "2023", "annual mean", "ug m-3");
+        data.setData(points);
+        RegionRegistry registry = RegionRegistry.getInstance();
+        registry.addRegion("DataSetTest Region", POLYGON);
+
+        int[] eastings = data.getColumns().getEastings();
+        int[] northings = data.getColumns().getNorthings();
+        int[] expected = linear(data, i -> registry.contains("DataSetTest Region", eastings[i], northings[i]));
+        assertEquals(100 - 4, expected.length);
+        assertSameAsLinear(data, expected, data.indicesInRegion("DataSetTest Region"), data.aggregateInRegion("DataSetTest Region"));
+
+        assertEquals(0, data.indicesInRegion("DataSetTest Nowhere").length);
+        assertEquals(0, data.aggregateInRegion("DataSetTest Nowhere").getCount());
+    }
+}
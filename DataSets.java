@@ -1,9 +1,9 @@
 import java.util.HashMap;
-import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * DataSets is a singleton class that stores two HashMaps of type DataSet (UK and London).
+ * Files are loaded on background threads as well as on the JavaFX thread, so every
+ * access to the maps is synchronized.
  *
  * @author Patrick Dunham
  * @version 24.03.2025
@@ -13,8 +13,8 @@ public class DataSets
     // Static variable reference of instance of type DataSets
     private static DataSets instance = null;
     
-    private static HashMap<String, DataSet> allDataSets;
-    private static HashMap<String, DataSet> londonDataSets;
+    private static final HashMap<String, DataSet> allDataSets = new HashMap<>();
+    private static final HashMap<String, DataSet> londonDataSets = new HashMap<>();
     private static final GridData GRID_DATA = new GridData();
     
     /**
@@ -22,15 +22,12 @@ public class DataSets
      */
     private DataSets()
     {
-        // Initialise instance variables
-        allDataSets = new HashMap<>();
-        londonDataSets = new HashMap<>();
     }
     
     /**
      * Static method to create instance of Singleton class
      */
-    public static DataSets getInstance()
+    public static synchronized DataSets getInstance()
     {
         if (instance == null) {        
             instance = new DataSets();
@@ -40,15 +37,28 @@ public class DataSets
     }
     
     /**
-     * Returns the appropriate dataset HashMap based on the 'isLondon' flag.
+     * Returns a copy of the appropriate dataset HashMap based on the 'isLondon' flag.
      *
      * @param isLondon A boolean flag indicating whether to return London data or all data
-     * @return The HashMap of datasets based on the region (UK or London)
+     * @return A copy of the HashMap of datasets based on the region (UK or London)
      */
-    public static HashMap<String, DataSet> getDataSets(boolean isLondon) {
-        if (isLondon) return londonDataSets;
+    public static synchronized HashMap<String, DataSet> getDataSets(boolean isLondon) {
+        if (isLondon) return new HashMap<>(londonDataSets);
         
-        return allDataSets;
+        return new HashMap<>(allDataSets);
+    }
+    
+    /**
+     * Returns the data set loaded from a file, or null if the file has not been loaded.
+     *
+     * @param fileName The filename associated with the DataSet
+     * @param isLondon A boolean flag indicating whether to look in the London data or all data
+     * @return The DataSet, or null
+     */
+    public static synchronized DataSet getDataSet(String fileName, boolean isLondon) {
+        if (isLondon) return londonDataSets.get(fileName);
+        
+        return allDataSets.get(fileName);
     }
     
     /**
@@ -59,17 +69,28 @@ public class DataSets
      * @param dataSet The DataSet to be added
      * @param isLondon A boolean flag indicating whether to filter London data or not
      */
-    public static void putDataSets(String fileName, DataSet dataSet, boolean isLondon) {
+    public static synchronized void putDataSets(String fileName, DataSet dataSet, boolean isLondon) {
         // If "isLondon" is true, filter out data points that are not in the London map
         if (isLondon) {
-            List<DataPoint> filteredDataSet = dataSet.getData().stream()
-                .filter(dataPoint -> GRID_DATA.isWithinRegion(dataPoint.x(), dataPoint.y()))
-                .collect(Collectors.toList());
+            PointColumns columns = dataSet.getColumns();
+            int[] gridCodes = columns.getGridCodes();
+            int[] eastings = columns.getEastings();
+            int[] northings = columns.getNorthings();
+            double[] values = columns.getValues();
+            
+            PointColumns filteredDataSet = new PointColumns();
+            for (int i = 0; i < columns.size(); i++) {
+                if (GRID_DATA.isWithinRegion(eastings[i], northings[i])) {
+                    filteredDataSet.add(gridCodes[i], eastings[i], northings[i], values[i]);
+                }
+            }
+            filteredDataSet.trimToSize();
             
             dataSet.setData(filteredDataSet);
             londonDataSets.put(fileName, dataSet);
         }
         else {
+            dataSet.getColumns().trimToSize();
             allDataSets.put(fileName, dataSet);
         }
     }
@@ -0,0 +1,29 @@
+/**
+ * An ExposurePath is a route found by the ExposurePathPlanner, together with the
+ * exposure along it and along the straight line between the same two points.
+ */
+public record ExposurePath(double[] route, RouteExposure exposure, RouteExposure straightLineExposure)
+{
+    /**
+     * Returns how much lower the mean exposure along the path is than along the
+     * straight line, as a percentage.
+     *
+     * @return The reduction in percent (negative if the path is worse), or NaN if
+     *         either route has no data
+     */
+    public double getReduction()
+    {
+        return 100 * (1 - exposure.meanExposure() / straightLineExposure.meanExposure());
+    }
+
+    /**
+     * Return a short comparison of the path and the straight line.
+     */
+    @Override
+    public String toString()
+    {
+        return String.format("Path %.1f km, mean %.2f; straight line %.1f km, mean %.2f",
+                             exposure.length() / 1000, exposure.meanExposure(),
+                             straightLineExposure.length() / 1000, straightLineExposure.meanExposure());
+    }
+}
@@ -0,0 +1,141 @@
+import java.util.Arrays;
+
+/**
+ * ExposurePathPlanner suggests a route between two points that keeps the exposure to
+ * pollution low, for example as an alternative to a cycling or walking route.
+ *
+ * The route is found with an A* search over the cells of the dataset's raster, moving
+ * to any of the eight neighbouring cells. Each move costs its length times the mean
+ * concentration of the two cells, so the search minimises the total dose along the
+ * route rather than its length. Cells without a valid value cannot be entered. The
+ * search is guided by the diagonal (octile) distance to the goal times the lowest
+ * concentration in the dataset; that never overestimates the remaining cost, so the
+ * route found is optimal on the grid.
+ *
+ * The search uses primitive arrays for the costs and an IndexedMinHeap for the open
+ * cells. A finer grid can be planned on by resampling the dataset once with
+ * SpatialInterpolator.resample, whose result keeps the finer grid, and passing it.
+ */
+public class ExposurePathPlanner
+{
+    private static final double DIAGONAL = Math.sqrt(2);
+
+    // the eight moves as column and row steps
+    private static final int[] STEP_COLUMNS = {1, -1, 0, 0, 1, 1, -1, -1};
+    private static final int[] STEP_ROWS = {0, 0, 1, -1, 1, -1, 1, -1};
+
+    /**
+     * Finds the route with the lowest exposure between two points and compares it with
+     * the straight line between them.
+     *
+     * @param dataSet The dataset
+     * @param startX The easting of the start
+     * @param startY The northing of the start
+     * @param endX The easting of the end
+     * @param endY The northing of the end
+     * @return The route and its exposure, or null if either point is not on a cell with
+     *         a valid value or no route connects them
+     */
+    public ExposurePath plan(DataSet dataSet, double startX, double startY, double endX, double endY)
+    {
+        GridRaster raster = dataSet.getRaster();
+        GridGeometry geometry = raster.getGeometry();
+        int columns = geometry.columns();
+        double[] values = raster.getValues();
+
+        int start = cellOf(geometry, startX, startY);
+        int goal = cellOf(geometry, endX, endY);
+        if (start < 0 || goal < 0 || Double.isNaN(values[start]) || Double.isNaN(values[goal])) return null;
+
+        double minValue = Double.POSITIVE_INFINITY;
+        for (double value : values) {
+            if (value < minValue) minValue = value; // NaN never compares lower
+        }
+        double cellSize = geometry.cellSize();
+        int goalColumn = goal % columns;
+        int goalRow = goal / columns;
+
+        double[] costs = new double[values.length];
+        Arrays.fill(costs, Double.POSITIVE_INFINITY);
+        int[] previous = new int[values.length];
+        boolean[] closed = new boolean[values.length];
+        IndexedMinHeap open = new IndexedMinHeap(values.length);
+        costs[start] = 0;
+        previous[start] = -1;
+        open.push(start, 0);
+
+        while (!open.isEmpty()) {
+            int cell = open.pop();
+            if (cell == goal) break;
+            closed[cell] = true;
+            int column = cell % columns;
+            int row = cell / columns;
+            for (int move = 0; move < STEP_COLUMNS.length; move++) {
+                int nextColumn = column + STEP_COLUMNS[move];
+                int nextRow = row + STEP_ROWS[move];
+                if (!geometry.contains(nextColumn, nextRow)) continue;
+                int next = nextRow * columns + nextColumn;
+                if (closed[next] || Double.isNaN(values[next])) continue;
+
+                double length = move < 4 ? cellSize : DIAGONAL * cellSize;
+                double cost = costs[cell] + length * (values[cell] + values[next]) / 2;
+                if (cost < costs[next]) {
+                    costs[next] = cost;
+                    previous[next] = cell;
+                    double estimate = octileDistance(nextColumn, nextRow, goalColumn, goalRow) * cellSize * minValue;
+                    open.push(next, cost + estimate);
+                }
+            }
+        }
+        if (costs[goal] == Double.POSITIVE_INFINITY) return null;
+
+        double[] route = traceRoute(geometry, previous, goal, startX, startY, endX, endY);
+        double[] straightLine = {startX, startY, endX, endY};
+        RouteSampler sampler = new RouteSampler();
+        return new ExposurePath(route, sampler.sample(dataSet, route), sampler.sample(dataSet, straightLine));
+    }
+
+    /**
+     * Follows the search back from the goal and returns the route as x1, y1, x2, y2, ...:
+     * the start point, the centres of the cells in between and the end point.
+     */
+    private double[] traceRoute(GridGeometry geometry, int[] previous, int goal,
+                                double startX, double startY, double endX, double endY)
+    {
+        int cells = 0;
+        for (int cell = goal; cell >= 0; cell = previous[cell]) cells++;
+
+        double[] route = new double[2 * Math.max(cells, 2)];
+        int point = cells - 1;
+        for (int cell = goal; cell >= 0; cell = previous[cell], point--) {
+            route[2 * point] = geometry.centreX(cell % geometry.columns());
+            route[2 * point + 1] = geometry.centreY(cell / geometry.columns());
+        }
+        route[0] = startX;
+        route[1] = startY;
+        route[route.length - 2] = endX;
+        route[route.length - 1] = endY;
+        return route;
+    }
+
+    /**
+     * Returns the cell holding a point, or -1 if it is outside the raster.
+     */
+    private static int cellOf(GridGeometry geometry, double x, double y)
+    {
+        int column = geometry.columnOf(x);
+        int row = geometry.rowOf(y);
+        return geometry.contains(column, row) ? row * geometry.columns() + column : -1;
+    }
+
+    /**
+     * Returns the length, in cells, of the shortest eight-way path between two cells
+     * on an empty grid.
+     */
+    private static double octileDistance(int column, int row, int otherColumn, int otherRow)
+    {
+        int dx = Math.abs(column - otherColumn);
+        int dy = Math.abs(row - otherRow);
+        return Math.max(dx, dy) + (DIAGONAL - 1) * Math.min(dx, dy);
+    }
+}
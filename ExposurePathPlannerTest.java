@@ -0,0 +1,171 @@
+import org.junit.jupiter.api.Test;
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the ExposurePathPlanner class, on small grids of 1km cells whose
+ * centres lie at 500, 1500, ... metres.
+ */
+public class ExposurePathPlannerTest {
+
+    private static final double DIAGONAL = Math.sqrt(2);
+
+    /**
+     * Returns the value of the cell holding a location.
+     */
+    private double valueAt(double[][] grid, double x, double y) {
+        return grid[(int) (y / 1000)][(int) (x / 1000)];
+    }
+
+    /**
+     * Returns the cost the planner minimises along a route through cell centres.
+     */
+    private double routeCost(double[][] grid, double[] route) {
+        double cost = 0;
+        for (int i = 2; i < route.length; i += 2) {
+            double length = Math.hypot(route[i] - route[i - 2], route[i + 1] - route[i - 1]);
+            cost += length * (valueAt(grid, route[i - 2], route[i - 1]) + valueAt(grid, route[i], route[i + 1])) / 2;
+        }
+        return cost;
+    }
+
+    /**
+     * Returns the lowest cost between two cells by Dijkstra's algorithm over the eight-way
+     * moves between valid cells, or infinity if there is no route.
+     */
+    private double dijkstra(double[][] grid, int startColumn, int startRow, int goalColumn, int goalRow) {
+        int rows = grid.length, columns = grid[0].length;
+        double[] costs = new double[rows * columns];
+        Arrays.fill(costs, Double.POSITIVE_INFINITY);
+        costs[startRow * columns + startColumn] = 0;
+        PriorityQueue<double[]> queue = new PriorityQueue<>((a, b) -> Double.compare(a[0], b[0]));
+        queue.add(new double[] {0, startRow * columns + startColumn});
+        while (!queue.isEmpty()) {
+            double[] entry = queue.poll();
+            int cell = (int) entry[1];
+            if (entry[0] > costs[cell]) continue;
+            int column = cell % columns, row = cell / columns;
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dx = -1; dx <= 1; dx++) {
+                    int nextColumn = column + dx, nextRow = row + dy;
+                    if ((dx == 0 && dy == 0) || nextColumn < 0 || nextRow < 0 || nextColumn >= columns || nextRow >= rows) continue;
+                    if (grid[nextRow][nextColumn] < 0) continue;
+                    double length = dx != 0 && dy != 0 ? DIAGONAL * 1000 : 1000;
+                    double cost = entry[0] + length * (grid[row][column] + grid[nextRow][nextColumn]) / 2;
+                    int next = nextRow * columns + nextColumn;
+                    if (cost < costs[next]) {
+                        costs[next] = cost;
+                        queue.add(new double[] {cost, next});
+                    }
+                }
+            }
+        }
+        return costs[goalRow * columns + goalColumn];
+    }
+
+    /**
+     * Tests routes between random cells of a random grid with missing cells.
+     * Verifies each route costs as little as the cheapest route found by Dijkstra's
+     * algorithm, and that no route is found exactly when Dijkstra finds none.
+     */
+    @Test
+    public void testPlan_Optimal() {
+        Random random = new Random(5);
+        double[][] grid = new double[12][15];
+        for (double[] row : grid) {
+            for (int column = 0; column < row.length; column++) {
+                row[column] = random.nextInt(8) == 0 ? -1 : 5 + random.nextDouble() * 40;
+            }
+        }
+        DataSet data = TestGrids.dataSet(grid);
+        ExposurePathPlanner planner = new ExposurePathPlanner();
+        for (int i = 0; i < 200; i++) {
+            int startColumn = random.nextInt(15), startRow = random.nextInt(12);
+            int goalColumn = random.nextInt(15), goalRow = random.nextInt(12);
+            if (grid[startRow][startColumn] < 0 || grid[goalRow][goalColumn] < 0) continue;
+
+            ExposurePath path = planner.plan(data, 500 + 1000 * startColumn, 500 + 1000 * startRow,
+                                             500 + 1000 * goalColumn, 500 + 1000 * goalRow);
+            double expected = dijkstra(grid, startColumn, startRow, goalColumn, goalRow);
+            if (expected == Double.POSITIVE_INFINITY) {
+                assertNull(path);
+            }
+            else {
+                assertNotNull(path);
+                assertEquals(expected, routeCost(grid, path.route()), 1e-6 * expected);
+            }
+        }
+    }
+
+    /**
+     * Tests a wall of missing cells with one gap at the top.
+     * Verifies the route passes through the gap and never enters a missing cell.
+     */
+    @Test
+    public void testPlan_MissingCellsAreBarriers() {
+        double[][] grid = {
+            {1, 1, -1, 1, 1},
+            {1, 1, -1, 1, 1},
+            {1, 1, -1, 1, 1},
+            {9, 9, 9, 9, 9}
+        };
+        ExposurePath path = new ExposurePathPlanner().plan(TestGrids.dataSet(grid), 500, 500, 4500, 500);
+        assertNotNull(path);
+        double[] route = path.route();
+        boolean throughGap = false;
+        for (int i = 0; i < route.length; i += 2) {
+            assertTrue(valueAt(grid, route[i], route[i + 1]) >= 0);
+            throughGap |= route[i] == 2500 && route[i + 1] == 3500;
+        }
+        assertTrue(throughGap);
+    }
+
+    /**
+     * Tests planning on a dataset resampled to 500m cells.
+     * Verifies the route steps between the centres of the finer cells.
+     */
+    @Test
+    public void testPlan_Resampled() {
+        DataSet fine = new SpatialInterpolator().resample(TestGrids.dataSet(new double[][] {{1, 9, 1}, {1, 9, 1}, {1, 1, 1}}), 2);
+        ExposurePath path = new ExposurePathPlanner().plan(fine, 250, 250, 2750, 250);
+        assertNotNull(path);
+        double[] route = path.route();
+        assertTrue(route.length > 2 * 6);
+        for (int i = 2; i < route.length; i += 2) {
+            assertEquals(250, Math.floorMod((long) route[i], 500));
+            assertTrue(Math.hypot(route[i] - route[i - 2], route[i + 1] - route[i - 1]) <= 500 * DIAGONAL + 1e-9);
+        }
+    }
+
+    /**
+     * Tests planning from a point to itself.
+     * Verifies the route is just that point, with no length.
+     */
+    @Test
+    public void testPlan_StartIsGoal() {
+        ExposurePath path = new ExposurePathPlanner().plan(TestGrids.dataSet(new double[][] {{3, 4}, {5, 6}}), 1200, 700, 1200, 700);
+        assertNotNull(path);
+        assertArrayEquals(new double[] {1200, 700, 1200, 700}, path.route());
+        assertEquals(0, path.exposure().length(), 1e-9);
+    }
+
+    /**
+     * Tests goals that cannot be reached: behind a full wall of missing cells, on a
+     * missing cell and outside the grid.
+     * Verifies null is returned.
+     */
+    @Test
+    public void testPlan_Unreachable() {
+        double[][] grid = {
+            {1, -1, 1},
+            {1, -1, 1}
+        };
+        ExposurePathPlanner planner = new ExposurePathPlanner();
+        assertNull(planner.plan(TestGrids.dataSet(grid), 500, 500, 2500, 1500));
+        assertNull(planner.plan(TestGrids.dataSet(grid), 500, 500, 1500, 500));
+        assertNull(planner.plan(TestGrids.dataSet(grid), 500, 500, 9500, 500));
+    }
+}
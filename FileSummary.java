@@ -0,0 +1,19 @@
+import java.util.Map;
+
+/**
+ * A FileSummary holds the summaries of one pollution data file, as kept by the
+ * SummaryStore: the dataset's pollutant, year and units, and an AreaSummary for the
+ * whole file ("All") and for each region that was registered when it was made.
+ */
+public record FileSummary(String pollutant, String year, String units, Map<String, AreaSummary> areas)
+{
+    /**
+     * Returns the summary of an area, or null if the area was not summarised.
+     *
+     * @param area "All" or the name of a region
+     */
+    public AreaSummary getArea(String area)
+    {
+        return areas.get(area);
+    }
+}
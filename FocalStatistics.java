@@ -0,0 +1,223 @@
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * FocalStatistics smooths a dataset with a moving window over its raster: every cell
+ * gets the mean, the maximum or a Gaussian-weighted mean of the valid cells in the
+ * square window around it (for 1km data, a window of radius 1 is 3x3km and radius 2
+ * is 5x5km).
+ *
+ * The mean of a window is read from the dataset's summed-area table, at a cost per cell
+ * that does not depend on the radius. The maximum and the Gaussian kernel are separable,
+ * so their window is applied as a pass along the rows followed by a pass along the
+ * columns, costing O(radius) per cell instead of O(radius^2). All passes run in parallel
+ * over bands of rows. Missing cells are left
+ * out of the window (the Gaussian weights are renormalised over the valid cells), and
+ * cells that are missing in the input stay missing in the output.
+ *
+ * The result is a new dataset with the same points as the input and the smoothed
+ * values, so it can be shown on the map or used for statistics like any other dataset.
+ */
+public class FocalStatistics
+{
+    private static final int BAND_ROWS = 16; // rows per parallel task
+
+    /**
+     * The available window statistics.
+     */
+    public enum Kernel { MEAN, MAX, GAUSSIAN }
+
+    private final Kernel kernel;
+    private final int radius;
+    private final double[] weights; // Gaussian weights for offsets -radius..radius (null for the other kernels)
+
+    /**
+     * Create a focal operator. For the Gaussian kernel the standard deviation is half
+     * the radius, so the window reaches two standard deviations out.
+     *
+     * @param kernel The window statistic
+     * @param radius The window radius in cells (the window is 2 * radius + 1 cells wide)
+     */
+    public FocalStatistics(Kernel kernel, int radius)
+    {
+        this(kernel, radius, Math.max(radius, 1) / 2.0);
+    }
+
+    /**
+     * Create a focal operator.
+     *
+     * @param kernel The window statistic
+     * @param radius The window radius in cells (the window is 2 * radius + 1 cells wide)
+     * @param sigma The standard deviation in cells (Gaussian kernel only)
+     */
+    public FocalStatistics(Kernel kernel, int radius, double sigma)
+    {
+        if (radius < 0) {
+            throw new IllegalArgumentException("Negative window radius: " + radius);
+        }
+        this.kernel = kernel;
+        this.radius = radius;
+        if (kernel == Kernel.GAUSSIAN) {
+            weights = new double[2 * radius + 1];
+            for (int offset = -radius; offset <= radius; offset++) {
+                weights[offset + radius] = Math.exp(-offset * offset / (2 * sigma * sigma));
+            }
+        }
+        else {
+            weights = null;
+        }
+    }
+
+    /**
+     * Returns a smoothed copy of a dataset.
+     *
+     * @param dataSet The dataset to smooth
+     * @return A new dataset with the same points and the smoothed values
+     */
+    public DataSet apply(DataSet dataSet)
+    {
+        GridRaster raster = dataSet.getRaster();
+        double[] cellValues;
+        if (kernel == Kernel.MEAN) cellValues = boxMean(dataSet.getSummedAreaTable(), raster);
+        else if (kernel == Kernel.MAX) cellValues = focalMax(raster);
+        else cellValues = focalMean(raster);
+
+        PointColumns points = dataSet.getColumns();
+        int size = points.size();
+        double[] values = new double[size];
+        double[] oldValues = points.getValues();
+        for (int i = 0; i < size; i++) {
+            double value = cellValues[raster.getCellOfPoint(i)];
+            values[i] = oldValues[i] < 0 || Double.isNaN(value) ? oldValues[i] : value;
+        }
+
+        DataSet smoothed = new DataSet(dataSet.getPollutant(), dataSet.getYear(), dataSet.getMetric(), dataSet.getUnits());
+        smoothed.setData(new PointColumns(Arrays.copyOf(points.getGridCodes(), size), Arrays.copyOf(points.getEastings(), size),
+                                          Arrays.copyOf(points.getNorthings(), size), values, size));
+        smoothed.updateMinMaxPollutionValues();
+        return smoothed;
+    }
+
+    /**
+     * The mean of the valid cells in each window, or NaN if there are none, from four
+     * lookups in the summed-area table per cell.
+     */
+    private double[] boxMean(SummedAreaTable table, GridRaster raster)
+    {
+        int columns = raster.getColumns();
+        double[] result = new double[raster.getValues().length];
+        forEachBand(raster.getRows(), row -> {
+            for (int column = 0; column < columns; column++) {
+                result[row * columns + column] = table.getCellRangeMean(column - radius, row - radius, column + radius, row + radius);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * The weighted mean of the valid cells in each window, or NaN if there are none.
+     * Each pass carries the weighted value sum and the weight sum of the valid cells.
+     */
+    private double[] focalMean(GridRaster raster)
+    {
+        int columns = raster.getColumns();
+        int rows = raster.getRows();
+        double[] values = raster.getValues();
+        double[] rowSums = new double[values.length];
+        double[] rowWeights = new double[values.length];
+        double[] result = new double[values.length];
+
+        forEachBand(rows, row -> {
+            int offset = row * columns;
+            for (int column = 0; column < columns; column++) {
+                double sum = 0;
+                double weight = 0;
+                int first = Math.max(0, column - radius);
+                int last = Math.min(columns - 1, column + radius);
+                for (int other = first; other <= last; other++) {
+                    double value = values[offset + other];
+                    if (Double.isNaN(value)) continue;
+                    double w = weight(other - column);
+                    sum += w * value;
+                    weight += w;
+                }
+                rowSums[offset + column] = sum;
+                rowWeights[offset + column] = weight;
+            }
+        });
+
+        forEachBand(rows, row -> {
+            int first = Math.max(0, row - radius);
+            int last = Math.min(rows - 1, row + radius);
+            for (int column = 0; column < columns; column++) {
+                double sum = 0;
+                double weight = 0;
+                for (int other = first; other <= last; other++) {
+                    double w = weight(other - row);
+                    sum += w * rowSums[other * columns + column];
+                    weight += w * rowWeights[other * columns + column];
+                }
+                result[row * columns + column] = weight > 0 ? sum / weight : Double.NaN;
+            }
+        });
+        return result;
+    }
+
+    /**
+     * The maximum of the valid cells in each window, or NaN if there are none.
+     */
+    private double[] focalMax(GridRaster raster)
+    {
+        int columns = raster.getColumns();
+        int rows = raster.getRows();
+        double[] values = raster.getValues();
+        double[] rowMax = new double[values.length];
+        double[] result = new double[values.length];
+
+        forEachBand(rows, row -> {
+            int offset = row * columns;
+            for (int column = 0; column < columns; column++) {
+                double max = Double.NEGATIVE_INFINITY;
+                int last = Math.min(columns - 1, column + radius);
+                for (int other = Math.max(0, column - radius); other <= last; other++) {
+                    double value = values[offset + other];
+                    if (value > max) max = value; // NaN never compares greater
+                }
+                rowMax[offset + column] = max;
+            }
+        });
+
+        forEachBand(rows, row -> {
+            int last = Math.min(rows - 1, row + radius);
+            for (int column = 0; column < columns; column++) {
+                double max = Double.NEGATIVE_INFINITY;
+                for (int other = Math.max(0, row - radius); other <= last; other++) {
+                    max = Math.max(max, rowMax[other * columns + column]);
+                }
+                result[row * columns + column] = max == Double.NEGATIVE_INFINITY ? Double.NaN : max;
+            }
+        });
+        return result;
+    }
+
+    /**
+     * The kernel weight of a cell at the given offset from the window centre.
+     */
+    private double weight(int offset)
+    {
+        return weights == null ? 1 : weights[offset + radius];
+    }
+
+    /**
+     * Runs the action for every row, one band of rows per parallel task.
+     */
+    private static void forEachBand(int rows, IntConsumer action)
+    {
+        int bands = (rows + BAND_ROWS - 1) / BAND_ROWS;
+        IntStream.range(0, bands).parallel().forEach(band -> {
+            int last = Math.min(rows, (band + 1) * BAND_ROWS);
+            for (int row = band * BAND_ROWS; row < last; row++) action.accept(row);
+        });
+    }
+}
@@ -0,0 +1,163 @@
+import org.junit.jupiter.api.Test;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the FocalStatistics class, comparing its windows with a direct
+ * computation over the valid cells of each window.
+ */
+public class FocalStatisticsTest {
+
+    // row by row from the south; -1 is missing
+    private static final double[][] GRID = {
+        {10, 20, 30, 40, 50},
+        {60, -1, 80, -1, 100},
+        {110, 120, -1, 140, 150},
+        {160, 170, 180, 190, 200}
+    };
+
+    /**
+     * Returns the value of every cell after applying a window statistic directly: the
+     * (weighted) mean or the maximum of the valid cells within the radius, clipped at
+     * the edges. Missing cells stay -1.
+     */
+    private double[][] direct(double[][] grid, FocalStatistics.Kernel kernel, int radius, double sigma) {
+        int rows = grid.length;
+        int columns = grid[0].length;
+        double[][] result = new double[rows][columns];
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                if (grid[row][column] < 0) {
+                    result[row][column] = -1;
+                    continue;
+                }
+                double sum = 0, weight = 0, max = Double.NEGATIVE_INFINITY;
+                for (int other = Math.max(0, row - radius); other <= Math.min(rows - 1, row + radius); other++) {
+                    for (int next = Math.max(0, column - radius); next <= Math.min(columns - 1, column + radius); next++) {
+                        double value = grid[other][next];
+                        if (value < 0) continue;
+                        int dy = other - row;
+                        int dx = next - column;
+                        double w = kernel == FocalStatistics.Kernel.GAUSSIAN
+                                   ? Math.exp(-(dx * dx + dy * dy) / (2 * sigma * sigma)) : 1;
+                        sum += w * value;
+                        weight += w;
+                        max = Math.max(max, value);
+                    }
+                }
+                result[row][column] = kernel == FocalStatistics.Kernel.MAX ? max : sum / weight;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Checks a smoothed dataset against the direct computation, cell by cell.
+     */
+    private void assertSameAsDirect(double[][] grid, FocalStatistics.Kernel kernel, int radius, double sigma) {
+        DataSet smoothed = new FocalStatistics(kernel, radius, sigma).apply(TestGrids.dataSet(grid));
+        double[][] expected = direct(grid, kernel, radius, sigma);
+        double[] values = smoothed.getColumns().getValues();
+        int columns = grid[0].length;
+        for (int row = 0; row < grid.length; row++) {
+            for (int column = 0; column < columns; column++) {
+                assertEquals(expected[row][column], values[row * columns + column], 1e-9,
+                             kernel + " radius " + radius + " at " + column + "," + row);
+            }
+        }
+    }
+
+    /**
+     * Tests the mean at a corner, on an edge and next to missing cells.
+     * Verifies the mean of the valid cells of the clipped window.
+     */
+    @Test
+    public void testMean() {
+        DataSet smoothed = new FocalStatistics(FocalStatistics.Kernel.MEAN, 1).apply(TestGrids.dataSet(GRID));
+        double[] values = smoothed.getColumns().getValues();
+        assertEquals((10 + 20 + 60) / 3.0, values[0], 1e-9);                        // south-west corner, (1, 1) missing
+        assertEquals((20 + 30 + 40 + 80) / 4.0, values[2], 1e-9);                   // south edge, two missing below
+        assertEquals(-1, values[6]);                                                // (1, 1) is missing itself
+        assertEquals((120 + 140 + 170 + 180 + 190) / 5.0, values[3 * 5 + 2], 1e-9); // north edge, above a missing cell
+
+        for (int radius = 0; radius <= 4; radius++) {
+            assertSameAsDirect(GRID, FocalStatistics.Kernel.MEAN, radius, 1);
+        }
+    }
+
+    /**
+     * Tests the maximum at the edges and around missing cells.
+     * Verifies the largest valid value of the clipped window.
+     */
+    @Test
+    public void testMax() {
+        DataSet smoothed = new FocalStatistics(FocalStatistics.Kernel.MAX, 1).apply(TestGrids.dataSet(GRID));
+        double[] values = smoothed.getColumns().getValues();
+        assertEquals(60, values[0]);
+        assertEquals(100, values[4]);
+        assertEquals(200, values[19]);
+        for (int radius = 0; radius <= 3; radius++) {
+            assertSameAsDirect(GRID, FocalStatistics.Kernel.MAX, radius, 1);
+        }
+    }
+
+    /**
+     * Tests the Gaussian kernel with several radii and standard deviations.
+     * Verifies the weighted mean of the valid cells, with the weights renormalised
+     * over the cells that are in the grid and valid.
+     */
+    @Test
+    public void testGaussian() {
+        for (int radius = 0; radius <= 3; radius++) {
+            assertSameAsDirect(GRID, FocalStatistics.Kernel.GAUSSIAN, radius, Math.max(radius, 1) / 2.0);
+            assertSameAsDirect(GRID, FocalStatistics.Kernel.GAUSSIAN, radius, 3);
+        }
+        // a uniform grid stays uniform, edges included
+        double[][] uniform = {{7, 7, 7}, {7, -1, 7}, {7, 7, 7}};
+        DataSet smoothed = new FocalStatistics(FocalStatistics.Kernel.GAUSSIAN, 2).apply(TestGrids.dataSet(uniform));
+        for (int i = 0; i < 9; i++) {
+            assertEquals(i == 4 ? -1 : 7, smoothed.getColumns().getValues()[i], 1e-12);
+        }
+    }
+
+    /**
+     * Tests every kernel on a random grid with many missing cells.
+     * Verifies that cells missing in the input stay missing, that no valid cell becomes
+     * missing, and the same values as the direct computation.
+     */
+    @Test
+    public void testMissingCellsStayMissing() {
+        Random random = new Random(13);
+        double[][] grid = new double[9][11];
+        for (double[] row : grid) {
+            for (int column = 0; column < row.length; column++) {
+                row[column] = random.nextInt(3) == 0 ? -1 : random.nextDouble() * 90;
+            }
+        }
+        for (FocalStatistics.Kernel kernel : FocalStatistics.Kernel.values()) {
+            DataSet smoothed = new FocalStatistics(kernel, 2).apply(TestGrids.dataSet(grid));
+            double[] values = smoothed.getColumns().getValues();
+            for (int i = 0; i < values.length; i++) {
+                assertEquals(grid[i / 11][i % 11] < 0, values[i] < 0, kernel + " at " + i);
+            }
+            assertSameAsDirect(grid, kernel, 2, 1);
+        }
+    }
+
+    /**
+     * Tests the smoothed dataset's descriptive fields and a negative radius.
+     * Verifies the fields and points are copied, and an IllegalArgumentException.
+     */
+    @Test
+    public void testResultDataSet() {
+        DataSet input = TestGrids.dataSet(GRID);
+        DataSet smoothed = new FocalStatistics(FocalStatistics.Kernel.MEAN, 1).apply(input);
+        assertEquals(input.getPollutant(), smoothed.getPollutant());
+        assertEquals(input.getYear(), smoothed.getYear());
+        assertEquals(input.size(), smoothed.size());
+        assertEquals(input.getColumns().get(7).gridCode(), smoothed.getColumns().get(7).gridCode());
+        assertEquals(input.getColumns().get(7).x(), smoothed.getColumns().get(7).x());
+        assertThrows(IllegalArgumentException.class, () -> new FocalStatistics(FocalStatistics.Kernel.MAX, -1));
+    }
+}
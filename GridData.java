@@ -1,6 +1,13 @@
 /**
  * This class represents the maximum top, bottom, left and right positions
  * on the map, and provides mapping from Easting and Northing to Latitude and Longitude.
+ * 
+ * Eastings and Northings are Ordnance Survey National Grid coordinates (OSGB36 datum,
+ * Transverse Mercator projection). They are converted to WGS84 latitude and longitude
+ * with the inverse Transverse Mercator projection followed by a Helmert datum
+ * transformation, as described in "A guide to coordinate systems in Great Britain"
+ * (Ordnance Survey). The Helmert transformation is accurate to about 5 metres, which
+ * is far below the 1km grid resolution.
  *
  * @author Gor Vardanyan
  * @version 24.03.2025
@@ -11,11 +18,30 @@ public class GridData {
     private final int MAX_TOP = 193305;
     private final int MAX_BOTTOM = 168504;
 
-    // Corresponding latitude and longitude ranges based on the corner points
-    private static final double MIN_LATITUDE = 51.395246;  // At MAX_BOTTOM
-    private static final double MAX_LATITUDE = 51.627741;  // At MAX_TOP
-    private static final double MIN_LONGITUDE = -0.40653443;  // At MAX_LEFT
-    private static final double MAX_LONGITUDE = 0.20205370;  // At MAX_RIGHT
+    // Airy 1830 ellipsoid and National Grid projection constants
+    private static final double AIRY_A = 6377563.396;
+    private static final double AIRY_B = 6356256.909;
+    private static final double AIRY_E2 = 1 - (AIRY_B * AIRY_B) / (AIRY_A * AIRY_A);
+    private static final double AIRY_N = (AIRY_A - AIRY_B) / (AIRY_A + AIRY_B);
+    private static final double F0 = 0.9996012717;             // scale factor on the central meridian
+    private static final double PHI0 = Math.toRadians(49);      // latitude of true origin
+    private static final double LAMBDA0 = Math.toRadians(-2);   // longitude of true origin
+    private static final double E0 = 400000;                    // easting of true origin
+    private static final double N0 = -100000;                   // northing of true origin
+    
+    // GRS80 (WGS84) ellipsoid
+    private static final double WGS84_A = 6378137.0;
+    private static final double WGS84_B = 6356752.3141;
+    private static final double WGS84_E2 = 1 - (WGS84_B * WGS84_B) / (WGS84_A * WGS84_A);
+    
+    // Helmert transformation OSGB36 -> WGS84 (translations in metres, scale in ppm, rotations in arc seconds)
+    private static final double TX = 446.448;
+    private static final double TY = -125.157;
+    private static final double TZ = 542.060;
+    private static final double S = -20.4894e-6;
+    private static final double RX = Math.toRadians(0.1502 / 3600);
+    private static final double RY = Math.toRadians(0.2470 / 3600);
+    private static final double RZ = Math.toRadians(0.8421 / 3600);
     
     /**
      * Represents a geographical point with Latitude and Longitude.
@@ -44,26 +70,128 @@ public class GridData {
     }
 
     /**
-     * Maps an Easting and Northing coordinate to Latitude and Longitude using linear interpolation.
+     * Maps an Easting and Northing coordinate to WGS84 Latitude and Longitude.
      *
      * @param easting  The Easting coordinate (X)
      * @param northing The Northing coordinate (Y)
      * @return A LatLon object containing the corresponding Latitude and Longitude
      */
     public LatLon mapToLatLon(double easting, double northing) {
-        // Clamps the coordinates to the boundary range to avoid extrapolation
-        double clampedEasting = Math.max(MAX_LEFT, Math.min(MAX_RIGHT, easting));
-        double clampedNorthing = Math.max(MAX_BOTTOM, Math.min(MAX_TOP, northing));
-
-        // Calculates (interpolates) latitude based on Northing
-        double latitude = MIN_LATITUDE + (clampedNorthing - MAX_BOTTOM) * (MAX_LATITUDE - MIN_LATITUDE)
-                / (MAX_TOP - MAX_BOTTOM);
-
-        // Calculates longitude based on Easting
-        double longitude = MIN_LONGITUDE + (clampedEasting - MAX_LEFT) * (MAX_LONGITUDE - MIN_LONGITUDE)
-                / (MAX_RIGHT - MAX_LEFT);
-
-        return new LatLon(latitude, longitude);
+        double[] latLon = new double[2];
+        toLatLon(easting, northing, latLon);
+        return new LatLon(latLon[0], latLon[1]);
+    }
+    
+    /**
+     * Maps many Easting and Northing coordinates to WGS84 Latitude and Longitude
+     * without creating any objects.
+     *
+     * @param eastings   The Easting coordinates (X)
+     * @param northings  The Northing coordinates (Y)
+     * @param count      The number of coordinates to convert
+     * @param latitudes  Receives the latitudes in degrees
+     * @param longitudes Receives the longitudes in degrees
+     */
+    public void mapToLatLon(int[] eastings, int[] northings, int count, double[] latitudes, double[] longitudes) {
+        double[] latLon = new double[2];
+        for (int i = 0; i < count; i++) {
+            toLatLon(eastings[i], northings[i], latLon);
+            latitudes[i] = latLon[0];
+            longitudes[i] = latLon[1];
+        }
+    }
+    
+    /**
+     * Maps an Easting and Northing coordinate to WGS84 Latitude and Longitude,
+     * writing the result into the given array instead of creating an object.
+     *
+     * @param easting  The Easting coordinate (X)
+     * @param northing The Northing coordinate (Y)
+     * @param latLon   Receives the latitude (index 0) and longitude (index 1) in degrees
+     */
+    public void toLatLon(double easting, double northing, double[] latLon) {
+        // Inverse Transverse Mercator: National Grid -> OSGB36 latitude/longitude
+        double phi = PHI0;
+        double m = 0;
+        do {
+            phi = (northing - N0 - m) / (AIRY_A * F0) + phi;
+            m = meridionalArc(phi);
+        } while (Math.abs(northing - N0 - m) >= 0.00001);
+        
+        double sinPhi = Math.sin(phi);
+        double cosPhi = Math.cos(phi);
+        double tanPhi = Math.tan(phi);
+        double tan2 = tanPhi * tanPhi;
+        double tan4 = tan2 * tan2;
+        double tan6 = tan4 * tan2;
+        double nu = AIRY_A * F0 / Math.sqrt(1 - AIRY_E2 * sinPhi * sinPhi);
+        double rho = AIRY_A * F0 * (1 - AIRY_E2) / Math.pow(1 - AIRY_E2 * sinPhi * sinPhi, 1.5);
+        double eta2 = nu / rho - 1;
+        double secPhi = 1 / cosPhi;
+        double nu3 = nu * nu * nu;
+        double nu5 = nu3 * nu * nu;
+        double nu7 = nu5 * nu * nu;
+        
+        double vii = tanPhi / (2 * rho * nu);
+        double viii = tanPhi / (24 * rho * nu3) * (5 + 3 * tan2 + eta2 - 9 * tan2 * eta2);
+        double ix = tanPhi / (720 * rho * nu5) * (61 + 90 * tan2 + 45 * tan4);
+        double x = secPhi / nu;
+        double xi = secPhi / (6 * nu3) * (nu / rho + 2 * tan2);
+        double xii = secPhi / (120 * nu5) * (5 + 28 * tan2 + 24 * tan4);
+        double xiia = secPhi / (5040 * nu7) * (61 + 662 * tan2 + 1320 * tan4 + 720 * tan6);
+        
+        double dE = easting - E0;
+        double dE2 = dE * dE;
+        double dE3 = dE2 * dE;
+        double dE4 = dE2 * dE2;
+        double dE5 = dE4 * dE;
+        double dE6 = dE4 * dE2;
+        double dE7 = dE6 * dE;
+        double latitude = phi - vii * dE2 + viii * dE4 - ix * dE6;
+        double longitude = LAMBDA0 + x * dE - xi * dE3 + xii * dE5 - xiia * dE7;
+        
+        // OSGB36 latitude/longitude -> cartesian coordinates on the Airy ellipsoid (height 0)
+        double sinLat = Math.sin(latitude);
+        double cosLat = Math.cos(latitude);
+        double nuAiry = AIRY_A / Math.sqrt(1 - AIRY_E2 * sinLat * sinLat);
+        double x1 = nuAiry * cosLat * Math.cos(longitude);
+        double y1 = nuAiry * cosLat * Math.sin(longitude);
+        double z1 = nuAiry * (1 - AIRY_E2) * sinLat;
+        
+        // Helmert transformation to WGS84 cartesian coordinates
+        double x2 = TX + (1 + S) * x1 - RZ * y1 + RY * z1;
+        double y2 = TY + RZ * x1 + (1 + S) * y1 - RX * z1;
+        double z2 = TZ - RY * x1 + RX * y1 + (1 + S) * z1;
+        
+        // Cartesian coordinates -> WGS84 latitude/longitude
+        double p = Math.sqrt(x2 * x2 + y2 * y2);
+        double wgsLatitude = Math.atan2(z2, p * (1 - WGS84_E2));
+        double previous;
+        do {
+            previous = wgsLatitude;
+            double sin = Math.sin(wgsLatitude);
+            double nuWgs = WGS84_A / Math.sqrt(1 - WGS84_E2 * sin * sin);
+            wgsLatitude = Math.atan2(z2 + WGS84_E2 * nuWgs * sin, p);
+        } while (Math.abs(wgsLatitude - previous) > 1e-12);
+        
+        latLon[0] = Math.toDegrees(wgsLatitude);
+        latLon[1] = Math.toDegrees(Math.atan2(y2, x2));
+    }
+    
+    /**
+     * Computes the meridional arc from the true origin to the given latitude on the
+     * Airy ellipsoid, scaled by F0.
+     */
+    private static double meridionalArc(double phi) {
+        double n = AIRY_N;
+        double n2 = n * n;
+        double n3 = n2 * n;
+        double dPhi = phi - PHI0;
+        double sPhi = phi + PHI0;
+        return AIRY_B * F0 * ((1 + n + 1.25 * n2 + 1.25 * n3) * dPhi
+                - (3 * n + 3 * n2 + 21.0 / 8 * n3) * Math.sin(dPhi) * Math.cos(sPhi)
+                + (15.0 / 8 * n2 + 15.0 / 8 * n3) * Math.sin(2 * dPhi) * Math.cos(2 * sPhi)
+                - 35.0 / 24 * n3 * Math.sin(3 * dPhi) * Math.cos(3 * sPhi));
     }
 
     /**
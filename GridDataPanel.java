@@ -6,7 +6,9 @@ import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.layout.*;
 import javafx.stage.Stage;
+import javafx.concurrent.Task;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -25,10 +27,17 @@ public class GridDataPanel extends Application
     private Button searchGridData;
     private Button backButton;
     private Label resultLabel;
+    private TextArea batchCoordinatesArea;
+    private Button batchSearchButton;
+    private TextArea batchResultArea;
     private StatisticsManager statsManager;
     
     // Static instance of MapPanel to determine grid dimensions
     private static final MapPanel MAP_PANEL = new MapPanel();
+    
+    // Pollutants and years covered by a batch lookup
+    private static final String[] BATCH_POLLUTANTS = {"NO2", "PM10", "PM2.5"};
+    private static final String[] BATCH_YEARS = {"2018", "2019", "2020", "2021", "2022", "2023"};
 
     /**
      * The main entry point for JavaFX programs.
@@ -51,8 +60,9 @@ public class GridDataPanel extends Application
         // Configure and arrange UI elements
         createWindow(inputField, root);
         
-        // Attach event handler to search button
+        // Attach event handlers to the search buttons
         searchGridData.setOnAction(this::searchButtonPressed);
+        batchSearchButton.setOnAction(this::batchSearchButtonPressed);
         
         // Create and set up the scene
         Scene scene = new Scene(root, 1000, 600);
@@ -96,6 +106,17 @@ public class GridDataPanel extends Application
         // Search button
         searchGridData = new Button("Search grid data");
         
+        // Batch mode: many easting/northing pairs looked up in every pollutant and year
+        Label batchLabel = new Label("Batch mode: paste one \"easting,northing\" pair per line");
+        batchCoordinatesArea = new TextArea();
+        batchCoordinatesArea.setPromptText("530000,180000");
+        batchCoordinatesArea.setPrefRowCount(4);
+        batchCoordinatesArea.setMaxWidth(300);
+        batchSearchButton = new Button("Batch search");
+        batchResultArea = new TextArea();
+        batchResultArea.setEditable(false);
+        batchResultArea.setPrefRowCount(12);
+        
         // Apply styling and layout properties
         inputField.getStyleClass().add("controls-panel");
         inputField.setPadding(new Insets(15));
@@ -109,7 +130,8 @@ public class GridDataPanel extends Application
             xCoordinateLabel, xCoordinateField,
             yCoordinateLabel, yCoordinateField,
             searchGridData,
-            resultLabel  // Add the result label to display the pollution level
+            resultLabel,  // Add the result label to display the pollution level
+            batchLabel, batchCoordinatesArea, batchSearchButton
         );
         
         // Logic for back button
@@ -123,7 +145,7 @@ public class GridDataPanel extends Application
         resultPane.setPadding(new Insets(15));
         Label resultTitle = new Label("Results");
         resultTitle.getStyleClass().add("title-label");
-        resultPane.getChildren().addAll(resultTitle, resultLabel);
+        resultPane.getChildren().addAll(resultTitle, resultLabel, batchResultArea);
         
         // An HBox to place inputField and resultPane side by side
         HBox mainContent = new HBox(30);
@@ -198,6 +220,94 @@ public class GridDataPanel extends Application
         processData(pollutantOption.toUpperCase(), yearOption, xCoordinateValue, yCoordinateValue);
     }
     
+    /**
+     * Handles the batch search button click event.
+     * Parses the pasted coordinates and looks them up in every pollutant and year.
+     * 
+     * @param event The event triggered by clicking the batch search button
+     */
+    private void batchSearchButtonPressed(ActionEvent event) {
+        String[] lines = batchCoordinatesArea.getText().split("\\R");
+        double[] eastings = new double[lines.length];
+        double[] northings = new double[lines.length];
+        int count = 0;
+        
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[i].trim();
+            if (line.isEmpty()) continue;
+            String[] parts = line.split("[,;\\s]+");
+            try {
+                eastings[count] = Double.parseDouble(parts[0]);
+                northings[count] = Double.parseDouble(parts[1]);
+                count++;
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                batchResultArea.setText("Invalid coordinates on line " + (i + 1) + ": " + line);
+                return;
+            }
+        }
+        if (count == 0) {
+            batchResultArea.setText("Please enter at least one easting,northing pair");
+            return;
+        }
+        
+        processBatch(Arrays.copyOf(eastings, count), Arrays.copyOf(northings, count));
+    }
+    
+    /**
+     * Loads the UK data of every pollutant and year in the background and looks up all
+     * the given coordinates in it. The results are shown as csv text, one line per location.
+     */
+    private void processBatch(double[] eastings, double[] northings) {
+        batchSearchButton.setDisable(true);
+        batchResultArea.setText("Loading data...");
+        
+        Task<String> batchTask = new Task<>() {
+            @Override
+            protected String call() {
+                DataLoader loader = new DataLoader();
+                List<DataSet> dataSets = new ArrayList<>();
+                StringBuilder header = new StringBuilder("easting,northing");
+                
+                for (String pollutant : BATCH_POLLUTANTS) {
+                    for (String year : BATCH_YEARS) {
+                        DataSet dataSet = loader.loadDataFile(getFileName(pollutant, year), false); // the UK data set
+                        if (dataSet != null && !dataSet.getData().isEmpty()) {
+                            dataSets.add(dataSet);
+                            header.append(',').append(pollutant).append(' ').append(year);
+                        }
+                    }
+                }
+                
+                StatisticsManager batchManager = new StatisticsManager(dataSets, "All");
+                double[][] levels = batchManager.getPollutionLevelsForCoordinates(eastings, northings);
+                
+                StringBuilder result = new StringBuilder(header).append('\n');
+                for (int i = 0; i < eastings.length; i++) {
+                    result.append((long) eastings[i]).append(',').append((long) northings[i]);
+                    for (double[] levelsOfDataSet : levels) {
+                        result.append(',');
+                        if (levelsOfDataSet[i] >= 0) result.append(String.format("%.2f", levelsOfDataSet[i]));
+                    }
+                    result.append('\n');
+                }
+                return result.toString();
+            }
+        };
+        
+        batchTask.setOnSucceeded(e -> {
+            batchResultArea.setText(batchTask.getValue());
+            batchSearchButton.setDisable(false);
+        });
+        batchTask.setOnFailed(e -> {
+            batchResultArea.setText("Batch search failed: " + batchTask.getException());
+            batchSearchButton.setDisable(false);
+        });
+        // the handlers above run on the JavaFX thread; a daemon thread does not keep the application alive
+        Thread batchThread = new Thread(batchTask, "batch-search");
+        batchThread.setDaemon(true);
+        batchThread.start();
+    }
+    
     /**
      * Loads pollution data and processes it for the given coordinates.
      */
@@ -274,7 +384,13 @@ public class GridDataPanel extends Application
             System.out.println("Searching for pollution level at Easting=" + eastingCoordinate + ", Northing=" + northingCoordinate);
             double pollutionLevel = statsManager.getPollutionLevelForCoordinates(eastingCoordinate, northingCoordinate);
             if (pollutionLevel != -1) {
-                resultLabel.setText(String.format("Pollution Level: %.2f µg/m³", pollutionLevel));
+                // Adds a smooth estimate between the surrounding cell centres, if there is one
+                double interpolatedLevel = statsManager.getInterpolatedLevelForCoordinates(eastingCoordinate, northingCoordinate);
+                if (interpolatedLevel != -1) {
+                    resultLabel.setText(String.format("Pollution Level: %.2f µg/m³ (interpolated: %.2f µg/m³)", pollutionLevel, interpolatedLevel));
+                } else {
+                    resultLabel.setText(String.format("Pollution Level: %.2f µg/m³", pollutionLevel));
+                }
             } else {
                 resultLabel.setText("Pollution Level: No data found for coordinates");
             }
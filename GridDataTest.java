@@ -0,0 +1,59 @@
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the GridData class, verifying the conversion from National Grid
+ * Eastings and Northings to WGS84 Latitude and Longitude.
+ */
+public class GridDataTest {
+
+    private GridData gridData;
+
+    @BeforeEach
+    public void setUp() {
+        gridData = new GridData();
+    }
+
+    /**
+     * Tests mapToLatLon for a known location in London (Big Ben).
+     * Verifies the result is within about 10 metres of the published WGS84 position.
+     */
+    @Test
+    public void testMapToLatLon_London() {
+        GridData.LatLon latLon = gridData.mapToLatLon(530268, 179640);
+        assertEquals(51.50073, latLon.getLatitude(), 0.0001);
+        assertEquals(-0.12463, latLon.getLongitude(), 0.0001);
+    }
+
+    /**
+     * Tests mapToLatLon outside London.
+     * Verifies coordinates are no longer clamped to the London map.
+     */
+    @Test
+    public void testMapToLatLon_OutsideLondon() {
+        GridData.LatLon latLon = gridData.mapToLatLon(200000, 800000);
+        assertTrue(latLon.getLatitude() > 56.5);
+        assertTrue(latLon.getLongitude() < -5.0);
+    }
+
+    /**
+     * Tests the batch mapToLatLon.
+     * Verifies it gives the same results as converting each point on its own.
+     */
+    @Test
+    public void testMapToLatLon_Batch() {
+        int[] eastings = {510394, 530268, 553297};
+        int[] northings = {168504, 179640, 193305};
+        double[] latitudes = new double[3];
+        double[] longitudes = new double[3];
+        gridData.mapToLatLon(eastings, northings, 3, latitudes, longitudes);
+
+        for (int i = 0; i < 3; i++) {
+            GridData.LatLon latLon = gridData.mapToLatLon(eastings[i], northings[i]);
+            assertEquals(latLon.getLatitude(), latitudes[i], 1e-12);
+            assertEquals(latLon.getLongitude(), longitudes[i], 1e-12);
+        }
+    }
+}
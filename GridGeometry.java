@@ -0,0 +1,59 @@
+/**
+ * A GridGeometry describes a regular raster of square cells on the National Grid:
+ * the easting and northing of the centre of cell (0, 0), the edge length of a cell,
+ * and the number of columns and rows. Column numbers grow eastwards and row numbers
+ * grow northwards, and cell (column, row) has the index row * columns + column.
+ *
+ * Two rasters with equal geometries line up cell for cell, so masks and label grids
+ * built for one geometry can be reused for every dataset with that geometry.
+ */
+public record GridGeometry(double originX, double originY, double cellSize, int columns, int rows)
+{
+    /**
+     * Return the number of cells in the raster.
+     */
+    public int cellCount()
+    {
+        return columns * rows;
+    }
+
+    /**
+     * Returns the column whose cell contains the given easting (may be outside the raster).
+     */
+    public int columnOf(double easting)
+    {
+        return (int) Math.floor((easting - originX) / cellSize + 0.5);
+    }
+
+    /**
+     * Returns the row whose cell contains the given northing (may be outside the raster).
+     */
+    public int rowOf(double northing)
+    {
+        return (int) Math.floor((northing - originY) / cellSize + 0.5);
+    }
+
+    /**
+     * Returns the easting of the centre of a column.
+     */
+    public double centreX(int column)
+    {
+        return originX + column * cellSize;
+    }
+
+    /**
+     * Returns the northing of the centre of a row.
+     */
+    public double centreY(int row)
+    {
+        return originY + row * cellSize;
+    }
+
+    /**
+     * Returns true if the column and row lie inside the raster.
+     */
+    public boolean contains(int column, int row)
+    {
+        return column >= 0 && column < columns && row >= 0 && row < rows;
+    }
+}
@@ -0,0 +1,225 @@
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * A GridRaster is the raster form of a dataset: the data points arranged in a
+ * regular grid of cells (see GridGeometry), with primitive lookup tables from cell to
+ * point and from point to cell, and the pollution value of every cell.
+ *
+ * The grid is taken from the extent and spacing of the points (1km cells for PCM
+ * data) unless it is given, as for resampled datasets. Cells without a data point,
+ * or whose point has a missing value, have the value NaN.
+ *
+ * The raster does not follow later changes to the dataset; DataSet.getRaster()
+ * rebuilds it when needed.
+ */
+public class GridRaster
+{
+    public static final int DEFAULT_CELL_SIZE = 1000;
+    private static final int MIN_CELL_LIMIT = 1 << 22;     // rasters up to this size are always allowed
+    private static final int MAX_CELLS_PER_POINT = 16;     // beyond that, the inferred cell size is not trusted
+
+    private final GridGeometry geometry;
+    private final int[] cellPoint;   // cell -> point index, or -1
+    private final int[] pointCell;   // point index -> cell
+    private final double[] cellValues;
+    private final BitSet validCells;  // cells with a point that has a valid value
+
+    /**
+     * Build the raster for the given point columns.
+     *
+     * @param points The point columns of a dataset
+     */
+    public GridRaster(PointColumns points)
+    {
+        this(points, inferGeometry(points));
+    }
+
+    /**
+     * Build the raster for the given point columns on a known grid.
+     *
+     * @param points The point columns of a dataset
+     * @param geometry The grid; every point must lie in one of its cells
+     * @throws IllegalArgumentException if a point lies outside the grid
+     */
+    public GridRaster(PointColumns points, GridGeometry geometry)
+    {
+        int size = points.size();
+        int[] eastings = points.getEastings();
+        int[] northings = points.getNorthings();
+        double[] values = points.getValues();
+        int columns = geometry.columns();
+        int rows = geometry.rows();
+        this.geometry = geometry;
+
+        cellPoint = new int[columns * rows];
+        Arrays.fill(cellPoint, -1);
+        pointCell = new int[size];
+        cellValues = new double[columns * rows];
+        Arrays.fill(cellValues, Double.NaN);
+        validCells = new BitSet(columns * rows);
+
+        for (int i = 0; i < size; i++) {
+            int column = geometry.columnOf(eastings[i]);
+            int row = geometry.rowOf(northings[i]);
+            if (!geometry.contains(column, row)) {
+                throw new IllegalArgumentException("point " + i + " lies outside the grid");
+            }
+            int cell = row * columns + column;
+            pointCell[i] = cell;
+            if (cellPoint[cell] >= 0) continue; // keep the first point of a cell
+            cellPoint[cell] = i;
+            if (values[i] >= 0) {
+                cellValues[cell] = values[i];
+                validCells.set(cell);
+            }
+        }
+    }
+
+    /**
+     * Returns the grid spanned by the points, with the cell size taken from their spacing.
+     */
+    private static GridGeometry inferGeometry(PointColumns points)
+    {
+        int size = points.size();
+        int[] eastings = points.getEastings();
+        int[] northings = points.getNorthings();
+
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+        for (int i = 0; i < size; i++) {
+            minX = Math.min(minX, eastings[i]);
+            maxX = Math.max(maxX, eastings[i]);
+            minY = Math.min(minY, northings[i]);
+            maxY = Math.max(maxY, northings[i]);
+        }
+        if (size == 0) {
+            minX = minY = maxX = maxY = 0;
+        }
+
+        // the cell size is the greatest common divisor of all offsets from the corner point
+        int cellSize = 0;
+        for (int i = 0; i < size && cellSize != 1; i++) {
+            cellSize = gcd(cellSize, eastings[i] - minX);
+            cellSize = gcd(cellSize, northings[i] - minY);
+        }
+        if (cellSize == 0 || cellCount(minX, minY, maxX, maxY, cellSize) > Math.max(MIN_CELL_LIMIT, (long) MAX_CELLS_PER_POINT * size)) {
+            cellSize = DEFAULT_CELL_SIZE;
+        }
+
+        int columns = (int) Math.round((double) (maxX - minX) / cellSize) + 1;
+        int rows = (int) Math.round((double) (maxY - minY) / cellSize) + 1;
+        return new GridGeometry(minX, minY, cellSize, columns, rows);
+    }
+
+    /**
+     * Return the geometry of this raster.
+     */
+    public GridGeometry getGeometry()
+    {
+        return geometry;
+    }
+
+    /**
+     * Return the number of columns.
+     */
+    public int getColumns()
+    {
+        return geometry.columns();
+    }
+
+    /**
+     * Return the number of rows.
+     */
+    public int getRows()
+    {
+        return geometry.rows();
+    }
+
+    /**
+     * Return the edge length of a cell in metres.
+     */
+    public double getCellSize()
+    {
+        return geometry.cellSize();
+    }
+
+    /**
+     * Returns the index of the data point in a cell, or -1 if the cell is empty.
+     */
+    public int getPointAt(int cell)
+    {
+        return cellPoint[cell];
+    }
+
+    /**
+     * Returns the index of the data point at a column and row, or -1 if the cell
+     * is empty or outside the raster.
+     */
+    public int getPointAt(int column, int row)
+    {
+        if (!geometry.contains(column, row)) return -1;
+        return cellPoint[row * geometry.columns() + column];
+    }
+
+    /**
+     * Returns the cell of a data point.
+     */
+    public int getCellOfPoint(int point)
+    {
+        return pointCell[point];
+    }
+
+    /**
+     * Returns the value of a cell, or NaN if it has no valid value.
+     */
+    public double getValue(int cell)
+    {
+        return cellValues[cell];
+    }
+
+    /**
+     * Return the values of all cells (NaN where there is no valid value). Do not modify.
+     */
+    public double[] getValues()
+    {
+        return cellValues;
+    }
+
+    /**
+     * Return the set of cells that hold a valid value. Do not modify.
+     */
+    public BitSet getValidCells()
+    {
+        return validCells;
+    }
+
+    /**
+     * Return the number of data points the raster was built from.
+     */
+    public int getPointCount()
+    {
+        return pointCell.length;
+    }
+
+    /**
+     * Returns the number of cells a raster with the given bounds and cell size would have.
+     */
+    private static long cellCount(int minX, int minY, int maxX, int maxY, int cellSize)
+    {
+        return ((long) (maxX - minX) / cellSize + 1) * ((long) (maxY - minY) / cellSize + 1);
+    }
+
+    /**
+     * Returns the greatest common divisor of two non-negative numbers.
+     */
+    private static int gcd(int a, int b)
+    {
+        while (b != 0) {
+            int t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+}
@@ -0,0 +1,21 @@
+/**
+ * A Hotspot is one contiguous area of grid cells whose pollution values lie above a
+ * threshold, as found by the HotspotDetector.
+ *
+ * The location values are National Grid eastings and northings. The area is in
+ * square metres; the centroid is the unweighted centre of the hotspot's cells. The
+ * points are indices into the columns of the dataset the hotspot was found in.
+ */
+public record Hotspot(int cellCount, double area, double centroidX, double centroidY,
+                      double peakValue, int peakPoint, double meanValue, int[] points)
+{
+    /**
+     * Return a short description of the hotspot.
+     */
+    @Override
+    public String toString()
+    {
+        return String.format("%d cells (%.1f km²), peak %.2f, mean %.2f, centre (%.0f, %.0f)",
+                             cellCount, area / 1e6, peakValue, meanValue, centroidX, centroidY);
+    }
+}
@@ -0,0 +1,169 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * HotspotDetector finds the hotspots of a dataset: groups of neighbouring cells whose
+ * values are above a threshold. Cells are neighbours if they share an edge, or also a
+ * corner if diagonal connection is switched on.
+ *
+ * The groups are found by connected-component labelling over the dataset's raster with
+ * a union-find structure held in a primitive array. One scan joins every cell above the
+ * threshold with its already visited neighbours, and a second scan collects the area,
+ * centroid, peak and mean of every group, so the work is (almost) linear in the number
+ * of cells.
+ */
+public class HotspotDetector
+{
+    // annual mean limit values in µg/m³ (UK Air Quality Standards Regulations 2010)
+    public static final double NO2_LIMIT = 40.0;
+    public static final double PM10_LIMIT = 40.0;
+    public static final double PM25_LIMIT = 20.0;
+
+    private final double threshold;
+    private final boolean diagonal;
+
+    /**
+     * Create a detector that joins cells sharing an edge.
+     *
+     * @param threshold Cells with values above this belong to hotspots
+     */
+    public HotspotDetector(double threshold)
+    {
+        this(threshold, false);
+    }
+
+    /**
+     * Create a detector.
+     *
+     * @param threshold Cells with values above this belong to hotspots
+     * @param diagonal True if cells touching only at a corner are joined as well
+     */
+    public HotspotDetector(double threshold, boolean diagonal)
+    {
+        this.threshold = threshold;
+        this.diagonal = diagonal;
+    }
+
+    /**
+     * Returns the annual mean limit value for a pollutant, in the spellings used by
+     * the panels ("NO2", "no2", "PM2.5", "pm25", "PM10", ...).
+     *
+     * @param pollutant The name of the pollutant
+     * @return The limit value, or NaN if the pollutant is unknown
+     */
+    public static double getLimitValue(String pollutant)
+    {
+        String name = pollutant.toLowerCase().replace(".", "");
+        if (name.equals("no2")) return NO2_LIMIT;
+        if (name.equals("pm10")) return PM10_LIMIT;
+        if (name.equals("pm25")) return PM25_LIMIT;
+        return Double.NaN;
+    }
+
+    /**
+     * Find the hotspots of a dataset.
+     *
+     * @param dataSet The dataset
+     * @return The hotspots, largest peak value first
+     */
+    public List<Hotspot> detect(DataSet dataSet)
+    {
+        // nothing can be hot if no value is above the threshold, so skip building the raster
+        PointColumns pointColumns = dataSet.getColumns();
+        if (ReductionKernels.countAbove(pointColumns.getValues(), null, 0, pointColumns.size(), threshold) == 0) return new ArrayList<>();
+
+        GridRaster raster = dataSet.getRaster();
+        GridGeometry geometry = raster.getGeometry();
+        int columns = geometry.columns();
+        int rows = geometry.rows();
+        double[] values = raster.getValues();
+
+        // first scan: join every hot cell with its hot neighbours to the west and south
+        int[] parent = new int[values.length];
+        Arrays.fill(parent, -1);
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                int cell = row * columns + column;
+                if (!(values[cell] > threshold)) continue; // also skips NaN
+                parent[cell] = cell;
+                if (column > 0) join(parent, cell, cell - 1);
+                if (row > 0) {
+                    join(parent, cell, cell - columns);
+                    if (diagonal && column > 0) join(parent, cell, cell - columns - 1);
+                    if (diagonal && column < columns - 1) join(parent, cell, cell - columns + 1);
+                }
+            }
+        }
+
+        // second scan: number the groups and collect their figures
+        int[] label = new int[values.length];
+        int groups = 0;
+        for (int cell = 0; cell < values.length; cell++) {
+            if (parent[cell] < 0) continue;
+            int root = find(parent, cell);
+            if (root == cell) label[cell] = groups++;
+        }
+        int[] counts = new int[groups];
+        double[] sumX = new double[groups];
+        double[] sumY = new double[groups];
+        double[] sumValues = new double[groups];
+        int[] peakCells = new int[groups];
+        Arrays.fill(peakCells, -1);
+        for (int cell = 0; cell < values.length; cell++) {
+            if (parent[cell] < 0) continue;
+            int group = label[find(parent, cell)];
+            counts[group]++;
+            sumX[group] += geometry.centreX(cell % columns);
+            sumY[group] += geometry.centreY(cell / columns);
+            sumValues[group] += values[cell];
+            if (peakCells[group] < 0 || values[cell] > values[peakCells[group]]) peakCells[group] = cell;
+        }
+
+        // the points of each group, by counting sort on the group number
+        int[] start = new int[groups + 1];
+        for (int group = 0; group < groups; group++) start[group + 1] = start[group] + counts[group];
+        int[] points = new int[start[groups]];
+        int[] next = Arrays.copyOf(start, groups);
+        for (int cell = 0; cell < values.length; cell++) {
+            if (parent[cell] < 0) continue;
+            points[next[label[find(parent, cell)]]++] = raster.getPointAt(cell);
+        }
+
+        double cellArea = geometry.cellSize() * geometry.cellSize();
+        List<Hotspot> hotspots = new ArrayList<>(groups);
+        for (int group = 0; group < groups; group++) {
+            int count = counts[group];
+            hotspots.add(new Hotspot(count, count * cellArea, sumX[group] / count, sumY[group] / count,
+                                     values[peakCells[group]], raster.getPointAt(peakCells[group]), sumValues[group] / count,
+                                     Arrays.copyOfRange(points, start[group], start[group + 1])));
+        }
+        hotspots.sort((a, b) -> Double.compare(b.peakValue(), a.peakValue()));
+        return hotspots;
+    }
+
+    /**
+     * Joins the groups of two cells, keeping the smaller root so that the roots stay
+     * the first cell of each group in scan order.
+     */
+    private static void join(int[] parent, int a, int b)
+    {
+        if (parent[b] < 0) return;
+        int rootA = find(parent, a);
+        int rootB = find(parent, b);
+        if (rootA < rootB) parent[rootB] = rootA;
+        else if (rootB < rootA) parent[rootA] = rootB;
+    }
+
+    /**
+     * Returns the root of a cell's group, halving the path on the way.
+     */
+    private static int find(int[] parent, int cell)
+    {
+        while (parent[cell] != cell) {
+            parent[cell] = parent[parent[cell]];
+            cell = parent[cell];
+        }
+        return cell;
+    }
+}
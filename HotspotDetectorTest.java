@@ -0,0 +1,99 @@
+import org.junit.jupiter.api.Test;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the HotspotDetector class, on small grids of 1km cells whose centres
+ * lie at 500, 1500, ... metres.
+ */
+public class HotspotDetectorTest {
+
+    // three cells joined by edges, and two cells touching only at a corner; 40 is not above the limit
+    private static final double[][] GRID = {
+        {45, 0, 40, 0, 0},
+        {44, 46, 0, 0, 0},
+        {0, 0, 0, 60, 0},
+        {-1, 0, 0, 0, 50}
+    };
+
+    /**
+     * Tests detection with edge connectivity.
+     * Verifies the corner-touching cells are separate hotspots, and the size, area,
+     * centroid, peak, mean and points of each.
+     */
+    @Test
+    public void testDetect_EdgeConnected() {
+        List<Hotspot> hotspots = new HotspotDetector(40).detect(TestGrids.dataSet(GRID));
+        assertEquals(3, hotspots.size());
+
+        Hotspot first = hotspots.get(0);
+        assertEquals(1, first.cellCount());
+        assertEquals(60, first.peakValue());
+        assertEquals(13, first.peakPoint());
+        assertEquals(3500, first.centroidX(), 1e-9);
+        assertEquals(2500, first.centroidY(), 1e-9);
+
+        assertEquals(50, hotspots.get(1).peakValue());
+        assertArrayEquals(new int[] {19}, hotspots.get(1).points());
+
+        Hotspot last = hotspots.get(2);
+        assertEquals(3, last.cellCount());
+        assertEquals(3e6, last.area(), 1e-9);
+        assertEquals((500 + 500 + 1500) / 3.0, last.centroidX(), 1e-9);
+        assertEquals((500 + 1500 + 1500) / 3.0, last.centroidY(), 1e-9);
+        assertEquals(46, last.peakValue());
+        assertEquals(6, last.peakPoint());
+        assertEquals(45, last.meanValue(), 1e-9);
+        assertArrayEquals(new int[] {0, 5, 6}, last.points());
+    }
+
+    /**
+     * Tests detection with diagonal connectivity.
+     * Verifies the corner-touching cells form one hotspot with the higher peak.
+     */
+    @Test
+    public void testDetect_DiagonalConnected() {
+        List<Hotspot> hotspots = new HotspotDetector(40, true).detect(TestGrids.dataSet(GRID));
+        assertEquals(2, hotspots.size());
+        assertEquals(2, hotspots.get(0).cellCount());
+        assertEquals(60, hotspots.get(0).peakValue());
+        assertEquals(55, hotspots.get(0).meanValue(), 1e-9);
+        assertEquals(4000, hotspots.get(0).centroidX(), 1e-9);
+        assertEquals(3000, hotspots.get(0).centroidY(), 1e-9);
+        assertEquals(3, hotspots.get(1).cellCount());
+    }
+
+    /**
+     * Tests shapes whose parts are only joined late in the scan: an arch, and cells
+     * touching at a corner in the other direction.
+     * Verifies each forms a single hotspot.
+     */
+    @Test
+    public void testDetect_MergedGroups() {
+        double[][] arch = {
+            {50, 0, 50},
+            {50, 0, 50},
+            {50, 50, 50}
+        };
+        List<Hotspot> hotspots = new HotspotDetector(40).detect(TestGrids.dataSet(arch));
+        assertEquals(1, hotspots.size());
+        assertEquals(7, hotspots.get(0).cellCount());
+
+        double[][] corner = {
+            {0, 50},
+            {50, 0}
+        };
+        assertEquals(2, new HotspotDetector(40).detect(TestGrids.dataSet(corner)).size());
+        assertEquals(1, new HotspotDetector(40, true).detect(TestGrids.dataSet(corner)).size());
+    }
+
+    /**
+     * Tests a dataset with no value above the threshold.
+     * Verifies no hotspot is found.
+     */
+    @Test
+    public void testDetect_NoneAbove() {
+        assertTrue(new HotspotDetector(100).detect(TestGrids.dataSet(GRID)).isEmpty());
+    }
+}
@@ -0,0 +1,132 @@
+import java.util.Arrays;
+
+/**
+ * IndexedMinHeap is a binary min-heap of int ids (0 to capacity - 1), each with a
+ * double priority, held in primitive arrays. Because it knows where every id sits in
+ * the heap, the priority of an id already in the heap can be lowered in place, which
+ * is what shortest path searches need.
+ */
+public class IndexedMinHeap
+{
+    private final int[] heap;          // heap position -> id
+    private final int[] position;      // id -> heap position, or -1 if not in the heap
+    private final double[] priorities; // id -> priority
+    private int size;
+
+    /**
+     * Create an empty heap for the ids 0 to capacity - 1.
+     *
+     * @param capacity The number of ids
+     */
+    public IndexedMinHeap(int capacity)
+    {
+        heap = new int[capacity];
+        position = new int[capacity];
+        Arrays.fill(position, -1);
+        priorities = new double[capacity];
+    }
+
+    /**
+     * Adds an id, or lowers its priority if it is already in the heap with a higher one.
+     *
+     * @param id The id
+     * @param priority The priority; lower comes first
+     */
+    public void push(int id, double priority)
+    {
+        int at = position[id];
+        if (at < 0) {
+            at = size++;
+            heap[at] = id;
+            position[id] = at;
+        }
+        else if (priority >= priorities[id]) {
+            return;
+        }
+        priorities[id] = priority;
+        siftUp(at);
+    }
+
+    /**
+     * Removes and returns the id with the lowest priority.
+     *
+     * @return The id, or -1 if the heap is empty
+     */
+    public int pop()
+    {
+        if (size == 0) return -1;
+        int first = heap[0];
+        position[first] = -1;
+        size--;
+        if (size > 0) {
+            heap[0] = heap[size];
+            position[heap[0]] = 0;
+            siftDown(0);
+        }
+        return first;
+    }
+
+    /**
+     * Returns true if the id is in the heap.
+     */
+    public boolean contains(int id)
+    {
+        return position[id] >= 0;
+    }
+
+    /**
+     * Returns true if the heap is empty.
+     */
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    /**
+     * Return the number of ids in the heap.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Moves the id at a heap position up until its parent comes before it.
+     */
+    private void siftUp(int at)
+    {
+        int id = heap[at];
+        double priority = priorities[id];
+        while (at > 0) {
+            int parent = (at - 1) >>> 1;
+            int parentId = heap[parent];
+            if (priorities[parentId] <= priority) break;
+            heap[at] = parentId;
+            position[parentId] = at;
+            at = parent;
+        }
+        heap[at] = id;
+        position[id] = at;
+    }
+
+    /**
+     * Moves the id at a heap position down until both children come after it.
+     */
+    private void siftDown(int at)
+    {
+        int id = heap[at];
+        double priority = priorities[id];
+        while (true) {
+            int child = 2 * at + 1;
+            if (child >= size) break;
+            if (child + 1 < size && priorities[heap[child + 1]] < priorities[heap[child]]) child++;
+            int childId = heap[child];
+            if (priorities[childId] >= priority) break;
+            heap[at] = childId;
+            position[childId] = at;
+            at = child;
+        }
+        heap[at] = id;
+        position[id] = at;
+    }
+}
@@ -0,0 +1,115 @@
+import java.util.Arrays;
+
+/**
+ * IntIntMap is a small hash map from int keys to non-negative int values (typically
+ * the index of a data point). It uses open addressing over two primitive arrays, so
+ * neither keys nor values are boxed.
+ */
+public class IntIntMap
+{
+    public static final int NO_VALUE = -1; // Returned by get when a key is not in the map
+
+    private int[] keys;
+    private int[] values; // NO_VALUE marks an empty slot
+    private int mask;
+    private int size;
+
+    /**
+     * Create a map with room for the given number of entries.
+     *
+     * @param expectedSize The number of entries the map is expected to hold
+     */
+    public IntIntMap(int expectedSize)
+    {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        keys = new int[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, NO_VALUE);
+        mask = capacity - 1;
+    }
+
+    /**
+     * Associates the value with the key.
+     *
+     * @param key The key
+     * @param value The value; must not be negative
+     * @return The previous value of the key, or NO_VALUE if there was none
+     */
+    public int put(int key, int value)
+    {
+        if (value < 0) throw new IllegalArgumentException("Negative value: " + value);
+        if ((size + 1) * 2 > keys.length) grow();
+
+        int slot = slotOf(key);
+        int previous = values[slot];
+        if (previous == NO_VALUE) size++;
+        keys[slot] = key;
+        values[slot] = value;
+        return previous;
+    }
+
+    /**
+     * Returns the value of the key, or NO_VALUE if the key is not in the map.
+     */
+    public int get(int key)
+    {
+        return values[slotOf(key)];
+    }
+
+    /**
+     * Returns true if the key is in the map.
+     */
+    public boolean containsKey(int key)
+    {
+        return get(key) != NO_VALUE;
+    }
+
+    /**
+     * Return the number of entries in the map.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Returns the slot that holds the key, or the empty slot where it would be inserted.
+     */
+    private int slotOf(int key)
+    {
+        int slot = mix(key) & mask;
+        while (values[slot] != NO_VALUE && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Doubles the table size and re-inserts all entries.
+     */
+    private void grow()
+    {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[oldKeys.length * 2];
+        values = new int[oldKeys.length * 2];
+        Arrays.fill(values, NO_VALUE);
+        mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != NO_VALUE) {
+                int slot = slotOf(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Spreads the bits of a key so that sequential grid codes do not cluster.
+     */
+    private static int mix(int key)
+    {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,10 @@
+import java.util.List;
+
+/**
+ * An Isoline holds the contour lines of a dataset at one pollution level, as found by
+ * the ContourGenerator. Each line is a polyline of National Grid coordinates stored as
+ * x1, y1, x2, y2, ...; a closed line ends with its first point.
+ */
+public record Isoline(double level, List<double[]> lines)
+{
+}
@@ -0,0 +1,220 @@
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JsonReader is a small parser for the JSON documents the application reads itself,
+ * such as the schema header of a columnar export or a GeoJSON boundary file.
+ *
+ * Objects are returned as Map, arrays as List, numbers as Double, and strings,
+ * booleans and null as String, Boolean and null respectively.
+ */
+public class JsonReader
+{
+    private final String text;
+    private int position;
+
+    /**
+     * Parses a complete JSON document.
+     *
+     * @param text The JSON text
+     * @return The parsed value
+     * @throws IllegalArgumentException if the text is not valid JSON
+     */
+    public static Object parse(String text)
+    {
+        JsonReader reader = new JsonReader(text);
+        Object value = reader.readValue();
+        reader.skipWhitespace();
+        if (reader.position != text.length()) throw reader.error("Unexpected trailing characters");
+        return value;
+    }
+
+    /**
+     * Escapes a string for use inside a JSON string literal.
+     *
+     * @param value The string to escape
+     * @return The escaped string, without surrounding quotes
+     */
+    public static String escape(String value)
+    {
+        StringBuilder builder = new StringBuilder(value.length() + 8);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': builder.append("\\\""); break;
+                case '\\': builder.append("\\\\"); break;
+                case '\n': builder.append("\\n"); break;
+                case '\r': builder.append("\\r"); break;
+                case '\t': builder.append("\\t"); break;
+                default:
+                    if (c < 0x20) builder.append(String.format("\\u%04x", (int) c));
+                    else builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Constructor for objects of class JsonReader
+     */
+    private JsonReader(String text)
+    {
+        this.text = text;
+        this.position = 0;
+    }
+
+    /**
+     * Reads the value starting at the current position.
+     */
+    private Object readValue()
+    {
+        skipWhitespace();
+        if (position >= text.length()) throw error("Unexpected end of input");
+        char c = text.charAt(position);
+        switch (c) {
+            case '{': return readObject();
+            case '[': return readArray();
+            case '"': return readString();
+            case 't': expect("true"); return Boolean.TRUE;
+            case 'f': expect("false"); return Boolean.FALSE;
+            case 'n': expect("null"); return null;
+            default: return readNumber();
+        }
+    }
+
+    /**
+     * Reads an object into a map that keeps the order of its members.
+     */
+    private Map<String, Object> readObject()
+    {
+        Map<String, Object> object = new LinkedHashMap<>();
+        position++; // skip '{'
+        skipWhitespace();
+        if (peek() == '}') {
+            position++;
+            return object;
+        }
+        while (true) {
+            skipWhitespace();
+            String key = readString();
+            skipWhitespace();
+            if (peek() != ':') throw error("Expected ':'");
+            position++;
+            object.put(key, readValue());
+            skipWhitespace();
+            char c = peek();
+            position++;
+            if (c == '}') return object;
+            if (c != ',') throw error("Expected ',' or '}'");
+        }
+    }
+
+    /**
+     * Reads an array into a list.
+     */
+    private List<Object> readArray()
+    {
+        List<Object> array = new ArrayList<>();
+        position++; // skip '['
+        skipWhitespace();
+        if (peek() == ']') {
+            position++;
+            return array;
+        }
+        while (true) {
+            array.add(readValue());
+            skipWhitespace();
+            char c = peek();
+            position++;
+            if (c == ']') return array;
+            if (c != ',') throw error("Expected ',' or ']'");
+        }
+    }
+
+    /**
+     * Reads a string literal, resolving escape sequences.
+     */
+    private String readString()
+    {
+        if (peek() != '"') throw error("Expected string");
+        position++;
+        StringBuilder builder = new StringBuilder();
+        while (true) {
+            if (position >= text.length()) throw error("Unterminated string");
+            char c = text.charAt(position++);
+            if (c == '"') return builder.toString();
+            if (c != '\\') {
+                builder.append(c);
+                continue;
+            }
+            char escaped = text.charAt(position++);
+            switch (escaped) {
+                case 'b': builder.append('\b'); break;
+                case 'f': builder.append('\f'); break;
+                case 'n': builder.append('\n'); break;
+                case 'r': builder.append('\r'); break;
+                case 't': builder.append('\t'); break;
+                case 'u':
+                    builder.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                    position += 4;
+                    break;
+                default: builder.append(escaped);
+            }
+        }
+    }
+
+    /**
+     * Reads a number literal.
+     */
+    private Double readNumber()
+    {
+        int start = position;
+        while (position < text.length() && "+-0123456789.eE".indexOf(text.charAt(position)) >= 0) {
+            position++;
+        }
+        try {
+            return Double.valueOf(text.substring(start, position));
+        }
+        catch (NumberFormatException exc) {
+            throw error("Invalid number");
+        }
+    }
+
+    /**
+     * Checks that the given literal follows at the current position and skips it.
+     */
+    private void expect(String literal)
+    {
+        if (!text.startsWith(literal, position)) throw error("Expected " + literal);
+        position += literal.length();
+    }
+
+    /**
+     * Returns the character at the current position without consuming it.
+     */
+    private char peek()
+    {
+        if (position >= text.length()) throw error("Unexpected end of input");
+        return text.charAt(position);
+    }
+
+    /**
+     * Moves the position past any whitespace.
+     */
+    private void skipWhitespace()
+    {
+        while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+            position++;
+        }
+    }
+
+    /**
+     * Creates an exception describing a syntax error at the current position.
+     */
+    private IllegalArgumentException error(String message)
+    {
+        return new IllegalArgumentException(message + " at position " + position);
+    }
+}
@@ -0,0 +1,364 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A KllSketch estimates quantiles (the median, 90th percentile, ...) of a stream of
+ * values in a small, fixed amount of memory, following Karnin, Lang and Liberty,
+ * "Optimal Quantile Approximation in Streams" (2016).
+ *
+ * The values are held in levels of compactors. New values go into level 0; when the
+ * sketch is over its capacity, the lowest full level is sorted and every other value
+ * (starting at a random one of the first two) moves up a level, where each value stands
+ * for twice as many. The capacity of a level shrinks by a factor of 2/3 for each level
+ * below the top, which holds k values, so the sketch keeps O(k) values however many it
+ * has seen.
+ *
+ * Error bound: a quantile returned for fraction q is a value whose true rank lies
+ * within about epsilon * n of q * n, where n is the number of values seen and epsilon
+ * falls like 1/k. For the default k = 200 epsilon is about 1.3% with 99% confidence
+ * (see getNormalizedRankError). Until the first compaction, i.e. for up to about k
+ * values, the answers are exact.
+ *
+ * Sketches with the same k can be merged, e.g. sketches built over parts of a dataset
+ * by several threads, or over several years; the merged sketch has the same error
+ * bound as one built over all the values. A sketch itself is not thread-safe.
+ */
+public class KllSketch
+{
+    public static final int DEFAULT_K = 200;
+    private static final int MIN_CAPACITY = 8;     // no level is made smaller than this
+    private static final double CAPACITY_DECAY = 2.0 / 3;
+
+    private final int k;
+    private double[][] levels = new double[1][MIN_CAPACITY];
+    private int[] levelSizes = new int[1];
+    private int levelCount = 1;
+    private int retained;      // the number of values in all levels
+    private int totalCapacity; // the number of values all levels together may hold
+    private long count;
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+    private long randomState = 0x9E3779B97F4A7C15L; // fixed seed, so results can be repeated
+
+    // sorted view for queries, built on first query after a change
+    private double[] sortedValues;
+    private long[] cumulativeWeights;
+
+    /**
+     * Create a sketch with the default accuracy.
+     */
+    public KllSketch()
+    {
+        this(DEFAULT_K);
+    }
+
+    /**
+     * Create a sketch.
+     *
+     * @param k The accuracy parameter; the rank error falls like 1/k and the memory grows like k
+     */
+    public KllSketch(int k)
+    {
+        if (k < MIN_CAPACITY) throw new IllegalArgumentException("k must be at least " + MIN_CAPACITY + ": " + k);
+        this.k = k;
+        totalCapacity = getCapacity(0);
+    }
+
+    /**
+     * Returns the approximate rank error, as a fraction of the number of values, of a
+     * single quantile query at 99% confidence. These are the empirical figures for KLL
+     * sketches with this capacity schedule (from the Apache DataSketches project).
+     *
+     * @param k The accuracy parameter
+     */
+    public static double getNormalizedRankError(int k)
+    {
+        return 2.296 / Math.pow(k, 0.9723);
+    }
+
+    /**
+     * Add a value. NaN values are ignored.
+     */
+    public void update(double value)
+    {
+        if (Double.isNaN(value)) return;
+        if (count == 0 || value < min) min = value;
+        if (count == 0 || value > max) max = value;
+        count++;
+        append(0, value);
+        sortedValues = null;
+        if (retained > totalCapacity) compress();
+    }
+
+    /**
+     * Add all values seen by another sketch to this one. The other sketch is not changed.
+     *
+     * @param other A sketch with the same k
+     */
+    public void merge(KllSketch other)
+    {
+        if (other.k != k) throw new IllegalArgumentException("Cannot merge sketches with k " + k + " and " + other.k);
+        if (other.count == 0) return;
+
+        if (count == 0 || other.min < min) min = other.min;
+        if (count == 0 || other.max > max) max = other.max;
+        count += other.count;
+        for (int level = 0; level < other.levelCount; level++) {
+            for (int i = 0; i < other.levelSizes[level]; i++) {
+                append(level, other.levels[level][i]);
+            }
+        }
+        sortedValues = null;
+        compress();
+    }
+
+    /**
+     * Returns an estimate of the value at a fraction of the values.
+     *
+     * @param fraction The fraction, from 0 (the minimum) to 1 (the maximum); 0.5 gives the median
+     * @return The estimate, or NaN if the sketch is empty
+     */
+    public double getQuantile(double fraction)
+    {
+        if (fraction < 0 || fraction > 1) throw new IllegalArgumentException("Fraction outside [0, 1]: " + fraction);
+        if (count == 0) return Double.NaN;
+        if (fraction == 0) return min;
+        if (fraction == 1) return max;
+
+        buildSortedView();
+        // the first value whose cumulative weight reaches the wanted rank
+        double rank = fraction * count;
+        int low = 0;
+        int high = cumulativeWeights.length - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (cumulativeWeights[middle] < rank) low = middle + 1;
+            else high = middle;
+        }
+        return sortedValues[low];
+    }
+
+    /**
+     * Returns an estimate of the fraction of values that are at most the given value.
+     *
+     * @param value The value
+     * @return The fraction, or NaN if the sketch is empty
+     */
+    public double getRank(double value)
+    {
+        if (count == 0) return Double.NaN;
+        buildSortedView();
+        int low = 0;
+        int high = sortedValues.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sortedValues[middle] <= value) low = middle + 1;
+            else high = middle;
+        }
+        return low == 0 ? 0 : (double) cumulativeWeights[low - 1] / count;
+    }
+
+    /**
+     * Return the number of values seen.
+     */
+    public long getCount()
+    {
+        return count;
+    }
+
+    /**
+     * Return the smallest value seen, or NaN if the sketch is empty.
+     */
+    public double getMin()
+    {
+        return min;
+    }
+
+    /**
+     * Return the largest value seen, or NaN if the sketch is empty.
+     */
+    public double getMax()
+    {
+        return max;
+    }
+
+    /**
+     * Return the accuracy parameter.
+     */
+    public int getK()
+    {
+        return k;
+    }
+
+    /**
+     * Return the number of values the sketch holds.
+     */
+    public int getRetainedValues()
+    {
+        return retained;
+    }
+
+    /**
+     * Writes the sketch to a stream, so that it can be read back with read().
+     *
+     * @param out The stream to write to
+     */
+    public void write(DataOutputStream out) throws IOException
+    {
+        out.writeInt(k);
+        out.writeLong(count);
+        out.writeDouble(min);
+        out.writeDouble(max);
+        out.writeLong(randomState);
+        out.writeInt(levelCount);
+        for (int level = 0; level < levelCount; level++) {
+            out.writeInt(levelSizes[level]);
+            for (int i = 0; i < levelSizes[level]; i++) {
+                out.writeDouble(levels[level][i]);
+            }
+        }
+    }
+
+    /**
+     * Reads a sketch written with write().
+     *
+     * @param in The stream to read from
+     * @return The sketch
+     */
+    public static KllSketch read(DataInputStream in) throws IOException
+    {
+        KllSketch sketch = new KllSketch(in.readInt());
+        sketch.count = in.readLong();
+        sketch.min = in.readDouble();
+        sketch.max = in.readDouble();
+        sketch.randomState = in.readLong();
+        int levelCount = in.readInt();
+        for (int level = 0; level < levelCount; level++) {
+            int size = in.readInt();
+            while (level >= sketch.levelCount) sketch.addLevel();
+            for (int i = 0; i < size; i++) {
+                sketch.append(level, in.readDouble());
+            }
+        }
+        return sketch;
+    }
+
+    /**
+     * Appends a value to a level, adding the level and growing its array if needed.
+     */
+    private void append(int level, double value)
+    {
+        while (level >= levelCount) addLevel();
+        if (levelSizes[level] == levels[level].length) {
+            levels[level] = Arrays.copyOf(levels[level], levels[level].length * 2);
+        }
+        levels[level][levelSizes[level]++] = value;
+        retained++;
+    }
+
+    /**
+     * Adds an empty level on top.
+     */
+    private void addLevel()
+    {
+        if (levelCount == levels.length) {
+            levels = Arrays.copyOf(levels, levelCount * 2);
+            levelSizes = Arrays.copyOf(levelSizes, levelCount * 2);
+        }
+        levels[levelCount] = new double[MIN_CAPACITY];
+        levelSizes[levelCount] = 0;
+        levelCount++;
+        totalCapacity = 0;
+        for (int level = 0; level < levelCount; level++) totalCapacity += getCapacity(level);
+    }
+
+    /**
+     * Compacts the lowest full levels until the sketch is within its capacity.
+     */
+    private void compress()
+    {
+        while (retained > totalCapacity) {
+            int level = 0;
+            while (levelSizes[level] < getCapacity(level)) level++;
+            compact(level);
+        }
+    }
+
+    /**
+     * Sorts a level and moves every other value up to the next level, keeping one value
+     * back if the level holds an odd number.
+     */
+    private void compact(int level)
+    {
+        if (level + 1 == levelCount) addLevel();
+        double[] values = levels[level];
+        int size = levelSizes[level];
+        Arrays.sort(values, 0, size);
+
+        int kept = size % 2; // the odd one out stays, as the first value
+        int offset = nextRandomBit();
+        for (int i = kept + offset; i < size; i += 2) {
+            append(level + 1, values[i]);
+        }
+        retained -= size - kept;
+        levelSizes[level] = kept;
+    }
+
+    /**
+     * Returns the number of values a level may hold before it is compacted.
+     */
+    private int getCapacity(int level)
+    {
+        int depth = levelCount - 1 - level;
+        return Math.max(MIN_CAPACITY, (int) Math.ceil(k * Math.pow(CAPACITY_DECAY, depth)));
+    }
+
+    /**
+     * Returns a pseudo-random 0 or 1 (xorshift).
+     */
+    private int nextRandomBit()
+    {
+        randomState ^= randomState << 13;
+        randomState ^= randomState >>> 7;
+        randomState ^= randomState << 17;
+        return (int) (randomState >>> 63);
+    }
+
+    /**
+     * Builds the sorted values and their cumulative weights (a value at level h stands
+     * for 2^h values) by merging the sorted levels.
+     */
+    private void buildSortedView()
+    {
+        if (sortedValues != null) return;
+        double[] values = new double[0];
+        long[] weights = new long[0];
+        for (int level = 0; level < levelCount; level++) {
+            int size = levelSizes[level];
+            double[] levelValues = Arrays.copyOf(levels[level], size);
+            Arrays.sort(levelValues);
+
+            // merge the level into the values so far
+            double[] mergedValues = new double[values.length + size];
+            long[] mergedWeights = new long[values.length + size];
+            int i = 0, j = 0, out = 0;
+            while (i < values.length || j < size) {
+                if (j == size || (i < values.length && values[i] <= levelValues[j])) {
+                    mergedValues[out] = values[i];
+                    mergedWeights[out++] = weights[i++];
+                }
+                else {
+                    mergedValues[out] = levelValues[j++];
+                    mergedWeights[out++] = 1L << level;
+                }
+            }
+            values = mergedValues;
+            weights = mergedWeights;
+        }
+        for (int i = 1; i < weights.length; i++) weights[i] += weights[i - 1];
+        sortedValues = values;
+        cumulativeWeights = weights;
+    }
+}
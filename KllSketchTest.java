@@ -0,0 +1,214 @@
+import org.junit.jupiter.api.Test;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the KllSketch class, checking its estimates against the exact ranks of
+ * streams of known values.
+ */
+public class KllSketchTest {
+
+    private static final double[] FRACTIONS = {0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.98, 0.99};
+
+    /**
+     * Returns the values 0 to n-1 in a random order.
+     */
+    private double[] shuffled(int n, long seed) {
+        double[] values = new double[n];
+        for (int i = 0; i < n; i++) values[i] = i;
+        Random random = new Random(seed);
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            double swap = values[i];
+            values[i] = values[j];
+            values[j] = swap;
+        }
+        return values;
+    }
+
+    /**
+     * Checks that the quantiles of a sketch of the values 0 to n-1 lie within a rank
+     * error of the exact ones, i.e. that the estimate for fraction q is within
+     * error * n of q * n.
+     */
+    private void assertWithinRankError(KllSketch sketch, long n, double error) {
+        for (double fraction : FRACTIONS) {
+            double estimate = sketch.getQuantile(fraction);
+            assertEquals(fraction * n, estimate, error * n, "quantile " + fraction);
+        }
+    }
+
+    /**
+     * Writes a sketch to bytes and reads it back.
+     */
+    private KllSketch roundTrip(KllSketch sketch) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        sketch.write(new DataOutputStream(bytes));
+        return KllSketch.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    }
+
+    /**
+     * Tests a sketch of fewer values than its capacity.
+     * Verifies that nothing is compacted and the quantiles and ranks are exact.
+     */
+    @Test
+    public void testExactBelowCapacity() {
+        KllSketch sketch = new KllSketch();
+        for (double value : shuffled(100, 1)) sketch.update(value);
+        assertEquals(100, sketch.getCount());
+        assertEquals(100, sketch.getRetainedValues());
+        assertEquals(0, sketch.getMin());
+        assertEquals(99, sketch.getMax());
+        assertEquals(49, sketch.getQuantile(0.5));
+        assertEquals(89, sketch.getQuantile(0.9));
+        assertEquals(0.5, sketch.getRank(49), 0);
+        assertEquals(0.01, sketch.getRank(0), 0);
+        assertEquals(1, sketch.getRank(99), 0);
+    }
+
+    /**
+     * Tests a stream of a million values, far more than the sketch holds.
+     * Verifies that the sketch stays small, keeps the exact minimum and maximum, and
+     * that its quantiles and ranks lie within the documented rank error.
+     */
+    @Test
+    public void testRankErrorOnLargeStream() {
+        int n = 1_000_000;
+        KllSketch sketch = new KllSketch();
+        for (double value : shuffled(n, 2)) sketch.update(value);
+        double error = KllSketch.getNormalizedRankError(KllSketch.DEFAULT_K);
+
+        assertEquals(n, sketch.getCount());
+        assertTrue(sketch.getRetainedValues() < 10 * KllSketch.DEFAULT_K, "retained " + sketch.getRetainedValues());
+        assertEquals(0, sketch.getQuantile(0));
+        assertEquals(n - 1, sketch.getQuantile(1));
+        assertWithinRankError(sketch, n, error);
+        for (double fraction : FRACTIONS) {
+            assertEquals(fraction, sketch.getRank(fraction * n), error, "rank " + fraction);
+        }
+    }
+
+    /**
+     * Tests getRank below, between and above the values seen, and on an empty sketch.
+     * Verifies 0 below the minimum, 1 at and above the maximum, a rank that never falls
+     * as the value grows, and NaN for an empty sketch.
+     */
+    @Test
+    public void testGetRank() {
+        KllSketch sketch = new KllSketch();
+        assertTrue(Double.isNaN(sketch.getRank(5)));
+        assertTrue(Double.isNaN(sketch.getQuantile(0.5)));
+
+        for (double value : shuffled(50_000, 3)) sketch.update(value);
+        assertEquals(0, sketch.getRank(-1), 0);
+        assertEquals(1, sketch.getRank(49_999), 0);
+        assertEquals(1, sketch.getRank(1e9), 0);
+        double previous = 0;
+        for (int value = 0; value < 50_000; value += 97) {
+            double rank = sketch.getRank(value);
+            assertTrue(rank >= previous, "rank falls at " + value);
+            previous = rank;
+        }
+    }
+
+    /**
+     * Tests merging sketches built over partitions of one dataset (as the parallel
+     * aggregator does) and over several years with different ranges of values.
+     * Verifies the counts, minimum and maximum, and quantiles within the rank error of
+     * the combined values.
+     */
+    @Test
+    public void testMergeAcrossPartitionsAndYears() {
+        int n = 400_000;
+        double[] values = shuffled(n, 4);
+        double error = KllSketch.getNormalizedRankError(KllSketch.DEFAULT_K);
+
+        // four partitions of one dataset, of unequal sizes
+        int[] bounds = {0, 1_000, 150_000, 160_000, n};
+        KllSketch merged = new KllSketch();
+        for (int p = 0; p + 1 < bounds.length; p++) {
+            KllSketch partition = new KllSketch();
+            for (int i = bounds[p]; i < bounds[p + 1]; i++) partition.update(values[i]);
+            merged.merge(partition);
+        }
+        assertEquals(n, merged.getCount());
+        assertEquals(0, merged.getMin());
+        assertEquals(n - 1, merged.getMax());
+        assertWithinRankError(merged, n, error);
+
+        // two years, one holding the lower and one the upper half of the values
+        KllSketch lower = new KllSketch();
+        KllSketch upper = new KllSketch();
+        for (double value : values) {
+            if (value < n / 2) lower.update(value);
+            else upper.update(value);
+        }
+        KllSketch years = new KllSketch();
+        years.merge(upper);
+        years.merge(lower);
+        years.merge(new KllSketch()); // an empty year changes nothing
+        assertEquals(n, years.getCount());
+        assertEquals(n / 2, lower.getCount());
+        assertWithinRankError(years, n, error);
+    }
+
+    /**
+     * Tests merging sketches with different k.
+     * Verifies an IllegalArgumentException.
+     */
+    @Test
+    public void testMergeDifferentK() {
+        KllSketch sketch = new KllSketch(100);
+        assertThrows(IllegalArgumentException.class, () -> sketch.merge(new KllSketch(200)));
+    }
+
+    /**
+     * Tests writing and reading back an empty sketch.
+     * Verifies that it is still empty, keeps its k and can still be updated.
+     */
+    @Test
+    public void testSerializeEmpty() throws IOException {
+        KllSketch read = roundTrip(new KllSketch(64));
+        assertEquals(0, read.getCount());
+        assertEquals(64, read.getK());
+        assertTrue(Double.isNaN(read.getQuantile(0.5)));
+        read.update(7);
+        assertEquals(7, read.getQuantile(0.5));
+    }
+
+    /**
+     * Tests writing and reading back a sketch that has compacted many times.
+     * Verifies the same count, minimum, maximum, retained values and quantiles, and
+     * that further updates give the same results on both, since the random state is
+     * kept too.
+     */
+    @Test
+    public void testSerializeCompacted() throws IOException {
+        double[] values = shuffled(100_000, 5);
+        KllSketch sketch = new KllSketch();
+        for (int i = 0; i < 60_000; i++) sketch.update(values[i]);
+
+        KllSketch read = roundTrip(sketch);
+        assertEquals(sketch.getCount(), read.getCount());
+        assertEquals(sketch.getMin(), read.getMin());
+        assertEquals(sketch.getMax(), read.getMax());
+        assertEquals(sketch.getRetainedValues(), read.getRetainedValues());
+        for (double fraction : FRACTIONS) {
+            assertEquals(sketch.getQuantile(fraction), read.getQuantile(fraction));
+        }
+
+        for (int i = 60_000; i < values.length; i++) {
+            sketch.update(values[i]);
+            read.update(values[i]);
+        }
+        for (double fraction : FRACTIONS) {
+            assertEquals(sketch.getQuantile(fraction), read.getQuantile(fraction));
+        }
+    }
+}
@@ -0,0 +1,84 @@
+import java.util.stream.IntStream;
+
+/**
+ * A LatLonTable holds the WGS84 latitude and longitude of every point of a dataset,
+ * so that the coordinate conversion (which needs a fair amount of trigonometry) is
+ * done once per cell rather than every time a cell is listed or exported.
+ *
+ * The table is indexed like the dataset's point columns. It is built in parallel
+ * blocks and does not follow later changes to the dataset; DataSet.getLatLonTable()
+ * rebuilds it when needed.
+ */
+public class LatLonTable
+{
+    private static final int BLOCK_SIZE = 4096; // points converted per parallel task
+
+    private final double[] latitudes;
+    private final double[] longitudes;
+
+    /**
+     * Build the table for the given point columns.
+     *
+     * @param points The point columns to convert
+     */
+    public LatLonTable(PointColumns points)
+    {
+        int size = points.size();
+        int[] eastings = points.getEastings();
+        int[] northings = points.getNorthings();
+        latitudes = new double[size];
+        longitudes = new double[size];
+
+        GridData gridData = new GridData();
+        int blocks = (size + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        IntStream.range(0, blocks).parallel().forEach(block -> {
+            double[] latLon = new double[2];
+            int end = Math.min(size, (block + 1) * BLOCK_SIZE);
+            for (int i = block * BLOCK_SIZE; i < end; i++) {
+                gridData.toLatLon(eastings[i], northings[i], latLon);
+                latitudes[i] = latLon[0];
+                longitudes[i] = latLon[1];
+            }
+        });
+    }
+
+    /**
+     * Return the number of points in the table.
+     */
+    public int size()
+    {
+        return latitudes.length;
+    }
+
+    /**
+     * Return the latitude of a point in degrees.
+     */
+    public double getLatitude(int index)
+    {
+        return latitudes[index];
+    }
+
+    /**
+     * Return the longitude of a point in degrees.
+     */
+    public double getLongitude(int index)
+    {
+        return longitudes[index];
+    }
+
+    /**
+     * Return the latitude column. Do not modify.
+     */
+    public double[] getLatitudes()
+    {
+        return latitudes;
+    }
+
+    /**
+     * Return the longitude column. Do not modify.
+     */
+    public double[] getLongitudes()
+    {
+        return longitudes;
+    }
+}
@@ -1,4 +1,7 @@
+import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 /**
  * Handles the backend operations for the MapPanel.
@@ -17,6 +20,12 @@ public class MapManager
     private String currentPollutant; // The selected pollutant type (e.g. "no2", "pm25", "pm10")
     private String currentYear; // The selected year for the dataset.
     private DataSet currentDataSet; // The dataset currently loaded and displayed on the map
+    private DataSet loadedDataSet; // The dataset as loaded from the file, before any smoothing
+    private FocalStatistics smoothing; // The smoothing applied to the displayed data (null for none)
+    private List<Hotspot> hotspots = new ArrayList<>(); // The hotspots of the displayed data, highest peak first
+    private boolean showContours; // Whether contour lines are drawn over the map
+    private List<Isoline> contours; // The contour lines of the displayed data (null until first drawn or exported)
+    private double[] route = new double[0]; // The route drawn by the user, as eastings and northings x1, y1, x2, y2, ...
     private double minPollutionValue; // The minimum pollution value in the dataset
     private double maxPollutionValue; // The maximum pollution value in the dataset
     private double colorRange; // The range of values used to determine color gradients on the map
@@ -54,6 +63,9 @@ public class MapManager
         currentPollutant = "";
         currentYear = "";
         currentDataSet = null;
+        loadedDataSet = null;
+        contours = null;
+        route = new double[0];
         minPollutionValue = 0;
         maxPollutionValue = 0;
         colorRange = 0;
@@ -172,6 +184,31 @@ public class MapManager
         currentYear = year;
     }
     
+    /**
+     * Sets the smoothing applied to the data shown on the map, and redraws the map
+     * if data is loaded.
+     * 
+     * @param smoothing The focal statistics to apply, or null to show the data as loaded
+     */
+    public void setSmoothing(FocalStatistics smoothing) {
+        this.smoothing = smoothing;
+        if (loadedDataSet != null) {
+            currentDataSet = applySmoothing();
+            mapPanel.clearGrid();
+            fillGridCells();
+        }
+    }
+    
+    /**
+     * Returns the loaded dataset with the current smoothing applied.
+     * 
+     * @return The dataset to display
+     */
+    private DataSet applySmoothing() {
+        if (smoothing == null || loadedDataSet == null) return loadedDataSet;
+        return smoothing.apply(loadedDataSet);
+    }
+    
     /**
      * Updates the current file name based on the selected pollutant and year,
      * then loads and displays the corresponding data.
@@ -193,7 +230,8 @@ public class MapManager
         
         try {
             DataLoader loader = new DataLoader();
-            currentDataSet = loader.loadDataFile(currentFileName, true); // the London data set
+            loadedDataSet = loader.loadDataFile(currentFileName, true); // the London data set
+            currentDataSet = applySmoothing();
             
             mapPanel.clearGrid();
             fillGridCells();
@@ -224,6 +262,206 @@ public class MapManager
                 if (pollutionValue != MISSING_VALUE) mapPanel.setCanvasCell(col, row, pollutionValue, minPollutionValue, colorRange);
             }
         }
+        
+        // Finds the areas above the pollutant's limit value (or in the top colour band if there is none)
+        double threshold = HotspotDetector.getLimitValue(currentPollutant);
+        if (Double.isNaN(threshold)) threshold = minPollutionValue + colorRange * 4;
+        hotspots = new HotspotDetector(threshold).detect(currentDataSet);
+        mapPanel.showHotspots(hotspots);
+        
+        contours = null; // computed again when next drawn or exported
+        if (showContours) drawContours();
+        drawRoute();
+    }
+    
+    /**
+     * Sets whether contour lines are drawn over the map, and redraws the map.
+     * 
+     * @param showContours True to draw the contour lines
+     */
+    public void setShowContours(boolean showContours) {
+        this.showContours = showContours;
+        if (currentDataSet != null) redrawGridCells();
+    }
+    
+    /**
+     * Writes the contour lines of the displayed data to a GeoJSON file.
+     * 
+     * @param file The file to write to
+     * @return True if the file was written, false if there is no data or an error occurred
+     */
+    public boolean exportContours(File file) {
+        if (currentDataSet == null) return false;
+        return new StreamingExporter().exportContours(getContours(), file);
+    }
+    
+    /**
+     * Returns the levels contour lines are drawn at: the pollutant's limit value (if
+     * known) followed by the boundaries between the colour bands.
+     * 
+     * @return The contour levels
+     */
+    private double[] getContourLevels() {
+        double limit = HotspotDetector.getLimitValue(currentPollutant);
+        double[] levels = new double[Double.isNaN(limit) ? 4 : 5];
+        for (int band = 1; band <= 4; band++) {
+            levels[band - 1] = minPollutionValue + colorRange * band;
+        }
+        if (!Double.isNaN(limit)) levels[4] = limit;
+        return levels;
+    }
+    
+    /**
+     * Returns the contour lines of the displayed data, computing them on first use.
+     * 
+     * @return The contour lines, one isoline per level
+     */
+    private List<Isoline> getContours() {
+        if (contours == null) contours = new ContourGenerator().generate(currentDataSet, getContourLevels());
+        return contours;
+    }
+    
+    /**
+     * Draws the contour lines over the map.
+     */
+    private void drawContours() {
+        double limit = HotspotDetector.getLimitValue(currentPollutant);
+        for (Isoline isoline : getContours()) {
+            for (double[] line : isoline.lines()) {
+                mapPanel.drawContourLine(toGridLine(line), isoline.level() == limit);
+            }
+        }
+    }
+    
+    /**
+     * Adds a point to the route and returns the exposure along the route in the
+     * displayed data.
+     * 
+     * @param gridX The column of the point on the map (fractions of a cell)
+     * @param gridY The row of the point on the map (fractions of a cell)
+     * @return The exposure along the route, or null if there is no data or the route has only one point
+     */
+    public RouteExposure addRoutePoint(double gridX, double gridY) {
+        if (currentDataSet == null) return null;
+        GridGeometry geometry = currentDataSet.getRaster().getGeometry();
+        route = Arrays.copyOf(route, route.length + 2);
+        route[route.length - 2] = geometry.originX() + (gridX - getOriginCol(geometry) - 0.5) * GRID_RESOLUTION;
+        route[route.length - 1] = geometry.originY() - (gridY - getOriginRow(geometry) - 0.5) * GRID_RESOLUTION;
+        
+        drawRoute();
+        return getRouteExposure();
+    }
+    
+    /**
+     * Replaces the route by the route with the lowest exposure between its first and
+     * last points, and redraws the map.
+     * 
+     * @return The new route compared with the straight line, or null if there is no
+     *         data, the route has fewer than two points or no route could be found
+     */
+    public ExposurePath suggestRoute() {
+        if (currentDataSet == null || route.length < 4) return null;
+        ExposurePath path = new ExposurePathPlanner().plan(currentDataSet, route[0], route[1],
+                                                           route[route.length - 2], route[route.length - 1]);
+        if (path == null) return null;
+        
+        route = path.route();
+        redrawGridCells();
+        return path;
+    }
+    
+    /**
+     * Removes the route and redraws the map.
+     */
+    public void clearRoute() {
+        route = new double[0];
+        if (currentDataSet != null) redrawGridCells();
+    }
+    
+    /**
+     * Returns the exposure along the route in the displayed data.
+     * 
+     * @return The exposure, or null if there is no data or the route has fewer than two points
+     */
+    public RouteExposure getRouteExposure() {
+        if (currentDataSet == null || route.length < 4) return null;
+        return new RouteSampler().sample(currentDataSet, route);
+    }
+    
+    /**
+     * Draws the route over the map.
+     */
+    private void drawRoute() {
+        if (route.length > 0) mapPanel.drawRouteLine(toGridLine(route));
+    }
+    
+    /**
+     * Converts a line of National Grid coordinates to (fractional) grid columns and rows,
+     * anchored on the raster so that data points fall exactly on cell centres.
+     * 
+     * @param line The points of the line as x1, y1, x2, y2, ...
+     * @return The points as column, row pairs
+     */
+    private double[] toGridLine(double[] line) {
+        GridGeometry geometry = currentDataSet.getRaster().getGeometry();
+        int originCol = getOriginCol(geometry);
+        int originRow = getOriginRow(geometry);
+        
+        double[] gridLine = new double[line.length];
+        for (int i = 0; i < line.length; i += 2) {
+            gridLine[i] = originCol + 0.5 + (line[i] - geometry.originX()) / GRID_RESOLUTION;
+            gridLine[i + 1] = originRow + 0.5 - (line[i + 1] - geometry.originY()) / GRID_RESOLUTION;
+        }
+        return gridLine;
+    }
+    
+    /**
+     * Returns the map column of the raster's first column.
+     */
+    private int getOriginCol(GridGeometry geometry) {
+        return Math.floorDiv((int) geometry.originX() - GRID_DATA.getMaxLeft(), GRID_RESOLUTION);
+    }
+    
+    /**
+     * Returns the map row of the raster's first row.
+     */
+    private int getOriginRow(GridGeometry geometry) {
+        return Math.floorDiv(GRID_DATA.getMaxTop() - (int) geometry.originY(), GRID_RESOLUTION);
+    }
+    
+    /**
+     * Redraws the map and outlines the cells of one hotspot.
+     * 
+     * @param index The position of the hotspot in the list of hotspots
+     */
+    public void highlightHotspot(int index) {
+        redrawGridCells();
+        if (index < 0 || index >= hotspots.size()) return;
+        
+        List<DataPoint> dataPoints = currentDataSet.getData();
+        for (int point : hotspots.get(index).points()) {
+            int[] coordinates = getGridCoordinates(dataPoints.get(point));
+            int col = coordinates[0];
+            int row = coordinates[1];
+            if (col >= 0 && col < COLUMNS && row >= 0 && row < ROWS) mapPanel.outlineCanvasCell(col, row);
+        }
+    }
+    
+    /**
+     * Draws the cells of the grid again from the stored data points.
+     */
+    private void redrawGridCells() {
+        mapPanel.clearCanvas();
+        for (int col = 0; col < COLUMNS; col++) {
+            for (int row = 0; row < ROWS; row++) {
+                DataPoint dataPoint = grid[col][row];
+                if (dataPoint != null && dataPoint.value() != MISSING_VALUE) {
+                    mapPanel.setCanvasCell(col, row, dataPoint.value(), minPollutionValue, colorRange);
+                }
+            }
+        }
+        if (showContours) drawContours();
+        drawRoute();
     }
     
     /**
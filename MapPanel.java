@@ -8,6 +8,7 @@ import javafx.scene.image.*;
 import javafx.event.*;
 import javafx.scene.paint.Color;
 import java.io.File;
+import java.util.List;
 import javafx.scene.canvas.*;
 
 /**
@@ -32,9 +33,15 @@ public class MapPanel extends Application
     private Button statsButton;
     private Button gridDataButton;
     private Button clearButton;
+    private Button exportContoursButton;
+    private CheckBox contoursCheckBox;
+    private Button suggestRouteButton;
+    private Button clearRouteButton;
     
     private ComboBox<String> pollutantComboBox;
     private ComboBox<String> yearComboBox;
+    private ComboBox<String> smoothingComboBox;
+    private ComboBox<String> hotspotComboBox;
     
     private Label gridCodeLabel;
     private Label xLabel;
@@ -49,6 +56,11 @@ public class MapPanel extends Application
     private static final String Y_LABEL_PREFIX = "Y: ";
     private static final String VALUE_LABEL_PREFIX = "Value: ";
     private static final String NOT_AVAILABLE = "N/A";
+    private static final String NO_SMOOTHING = "No smoothing";
+    private static final Color HOTSPOT_OUTLINE = Color.rgb(40, 40, 40);
+    private static final Color CONTOUR_COLOR = Color.rgb(60, 60, 160);
+    private static final Color LIMIT_CONTOUR_COLOR = Color.rgb(160, 0, 120);
+    private static final Color ROUTE_COLOR = Color.rgb(20, 90, 200);
     
     private static final float LOW_OPACITY = 0.5f;
     private static final float HIGH_OPACITY = 1.0f;
@@ -127,6 +139,31 @@ public class MapPanel extends Application
         yearComboBox.setPromptText("Select year");
         yearComboBox.setOnAction(this::selectedYear);
         
+        smoothingComboBox = new ComboBox<>();
+        smoothingComboBox.getItems().addAll(NO_SMOOTHING, "Mean 3x3 km", "Mean 5x5 km", "Max 3x3 km", "Gaussian 5x5 km");
+        smoothingComboBox.setPromptText("Select smoothing");
+        smoothingComboBox.setOnAction(this::selectedSmoothing);
+        
+        hotspotComboBox = new ComboBox<>();
+        hotspotComboBox.setPromptText("Select hotspot");
+        hotspotComboBox.setOnAction(this::selectedHotspot);
+        
+        contoursCheckBox = new CheckBox("Show contours");
+        contoursCheckBox.setOnAction(event -> mapManager.setShowContours(contoursCheckBox.isSelected()));
+        
+        exportContoursButton = new Button("Export contours");
+        exportContoursButton.setOnAction(this::exportContoursButtonPressed);
+        
+        // Routes are drawn by right-clicking points on the map
+        suggestRouteButton = new Button("Suggest route");
+        suggestRouteButton.setOnAction(this::suggestRouteButtonPressed);
+        
+        clearRouteButton = new Button("Clear route");
+        clearRouteButton.setOnAction(event -> {
+            mapManager.clearRoute();
+            statusLabel.setText(VERSION);
+        });
+        
         // Clear button for resetting selectionsr
         clearButton = new Button("Clear");
         clearButton.setOnAction(this::clearSelection);
@@ -138,7 +175,7 @@ public class MapPanel extends Application
         valueLabel = new Label(VALUE_LABEL_PREFIX + NOT_AVAILABLE);
         
         // Toolbar layout
-        Pane toolBar = new VBox(pollutantComboBox, yearComboBox, clearButton, gridCodeLabel, xLabel, yLabel, valueLabel);
+        Pane toolBar = new VBox(pollutantComboBox, yearComboBox, smoothingComboBox, hotspotComboBox, contoursCheckBox, exportContoursButton, suggestRouteButton, clearRouteButton, clearButton, gridCodeLabel, xLabel, yLabel, valueLabel);
         toolBar.setId("toolbar");
         
         // Content layout for the entire window
@@ -225,6 +262,8 @@ public class MapPanel extends Application
         clearGrid(); // Clear grid and canvas
         pollutantComboBox.getSelectionModel().clearSelection(); // Clear pollutant selection
         yearComboBox.getSelectionModel().clearSelection(); // Clear year selection
+        smoothingComboBox.getSelectionModel().clearSelection(); // Clear smoothing selection
+        hotspotComboBox.getItems().clear(); // Clear the hotspots of the old data
     }
     
     /**
@@ -244,6 +283,80 @@ public class MapPanel extends Application
         valueLabel.setText(VALUE_LABEL_PREFIX + NOT_AVAILABLE);
     }
     
+    /**
+     * Clears the canvas without resetting the grid data or labels.
+     */
+    public void clearCanvas() {
+        GraphicsContext gc = gridCanvas.getGraphicsContext2D();
+        gc.clearRect(0, 0, gridCanvas.getWidth(), gridCanvas.getHeight());
+    }
+    
+    /**
+     * Draws an outline around a cell, e.g. to mark the cells of a hotspot.
+     * 
+     * @param col The column of the grid
+     * @param row The row of the grid
+     */
+    public void outlineCanvasCell(int col, int row) {
+        GraphicsContext gc = gridCanvas.getGraphicsContext2D();
+        gc.setStroke(HOTSPOT_OUTLINE);
+        gc.setLineWidth(2);
+        gc.strokeRect(col * GRID_SIZE + 1, row * GRID_SIZE + 1, GRID_SIZE - 2, GRID_SIZE - 2);
+    }
+    
+    /**
+     * Draws a contour line over the map.
+     * 
+     * @param gridLine The points of the line as column, row pairs (fractions of a cell)
+     * @param isLimit True for the limit value contour, which is drawn thicker
+     */
+    public void drawContourLine(double[] gridLine, boolean isLimit) {
+        GraphicsContext gc = gridCanvas.getGraphicsContext2D();
+        gc.setStroke(isLimit ? LIMIT_CONTOUR_COLOR : CONTOUR_COLOR);
+        gc.setLineWidth(isLimit ? 3 : 1);
+        gc.beginPath();
+        for (int i = 0; i < gridLine.length; i += 2) {
+            double x = gridLine[i] * GRID_SIZE;
+            double y = gridLine[i + 1] * GRID_SIZE;
+            if (i == 0) gc.moveTo(x, y);
+            else gc.lineTo(x, y);
+        }
+        gc.stroke();
+    }
+    
+    /**
+     * Draws a route over the map, marking each of its points.
+     * 
+     * @param gridLine The points of the route as column, row pairs (fractions of a cell)
+     */
+    public void drawRouteLine(double[] gridLine) {
+        GraphicsContext gc = gridCanvas.getGraphicsContext2D();
+        gc.setStroke(ROUTE_COLOR);
+        gc.setFill(ROUTE_COLOR);
+        gc.setLineWidth(3);
+        gc.beginPath();
+        for (int i = 0; i < gridLine.length; i += 2) {
+            double x = gridLine[i] * GRID_SIZE;
+            double y = gridLine[i + 1] * GRID_SIZE;
+            if (i == 0) gc.moveTo(x, y);
+            else gc.lineTo(x, y);
+            gc.fillOval(x - 3, y - 3, 6, 6);
+        }
+        gc.stroke();
+    }
+    
+    /**
+     * Lists the hotspots of the displayed data in the hotspot combo box.
+     * 
+     * @param hotspots The hotspots, in the order the map manager holds them
+     */
+    public void showHotspots(List<Hotspot> hotspots) {
+        hotspotComboBox.getItems().clear();
+        for (int i = 0; i < hotspots.size(); i++) {
+            hotspotComboBox.getItems().add("Hotspot " + (i + 1) + ": " + hotspots.get(i));
+        }
+    }
+    
     /**
      * Sets the color and draws a cell on the canvas for a specific grid location.
      * 
@@ -288,12 +401,89 @@ public class MapPanel extends Application
         }
     }
     
+    /**
+     * Handles the selection of a smoothing option from the combo box and updates
+     * the smoothing in the map manager.
+     * 
+     * @param event The action event triggered by selecting a smoothing option
+     */
+    private void selectedSmoothing(ActionEvent event) {
+        String selectedSmoothing = smoothingComboBox.getValue();
+        FocalStatistics smoothing = null;
+        if ("Mean 3x3 km".equals(selectedSmoothing)) {
+            smoothing = new FocalStatistics(FocalStatistics.Kernel.MEAN, 1);
+        }
+        else if ("Mean 5x5 km".equals(selectedSmoothing)) {
+            smoothing = new FocalStatistics(FocalStatistics.Kernel.MEAN, 2);
+        }
+        else if ("Max 3x3 km".equals(selectedSmoothing)) {
+            smoothing = new FocalStatistics(FocalStatistics.Kernel.MAX, 1);
+        }
+        else if ("Gaussian 5x5 km".equals(selectedSmoothing)) {
+            smoothing = new FocalStatistics(FocalStatistics.Kernel.GAUSSIAN, 2);
+        }
+        mapManager.setSmoothing(smoothing); // No smoothing for NO_SMOOTHING or a cleared selection
+    }
+    
+    /**
+     * Handles the export contours button: asks for a file and writes the contour lines
+     * of the displayed data to it as GeoJSON.
+     * 
+     * @param event The action event triggered by clicking the export button
+     */
+    private void exportContoursButtonPressed(ActionEvent event) {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Export contours");
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("GeoJSON", "*.geojson"));
+        File file = chooser.showSaveDialog(stage);
+        if (file != null) {
+            boolean written = mapManager.exportContours(file);
+            statusLabel.setText(written ? "Contours written to " + file.getName() : "No contours exported");
+        }
+    }
+    
+    /**
+     * Handles the suggest route button: replaces the drawn route by the route with the
+     * lowest exposure between its ends and compares it with the straight line.
+     * 
+     * @param event The action event triggered by clicking the suggest route button
+     */
+    private void suggestRouteButtonPressed(ActionEvent event) {
+        ExposurePath path = mapManager.suggestRoute();
+        if (path == null) {
+            statusLabel.setText("No route found: right-click a start and end point with data");
+        }
+        else {
+            statusLabel.setText(String.format("Route: %.1f km, mean %.2f µg/m³ (straight line: %.1f km, mean %.2f µg/m³)",
+                                              path.exposure().length() / 1000, path.exposure().meanExposure(),
+                                              path.straightLineExposure().length() / 1000, path.straightLineExposure().meanExposure()));
+        }
+    }
+    
+    /**
+     * Handles the selection of a hotspot from the combo box and outlines its cells on the map.
+     * 
+     * @param event The action event triggered by selecting a hotspot
+     */
+    private void selectedHotspot(ActionEvent event) {
+        int index = hotspotComboBox.getSelectionModel().getSelectedIndex();
+        if (index >= 0) {
+            mapManager.setPrevClickedDataPoint(null); // The redraw removes the clicked cell highlight
+            mapManager.highlightHotspot(index);
+        }
+    }
+    
     /**
      * Handles mouse clicks on grid cells and displays information about the clicked cell.
      * 
      * @param event The mouse event triggered by clicking a grid cell
      */
     private void cellClicked(MouseEvent event) {
+        if (event.getButton() == MouseButton.SECONDARY) {
+            routePointClicked(event);
+            return;
+        }
+        
         int cellX = (int) event.getX() / GRID_SIZE;
         int cellY = (int) event.getY() / GRID_SIZE;
         
@@ -348,6 +538,25 @@ public class MapPanel extends Application
         }
     }
     
+    /**
+     * Adds the right-clicked point to the route and shows the exposure along the route.
+     * 
+     * @param event The mouse event triggered by right-clicking the map
+     */
+    private void routePointClicked(MouseEvent event) {
+        RouteExposure exposure = mapManager.addRoutePoint(event.getX() / GRID_SIZE, event.getY() / GRID_SIZE);
+        if (exposure == null) {
+            statusLabel.setText("Route: right-click to add more points");
+        }
+        else if (exposure.coveredLength() == 0) {
+            statusLabel.setText(String.format("Route: %.1f km, no data along the route", exposure.length() / 1000));
+        }
+        else {
+            statusLabel.setText(String.format("Route: %.1f km, mean %.2f µg/m³, max %.2f µg/m³",
+                                              exposure.length() / 1000, exposure.meanExposure(), exposure.maxExposure()));
+        }
+    }
+    
     /**
      * Determines the color of a cell based on the pollution value, minimum pollution value, color range, and opacity.
      * 
@@ -0,0 +1,144 @@
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * ParallelAggregator computes the summaries (see AggregateEngine) of several datasets,
+ * e.g. several years and pollutants, on a ForkJoinPool.
+ *
+ * Each dataset gets its own task, and a dataset with more points than the threshold is
+ * split in half by position, again and again, until the parts are small enough to be
+ * summarised in one sequential pass. Each part fills its own accumulators, so no state
+ * is shared between threads; the parts are merged on the way back up (Aggregate and
+ * KllSketch both merge exactly). Below the threshold everything stays on the calling
+ * thread, where splitting would cost more than it saves.
+ */
+public class ParallelAggregator
+{
+    public static final int DEFAULT_THRESHOLD = 1 << 16; // points summarised by one task without splitting
+
+    private final ForkJoinPool pool;
+    private final int threshold;
+    private final AggregateEngine engine;
+
+    /**
+     * Create an aggregator that uses the common pool and the default threshold.
+     */
+    public ParallelAggregator()
+    {
+        this(ForkJoinPool.commonPool(), DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Create an aggregator.
+     *
+     * @param pool The pool to run the tasks in
+     * @param threshold The number of points below which a dataset is not split further
+     */
+    public ParallelAggregator(ForkJoinPool pool, int threshold)
+    {
+        this(pool, threshold, false);
+    }
+
+    /**
+     * Create an aggregator.
+     *
+     * @param pool The pool to run the tasks in
+     * @param threshold The number of points below which a dataset is not split further
+     * @param withQuantiles True to build a quantile sketch for every summary
+     */
+    public ParallelAggregator(ForkJoinPool pool, int threshold, boolean withQuantiles)
+    {
+        if (threshold < 1) throw new IllegalArgumentException("Threshold must be positive: " + threshold);
+        this.pool = pool;
+        this.threshold = threshold;
+        this.engine = new AggregateEngine(withQuantiles);
+    }
+
+    /**
+     * Summarises the selected points of one dataset.
+     *
+     * @param dataSet The dataset
+     * @param selected The indices of the points to include, or null for all points
+     * @return The summary
+     */
+    public AreaSummary summarise(DataSet dataSet, BitSet selected)
+    {
+        return summarise(List.of(dataSet), selected == null ? null : List.of(selected)).get(0);
+    }
+
+    /**
+     * Summarises the selected points of several datasets.
+     *
+     * @param dataSets The datasets
+     * @param selections The indices of the points to include for each dataset (null
+     *                   entries, or a null list, for all points)
+     * @return The summary of each dataset, in the order given
+     */
+    public List<AreaSummary> summarise(List<DataSet> dataSets, List<BitSet> selections)
+    {
+        int totalSize = 0;
+        for (DataSet dataSet : dataSets) totalSize += dataSet.size();
+
+        List<RangeTask> tasks = new ArrayList<>(dataSets.size());
+        for (int i = 0; i < dataSets.size(); i++) {
+            DataSet dataSet = dataSets.get(i);
+            tasks.add(new RangeTask(dataSet, selections == null ? null : selections.get(i), 0, dataSet.size()));
+        }
+
+        List<AreaSummary> summaries = new ArrayList<>(tasks.size());
+        if (totalSize <= threshold) {
+            for (RangeTask task : tasks) summaries.add(task.compute());
+        }
+        else {
+            pool.invoke(new RecursiveTask<Void>() {
+                @Override
+                protected Void compute()
+                {
+                    ForkJoinTask.invokeAll(tasks);
+                    return null;
+                }
+            });
+            for (RangeTask task : tasks) summaries.add(task.join());
+        }
+        return summaries;
+    }
+
+    /**
+     * Summarises a range of positions of a dataset, splitting it while it is larger than
+     * the threshold. Tasks only live for one call and are never serialised.
+     */
+    @SuppressWarnings("serial")
+    private class RangeTask extends RecursiveTask<AreaSummary>
+    {
+        private final DataSet dataSet;
+        private final BitSet selected;
+        private final int from;
+        private final int to;
+
+        RangeTask(DataSet dataSet, BitSet selected, int from, int to)
+        {
+            this.dataSet = dataSet;
+            this.selected = selected;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected AreaSummary compute()
+        {
+            if (to - from <= threshold) {
+                return engine.summarise(dataSet, selected, from, to);
+            }
+            int middle = (from + to) >>> 1;
+            RangeTask left = new RangeTask(dataSet, selected, from, middle);
+            RangeTask right = new RangeTask(dataSet, selected, middle, to);
+            left.fork();
+            AreaSummary rightSummary = right.compute();
+            return engine.combine(List.of(left.join(), rightSummary));
+        }
+    }
+}
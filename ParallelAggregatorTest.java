@@ -0,0 +1,112 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the ParallelAggregator class, comparing the summaries of its split
+ * path with those of the sequential AggregateEngine.
+ */
+public class ParallelAggregatorTest {
+
+    private ForkJoinPool pool;
+
+    @BeforeEach
+    public void setUp() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Creates a dataset of random values on a grid, with about one value in ten missing.
+     */
+    private DataSet dataSet(int size, long seed) {
+        Random random = new Random(seed);
+        List<DataPoint> points = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            double value = random.nextInt(10) == 0 ? -1 : random.nextDouble() * 60;
+            points.add(new DataPoint(i, 500 + 1000 * (i % 200), 500 + 1000 * (i / 200), value));
+        }
+        DataSet dataSet = new DataSet("no2", "2023", "annual mean", "ug m-3");
+        dataSet.setData(points);
+        return dataSet;
+    }
+
+    /**
+     * Checks that two summaries have the same counts, and the same statistics and centroid
+     * up to rounding.
+     */
+    private void assertSameStatistics(AreaSummary expected, AreaSummary actual) {
+        assertEquals(expected.pointCount(), actual.pointCount());
+        assertEquals(expected.statistics().getCount(), actual.statistics().getCount());
+        assertEquals(expected.statistics().getMin(), actual.statistics().getMin());
+        assertEquals(expected.statistics().getMax(), actual.statistics().getMax());
+        assertEquals(expected.statistics().getMean(), actual.statistics().getMean(), 1e-9);
+        assertEquals(expected.statistics().getVariance(), actual.statistics().getVariance(), 1e-9);
+        assertEquals(expected.centroidX(), actual.centroidX(), 1e-6);
+        assertEquals(expected.centroidY(), actual.centroidY(), 1e-6);
+    }
+
+    /**
+     * Tests splitting down to single points, for a dataset small enough for exact quantiles,
+     * with and without a selection.
+     * Verifies the summary matches the sequential one, quantiles included.
+     */
+    @Test
+    public void testSummarise_SplitToSinglePoints() {
+        DataSet data = dataSet(150, 3);
+        BitSet selected = new BitSet();
+        selected.set(10, 60);
+        selected.set(90, 140);
+        ParallelAggregator aggregator = new ParallelAggregator(pool, 1, true);
+        AggregateEngine engine = new AggregateEngine(true);
+
+        for (BitSet selection : Arrays.asList(null, selected)) {
+            AreaSummary expected = engine.summarise(data, selection);
+            AreaSummary actual = aggregator.summarise(data, selection);
+            assertSameStatistics(expected, actual);
+            for (double fraction : new double[] {0, 0.1, 0.5, 0.9, 1}) {
+                assertEquals(expected.quantiles().getQuantile(fraction), actual.quantiles().getQuantile(fraction));
+            }
+        }
+    }
+
+    /**
+     * Tests several datasets split with a threshold of one point, large enough for the
+     * quantile sketches to compact.
+     * Verifies each summary matches the sequential one, with quantiles whose true rank
+     * lies within the sketch's error bound.
+     */
+    @Test
+    public void testSummarise_SeveralDataSets() {
+        List<DataSet> dataSets = List.of(dataSet(20000, 5), dataSet(7, 6), dataSet(0, 7));
+        List<AreaSummary> summaries = new ParallelAggregator(pool, 1, true).summarise(dataSets, null);
+        AggregateEngine engine = new AggregateEngine(true);
+        double rankError = KllSketch.getNormalizedRankError(KllSketch.DEFAULT_K);
+
+        for (int d = 0; d < dataSets.size(); d++) {
+            DataSet data = dataSets.get(d);
+            assertSameStatistics(engine.summarise(data, null), summaries.get(d));
+
+            double[] valid = Arrays.stream(data.getColumns().getValues(), 0, data.size()).filter(v -> v >= 0).sorted().toArray();
+            for (double fraction : new double[] {0.1, 0.5, 0.9}) {
+                if (valid.length == 0) continue;
+                double quantile = summaries.get(d).quantiles().getQuantile(fraction);
+                int rank = (int) Arrays.stream(valid).filter(v -> v < quantile).count();
+                assertEquals(fraction, (double) rank / valid.length, rankError + 1.0 / valid.length);
+            }
+        }
+        assertTrue(summaries.get(2).isEmpty());
+    }
+}
@@ -0,0 +1,235 @@
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * PointColumns stores the data points of a dataset column-wise: one primitive array
+ * each for the grid codes, eastings, northings and values.
+ *
+ * It can be used as a normal List of DataPoint objects (a DataPoint is created on
+ * each get), but code that walks a whole dataset should read the column arrays
+ * directly. The arrays returned by the column getters may be longer than the list;
+ * only the first size() entries are valid, and the arrays are replaced when the
+ * list grows.
+ */
+public class PointColumns extends AbstractList<DataPoint> implements RandomAccess
+{
+    private static final int INITIAL_CAPACITY = 256;
+
+    private int[] gridCodes;
+    private int[] eastings;
+    private int[] northings;
+    private double[] values;
+    private int size;
+    private int version; // incremented on every change, so derived structures can tell when they are stale
+
+    /**
+     * Create an empty PointColumns list.
+     */
+    public PointColumns()
+    {
+        this(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Create an empty PointColumns list with room for the given number of points.
+     *
+     * @param capacity The initial capacity
+     */
+    public PointColumns(int capacity)
+    {
+        capacity = Math.max(capacity, 1);
+        gridCodes = new int[capacity];
+        eastings = new int[capacity];
+        northings = new int[capacity];
+        values = new double[capacity];
+    }
+
+    /**
+     * Create a PointColumns list that takes over the given column arrays.
+     * The arrays must all be at least size entries long.
+     *
+     * @param gridCodes The grid code column
+     * @param eastings The easting (x) column
+     * @param northings The northing (y) column
+     * @param values The pollution value column
+     * @param size The number of valid entries in the columns
+     */
+    public PointColumns(int[] gridCodes, int[] eastings, int[] northings, double[] values, int size)
+    {
+        int capacity = Math.min(Math.min(gridCodes.length, eastings.length), Math.min(northings.length, values.length));
+        if (size < 0 || size > capacity) throw new IllegalArgumentException("Invalid size: " + size);
+        this.gridCodes = gridCodes;
+        this.eastings = eastings;
+        this.northings = northings;
+        this.values = values;
+        this.size = size;
+    }
+
+    /**
+     * Appends one data point without creating a DataPoint object.
+     *
+     * @param gridCode The UK grid code of the point
+     * @param x The easting of the point
+     * @param y The northing of the point
+     * @param value The pollution value of the point
+     */
+    public void add(int gridCode, int x, int y, double value)
+    {
+        ensureCapacity(size + 1);
+        gridCodes[size] = gridCode;
+        eastings[size] = x;
+        northings[size] = y;
+        values[size] = value;
+        size++;
+        changed();
+    }
+
+    @Override
+    public DataPoint get(int index)
+    {
+        checkIndex(index, size);
+        return new DataPoint(gridCodes[index], eastings[index], northings[index], values[index]);
+    }
+
+    @Override
+    public DataPoint set(int index, DataPoint dataPoint)
+    {
+        DataPoint previous = get(index);
+        gridCodes[index] = dataPoint.gridCode();
+        eastings[index] = dataPoint.x();
+        northings[index] = dataPoint.y();
+        values[index] = dataPoint.value();
+        changed();
+        return previous;
+    }
+
+    @Override
+    public void add(int index, DataPoint dataPoint)
+    {
+        checkIndex(index, size + 1);
+        ensureCapacity(size + 1);
+        int moved = size - index;
+        System.arraycopy(gridCodes, index, gridCodes, index + 1, moved);
+        System.arraycopy(eastings, index, eastings, index + 1, moved);
+        System.arraycopy(northings, index, northings, index + 1, moved);
+        System.arraycopy(values, index, values, index + 1, moved);
+        gridCodes[index] = dataPoint.gridCode();
+        eastings[index] = dataPoint.x();
+        northings[index] = dataPoint.y();
+        values[index] = dataPoint.value();
+        size++;
+        changed();
+    }
+
+    @Override
+    public DataPoint remove(int index)
+    {
+        DataPoint previous = get(index);
+        int moved = size - index - 1;
+        System.arraycopy(gridCodes, index + 1, gridCodes, index, moved);
+        System.arraycopy(eastings, index + 1, eastings, index, moved);
+        System.arraycopy(northings, index + 1, northings, index, moved);
+        System.arraycopy(values, index + 1, values, index, moved);
+        size--;
+        changed();
+        return previous;
+    }
+
+    @Override
+    public void clear()
+    {
+        size = 0;
+        changed();
+    }
+
+    @Override
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Return the grid code column. Only the first size() entries are valid.
+     */
+    public int[] getGridCodes()
+    {
+        return gridCodes;
+    }
+
+    /**
+     * Return the easting (x) column. Only the first size() entries are valid.
+     */
+    public int[] getEastings()
+    {
+        return eastings;
+    }
+
+    /**
+     * Return the northing (y) column. Only the first size() entries are valid.
+     */
+    public int[] getNorthings()
+    {
+        return northings;
+    }
+
+    /**
+     * Return the pollution value column. Only the first size() entries are valid.
+     */
+    public double[] getValues()
+    {
+        return values;
+    }
+
+    /**
+     * Return a counter that changes whenever the list is modified.
+     */
+    public int getVersion()
+    {
+        return version;
+    }
+
+    /**
+     * Releases unused capacity at the end of the column arrays.
+     */
+    public void trimToSize()
+    {
+        if (gridCodes.length == size || size == 0) return;
+        gridCodes = Arrays.copyOf(gridCodes, size);
+        eastings = Arrays.copyOf(eastings, size);
+        northings = Arrays.copyOf(northings, size);
+        values = Arrays.copyOf(values, size);
+    }
+
+    /**
+     * Records a structural or value change.
+     */
+    private void changed()
+    {
+        version++;
+        modCount++;
+    }
+
+    /**
+     * Grows the column arrays so that they can hold the given number of points.
+     */
+    private void ensureCapacity(int capacity)
+    {
+        if (capacity <= gridCodes.length) return;
+        int newCapacity = Math.max(capacity, gridCodes.length + (gridCodes.length >> 1) + 1);
+        gridCodes = Arrays.copyOf(gridCodes, newCapacity);
+        eastings = Arrays.copyOf(eastings, newCapacity);
+        northings = Arrays.copyOf(northings, newCapacity);
+        values = Arrays.copyOf(values, newCapacity);
+    }
+
+    /**
+     * Throws an IndexOutOfBoundsException if the index is not below the limit.
+     */
+    private void checkIndex(int index, int limit)
+    {
+        if (index < 0 || index >= limit) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+}
@@ -0,0 +1,376 @@
+import java.util.BitSet;
+
+/**
+ * ReductionKernels holds the masked reductions over a value column that the statistics
+ * are built from: the count, sum, minimum and maximum of the valid values, their mean
+ * and variance, the number above a threshold, and the sum of a coordinate column over
+ * the valid values (for centroids).
+ *
+ * A lane (position) is masked if its value is missing (negative) or, when a selection is
+ * given, if it is not selected. The selection is walked as runs of consecutive selected
+ * positions, since the points of a region lie in runs along the grid rows, and each run
+ * is reduced by a dense kernel. The dense kernels mask missing values by their sign bit
+ * instead of testing them, and keep several independent accumulators, so the loops have
+ * no data-dependent branches and the JIT can pipeline (and where the hardware allows,
+ * vectorise) them. Value columns never hold NaN; a missing value is -1.
+ */
+public final class ReductionKernels
+{
+    /**
+     * The kernels are static; no instances are made.
+     */
+    private ReductionKernels()
+    {
+    }
+
+    /**
+     * Returns the statistics of the valid values: the count, sum, minimum and maximum in
+     * one pass, then the mean and the sum of squared deviations from it in a second.
+     *
+     * @param values The value column
+     * @param selected The positions to include, or null for all positions
+     * @param from The first position (inclusive)
+     * @param to The last position (exclusive)
+     */
+    public static Aggregate aggregate(double[] values, BitSet selected, int from, int to)
+    {
+        to = Math.min(to, values.length);
+        double[] moments = {0, 0, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        if (selected == null) {
+            accumulateRange(values, from, to, moments);
+        }
+        else {
+            for (int start = selected.nextSetBit(from); start >= 0 && start < to; ) {
+                int end = Math.min(selected.nextClearBit(start), to);
+                accumulateRange(values, start, end, moments);
+                start = selected.nextSetBit(end);
+            }
+        }
+        long count = (long) moments[0];
+        if (count == 0) return new Aggregate();
+
+        double sum = moments[1];
+        double mean = sum / count;
+        double m2 = sumOfSquaredDeviations(values, selected, from, to, mean);
+        return new Aggregate(count, sum, moments[2], moments[3], mean, m2);
+    }
+
+    /**
+     * Returns the number of valid values.
+     *
+     * @see #aggregate(double[], BitSet, int, int)
+     */
+    public static long count(double[] values, BitSet selected, int from, int to)
+    {
+        to = Math.min(to, values.length);
+        if (selected == null) return countRange(values, from, to);
+        long count = 0;
+        for (int start = selected.nextSetBit(from); start >= 0 && start < to; ) {
+            int end = Math.min(selected.nextClearBit(start), to);
+            count += countRange(values, start, end);
+            start = selected.nextSetBit(end);
+        }
+        return count;
+    }
+
+    /**
+     * Returns the sum of the valid values.
+     *
+     * @see #aggregate(double[], BitSet, int, int)
+     */
+    public static double sum(double[] values, BitSet selected, int from, int to)
+    {
+        to = Math.min(to, values.length);
+        if (selected == null) return sumRange(values, from, to);
+        double sum = 0;
+        for (int start = selected.nextSetBit(from); start >= 0 && start < to; ) {
+            int end = Math.min(selected.nextClearBit(start), to);
+            sum += sumRange(values, start, end);
+            start = selected.nextSetBit(end);
+        }
+        return sum;
+    }
+
+    /**
+     * Returns the number of valid values above a threshold.
+     *
+     * @see #aggregate(double[], BitSet, int, int)
+     */
+    public static long countAbove(double[] values, BitSet selected, int from, int to, double threshold)
+    {
+        // every valid value is above a negative threshold, and no missing value is above the others
+        if (threshold < 0) return count(values, selected, from, to);
+        to = Math.min(to, values.length);
+        if (selected == null) return countAboveRange(values, from, to, threshold);
+        long count = 0;
+        for (int start = selected.nextSetBit(from); start >= 0 && start < to; ) {
+            int end = Math.min(selected.nextClearBit(start), to);
+            count += countAboveRange(values, start, end, threshold);
+            start = selected.nextSetBit(end);
+        }
+        return count;
+    }
+
+    /**
+     * Returns the sum of a coordinate column (eastings or northings) over the positions
+     * with a valid value; divided by the count, it gives their centroid.
+     *
+     * @param coordinates The coordinate column
+     * @see #aggregate(double[], BitSet, int, int)
+     */
+    public static double sumWhereValid(int[] coordinates, double[] values, BitSet selected, int from, int to)
+    {
+        to = Math.min(to, Math.min(values.length, coordinates.length));
+        if (selected == null) return sumWhereValidRange(coordinates, values, from, to);
+        double sum = 0;
+        for (int start = selected.nextSetBit(from); start >= 0 && start < to; ) {
+            int end = Math.min(selected.nextClearBit(start), to);
+            sum += sumWhereValidRange(coordinates, values, start, end);
+            start = selected.nextSetBit(end);
+        }
+        return sum;
+    }
+
+    /**
+     * Returns the smallest valid value, or positive infinity if there is none.
+     *
+     * @see #aggregate(double[], BitSet, int, int)
+     */
+    public static double min(double[] values, BitSet selected, int from, int to)
+    {
+        to = Math.min(to, values.length);
+        if (selected == null) return minRange(values, from, to);
+        double min = Double.POSITIVE_INFINITY;
+        for (int start = selected.nextSetBit(from); start >= 0 && start < to; ) {
+            int end = Math.min(selected.nextClearBit(start), to);
+            min = Math.min(min, minRange(values, start, end));
+            start = selected.nextSetBit(end);
+        }
+        return min;
+    }
+
+    /**
+     * Returns the largest valid value, or negative infinity if there is none.
+     *
+     * @see #aggregate(double[], BitSet, int, int)
+     */
+    public static double max(double[] values, BitSet selected, int from, int to)
+    {
+        to = Math.min(to, values.length);
+        if (selected == null) return maxRange(values, from, to);
+        double max = Double.NEGATIVE_INFINITY;
+        for (int start = selected.nextSetBit(from); start >= 0 && start < to; ) {
+            int end = Math.min(selected.nextClearBit(start), to);
+            max = Math.max(max, maxRange(values, start, end));
+            start = selected.nextSetBit(end);
+        }
+        return max;
+    }
+
+    /**
+     * Returns the sum of the squared deviations of the valid values from their mean.
+     */
+    private static double sumOfSquaredDeviations(double[] values, BitSet selected, int from, int to, double mean)
+    {
+        to = Math.min(to, values.length);
+        if (selected == null) return squaredDeviationsRange(values, from, to, mean);
+        double sum = 0;
+        for (int start = selected.nextSetBit(from); start >= 0 && start < to; ) {
+            int end = Math.min(selected.nextClearBit(start), to);
+            sum += squaredDeviationsRange(values, start, end, mean);
+            start = selected.nextSetBit(end);
+        }
+        return sum;
+    }
+
+    /**
+     * Adds the count, sum, minimum and maximum of the valid values in a range to
+     * moments[0..3].
+     */
+    private static void accumulateRange(double[] values, int from, int to, double[] moments)
+    {
+        long missing0 = 0, missing1 = 0;
+        double sum0 = 0, sum1 = 0;
+        long min0 = Long.MAX_VALUE, min1 = Long.MAX_VALUE;
+        double max0 = Double.NEGATIVE_INFINITY, max1 = Double.NEGATIVE_INFINITY;
+        int i = from;
+        for (; i + 1 < to; i += 2) {
+            long a = orderedBits(values[i]);
+            long b = orderedBits(values[i + 1]);
+            missing0 += ~a >>> 63;
+            missing1 += ~b >>> 63;
+            sum0 += Math.max(values[i], 0);
+            sum1 += Math.max(values[i + 1], 0);
+            min0 = Math.min(min0, a);
+            min1 = Math.min(min1, b);
+            max0 = Math.max(max0, values[i]);
+            max1 = Math.max(max1, values[i + 1]);
+        }
+        if (i < to) {
+            long a = orderedBits(values[i]);
+            missing0 += ~a >>> 63;
+            sum0 += Math.max(values[i], 0);
+            min0 = Math.min(min0, a);
+            max0 = Math.max(max0, values[i]);
+        }
+        long count = (to - from) - (missing0 + missing1);
+        if (count == 0) return;
+        moments[0] += count;
+        moments[1] += sum0 + sum1;
+        moments[2] = Math.min(moments[2], fromOrderedBits(Math.min(min0, min1)));
+        moments[3] = Math.max(moments[3], Math.max(max0, max1));
+    }
+
+    /**
+     * Returns the number of valid values in a range.
+     */
+    private static long countRange(double[] values, int from, int to)
+    {
+        long missing0 = 0, missing1 = 0, missing2 = 0, missing3 = 0;
+        int i = from;
+        for (; i + 3 < to; i += 4) {
+            missing0 += ~orderedBits(values[i]) >>> 63;
+            missing1 += ~orderedBits(values[i + 1]) >>> 63;
+            missing2 += ~orderedBits(values[i + 2]) >>> 63;
+            missing3 += ~orderedBits(values[i + 3]) >>> 63;
+        }
+        for (; i < to; i++) missing0 += ~orderedBits(values[i]) >>> 63;
+        return (to - from) - ((missing0 + missing1) + (missing2 + missing3));
+    }
+
+    /**
+     * Returns the sum of the valid values in a range. Missing values are negative, so
+     * clamping at zero masks them.
+     */
+    private static double sumRange(double[] values, int from, int to)
+    {
+        double sum0 = 0, sum1 = 0, sum2 = 0, sum3 = 0;
+        int i = from;
+        for (; i + 3 < to; i += 4) {
+            sum0 += Math.max(values[i], 0);
+            sum1 += Math.max(values[i + 1], 0);
+            sum2 += Math.max(values[i + 2], 0);
+            sum3 += Math.max(values[i + 3], 0);
+        }
+        for (; i < to; i++) sum0 += Math.max(values[i], 0);
+        return (sum0 + sum1) + (sum2 + sum3);
+    }
+
+    /**
+     * Returns the number of values in a range above a threshold of zero or more (so
+     * missing values never count).
+     */
+    private static long countAboveRange(double[] values, int from, int to, double threshold)
+    {
+        long count0 = 0, count1 = 0, count2 = 0, count3 = 0;
+        int i = from;
+        for (; i + 3 < to; i += 4) {
+            count0 += values[i] > threshold ? 1 : 0;
+            count1 += values[i + 1] > threshold ? 1 : 0;
+            count2 += values[i + 2] > threshold ? 1 : 0;
+            count3 += values[i + 3] > threshold ? 1 : 0;
+        }
+        for (; i < to; i++) count0 += values[i] > threshold ? 1 : 0;
+        return (count0 + count1) + (count2 + count3);
+    }
+
+    /**
+     * Returns the sum of the coordinates in a range whose value is valid. A missing
+     * value's coordinate is multiplied by zero.
+     */
+    private static double sumWhereValidRange(int[] coordinates, double[] values, int from, int to)
+    {
+        double sum0 = 0, sum1 = 0, sum2 = 0, sum3 = 0;
+        int i = from;
+        for (; i + 3 < to; i += 4) {
+            sum0 += coordinates[i] * (double) (orderedBits(values[i]) >>> 63);
+            sum1 += coordinates[i + 1] * (double) (orderedBits(values[i + 1]) >>> 63);
+            sum2 += coordinates[i + 2] * (double) (orderedBits(values[i + 2]) >>> 63);
+            sum3 += coordinates[i + 3] * (double) (orderedBits(values[i + 3]) >>> 63);
+        }
+        for (; i < to; i++) sum0 += coordinates[i] * (double) (orderedBits(values[i]) >>> 63);
+        return (sum0 + sum1) + (sum2 + sum3);
+    }
+
+    /**
+     * Returns the smallest valid value in a range, or positive infinity if there is none.
+     */
+    private static double minRange(double[] values, int from, int to)
+    {
+        long min0 = Long.MAX_VALUE, min1 = Long.MAX_VALUE, min2 = Long.MAX_VALUE, min3 = Long.MAX_VALUE;
+        int i = from;
+        for (; i + 3 < to; i += 4) {
+            min0 = Math.min(min0, orderedBits(values[i]));
+            min1 = Math.min(min1, orderedBits(values[i + 1]));
+            min2 = Math.min(min2, orderedBits(values[i + 2]));
+            min3 = Math.min(min3, orderedBits(values[i + 3]));
+        }
+        for (; i < to; i++) min0 = Math.min(min0, orderedBits(values[i]));
+        return fromOrderedBits(Math.min(Math.min(min0, min1), Math.min(min2, min3)));
+    }
+
+    /**
+     * Returns the largest valid value in a range, or negative infinity if there is none.
+     * Missing values are negative, so they only win if no value is valid.
+     */
+    private static double maxRange(double[] values, int from, int to)
+    {
+        double max0 = Double.NEGATIVE_INFINITY, max1 = Double.NEGATIVE_INFINITY;
+        double max2 = Double.NEGATIVE_INFINITY, max3 = Double.NEGATIVE_INFINITY;
+        int i = from;
+        for (; i + 3 < to; i += 4) {
+            max0 = Math.max(max0, values[i]);
+            max1 = Math.max(max1, values[i + 1]);
+            max2 = Math.max(max2, values[i + 2]);
+            max3 = Math.max(max3, values[i + 3]);
+        }
+        for (; i < to; i++) max0 = Math.max(max0, values[i]);
+        double max = Math.max(Math.max(max0, max1), Math.max(max2, max3));
+        return max >= 0 ? max : Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * Returns the sum of the squared deviations of the valid values in a range from a mean.
+     * A missing value's square is multiplied by zero.
+     */
+    private static double squaredDeviationsRange(double[] values, int from, int to, double mean)
+    {
+        double sum0 = 0, sum1 = 0, sum2 = 0, sum3 = 0;
+        int i = from;
+        for (; i + 3 < to; i += 4) {
+            double d0 = values[i] - mean;
+            double d1 = values[i + 1] - mean;
+            double d2 = values[i + 2] - mean;
+            double d3 = values[i + 3] - mean;
+            sum0 += d0 * d0 * (orderedBits(values[i]) >>> 63);
+            sum1 += d1 * d1 * (orderedBits(values[i + 1]) >>> 63);
+            sum2 += d2 * d2 * (orderedBits(values[i + 2]) >>> 63);
+            sum3 += d3 * d3 * (orderedBits(values[i + 3]) >>> 63);
+        }
+        for (; i < to; i++) {
+            double d = values[i] - mean;
+            sum0 += d * d * (orderedBits(values[i]) >>> 63);
+        }
+        return (sum0 + sum1) + (sum2 + sum3);
+    }
+
+    /**
+     * Returns the bits of a value as a long that orders like the value for valid values,
+     * with every missing value above all valid ones: the sign bit of a valid value is
+     * clear, so flipping it makes valid values the negative longs and missing values the
+     * positive ones. Adding zero first turns -0.0 into 0.0, which counts as valid.
+     */
+    private static long orderedBits(double value)
+    {
+        return Double.doubleToRawLongBits(value + 0.0) ^ Long.MIN_VALUE;
+    }
+
+    /**
+     * Turns the smallest ordered bits of a range back into its value, or positive
+     * infinity if the range held no valid value.
+     */
+    private static double fromOrderedBits(long bits)
+    {
+        return bits < 0 ? Double.longBitsToDouble(bits ^ Long.MIN_VALUE) : Double.POSITIVE_INFINITY;
+    }
+}
@@ -0,0 +1,140 @@
+import org.junit.jupiter.api.Test;
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the ReductionKernels class, comparing its sign-bit masked kernels
+ * with a plain loop that tests every value.
+ */
+public class ReductionKernelsTest {
+
+    private static final double THRESHOLD = 20;
+
+    /**
+     * Returns {count, min, max, sum, count above THRESHOLD, sum of the positions} of the
+     * valid values in a range by a plain loop.
+     */
+    private double[] plainLoop(double[] values, BitSet selected, int from, int to) {
+        double count = 0, min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+        double sum = 0, above = 0, positions = 0;
+        for (int i = from; i < Math.min(to, values.length); i++) {
+            if (selected != null && !selected.get(i)) continue;
+            if (values[i] < 0) continue;
+            count++;
+            min = Math.min(min, values[i]);
+            max = Math.max(max, values[i]);
+            sum += values[i];
+            if (values[i] > THRESHOLD) above++;
+            positions += i;
+        }
+        return new double[] {count, min, max, sum, above, positions};
+    }
+
+    /**
+     * Returns the sum of the squared deviations of the valid values in a range from
+     * their mean by a plain loop.
+     */
+    private double plainSquaredDeviations(double[] values, BitSet selected, int from, int to, double mean) {
+        double m2 = 0;
+        for (int i = from; i < Math.min(to, values.length); i++) {
+            if (selected != null && !selected.get(i)) continue;
+            if (values[i] < 0) continue;
+            m2 += (values[i] - mean) * (values[i] - mean);
+        }
+        return m2;
+    }
+
+    /**
+     * Checks the kernels against the plain loop for one range and selection.
+     */
+    private void assertSameAsLoop(double[] values, BitSet selected, int from, int to) {
+        double[] expected = plainLoop(values, selected, from, to);
+        assertEquals((long) expected[0], ReductionKernels.count(values, selected, from, to));
+        // a delta of 0 compares -0.0 and 0.0 as equal, as the value comparisons do
+        assertEquals(expected[1], ReductionKernels.min(values, selected, from, to), 0);
+        assertEquals(expected[2], ReductionKernels.max(values, selected, from, to), 0);
+        assertEquals(expected[3], ReductionKernels.sum(values, selected, from, to), 1e-9);
+        assertEquals((long) expected[4], ReductionKernels.countAbove(values, selected, from, to, THRESHOLD));
+        assertEquals((long) expected[0], ReductionKernels.countAbove(values, selected, from, to, -5));
+
+        int[] positions = new int[values.length];
+        for (int i = 0; i < positions.length; i++) positions[i] = i;
+        assertEquals(expected[5], ReductionKernels.sumWhereValid(positions, values, selected, from, to), 0);
+
+        Aggregate statistics = ReductionKernels.aggregate(values, selected, from, to);
+        assertEquals((long) expected[0], statistics.getCount());
+        if (expected[0] == 0) return;
+        double mean = expected[3] / expected[0];
+        assertEquals(expected[3], statistics.getSum(), 1e-9);
+        assertEquals(expected[1], statistics.getMin(), 0);
+        assertEquals(expected[2], statistics.getMax(), 0);
+        assertEquals(mean, statistics.getMean(), 1e-9);
+        assertEquals(plainSquaredDeviations(values, selected, from, to, mean) / expected[0], statistics.getVariance(), 1e-9);
+    }
+
+    /**
+     * Tests columns with missing values (-1), negative and positive zeros, and lengths
+     * that leave a tail after the unrolled loops.
+     * Verifies the same count, minimum, maximum, sum, count above a threshold, position
+     * sum and statistics as the plain loop, with -0.0 valid.
+     */
+    @Test
+    public void testMissingAndZeroValues() {
+        double[] values = {-1, 3.5, -0.0, 7, -1, 0.0, 12, -1, 2};
+        for (int to = 0; to <= values.length; to++) {
+            for (int from = 0; from <= to; from++) {
+                assertSameAsLoop(values, null, from, to);
+            }
+        }
+        assertEquals(3, ReductionKernels.count(new double[] {-0.0, -0.0, -0.0}, null, 0, 3));
+        assertEquals(0.0, ReductionKernels.min(new double[] {-1, -0.0, 5}, null, 0, 3), 0);
+        assertEquals(0.0, ReductionKernels.max(new double[] {-1, -0.0, -1}, null, 0, 3), 0);
+    }
+
+    /**
+     * Tests a column where every value is missing, and an empty range.
+     * Verifies a count of zero, the infinite minimum and maximum, a zero sum and empty
+     * statistics.
+     */
+    @Test
+    public void testAllMissing() {
+        double[] values = {-1, -1, -1, -1, -1, -1, -1};
+        assertEquals(0, ReductionKernels.count(values, null, 0, values.length));
+        assertEquals(Double.POSITIVE_INFINITY, ReductionKernels.min(values, null, 0, values.length));
+        assertEquals(Double.NEGATIVE_INFINITY, ReductionKernels.max(values, null, 0, values.length));
+        assertEquals(Double.NEGATIVE_INFINITY, ReductionKernels.max(values, null, 3, 3));
+        assertEquals(0, ReductionKernels.sum(values, null, 0, values.length), 0);
+        assertEquals(0, ReductionKernels.countAbove(values, null, 0, values.length, -5));
+        assertEquals(0, ReductionKernels.aggregate(values, null, 0, values.length).getCount());
+    }
+
+    /**
+     * Tests selections made of runs of different lengths, ranges that cut a run and a
+     * range beyond the end of the column, on random columns.
+     * Verifies the same figures as the plain loop.
+     */
+    @Test
+    public void testSelectionRuns() {
+        Random random = new Random(17);
+        for (int trial = 0; trial < 200; trial++) {
+            double[] values = new double[1 + random.nextInt(100)];
+            for (int i = 0; i < values.length; i++) {
+                int kind = random.nextInt(6);
+                values[i] = kind == 0 ? -1 : kind == 1 ? -0.0 : random.nextDouble() * 50;
+            }
+            BitSet selected = new BitSet();
+            for (int start = random.nextInt(5); start < values.length; ) {
+                int end = start + 1 + random.nextInt(9);
+                selected.set(start, Math.min(end, values.length));
+                start = end + random.nextInt(6);
+            }
+            int from = random.nextInt(values.length);
+            int to = from + random.nextInt(values.length + 10 - from);
+            assertSameAsLoop(values, selected, from, to);
+            assertSameAsLoop(values, selected, 0, values.length);
+            assertSameAsLoop(values, null, from, to);
+        }
+    }
+}
@@ -0,0 +1,407 @@
+import java.io.*;
+import java.net.*;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * RegionRegistry is a singleton class that holds the named areas (regions) the
+ * statistics can be restricted to, such as London, the London boroughs or the ULEZ.
+ *
+ * Each region is a polygon (or several polygons, possibly with holes) in National
+ * Grid coordinates. Boundaries are loaded from a GeoJSON file or a WKT file. A region
+ * is rasterised once per grid geometry into a bitmask of the cells whose centre lies
+ * inside it; selecting the points of a dataset is then a lookup in that bitmask,
+ * with no geometry work per point.
+ *
+ * "London" (the bounding box of the London map) is always registered.
+ */
+public class RegionRegistry
+{
+    public static final String LONDON = "London";
+    public static final String REGIONS_FILE = "Regions/regions.geojson"; // loaded on start-up if present
+
+    // Static variable reference of instance of type RegionRegistry
+    private static RegionRegistry instance = null;
+
+    private final Map<String, Region> regions;
+
+    /**
+     * Constructor for objects of class RegionRegistry
+     */
+    private RegionRegistry()
+    {
+        regions = new LinkedHashMap<>();
+        GridData gridData = new GridData();
+        double left = gridData.getMaxLeft();
+        double right = gridData.getMaxRight();
+        double bottom = gridData.getMaxBottom();
+        double top = gridData.getMaxTop();
+        addRegion(LONDON, List.of(new double[] {left, bottom, right, bottom, right, top, left, top}));
+    }
+
+    /**
+     * Static method to create instance of Singleton class
+     */
+    public static synchronized RegionRegistry getInstance()
+    {
+        if (instance == null) {
+            instance = new RegionRegistry();
+            if (RegionRegistry.class.getResource(REGIONS_FILE) != null) {
+                instance.loadRegions(REGIONS_FILE);
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Registers a region, replacing any region with the same name.
+     *
+     * @param name The name of the region
+     * @param rings The boundary rings, each as x1, y1, x2, y2, ... in National Grid
+     *              coordinates. Holes and separate parts are given as further rings;
+     *              a cell is inside if its centre lies inside an odd number of rings.
+     */
+    public synchronized void addRegion(String name, List<double[]> rings)
+    {
+        regions.put(name, new Region(rings));
+    }
+
+    /**
+     * Return the names of all registered regions, in the order they were added.
+     */
+    public synchronized Set<String> getRegionNames()
+    {
+        return new LinkedHashSet<>(regions.keySet());
+    }
+
+    /**
+     * Returns true if a region with the given name is registered.
+     */
+    public synchronized boolean hasRegion(String name)
+    {
+        return regions.containsKey(name);
+    }
+
+    /**
+     * Checks whether a single location lies inside a region. Prefer getMask or
+     * selectPoints when testing many locations.
+     *
+     * @return True if the location is inside the region, false if not or if the region is unknown
+     */
+    public boolean contains(String name, double easting, double northing)
+    {
+        Region region = getRegion(name);
+        return region != null && region.contains(easting, northing);
+    }
+
+    /**
+     * Returns the bitmask of the cells of a raster geometry whose centre lies inside a
+     * region. The mask is built on first use and cached.
+     *
+     * @param name The name of the region
+     * @param geometry The raster geometry
+     * @return The mask (do not modify), or null if the region is unknown
+     */
+    public BitSet getMask(String name, GridGeometry geometry)
+    {
+        Region region = getRegion(name);
+        return region == null ? null : region.getMask(geometry);
+    }
+
+    /**
+     * Returns a label raster for a list of regions: the position in the list of the
+     * region each cell of the geometry lies in, or -1 for cells outside all of them.
+     * Where regions overlap, a cell is given to the last of them. Unknown regions
+     * label no cells.
+     *
+     * @param names The names of the regions
+     * @param geometry The raster geometry
+     * @return The zone id of every cell
+     */
+    public int[] getLabelRaster(List<String> names, GridGeometry geometry)
+    {
+        int[] labels = new int[geometry.cellCount()];
+        Arrays.fill(labels, -1);
+        for (int zone = 0; zone < names.size(); zone++) {
+            BitSet mask = getMask(names.get(zone), geometry);
+            if (mask == null) continue;
+            for (int cell = mask.nextSetBit(0); cell >= 0; cell = mask.nextSetBit(cell + 1)) {
+                labels[cell] = zone;
+            }
+        }
+        return labels;
+    }
+
+    /**
+     * Returns the points of a dataset that lie inside a region.
+     *
+     * @param name The name of the region
+     * @param dataSet The dataset
+     * @return The set of point indices inside the region (empty if the region is unknown)
+     */
+    public BitSet selectPoints(String name, DataSet dataSet)
+    {
+        GridRaster raster = dataSet.getRaster();
+        BitSet mask = getMask(name, raster.getGeometry());
+        int size = raster.getPointCount();
+        BitSet selected = new BitSet(size);
+        if (mask == null) return selected;
+
+        for (int i = 0; i < size; i++) {
+            if (mask.get(raster.getCellOfPoint(i))) selected.set(i);
+        }
+        return selected;
+    }
+
+    /**
+     * Reads region boundaries from a GeoJSON file (.geojson or .json) or a WKT file
+     * (any other extension) and registers them. Coordinates must be National Grid
+     * eastings and northings (EPSG:27700).
+     *
+     * A GeoJSON file holds a FeatureCollection of Polygon or MultiPolygon features; the
+     * region name is taken from the "name" property (or "NAME", or the first text property).
+     * A WKT file holds one region per line in the form
+     *    name;POLYGON((x y, x y, ...))
+     * and may also use MULTIPOLYGON.
+     *
+     * @param fileName The name of the file
+     * @return The number of regions loaded, or -1 if the file could not be read
+     */
+    public int loadRegions(String fileName)
+    {
+        System.out.println("Loading regions " + fileName + "...");
+        URL url = getClass().getResource(fileName);
+        if (url == null) {
+            System.out.println("Could not find regions file " + fileName);
+            return -1;
+        }
+        try {
+            String text = Files.readString(new File(url.toURI()).toPath());
+            String lowerName = fileName.toLowerCase();
+            int count = lowerName.endsWith(".geojson") || lowerName.endsWith(".json") ? loadGeoJson(text) : loadWkt(text);
+            System.out.println("Loading regions... done (" + count + " regions).");
+            return count;
+        }
+        catch (IOException | URISyntaxException | IllegalArgumentException | ClassCastException e) {
+            System.out.println("Could not read regions file " + fileName);
+            return -1;
+        }
+    }
+
+    /**
+     * Registers the polygon features of a GeoJSON document.
+     */
+    @SuppressWarnings("unchecked")
+    private int loadGeoJson(String text)
+    {
+        Object document = JsonReader.parse(text);
+        if (!(document instanceof Map) || !(((Map<String, Object>) document).get("features") instanceof List)) {
+            throw new IllegalArgumentException("not a GeoJSON feature collection");
+        }
+        int count = 0;
+        for (Object entry : (List<Object>) ((Map<String, Object>) document).get("features")) {
+            if (!(entry instanceof Map)) throw new IllegalArgumentException("bad GeoJSON feature " + entry);
+            Map<String, Object> feature = (Map<String, Object>) entry;
+            Map<String, Object> geometry = (Map<String, Object>) feature.get("geometry");
+            Map<String, Object> properties = (Map<String, Object>) feature.get("properties");
+            if (geometry == null || geometry.get("coordinates") == null) continue;
+
+            List<double[]> rings = new ArrayList<>();
+            List<Object> coordinates = (List<Object>) geometry.get("coordinates");
+            if ("Polygon".equals(geometry.get("type"))) {
+                addGeoJsonPolygon(coordinates, rings);
+            }
+            else if ("MultiPolygon".equals(geometry.get("type"))) {
+                for (Object polygon : coordinates) addGeoJsonPolygon((List<Object>) polygon, rings);
+            }
+            if (rings.isEmpty()) continue;
+
+            addRegion(featureName(properties, count), rings);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Adds the rings of one GeoJSON polygon.
+     */
+    @SuppressWarnings("unchecked")
+    private void addGeoJsonPolygon(List<Object> polygon, List<double[]> rings)
+    {
+        if (polygon == null) throw new IllegalArgumentException("GeoJSON polygon without rings");
+        for (Object ringEntry : polygon) {
+            if (!(ringEntry instanceof List)) throw new IllegalArgumentException("bad GeoJSON ring " + ringEntry);
+            List<Object> positions = (List<Object>) ringEntry;
+            double[] ring = new double[positions.size() * 2];
+            for (int i = 0; i < positions.size(); i++) {
+                Object entry = positions.get(i);
+                if (!(entry instanceof List) || ((List<Object>) entry).size() < 2
+                        || !(((List<Object>) entry).get(0) instanceof Double)
+                        || !(((List<Object>) entry).get(1) instanceof Double)) {
+                    throw new IllegalArgumentException("bad GeoJSON position " + entry);
+                }
+                List<Object> position = (List<Object>) entry;
+                ring[2 * i] = (Double) position.get(0);
+                ring[2 * i + 1] = (Double) position.get(1);
+            }
+            rings.add(ring);
+        }
+    }
+
+    /**
+     * Returns the name of a GeoJSON feature.
+     */
+    private String featureName(Map<String, Object> properties, int index)
+    {
+        if (properties != null) {
+            if (properties.get("name") instanceof String) return (String) properties.get("name");
+            if (properties.get("NAME") instanceof String) return (String) properties.get("NAME");
+            for (Object value : properties.values()) {
+                if (value instanceof String) return (String) value;
+            }
+        }
+        return "Region " + (index + 1);
+    }
+
+    /**
+     * Registers the regions of a WKT file (one "name;WKT" line per region).
+     */
+    private int loadWkt(String text)
+    {
+        int count = 0;
+        for (String line : text.split("\\R")) {
+            int separator = line.indexOf(';');
+            if (line.isBlank() || separator < 0) continue;
+            String name = line.substring(0, separator).trim();
+            String wkt = line.substring(separator + 1);
+
+            // every innermost parenthesised list of "x y" pairs is one ring
+            List<double[]> rings = new ArrayList<>();
+            int start = wkt.indexOf('(');
+            while (start >= 0) {
+                int end = wkt.indexOf(')', start);
+                if (end < 0) throw new IllegalArgumentException("unbalanced parentheses in region " + name);
+                int nested = wkt.lastIndexOf('(', end);
+                String[] pairs = wkt.substring(nested + 1, end).split(",");
+                double[] ring = new double[pairs.length * 2];
+                for (int i = 0; i < pairs.length; i++) {
+                    String[] xy = pairs[i].trim().split("\\s+");
+                    if (xy.length < 2) throw new IllegalArgumentException("bad coordinate in region " + name);
+                    ring[2 * i] = Double.parseDouble(xy[0]);
+                    ring[2 * i + 1] = Double.parseDouble(xy[1]);
+                }
+                rings.add(ring);
+                start = wkt.indexOf('(', end);
+            }
+            if (rings.isEmpty()) continue;
+            addRegion(name, rings);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Checks whether a location lies inside a polygon given as boundary rings
+     * (x1, y1, x2, y2, ...), counting holes and separate parts with the even-odd rule.
+     */
+    public static boolean containsPoint(List<double[]> rings, double x, double y)
+    {
+        boolean inside = false;
+        for (double[] ring : rings) {
+            int points = ring.length / 2;
+            for (int i = 0, j = points - 1; i < points; j = i++) {
+                double yi = ring[2 * i + 1];
+                double yj = ring[2 * j + 1];
+                if ((yi > y) != (yj > y)) {
+                    double xCross = ring[2 * j] + (y - yj) / (yi - yj) * (ring[2 * i] - ring[2 * j]);
+                    if (x < xCross) inside = !inside;
+                }
+            }
+        }
+        return inside;
+    }
+
+    /**
+     * Returns the region with the given name, or null.
+     */
+    private synchronized Region getRegion(String name)
+    {
+        return regions.get(name);
+    }
+
+    /**
+     * A Region holds the boundary rings of one named area and its rasterised masks.
+     */
+    private static class Region
+    {
+        private final List<double[]> rings;
+        private final Map<GridGeometry, BitSet> masks;
+
+        public Region(List<double[]> rings)
+        {
+            this.rings = rings;
+            this.masks = new HashMap<>();
+        }
+
+        /**
+         * Returns the mask for a geometry, rasterising the region on first use.
+         */
+        public synchronized BitSet getMask(GridGeometry geometry)
+        {
+            return masks.computeIfAbsent(geometry, this::rasterise);
+        }
+
+        /**
+         * Even-odd point-in-polygon test over all rings.
+         */
+        public boolean contains(double x, double y)
+        {
+            return containsPoint(rings, x, y);
+        }
+
+        /**
+         * Scanline rasterisation: for each row, the ring edges crossing the row's centre
+         * line are intersected with it, and the cells whose centres lie between pairs of
+         * crossings are set.
+         */
+        private BitSet rasterise(GridGeometry geometry)
+        {
+            int columns = geometry.columns();
+            BitSet mask = new BitSet(geometry.cellCount());
+            double[] crossings = new double[16];
+
+            for (int row = 0; row < geometry.rows(); row++) {
+                double y = geometry.centreY(row);
+                int count = 0;
+                for (double[] ring : rings) {
+                    int points = ring.length / 2;
+                    for (int i = 0, j = points - 1; i < points; j = i++) {
+                        double yi = ring[2 * i + 1];
+                        double yj = ring[2 * j + 1];
+                        if ((yi > y) != (yj > y)) {
+                            if (count == crossings.length) crossings = Arrays.copyOf(crossings, count * 2);
+                            crossings[count++] = ring[2 * j] + (y - yj) / (yi - yj) * (ring[2 * i] - ring[2 * j]);
+                        }
+                    }
+                }
+                Arrays.sort(crossings, 0, count);
+
+                for (int k = 0; k + 1 < count; k += 2) {
+                    // cells whose centre x satisfies crossings[k] <= x < crossings[k + 1]
+                    int first = Math.max(0, (int) Math.ceil((crossings[k] - geometry.originX()) / geometry.cellSize()));
+                    int last = Math.min(columns - 1, (int) Math.ceil((crossings[k + 1] - geometry.originX()) / geometry.cellSize()) - 1);
+                    if (first <= last) mask.set(row * columns + first, row * columns + last + 1);
+                }
+            }
+            return mask;
+        }
+    }
+}
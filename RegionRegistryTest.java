@@ -0,0 +1,74 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import java.io.File;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for loading region files into the RegionRegistry, using small files written
+ * next to the test classes (where the registry looks for its resources).
+ */
+public class RegionRegistryTest {
+
+    private File regionsFile;
+
+    @AfterEach
+    public void tearDown() {
+        if (regionsFile != null) regionsFile.delete();
+    }
+
+    /**
+     * Writes a regions file into the directory the classes are loaded from.
+     */
+    private String writeRegionsFile(String name, String text) throws Exception {
+        File root = new File(RegionRegistryTest.class.getResource("RegionRegistryTest.class").toURI()).getParentFile();
+        regionsFile = new File(root, name);
+        Files.writeString(regionsFile.toPath(), text);
+        return name;
+    }
+
+    /**
+     * Tests loading a WKT file with a polygon with a hole.
+     * Verifies the region is registered and the hole is outside it.
+     */
+    @Test
+    public void testLoadRegions_Wkt() throws Exception {
+        String fileName = writeRegionsFile("regions-test.wkt",
+                "Test Square;POLYGON((0 0, 100 0, 100 100, 0 100), (40 40, 60 40, 60 60, 40 60))\n");
+        RegionRegistry registry = RegionRegistry.getInstance();
+        assertEquals(1, registry.loadRegions(fileName));
+        assertTrue(registry.contains("Test Square", 20, 20));
+        assertFalse(registry.contains("Test Square", 50, 50));
+    }
+
+    /**
+     * Tests loading a GeoJSON file with one named polygon feature.
+     * Verifies the region is registered under its name.
+     */
+    @Test
+    public void testLoadRegions_GeoJson() throws Exception {
+        String fileName = writeRegionsFile("regions-test.geojson",
+                "{\"type\": \"FeatureCollection\", \"features\": [{\"type\": \"Feature\","
+                + " \"properties\": {\"name\": \"Test Triangle\"},"
+                + " \"geometry\": {\"type\": \"Polygon\", \"coordinates\": [[[0, 0], [100, 0], [0, 100], [0, 0]]]}}]}");
+        RegionRegistry registry = RegionRegistry.getInstance();
+        assertEquals(1, registry.loadRegions(fileName));
+        assertTrue(registry.contains("Test Triangle", 10, 10));
+        assertFalse(registry.contains("Test Triangle", 90, 90));
+    }
+
+    /**
+     * Tests loading files that are missing or malformed.
+     * Verifies -1 is returned for each.
+     */
+    @Test
+    public void testLoadRegions_Invalid() throws Exception {
+        RegionRegistry registry = RegionRegistry.getInstance();
+        assertEquals(-1, registry.loadRegions("no-such-regions.geojson"));
+        assertEquals(-1, registry.loadRegions(writeRegionsFile("regions-test.geojson", "{\"type\": \"Feature\"}")));
+        assertEquals(-1, registry.loadRegions(writeRegionsFile("regions-test.geojson",
+                "{\"features\": [{\"geometry\": {\"type\": \"Polygon\", \"coordinates\": [[[0, 0], [1]]]}}]}")));
+        assertEquals(-1, registry.loadRegions(writeRegionsFile("regions-test.wkt", "Open;POLYGON((0 0, 1 0, 1 1")));
+    }
+}
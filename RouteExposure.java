@@ -0,0 +1,24 @@
+/**
+ * A RouteExposure holds the pollution a route passes through in one dataset (one
+ * pollutant and year), as found by the RouteSampler.
+ *
+ * The mean is weighted by the length of the route inside each grid cell. Parts of the
+ * route in cells without a valid value are left out of the mean and the maximum; the
+ * covered length says how much of the route had data.
+ */
+public record RouteExposure(String pollutant, String year, double length, double coveredLength,
+                            double meanExposure, double maxExposure)
+{
+    /**
+     * Return a short description of the exposure.
+     */
+    @Override
+    public String toString()
+    {
+        if (coveredLength == 0) {
+            return String.format("%s %s: %.0f m, no data along the route", pollutant, year, length);
+        }
+        return String.format("%s %s: %.0f m, mean %.2f, max %.2f (%.0f%% covered)",
+                             pollutant, year, length, meanExposure, maxExposure, 100 * coveredLength / length);
+    }
+}
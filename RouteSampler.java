@@ -0,0 +1,132 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * RouteSampler estimates the exposure along a route, such as a cycling or walking
+ * route, given as a polyline of National Grid eastings and northings (x1, y1, x2, y2, ...).
+ *
+ * Each leg of the route is walked through the cells of the dataset's raster with a
+ * grid traversal (Amanatides and Woo): from cell to cell, stepping over whichever cell
+ * boundary the leg crosses next. This visits exactly the cells the route passes
+ * through and gives the length of the route inside each, without sampling at fixed
+ * steps. The work is proportional to the number of cells crossed.
+ *
+ * Many routes can be sampled at once in parallel.
+ */
+public class RouteSampler
+{
+    private static final int PARALLEL_BATCH_SIZE = 64; // batches of at least this many routes are sampled in parallel
+
+    /**
+     * Samples a route in one dataset.
+     *
+     * @param dataSet The dataset
+     * @param route The route as x1, y1, x2, y2, ... (at least one leg)
+     * @return The exposure along the route
+     */
+    public RouteExposure sample(DataSet dataSet, double[] route)
+    {
+        return sample(dataSet, dataSet.getRaster(), route);
+    }
+
+    /**
+     * Samples a route in several datasets, e.g. several pollutants and years.
+     *
+     * @param dataSets The datasets
+     * @param route The route as x1, y1, x2, y2, ...
+     * @return The exposure in each dataset, in the order given
+     */
+    public List<RouteExposure> sample(List<DataSet> dataSets, double[] route)
+    {
+        List<RouteExposure> exposures = new ArrayList<>(dataSets.size());
+        for (DataSet dataSet : dataSets) {
+            exposures.add(sample(dataSet, route));
+        }
+        return exposures;
+    }
+
+    /**
+     * Samples many routes in one dataset.
+     *
+     * @param dataSet The dataset
+     * @param routes The routes, each as x1, y1, x2, y2, ...
+     * @return The exposure along each route, in the order given
+     */
+    public RouteExposure[] sampleBatch(DataSet dataSet, List<double[]> routes)
+    {
+        GridRaster raster = dataSet.getRaster();
+        RouteExposure[] exposures = new RouteExposure[routes.size()];
+        IntStream indices = IntStream.range(0, routes.size());
+        if (routes.size() >= PARALLEL_BATCH_SIZE) indices = indices.parallel();
+        indices.forEach(i -> exposures[i] = sample(dataSet, raster, routes.get(i)));
+        return exposures;
+    }
+
+    /**
+     * Walks all legs of a route through the raster.
+     */
+    private RouteExposure sample(DataSet dataSet, GridRaster raster, double[] route)
+    {
+        // {total length, covered length, length-weighted sum, maximum}
+        double[] totals = {0, 0, 0, Double.NEGATIVE_INFINITY};
+        for (int i = 0; i + 3 < route.length; i += 2) {
+            traverse(raster, route[i], route[i + 1], route[i + 2], route[i + 3], totals);
+        }
+        double covered = totals[1];
+        return new RouteExposure(dataSet.getPollutant(), dataSet.getYear(), totals[0], covered,
+                                 covered > 0 ? totals[2] / covered : Double.NaN,
+                                 covered > 0 ? totals[3] : Double.NaN);
+    }
+
+    /**
+     * Walks one leg through the cells it crosses, adding the length inside each cell
+     * with a valid value to the totals.
+     */
+    private void traverse(GridRaster raster, double x0, double y0, double x1, double y1, double[] totals)
+    {
+        GridGeometry geometry = raster.getGeometry();
+        double cellSize = geometry.cellSize();
+        double legLength = Math.hypot(x1 - x0, y1 - y0);
+        totals[0] += legLength;
+        if (legLength == 0) return;
+
+        // in cell units, with cell (c, r) covering [c, c + 1) x [r, r + 1)
+        double gx = (x0 - geometry.originX()) / cellSize + 0.5;
+        double gy = (y0 - geometry.originY()) / cellSize + 0.5;
+        double dx = (x1 - x0) / cellSize;
+        double dy = (y1 - y0) / cellSize;
+        int column = (int) Math.floor(gx);
+        int row = (int) Math.floor(gy);
+        int stepX = dx > 0 ? 1 : -1;
+        int stepY = dy > 0 ? 1 : -1;
+        // the fraction of the leg at which the next column / row boundary is crossed
+        double tMaxX = dx == 0 ? Double.POSITIVE_INFINITY : ((dx > 0 ? column + 1 : column) - gx) / dx;
+        double tMaxY = dy == 0 ? Double.POSITIVE_INFINITY : ((dy > 0 ? row + 1 : row) - gy) / dy;
+        double tDeltaX = dx == 0 ? Double.POSITIVE_INFINITY : Math.abs(1 / dx);
+        double tDeltaY = dy == 0 ? Double.POSITIVE_INFINITY : Math.abs(1 / dy);
+
+        double t = 0;
+        while (t < 1) {
+            double tNext = Math.min(1, Math.min(tMaxX, tMaxY));
+            if (geometry.contains(column, row)) {
+                double value = raster.getValue(row * geometry.columns() + column);
+                if (!Double.isNaN(value)) {
+                    double length = (tNext - t) * legLength;
+                    totals[1] += length;
+                    totals[2] += length * value;
+                    if (length > 0 && value > totals[3]) totals[3] = value;
+                }
+            }
+            t = tNext;
+            if (tMaxX < tMaxY) {
+                column += stepX;
+                tMaxX += tDeltaX;
+            }
+            else {
+                row += stepY;
+                tMaxY += tDeltaY;
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the RouteSampler class, on a grid of 1km cells covering 0 to 4000
+ * metres in each direction.
+ */
+public class RouteSamplerTest {
+
+    // row by row from the south; -1 is missing
+    private static final double[][] GRID = {
+        {10, 20, 30, 40},
+        {50, 60, 70, 80},
+        {90, -1, 110, 120},
+        {130, 140, 150, 160}
+    };
+
+    /**
+     * Tests a horizontal leg starting and ending inside cells.
+     * Verifies the mean is weighted by the length inside each cell.
+     */
+    @Test
+    public void testSample_Horizontal() {
+        RouteExposure exposure = new RouteSampler().sample(TestGrids.dataSet(GRID), new double[] {250, 500, 2750, 500});
+        assertEquals(2500, exposure.length(), 1e-9);
+        assertEquals(2500, exposure.coveredLength(), 1e-9);
+        assertEquals((750 * 10 + 1000 * 20 + 750 * 30) / 2500.0, exposure.meanExposure(), 1e-9);
+        assertEquals(30, exposure.maxExposure());
+    }
+
+    /**
+     * Tests a vertical leg running down a column, from the top edge of the grid to the bottom.
+     * Verifies the mean of the column's valid cells.
+     */
+    @Test
+    public void testSample_Vertical() {
+        RouteExposure exposure = new RouteSampler().sample(TestGrids.dataSet(GRID), new double[] {2500, 4000, 2500, 0});
+        assertEquals(4000, exposure.length(), 1e-9);
+        assertEquals(4000, exposure.coveredLength(), 1e-9);
+        assertEquals((30 + 70 + 110 + 150) / 4.0, exposure.meanExposure(), 1e-9);
+    }
+
+    /**
+     * Tests diagonal legs: one at a slope of one half and one through cell corners.
+     * Verifies the length-weighted mean, and that cells only touched at a corner are left out.
+     */
+    @Test
+    public void testSample_Diagonal() {
+        RouteSampler sampler = new RouteSampler();
+        // through (0, 0) for 1000 m east, then (1, 0) and (1, 1) for 500 m each
+        RouteExposure exposure = sampler.sample(TestGrids.dataSet(GRID), new double[] {0, 250, 2000, 1250});
+        assertEquals(Math.hypot(2000, 1000), exposure.length(), 1e-9);
+        assertEquals((2 * 10 + 20 + 60) / 4.0, exposure.meanExposure(), 1e-9);
+
+        exposure = sampler.sample(TestGrids.dataSet(GRID), new double[] {0, 0, 3000, 3000});
+        assertEquals(3000 * Math.sqrt(2), exposure.coveredLength(), 1e-9);
+        assertEquals((10 + 60 + 110) / 3.0, exposure.meanExposure(), 1e-9);
+        assertEquals(110, exposure.maxExposure());
+    }
+
+    /**
+     * Tests legs through a missing cell and off the grid.
+     * Verifies those parts count towards the length but not the covered length or the mean.
+     */
+    @Test
+    public void testSample_MissingCells() {
+        RouteSampler sampler = new RouteSampler();
+        RouteExposure exposure = sampler.sample(TestGrids.dataSet(GRID), new double[] {500, 2500, 3500, 2500, 5500, 2500});
+        assertEquals(5000, exposure.length(), 1e-9);
+        assertEquals(2500, exposure.coveredLength(), 1e-9);
+        assertEquals((500 * 90 + 1000 * 110 + 1000 * 120) / 2500.0, exposure.meanExposure(), 1e-9);
+
+        exposure = sampler.sample(TestGrids.dataSet(GRID), new double[] {1200, 2200, 1800, 2800});
+        assertEquals(0, exposure.coveredLength(), 1e-9);
+        assertTrue(Double.isNaN(exposure.meanExposure()));
+    }
+}
@@ -0,0 +1,455 @@
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+/**
+ * SpatialIndex answers nearest-neighbour and radius queries over the points of a
+ * dataset.
+ *
+ * The points are sorted into a uniform grid of square buckets (by default one bucket
+ * per 1x1km grid cell) stored as two primitive arrays: the point indices ordered by
+ * bucket, and the start offset of each bucket. A query only looks at the buckets
+ * around the query location, so a lookup on gridded data costs O(1) instead of a scan
+ * of the whole dataset. Distances are compared as squared distances.
+ *
+ * All methods return point indices into the dataset's columns. The index does not
+ * follow later changes to the columns; DataSet.getSpatialIndex() rebuilds it when needed.
+ */
+public class SpatialIndex
+{
+    public static final int DEFAULT_BUCKET_SIZE = 1000;
+    private static final int MAX_BUCKETS_PER_POINT = 4; // limits the bucket array for sparse data
+
+    private final int[] eastings;
+    private final int[] northings;
+    private final int size;
+
+    private final double originX;
+    private final double originY;
+    private final double bucketSize;
+    private final int columns;
+    private final int rows;
+    private final int[] bucketStart;  // bucket b holds bucketPoints[bucketStart[b] .. bucketStart[b + 1])
+    private final int[] bucketPoints;
+
+    /**
+     * Build an index with the default bucket size.
+     *
+     * @param points The point columns to index
+     */
+    public SpatialIndex(PointColumns points)
+    {
+        this(points, DEFAULT_BUCKET_SIZE);
+    }
+
+    /**
+     * Build an index over the given point columns.
+     *
+     * @param points The point columns to index
+     * @param bucketSize The preferred edge length of a bucket in metres
+     */
+    public SpatialIndex(PointColumns points, int bucketSize)
+    {
+        eastings = points.getEastings();
+        northings = points.getNorthings();
+        size = points.size();
+
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+        for (int i = 0; i < size; i++) {
+            minX = Math.min(minX, eastings[i]);
+            maxX = Math.max(maxX, eastings[i]);
+            minY = Math.min(minY, northings[i]);
+            maxY = Math.max(maxY, northings[i]);
+        }
+        if (size == 0) {
+            minX = minY = maxX = maxY = 0;
+        }
+
+        // grow the buckets if the data is too sparse for the preferred size
+        double cellSize = Math.max(1, bucketSize);
+        while ((((long) (maxX - minX) / (long) cellSize) + 1) * (((long) (maxY - minY) / (long) cellSize) + 1)
+               > (long) MAX_BUCKETS_PER_POINT * Math.max(size, 1)) {
+            cellSize *= 2;
+        }
+        this.originX = minX;
+        this.originY = minY;
+        this.bucketSize = cellSize;
+        this.columns = (int) ((maxX - minX) / cellSize) + 1;
+        this.rows = (int) ((maxY - minY) / cellSize) + 1;
+
+        // counting sort of the points into their buckets
+        bucketStart = new int[columns * rows + 1];
+        int[] bucketOfPoint = new int[size];
+        for (int i = 0; i < size; i++) {
+            int bucket = bucketRow(northings[i]) * columns + bucketColumn(eastings[i]);
+            bucketOfPoint[i] = bucket;
+            bucketStart[bucket + 1]++;
+        }
+        for (int b = 0; b < columns * rows; b++) {
+            bucketStart[b + 1] += bucketStart[b];
+        }
+        bucketPoints = new int[size];
+        int[] next = Arrays.copyOf(bucketStart, columns * rows);
+        for (int i = 0; i < size; i++) {
+            bucketPoints[next[bucketOfPoint[i]]++] = i;
+        }
+    }
+
+    /**
+     * Return the number of indexed points.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Finds the point closest to the given location.
+     *
+     * @param x The easting of the location
+     * @param y The northing of the location
+     * @param maxDistance Only points at most this far away are considered
+     * @return The index of the closest point, or -1 if there is none within maxDistance.
+     *         Of several equally close points the one with the lowest index is returned.
+     */
+    public int nearest(double x, double y, double maxDistance)
+    {
+        return nearest(x, y, maxDistance, null);
+    }
+
+    /**
+     * Finds the point closest to the given location among the points accepted by a filter.
+     *
+     * @param x The easting of the location
+     * @param y The northing of the location
+     * @param maxDistance Only points at most this far away are considered
+     * @param filter Accepts the point indices to consider, or null to consider all points
+     * @return The index of the closest point, or -1 if there is none
+     */
+    public int nearest(double x, double y, double maxDistance, IntPredicate filter)
+    {
+        int[] result = kNearest(x, y, 1, maxDistance, filter);
+        return result.length == 0 ? -1 : result[0];
+    }
+
+    /**
+     * Finds the k points closest to the given location, nearest first.
+     *
+     * @param x The easting of the location
+     * @param y The northing of the location
+     * @param k The number of points wanted
+     * @param maxDistance Only points at most this far away are considered
+     * @return The indices of up to k points, ordered by distance
+     */
+    public int[] kNearest(double x, double y, int k, double maxDistance)
+    {
+        return kNearest(x, y, k, maxDistance, null);
+    }
+
+    /**
+     * Finds the k points closest to the given location among the points accepted by
+     * a filter, nearest first. The search visits rings of buckets around the location
+     * and stops as soon as no unvisited bucket can hold a closer point.
+     *
+     * @param x The easting of the location
+     * @param y The northing of the location
+     * @param k The number of points wanted
+     * @param maxDistance Only points at most this far away are considered
+     * @param filter Accepts the point indices to consider, or null to consider all points
+     * @return The indices of up to k points, ordered by distance
+     */
+    public int[] kNearest(double x, double y, int k, double maxDistance, IntPredicate filter)
+    {
+        if (k <= 0 || size == 0) return new int[0];
+        double maxDistanceSquared = maxDistance * maxDistance;
+
+        // bounded max-heap of the best k candidates, worst candidate at the top
+        double[] heapDistances = new double[k];
+        int[] heapPoints = new int[k];
+        int heapSize = 0;
+
+        // the rings are centred on the location's own bucket, which may lie outside the
+        // grid; rings before firstRing do not reach the grid
+        int centreColumn = bucketColumnUnclamped(x);
+        int centreRow = bucketRowUnclamped(y);
+        int firstRing = Math.max(0, Math.max(Math.max(-centreColumn, centreColumn - (columns - 1)),
+                                             Math.max(-centreRow, centreRow - (rows - 1))));
+        int maxRing = Math.max(Math.max(centreColumn, columns - 1 - centreColumn), Math.max(centreRow, rows - 1 - centreRow));
+
+        for (int ring = firstRing; ring <= maxRing; ring++) {
+            // the closest an unvisited bucket in this ring can be to the query location
+            double ringDistance = ringDistance(x, y, centreColumn, centreRow, ring);
+            if (ringDistance * ringDistance > maxDistanceSquared) break;
+            if (heapSize == k && ringDistance * ringDistance > heapDistances[0]) break;
+
+            // visit the buckets of the ring that lie inside the grid
+            int firstRow = Math.max(centreRow - ring, 0);
+            int lastRow = Math.min(centreRow + ring, rows - 1);
+            for (int row = firstRow; row <= lastRow; row++) {
+                if (row == centreRow - ring || row == centreRow + ring) {
+                    int lastColumn = Math.min(centreColumn + ring, columns - 1);
+                    for (int column = Math.max(centreColumn - ring, 0); column <= lastColumn; column++) {
+                        heapSize = scanBucket(row * columns + column, x, y, maxDistanceSquared, filter,
+                                              heapDistances, heapPoints, heapSize);
+                    }
+                }
+                else {
+                    if (centreColumn - ring >= 0) {
+                        heapSize = scanBucket(row * columns + centreColumn - ring, x, y, maxDistanceSquared, filter,
+                                              heapDistances, heapPoints, heapSize);
+                    }
+                    if (centreColumn + ring < columns) {
+                        heapSize = scanBucket(row * columns + centreColumn + ring, x, y, maxDistanceSquared, filter,
+                                              heapDistances, heapPoints, heapSize);
+                    }
+                }
+            }
+        }
+
+        // empty the heap from the worst to the best candidate
+        int[] result = new int[heapSize];
+        for (int i = heapSize - 1; i >= 0; i--) {
+            result[i] = heapPoints[0];
+            heapDistances[0] = heapDistances[i];
+            heapPoints[0] = heapPoints[i];
+            siftDown(heapDistances, heapPoints, i);
+        }
+        return result;
+    }
+
+    /**
+     * Offers the points of one bucket to the bounded max-heap of the best candidates.
+     *
+     * @return The new number of candidates in the heap
+     */
+    private int scanBucket(int bucket, double x, double y, double maxDistanceSquared, IntPredicate filter,
+                           double[] heapDistances, int[] heapPoints, int heapSize)
+    {
+        int k = heapDistances.length;
+        for (int p = bucketStart[bucket]; p < bucketStart[bucket + 1]; p++) {
+            int point = bucketPoints[p];
+            double dx = eastings[point] - x;
+            double dy = northings[point] - y;
+            double distanceSquared = dx * dx + dy * dy;
+            if (distanceSquared > maxDistanceSquared) continue;
+            if (heapSize == k && !isCloser(distanceSquared, point, heapDistances[0], heapPoints[0])) continue;
+            if (filter != null && !filter.test(point)) continue;
+
+            if (heapSize < k) {
+                heapDistances[heapSize] = distanceSquared;
+                heapPoints[heapSize] = point;
+                siftUp(heapDistances, heapPoints, heapSize++);
+            }
+            else {
+                heapDistances[0] = distanceSquared;
+                heapPoints[0] = point;
+                siftDown(heapDistances, heapPoints, heapSize);
+            }
+        }
+        return heapSize;
+    }
+
+    /**
+     * Returns the indices of all points within the given distance of a location,
+     * in no particular order.
+     *
+     * @param x The easting of the location
+     * @param y The northing of the location
+     * @param radius The search radius in metres
+     * @return The indices of the points inside the radius
+     */
+    public int[] withinRadius(double x, double y, double radius)
+    {
+        return collect(action -> forEachWithinRadius(x, y, radius, action));
+    }
+
+    /**
+     * Returns the indices of all points inside an axis-aligned rectangle (bounds
+     * inclusive), in no particular order.
+     *
+     * @param minX The smallest easting
+     * @param minY The smallest northing
+     * @param maxX The largest easting
+     * @param maxY The largest northing
+     * @return The indices of the points inside the rectangle
+     */
+    public int[] inBox(double minX, double minY, double maxX, double maxY)
+    {
+        return collect(action -> forEachInBox(minX, minY, maxX, maxY, action));
+    }
+
+    /**
+     * Runs a query and gathers the point indices it reports into an array.
+     */
+    static int[] collect(Consumer<IntConsumer> query)
+    {
+        int[][] found = {new int[16]};
+        int[] count = {0};
+        query.accept(point -> {
+            if (count[0] == found[0].length) found[0] = Arrays.copyOf(found[0], count[0] * 2);
+            found[0][count[0]++] = point;
+        });
+        return Arrays.copyOf(found[0], count[0]);
+    }
+
+    /**
+     * Passes the index of every point within the given distance of a location to the
+     * action, without building a result array.
+     *
+     * @param x The easting of the location
+     * @param y The northing of the location
+     * @param radius The search radius in metres
+     * @param action Receives the point indices
+     */
+    public void forEachWithinRadius(double x, double y, double radius, IntConsumer action)
+    {
+        double radiusSquared = radius * radius;
+        forEachInBox(x - radius, y - radius, x + radius, y + radius, point -> {
+            double dx = eastings[point] - x;
+            double dy = northings[point] - y;
+            if (dx * dx + dy * dy <= radiusSquared) action.accept(point);
+        });
+    }
+
+    /**
+     * Passes the index of every point inside an axis-aligned rectangle (bounds
+     * inclusive) to the action.
+     *
+     * @param minX The smallest easting
+     * @param minY The smallest northing
+     * @param maxX The largest easting
+     * @param maxY The largest northing
+     * @param action Receives the point indices
+     */
+    public void forEachInBox(double minX, double minY, double maxX, double maxY, IntConsumer action)
+    {
+        if (size == 0 || maxX < minX || maxY < minY) return;
+        int firstColumn = clamp(bucketColumnUnclamped(minX), columns);
+        int lastColumn = clamp(bucketColumnUnclamped(maxX), columns);
+        int firstRow = clamp(bucketRowUnclamped(minY), rows);
+        int lastRow = clamp(bucketRowUnclamped(maxY), rows);
+
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                int bucket = row * columns + column;
+                for (int p = bucketStart[bucket]; p < bucketStart[bucket + 1]; p++) {
+                    int point = bucketPoints[p];
+                    int px = eastings[point];
+                    int py = northings[point];
+                    if (px >= minX && px <= maxX && py >= minY && py <= maxY) action.accept(point);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the smallest distance from the location to a bucket in the given ring or
+     * beyond. Ring 0 is the bucket that holds the location, which may be outside the
+     * grid, so the location always lies inside the square of the inner rings.
+     */
+    private double ringDistance(double x, double y, int centreColumn, int centreRow, int ring)
+    {
+        if (ring == 0) return 0;
+        double left = originX + (centreColumn - ring + 1) * bucketSize;
+        double right = originX + (centreColumn + ring) * bucketSize;
+        double bottom = originY + (centreRow - ring + 1) * bucketSize;
+        double top = originY + (centreRow + ring) * bucketSize;
+        double dx = Math.min(x - left, right - x);
+        double dy = Math.min(y - bottom, top - y);
+        return Math.max(0, Math.min(dx, dy));
+    }
+
+    /**
+     * Returns true if candidate a is closer than candidate b; ties go to the lower index.
+     */
+    private static boolean isCloser(double distanceA, int pointA, double distanceB, int pointB)
+    {
+        return distanceA < distanceB || (distanceA == distanceB && pointA < pointB);
+    }
+
+    /**
+     * Restores the max-heap order after adding an element at the given position.
+     */
+    private static void siftUp(double[] distances, int[] points, int position)
+    {
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (!isCloser(distances[parent], points[parent], distances[position], points[position])) break;
+            swap(distances, points, parent, position);
+            position = parent;
+        }
+    }
+
+    /**
+     * Restores the max-heap order after replacing the top element.
+     */
+    private static void siftDown(double[] distances, int[] points, int heapSize)
+    {
+        int position = 0;
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= heapSize) break;
+            if (child + 1 < heapSize && isCloser(distances[child], points[child], distances[child + 1], points[child + 1])) {
+                child++;
+            }
+            if (!isCloser(distances[position], points[position], distances[child], points[child])) break;
+            swap(distances, points, position, child);
+            position = child;
+        }
+    }
+
+    /**
+     * Swaps two heap entries.
+     */
+    private static void swap(double[] distances, int[] points, int a, int b)
+    {
+        double distance = distances[a];
+        distances[a] = distances[b];
+        distances[b] = distance;
+        int point = points[a];
+        points[a] = points[b];
+        points[b] = point;
+    }
+
+    /**
+     * Returns the bucket column of an easting inside the indexed area.
+     */
+    private int bucketColumn(int easting)
+    {
+        return (int) ((easting - originX) / bucketSize);
+    }
+
+    /**
+     * Returns the bucket row of a northing inside the indexed area.
+     */
+    private int bucketRow(int northing)
+    {
+        return (int) ((northing - originY) / bucketSize);
+    }
+
+    /**
+     * Returns the bucket column of any easting (may be outside the grid).
+     */
+    private int bucketColumnUnclamped(double easting)
+    {
+        return (int) Math.floor((easting - originX) / bucketSize);
+    }
+
+    /**
+     * Returns the bucket row of any northing (may be outside the grid).
+     */
+    private int bucketRowUnclamped(double northing)
+    {
+        return (int) Math.floor((northing - originY) / bucketSize);
+    }
+
+    /**
+     * Clamps a bucket coordinate into [0, limit).
+     */
+    private static int clamp(int value, int limit)
+    {
+        return Math.max(0, Math.min(limit - 1, value));
+    }
+}
@@ -0,0 +1,145 @@
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the SpatialIndex class, comparing its queries with a scan of all points.
+ */
+public class SpatialIndexTest {
+
+    private PointColumns points;
+    private SpatialIndex index;
+
+    @BeforeEach
+    public void setUp() {
+        // a London-sized 1km grid with some gaps, plus a few scattered points
+        points = new PointColumns();
+        Random random = new Random(7);
+        int code = 0;
+        for (int row = 0; row < 40; row++) {
+            for (int column = 0; column < 50; column++) {
+                if (random.nextInt(5) == 0) continue;
+                points.add(code++, 505500 + column * 1000, 160500 + row * 1000, random.nextDouble() * 40);
+            }
+        }
+        for (int i = 0; i < 50; i++) {
+            points.add(code++, 505000 + random.nextInt(50000), 160000 + random.nextInt(40000), 1);
+        }
+        index = new SpatialIndex(points);
+    }
+
+    /**
+     * Returns the squared distance from a location to a point.
+     */
+    private double distanceSquared(int point, double x, double y) {
+        double dx = points.getEastings()[point] - x;
+        double dy = points.getNorthings()[point] - y;
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * Returns the k closest points within maxDistance by a full scan, ties to the lower index.
+     */
+    private int[] bruteForceNearest(double x, double y, int k, double maxDistance) {
+        return IntStream.range(0, points.size())
+                .filter(point -> distanceSquared(point, x, y) <= maxDistance * maxDistance)
+                .boxed()
+                .sorted((a, b) -> {
+                    int byDistance = Double.compare(distanceSquared(a, x, y), distanceSquared(b, x, y));
+                    return byDistance != 0 ? byDistance : Integer.compare(a, b);
+                })
+                .limit(k)
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    /**
+     * Tests kNearest at locations inside, on the edge of and far outside the indexed area.
+     * Verifies the same points as a full scan are returned, nearest first.
+     */
+    @Test
+    public void testKNearest() {
+        Random random = new Random(11);
+        double[][] locations = {
+            {505500, 160500}, {530000, 180000}, {555000, 200000},
+            {400000, 100000}, {700000, 900000}, {530000, 100000}, {100000, 180000}
+        };
+        for (double[] location : locations) {
+            for (int k : new int[] {1, 5, 40}) {
+                assertArrayEquals(bruteForceNearest(location[0], location[1], k, Double.POSITIVE_INFINITY),
+                                  index.kNearest(location[0], location[1], k, Double.POSITIVE_INFINITY));
+            }
+        }
+        for (int i = 0; i < 300; i++) {
+            double x = 450000 + random.nextDouble() * 160000;
+            double y = 120000 + random.nextDouble() * 120000;
+            double maxDistance = random.nextInt(3) == 0 ? 1500 : 60000;
+            assertArrayEquals(bruteForceNearest(x, y, 3, maxDistance), index.kNearest(x, y, 3, maxDistance));
+        }
+    }
+
+    /**
+     * Tests nearest for a location far outside the indexed area.
+     * Verifies no point is found within a small distance and the closest corner point
+     * is found without one.
+     */
+    @Test
+    public void testNearest_OutsideExtent() {
+        assertEquals(-1, index.nearest(300000, 800000, 1000));
+        int closest = index.nearest(300000, 800000, Double.POSITIVE_INFINITY);
+        assertArrayEquals(bruteForceNearest(300000, 800000, 1, Double.POSITIVE_INFINITY), new int[] {closest});
+    }
+
+    /**
+     * Tests nearest with a filter.
+     * Verifies the closest accepted point is returned.
+     */
+    @Test
+    public void testNearest_Filter() {
+        int closest = index.nearest(530000, 180000, Double.POSITIVE_INFINITY, point -> point % 2 == 0);
+        int expected = IntStream.range(0, points.size()).filter(point -> point % 2 == 0).boxed()
+                .min((a, b) -> Double.compare(distanceSquared(a, 530000, 180000), distanceSquared(b, 530000, 180000)))
+                .get();
+        assertEquals(distanceSquared(expected, 530000, 180000), distanceSquared(closest, 530000, 180000));
+        assertEquals(0, closest % 2);
+    }
+
+    /**
+     * Tests withinRadius and inBox, also for areas reaching outside the indexed area.
+     * Verifies the same points as a full scan are returned.
+     */
+    @Test
+    public void testWithinRadiusAndInBox() {
+        double[][] queries = {{530000, 180000, 3500}, {505000, 160000, 2000}, {600000, 180000, 46000}, {300000, 800000, 1000}};
+        for (double[] query : queries) {
+            double x = query[0], y = query[1], radius = query[2];
+            int[] expected = IntStream.range(0, points.size())
+                    .filter(point -> distanceSquared(point, x, y) <= radius * radius).toArray();
+            int[] found = index.withinRadius(x, y, radius);
+            Arrays.sort(found);
+            assertArrayEquals(expected, found);
+
+            int[] expectedInBox = IntStream.range(0, points.size())
+                    .filter(point -> Math.abs(points.getEastings()[point] - x) <= radius
+                                     && Math.abs(points.getNorthings()[point] - y) <= radius).toArray();
+            int[] foundInBox = index.inBox(x - radius, y - radius, x + radius, y + radius);
+            Arrays.sort(foundInBox);
+            assertArrayEquals(expectedInBox, foundInBox);
+        }
+    }
+
+    /**
+     * Tests queries on an empty index.
+     * Verifies nothing is found.
+     */
+    @Test
+    public void testEmpty() {
+        SpatialIndex empty = new SpatialIndex(new PointColumns());
+        assertEquals(-1, empty.nearest(0, 0, Double.POSITIVE_INFINITY));
+        assertEquals(0, empty.withinRadius(0, 0, 1000).length);
+    }
+}
@@ -0,0 +1,205 @@
+import java.util.stream.IntStream;
+
+/**
+ * SpatialInterpolator estimates pollution values at arbitrary National Grid
+ * coordinates from the cells of a dataset, instead of snapping to the nearest cell.
+ *
+ * Two methods are offered:
+ *  - bilinear interpolation between the centres of the four surrounding cells of
+ *    the dataset's raster (missing cells are left out and the weights renormalised);
+ *  - inverse-distance weighting (IDW) of the valid points within a search radius,
+ *    found through the dataset's spatial index.
+ * Where no valid cell is close enough, no estimate is made and -1 is returned, as for
+ * missing values in the data files.
+ *
+ * The bulk mode resamples a whole dataset to a finer or shifted grid, one row tile per
+ * parallel task. The new points are estimates, not measurements: they have the grid
+ * code -1, and cells without an estimate are left out.
+ */
+public class SpatialInterpolator
+{
+    public static final double DEFAULT_RADIUS = 2000.0; // IDW search radius in metres
+    public static final double DEFAULT_POWER = 2.0;     // IDW distance power
+    private static final int TILE_ROWS = 16;            // output rows per parallel task
+
+    /**
+     * The available interpolation methods.
+     */
+    public enum Method { BILINEAR, INVERSE_DISTANCE }
+
+    private final Method method;
+    private final double radius;
+    private final double power;
+
+    /**
+     * Create an interpolator using bilinear interpolation.
+     */
+    public SpatialInterpolator()
+    {
+        this(Method.BILINEAR, DEFAULT_RADIUS, DEFAULT_POWER);
+    }
+
+    /**
+     * Create an interpolator.
+     *
+     * @param method The interpolation method
+     * @param radius The search radius in metres (inverse-distance weighting only)
+     * @param power The distance power (inverse-distance weighting only)
+     */
+    public SpatialInterpolator(Method method, double radius, double power)
+    {
+        this.method = method;
+        this.radius = radius;
+        this.power = power;
+    }
+
+    /**
+     * Returns the estimated value at a location, or -1 if there is no valid data close enough.
+     *
+     * @param dataSet The dataset
+     * @param easting The easting of the location
+     * @param northing The northing of the location
+     */
+    public double interpolate(DataSet dataSet, double easting, double northing)
+    {
+        if (method == Method.BILINEAR) {
+            return bilinear(dataSet.getRaster(), easting, northing);
+        }
+        return inverseDistance(dataSet.getSpatialIndex(), dataSet.getColumns(), easting, northing);
+    }
+
+    /**
+     * Resamples a dataset onto a grid that is a given number of times finer, aligned
+     * with the dataset's cells (each cell is split into factor x factor sub-cells).
+     *
+     * @param dataSet The dataset
+     * @param factor The number of sub-cells along each edge of a cell
+     * @return The resampled dataset
+     * @throws IllegalArgumentException if the factor is less than 1
+     */
+    public DataSet resample(DataSet dataSet, int factor)
+    {
+        if (factor < 1) throw new IllegalArgumentException("Resampling factor must be at least 1: " + factor);
+        GridGeometry geometry = dataSet.getRaster().getGeometry();
+        double cellSize = geometry.cellSize() / factor;
+        double originX = geometry.originX() - geometry.cellSize() / 2 + cellSize / 2;
+        double originY = geometry.originY() - geometry.cellSize() / 2 + cellSize / 2;
+        GridGeometry target = new GridGeometry(originX, originY, cellSize,
+                                               geometry.columns() * factor, geometry.rows() * factor);
+        return resample(dataSet, target);
+    }
+
+    /**
+     * Resamples a dataset onto the centres of the cells of a target grid.
+     *
+     * @param dataSet The dataset
+     * @param target The grid to estimate values for
+     * @return A new dataset holding one point (grid code -1) for every target cell
+     *         with an estimate, whose raster has the target geometry (the points'
+     *         coordinates are rounded to whole metres, the raster's cells are not)
+     */
+    public DataSet resample(DataSet dataSet, GridGeometry target)
+    {
+        int columns = target.columns();
+        int rows = target.rows();
+        double[] estimates = new double[target.cellCount()];
+
+        // make sure the shared lookup structures are built before the parallel tiles use them
+        GridRaster raster = dataSet.getRaster();
+        SpatialIndex index = method == Method.INVERSE_DISTANCE ? dataSet.getSpatialIndex() : null;
+        PointColumns points = dataSet.getColumns();
+
+        int tiles = (rows + TILE_ROWS - 1) / TILE_ROWS;
+        IntStream.range(0, tiles).parallel().forEach(tile -> {
+            int lastRow = Math.min(rows, (tile + 1) * TILE_ROWS);
+            for (int row = tile * TILE_ROWS; row < lastRow; row++) {
+                double y = target.centreY(row);
+                for (int column = 0; column < columns; column++) {
+                    double x = target.centreX(column);
+                    estimates[row * columns + column] = method == Method.BILINEAR
+                        ? bilinear(raster, x, y) : inverseDistance(index, points, x, y);
+                }
+            }
+        });
+
+        int count = 0;
+        for (double estimate : estimates) {
+            if (estimate >= 0) count++;
+        }
+        int[] gridCodes = new int[count];
+        int[] eastings = new int[count];
+        int[] northings = new int[count];
+        double[] values = new double[count];
+        int point = 0;
+        for (int cell = 0; cell < estimates.length; cell++) {
+            if (estimates[cell] < 0) continue;
+            gridCodes[point] = -1;
+            eastings[point] = (int) Math.round(target.centreX(cell % columns));
+            northings[point] = (int) Math.round(target.centreY(cell / columns));
+            values[point] = estimates[cell];
+            point++;
+        }
+
+        DataSet resampled = new DataSet(dataSet.getPollutant(), dataSet.getYear(), dataSet.getMetric(), dataSet.getUnits());
+        resampled.setData(new PointColumns(gridCodes, eastings, northings, values, count), target);
+        resampled.updateMinMaxPollutionValues();
+        return resampled;
+    }
+
+    /**
+     * Bilinear interpolation between the four cell centres around a location.
+     */
+    private double bilinear(GridRaster raster, double easting, double northing)
+    {
+        GridGeometry geometry = raster.getGeometry();
+        double column = (easting - geometry.originX()) / geometry.cellSize();
+        double row = (northing - geometry.originY()) / geometry.cellSize();
+        int column0 = (int) Math.floor(column);
+        int row0 = (int) Math.floor(row);
+        double fx = column - column0;
+        double fy = row - row0;
+
+        double weightedSum = 0;
+        double totalWeight = 0;
+        for (int dy = 0; dy <= 1; dy++) {
+            for (int dx = 0; dx <= 1; dx++) {
+                double weight = (dx == 0 ? 1 - fx : fx) * (dy == 0 ? 1 - fy : fy);
+                if (weight == 0 || !geometry.contains(column0 + dx, row0 + dy)) continue;
+                double value = raster.getValue((row0 + dy) * geometry.columns() + column0 + dx);
+                if (Double.isNaN(value)) continue;
+                weightedSum += weight * value;
+                totalWeight += weight;
+            }
+        }
+        return totalWeight > 0 ? weightedSum / totalWeight : -1;
+    }
+
+    /**
+     * Inverse-distance weighting of the valid points within the search radius.
+     */
+    private double inverseDistance(SpatialIndex index, PointColumns points, double easting, double northing)
+    {
+        int[] eastings = points.getEastings();
+        int[] northings = points.getNorthings();
+        double[] values = points.getValues();
+        double[] sums = new double[3]; // weighted sum, total weight, exact value (or -1)
+        sums[2] = -1;
+
+        index.forEachWithinRadius(easting, northing, radius, point -> {
+            double value = values[point];
+            if (value < 0) return;
+            double dx = eastings[point] - easting;
+            double dy = northings[point] - northing;
+            double distanceSquared = dx * dx + dy * dy;
+            if (distanceSquared == 0) {
+                sums[2] = value;
+                return;
+            }
+            double weight = power == 2 ? 1 / distanceSquared : Math.pow(distanceSquared, -power / 2);
+            sums[0] += weight * value;
+            sums[1] += weight;
+        });
+        if (sums[2] >= 0) return sums[2];
+        return sums[1] > 0 ? sums[0] / sums[1] : -1;
+    }
+}
@@ -0,0 +1,86 @@
+import org.junit.jupiter.api.Test;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the SpatialInterpolator class, on a small grid of 1km cells.
+ */
+public class SpatialInterpolatorTest {
+
+    /**
+     * Creates a dataset of three columns and two rows of 1km cells, with one missing value.
+     */
+    private DataSet dataSet() {
+        DataSet dataSet = new DataSet("pm10", "2023", "annual mean", "ug m-3");
+        dataSet.setData(List.of(new DataPoint(1, 500, 500, 10), new DataPoint(2, 1500, 500, 20),
+                                new DataPoint(3, 2500, 500, -1), new DataPoint(4, 500, 1500, 30),
+                                new DataPoint(5, 1500, 1500, 40), new DataPoint(6, 2500, 1500, 50)));
+        return dataSet;
+    }
+
+    /**
+     * Tests bilinear interpolation at a cell centre, between cells and next to a missing cell.
+     * Verifies the cell's value, the weighted mean, and the mean of the valid cells only.
+     */
+    @Test
+    public void testInterpolate_Bilinear() {
+        SpatialInterpolator interpolator = new SpatialInterpolator();
+        DataSet data = dataSet();
+        assertEquals(10, interpolator.interpolate(data, 500, 500), 1e-9);
+        assertEquals(25, interpolator.interpolate(data, 1000, 1000), 1e-9);
+        assertEquals(12.5, interpolator.interpolate(data, 750, 500), 1e-9);
+        assertEquals(20, interpolator.interpolate(data, 2000, 500), 1e-9);
+        assertEquals(-1, interpolator.interpolate(data, 10000, 10000));
+    }
+
+    /**
+     * Tests resampling by factors that do and do not divide the cell size into whole metres.
+     * Verifies the raster of the result has the finer grid aligned with the old cells,
+     * and each new point lies in its own cell of it.
+     */
+    @Test
+    public void testResample_Geometry() {
+        for (int factor : new int[] {1, 2, 3, 8}) {
+            DataSet resampled = new SpatialInterpolator().resample(dataSet(), factor);
+            GridGeometry geometry = resampled.getRaster().getGeometry();
+            double cellSize = 1000.0 / factor;
+            assertEquals(cellSize, geometry.cellSize(), 1e-9);
+            assertEquals(3 * factor, geometry.columns());
+            assertEquals(2 * factor, geometry.rows());
+            assertEquals(cellSize / 2, geometry.originX(), 1e-9);
+            assertEquals(cellSize / 2, geometry.originY(), 1e-9);
+
+            GridRaster raster = resampled.getRaster();
+            assertEquals(resampled.size(), raster.getValidCells().cardinality());
+            for (int point = 0; point < resampled.size(); point++) {
+                assertEquals(point, raster.getPointAt(raster.getCellOfPoint(point)));
+            }
+        }
+    }
+
+    /**
+     * Tests resampling by a factor of 2.
+     * Verifies the sub-cells of a cell are estimated between it and its neighbours, and
+     * the outer corner of the missing cell, which has no valid cell around it, is left out.
+     */
+    @Test
+    public void testResample_Values() {
+        DataSet resampled = new SpatialInterpolator().resample(dataSet(), 2);
+        GridRaster raster = resampled.getRaster();
+        assertEquals(23, resampled.size());
+        assertTrue(Double.isNaN(raster.getValue(0 * raster.getColumns() + 5)));
+        // the sub-cell at (750, 750) lies a quarter of the way from (500, 500) to (1500, 1500)
+        assertEquals(0.5625 * 10 + 0.1875 * 20 + 0.1875 * 30 + 0.0625 * 40,
+                     raster.getValue(1 * raster.getColumns() + 1), 1e-9);
+    }
+
+    /**
+     * Tests resampling by a factor of 0.
+     * Verifies an IllegalArgumentException is thrown.
+     */
+    @Test
+    public void testResample_BadFactor() {
+        assertThrows(IllegalArgumentException.class, () -> new SpatialInterpolator().resample(dataSet(), 0));
+    }
+}
@@ -0,0 +1,152 @@
+import java.io.*;
+import java.net.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class loads hourly monitoring station data from a DEFRA AURN csv file
+ * (see https://uk-air.defra.gov.uk/data/data_selector) into a StationDataStore.
+ *
+ * An AURN file starts with a few lines of free text describing the site, followed by
+ * a column label line of the form
+ *    Date,Time,Nitrogen dioxide,Status,PM10 particulate matter,Status,...
+ * Each data line holds the date (dd-mm-yyyy), the GMT hour ending (hh:mm, where 24:00
+ * is midnight at the end of the day) and one value and status column per pollutant.
+ * Missing values are given as "No data".
+ */
+public class StationDataLoader
+{
+    private static final String COMMA_DELIMITER = ",";
+    private static final long MILLIS_PER_HOUR = 3600_000L;
+    private static final long MILLIS_PER_DAY = 24 * MILLIS_PER_HOUR;
+
+    /**
+     * Read an AURN station file from disk and add its rows to the given store.
+     * The station name is taken from the file's site header line, or from the file
+     * name if the file has none.
+     *
+     * @param fileName The name of the csv file
+     * @param store The store that the station series is added to
+     * @return The series of the loaded station, or null if the file could not be read
+     */
+    public StationSeries loadStationFile(String fileName, StationDataStore store)
+    {
+        System.out.println("Loading station file " + fileName + "...");
+
+        URL url = getClass().getResource(fileName);
+        if (url == null) {
+            System.out.println("Could not find station file " + fileName);
+            return null;
+        }
+        try (BufferedReader br = new BufferedReader(new FileReader(new File(url.toURI())))) {
+            // read the free text header until the column labels are found
+            String stationName = null;
+            String line;
+            while ((line = br.readLine()) != null && !line.toLowerCase().startsWith("date,time")) {
+                if (stationName == null) stationName = readStationName(line);
+            }
+            if (line == null) {
+                System.out.println("No column labels found in station file " + fileName);
+                return null;
+            }
+            if (stationName == null) stationName = fileName;
+
+            // work out which columns hold pollutant values (the others are status columns)
+            String[] labels = line.split(COMMA_DELIMITER);
+            List<Integer> valueColumns = new ArrayList<>();
+            List<String> pollutantNames = new ArrayList<>();
+            for (int i = 2; i < labels.length; i++) {
+                String label = labels[i].trim();
+                if (!label.isEmpty() && !label.toLowerCase().startsWith("status") && !label.toLowerCase().startsWith("unit")) {
+                    valueColumns.add(i);
+                    pollutantNames.add(label);
+                }
+            }
+            String[] pollutants = pollutantNames.toArray(new String[0]);
+            float[] rowValues = new float[pollutants.length];
+
+            StationSeries series = store.getOrCreateStation(stationName);
+
+            // read all the data lines
+            while ((line = br.readLine()) != null) {
+                String[] values = line.split(COMMA_DELIMITER, -1);
+                if (values.length < 2) continue;
+                long timestamp = toTimestamp(values[0], values[1]);
+                if (timestamp == Long.MIN_VALUE) continue; // footer or malformed line
+
+                for (int i = 0; i < rowValues.length; i++) {
+                    int column = valueColumns.get(i);
+                    rowValues[i] = column < values.length ? toFloat(values[column]) : Float.NaN;
+                }
+                series.addRow(timestamp, pollutants, rowValues);
+            }
+            series.seal();
+
+            System.out.println("Loading station file... done.");
+            return series;
+        }
+        catch (IOException | URISyntaxException e) {
+            System.out.println("Could not read station file " + fileName);
+            return null;
+        }
+    }
+
+    /**
+     * Extracts the station name from a header line such as
+     *    Hourly data from DEFRA Site = London Marylebone Road
+     *
+     * @return The station name, or null if the line does not name a site
+     */
+    private String readStationName(String line)
+    {
+        String text = line.replace("\"", "");
+        if (!text.toLowerCase().contains("site")) return null;
+        int separator = Math.max(text.indexOf('='), text.indexOf(':'));
+        if (separator < 0) return null;
+        String name = text.substring(separator + 1).split(COMMA_DELIMITER)[0].trim();
+        return name.isEmpty() ? null : name;
+    }
+
+    /**
+     * Converts an AURN date (dd-mm-yyyy or dd/mm/yyyy) and hour (hh:mm) into epoch
+     * milliseconds (UTC).
+     *
+     * @return The timestamp, or Long.MIN_VALUE if the date or time is not readable
+     */
+    private long toTimestamp(String date, String time)
+    {
+        try {
+            String[] dateParts = date.trim().split("[-/]");
+            String[] timeParts = time.trim().split(":");
+            if (dateParts.length != 3 || timeParts.length < 2) return Long.MIN_VALUE;
+
+            int day = Integer.parseInt(dateParts[0]);
+            int month = Integer.parseInt(dateParts[1]);
+            int year = Integer.parseInt(dateParts[2]);
+            int hour = Integer.parseInt(timeParts[0]);
+            int minute = Integer.parseInt(timeParts[1]);
+
+            long epochDay = LocalDate.of(year, month, day).toEpochDay();
+            return epochDay * MILLIS_PER_DAY + hour * MILLIS_PER_HOUR + minute * 60_000L;
+        }
+        catch (RuntimeException exc) {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    /**
+     * Convert a string to float.
+     * @param floatString  The String holding the float value
+     * @return  The float value, or NaN if the string is not a readable number (e.g. "No data")
+     */
+    private float toFloat(String floatString)
+    {
+        try {
+            return Float.parseFloat(floatString.trim());
+        }
+        catch (NumberFormatException exc) {
+            return Float.NaN;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import java.io.File;
+import java.nio.file.Files;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the StationDataLoader and StationSeries classes, loading small AURN
+ * files written next to the test classes (where the loader looks for its resources).
+ */
+public class StationDataLoaderTest {
+
+    private static final long HOUR = 3600_000L;
+    private static final long DAY_START = LocalDate.of(2023, 1, 1).toEpochDay() * 24 * HOUR;
+
+    private File stationFile;
+
+    @AfterEach
+    public void tearDown() {
+        if (stationFile != null) stationFile.delete();
+    }
+
+    /**
+     * Writes a station file into the directory the classes are loaded from.
+     */
+    private String writeStationFile(String name, String text) throws Exception {
+        File root = new File(StationDataLoaderTest.class.getResource("StationDataLoaderTest.class").toURI()).getParentFile();
+        stationFile = new File(root, name);
+        Files.writeString(stationFile.toPath(), text);
+        return name;
+    }
+
+    /**
+     * Tests loading a file with a site header, "No data" values, the 24:00 hour and
+     * rows out of time order.
+     * Verifies the name, pollutants, values and time order of the series.
+     */
+    @Test
+    public void testLoadStationFile() throws Exception {
+        String fileName = writeStationFile("station-test.csv",
+                "Hourly data from DEFRA Site = London Marylebone Road\n"
+                + "Date,Time,Nitrogen dioxide,Status,PM10 particulate matter,Status\n"
+                + "01-01-2023,03:00,30.0,V ugm-3,No data,\n"
+                + "01-01-2023,01:00,10.0,V ugm-3,5.0,V ugm-3\n"
+                + "01-01-2023,24:00,40.0,V ugm-3,7.0,V ugm-3\n"
+                + "01-01-2023,02:00,20.0,V ugm-3,6.0,V ugm-3\n"
+                + "End of data\n");
+        StationDataStore store = new StationDataStore();
+        StationSeries series = new StationDataLoader().loadStationFile(fileName, store);
+
+        assertNotNull(series);
+        assertEquals("London Marylebone Road", series.getStationName());
+        assertSame(series, store.getStation("London Marylebone Road"));
+        assertEquals(4, series.size());
+        assertTrue(series.getPollutants().contains("Nitrogen dioxide"));
+        assertTrue(series.getPollutants().contains("PM10 particulate matter"));
+
+        assertArrayEquals(new long[] {DAY_START + HOUR, DAY_START + 2 * HOUR, DAY_START + 3 * HOUR, DAY_START + 24 * HOUR},
+                          series.getTimestamps(Long.MIN_VALUE, Long.MAX_VALUE));
+        assertArrayEquals(new float[] {10, 20, 30, 40}, series.getValues("Nitrogen dioxide", Long.MIN_VALUE, Long.MAX_VALUE));
+        assertTrue(Float.isNaN(series.getValues("PM10 particulate matter", Long.MIN_VALUE, Long.MAX_VALUE)[2]));
+        assertEquals(6.0, series.getMean("PM10 particulate matter", Long.MIN_VALUE, Long.MAX_VALUE), 1e-9);
+        assertEquals(15.0, series.getMean("Nitrogen dioxide", DAY_START + HOUR, DAY_START + 3 * HOUR), 1e-9);
+    }
+
+    /**
+     * Tests sorting a series whose rows are added in reverse time order, with equal
+     * timestamps.
+     * Verifies the rows are sorted and rows with equal timestamps keep their order.
+     */
+    @Test
+    public void testSeal_SortsStably() {
+        StationSeries series = new StationSeries("Test");
+        String[] pollutants = {"NO2"};
+        int rows = 1000;
+        for (int i = 0; i < rows; i++) {
+            series.addRow((rows - i) / 2 * HOUR, pollutants, new float[] {i});
+        }
+        series.seal();
+
+        long[] times = series.getTimestamps(Long.MIN_VALUE, Long.MAX_VALUE);
+        float[] values = series.getValues("NO2", Long.MIN_VALUE, Long.MAX_VALUE);
+        for (int i = 1; i < rows; i++) {
+            assertTrue(times[i - 1] <= times[i]);
+            if (times[i - 1] == times[i]) assertTrue(values[i - 1] < values[i]);
+        }
+    }
+
+    /**
+     * Tests loading a file that does not exist.
+     * Verifies null is returned.
+     */
+    @Test
+    public void testLoadStationFile_Missing() {
+        assertNull(new StationDataLoader().loadStationFile("no-such-station.csv", new StationDataStore()));
+    }
+}
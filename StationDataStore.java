@@ -0,0 +1,114 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * StationDataStore holds the hourly time series of all loaded monitoring stations.
+ *
+ * The series are indexed by station name. Within each station the rows are sorted
+ * by time (see StationSeries), so a window query costs two binary searches plus a
+ * scan of the rows inside the window.
+ */
+public class StationDataStore
+{
+    private final HashMap<String, StationSeries> stations;
+
+    /**
+     * Constructor for objects of class StationDataStore
+     */
+    public StationDataStore()
+    {
+        stations = new HashMap<>();
+    }
+
+    /**
+     * Returns the series for the given station, creating an empty one if the
+     * station is not yet known.
+     *
+     * @param stationName The name of the monitoring station
+     * @return The series of the station
+     */
+    public StationSeries getOrCreateStation(String stationName)
+    {
+        return stations.computeIfAbsent(stationName, StationSeries::new);
+    }
+
+    /**
+     * Returns the series for the given station.
+     *
+     * @param stationName The name of the monitoring station
+     * @return The series of the station, or null if the station has not been loaded
+     */
+    public StationSeries getStation(String stationName)
+    {
+        return stations.get(stationName);
+    }
+
+    /**
+     * Returns all loaded station series.
+     */
+    public Collection<StationSeries> getStations()
+    {
+        return stations.values();
+    }
+
+    /**
+     * Returns the stations that hold at least one row in the window [from, to).
+     *
+     * @param from The start of the window (inclusive) in epoch milliseconds
+     * @param to The end of the window (exclusive) in epoch milliseconds
+     * @return The stations with data inside the window
+     */
+    public List<StationSeries> getStationsWithDataBetween(long from, long to)
+    {
+        List<StationSeries> result = new ArrayList<>();
+        for (StationSeries series : stations.values()) {
+            if (series.getFirstTimestamp() >= to || series.getLastTimestamp() < from) continue;
+            if (series.lowerBound(from) < series.lowerBound(to)) result.add(series);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the mean of one pollutant in the window [from, to) for a station.
+     *
+     * @return The mean, or NaN if the station is unknown or has no valid value in the window
+     */
+    public double getMean(String stationName, String pollutant, long from, long to)
+    {
+        StationSeries series = stations.get(stationName);
+        return series == null ? Double.NaN : series.getMean(pollutant, from, to);
+    }
+
+    /**
+     * Returns the highest value of one pollutant in the window [from, to) for a station.
+     *
+     * @return The maximum, or NaN if the station is unknown or has no valid value in the window
+     */
+    public double getMax(String stationName, String pollutant, long from, long to)
+    {
+        StationSeries series = stations.get(stationName);
+        return series == null ? Double.NaN : series.getMax(pollutant, from, to);
+    }
+
+    /**
+     * Return the total number of hourly rows held across all stations.
+     */
+    public long getRowCount()
+    {
+        long rows = 0;
+        for (StationSeries series : stations.values()) {
+            rows += series.size();
+        }
+        return rows;
+    }
+
+    /**
+     * Return a string representation of this store.
+     */
+    public String toString()
+    {
+        return String.format("StationDataStore: %d stations (%d hourly rows)", stations.size(), getRowCount());
+    }
+}
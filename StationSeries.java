@@ -0,0 +1,292 @@
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A StationSeries holds the hourly measurements of one monitoring station.
+ *
+ * The measurements are stored column-wise: one array of timestamps (milliseconds
+ * since the epoch, UTC) and one float array of values per pollutant. Values that are
+ * missing in the source file are stored as NaN. Once loading has finished the
+ * timestamps are kept in ascending order, so any time window can be found with two
+ * binary searches.
+ */
+public class StationSeries
+{
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final String stationName;
+    private long[] timestamps;
+    private final Map<String, float[]> columns; // pollutant name -> values, in file order
+    private int size;
+    private boolean sorted;
+
+    /**
+     * Constructor for objects of class StationSeries
+     *
+     * @param stationName The name of the monitoring station
+     */
+    public StationSeries(String stationName)
+    {
+        this.stationName = stationName;
+        timestamps = new long[INITIAL_CAPACITY];
+        columns = new LinkedHashMap<>();
+        size = 0;
+        sorted = true;
+    }
+
+    /**
+     * Return the name of the monitoring station.
+     */
+    public String getStationName()
+    {
+        return stationName;
+    }
+
+    /**
+     * Return the number of hourly rows held for this station.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Return the names of the pollutants measured at this station.
+     */
+    public Set<String> getPollutants()
+    {
+        return columns.keySet();
+    }
+
+    /**
+     * Adds one hourly row. The values must be given in the same order as the
+     * pollutant names; a pollutant seen for the first time gets a new column that is
+     * NaN for all earlier rows.
+     *
+     * @param timestamp The time of the measurement in epoch milliseconds
+     * @param pollutants The pollutant names of the values
+     * @param values The measured values (NaN if missing)
+     */
+    public void addRow(long timestamp, String[] pollutants, float[] values)
+    {
+        ensureCapacity(size + 1);
+        if (size > 0 && timestamp < timestamps[size - 1]) sorted = false;
+        timestamps[size] = timestamp;
+
+        for (float[] column : columns.values()) {
+            column[size] = Float.NaN;
+        }
+        for (int i = 0; i < pollutants.length; i++) {
+            float[] column = columns.get(pollutants[i]);
+            if (column == null) {
+                column = new float[timestamps.length];
+                Arrays.fill(column, 0, size, Float.NaN);
+                columns.put(pollutants[i], column);
+            }
+            column[size] = values[i];
+        }
+        size++;
+    }
+
+    /**
+     * Sorts the rows by time (if they were not added in order) and releases
+     * unused capacity. Called by the loader once a file has been read.
+     */
+    public void seal()
+    {
+        if (!sorted) sortByTime();
+        if (timestamps.length != size) {
+            timestamps = Arrays.copyOf(timestamps, size);
+            for (Map.Entry<String, float[]> entry : columns.entrySet()) {
+                entry.setValue(Arrays.copyOf(entry.getValue(), size));
+            }
+        }
+    }
+
+    /**
+     * Return the earliest timestamp of this station, or Long.MAX_VALUE if it holds no data.
+     */
+    public long getFirstTimestamp()
+    {
+        return size == 0 ? Long.MAX_VALUE : timestamps[0];
+    }
+
+    /**
+     * Return the latest timestamp of this station, or Long.MIN_VALUE if it holds no data.
+     */
+    public long getLastTimestamp()
+    {
+        return size == 0 ? Long.MIN_VALUE : timestamps[size - 1];
+    }
+
+    /**
+     * Returns the index of the first row whose timestamp is at or after the given time.
+     *
+     * @param time The time in epoch milliseconds
+     * @return The row index, or size() if all rows are earlier
+     */
+    public int lowerBound(long time)
+    {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestamps[mid] < time) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    /**
+     * Returns the timestamps in the window [from, to).
+     *
+     * @param from The start of the window (inclusive) in epoch milliseconds
+     * @param to The end of the window (exclusive) in epoch milliseconds
+     * @return A copy of the timestamps inside the window
+     */
+    public long[] getTimestamps(long from, long to)
+    {
+        int start = lowerBound(from);
+        int end = Math.max(start, lowerBound(to));
+        return Arrays.copyOfRange(timestamps, start, end);
+    }
+
+    /**
+     * Returns the values of one pollutant in the window [from, to).
+     *
+     * @param pollutant The pollutant name
+     * @param from The start of the window (inclusive) in epoch milliseconds
+     * @param to The end of the window (exclusive) in epoch milliseconds
+     * @return A copy of the values inside the window, or an empty array if the
+     *         pollutant is not measured at this station
+     */
+    public float[] getValues(String pollutant, long from, long to)
+    {
+        float[] column = columns.get(pollutant);
+        if (column == null) return new float[0];
+        int start = lowerBound(from);
+        int end = Math.max(start, lowerBound(to));
+        return Arrays.copyOfRange(column, start, end);
+    }
+
+    /**
+     * Returns the mean of the valid values of one pollutant in the window [from, to).
+     *
+     * @return The mean, or NaN if there is no valid value in the window
+     */
+    public double getMean(String pollutant, long from, long to)
+    {
+        float[] column = columns.get(pollutant);
+        if (column == null) return Double.NaN;
+        int end = lowerBound(to);
+        double total = 0;
+        int count = 0;
+        for (int i = lowerBound(from); i < end; i++) {
+            float value = column[i];
+            if (value == value) { // false for NaN
+                total += value;
+                count++;
+            }
+        }
+        return count > 0 ? total / count : Double.NaN;
+    }
+
+    /**
+     * Returns the highest valid value of one pollutant in the window [from, to).
+     *
+     * @return The maximum, or NaN if there is no valid value in the window
+     */
+    public double getMax(String pollutant, long from, long to)
+    {
+        float[] column = columns.get(pollutant);
+        if (column == null) return Double.NaN;
+        int end = lowerBound(to);
+        float max = Float.NEGATIVE_INFINITY;
+        for (int i = lowerBound(from); i < end; i++) {
+            if (column[i] > max) max = column[i]; // NaN never compares greater
+        }
+        return max == Float.NEGATIVE_INFINITY ? Double.NaN : max;
+    }
+
+    /**
+     * Returns the number of valid values of one pollutant in the window [from, to).
+     */
+    public int countValid(String pollutant, long from, long to)
+    {
+        float[] column = columns.get(pollutant);
+        if (column == null) return 0;
+        int end = lowerBound(to);
+        int count = 0;
+        for (int i = lowerBound(from); i < end; i++) {
+            if (column[i] == column[i]) count++;
+        }
+        return count;
+    }
+
+    /**
+     * Grows the timestamp and value arrays so that they can hold the given number of rows.
+     */
+    private void ensureCapacity(int capacity)
+    {
+        if (capacity <= timestamps.length) return;
+        int newCapacity = Math.max(capacity, timestamps.length * 2);
+        timestamps = Arrays.copyOf(timestamps, newCapacity);
+        for (Map.Entry<String, float[]> entry : columns.entrySet()) {
+            entry.setValue(Arrays.copyOf(entry.getValue(), newCapacity));
+        }
+    }
+
+    /**
+     * Reorders all columns by ascending timestamp. Rows with equal timestamps keep
+     * their original order.
+     */
+    private void sortByTime()
+    {
+        // Only needed for files that are not in time order, which AURN exports never are
+        int[] order = timeOrder();
+
+        long[] sortedTimes = new long[timestamps.length];
+        for (int i = 0; i < size; i++) sortedTimes[i] = timestamps[order[i]];
+        timestamps = sortedTimes;
+
+        for (Map.Entry<String, float[]> entry : columns.entrySet()) {
+            float[] column = entry.getValue();
+            float[] sortedColumn = new float[column.length];
+            for (int i = 0; i < size; i++) sortedColumn[i] = column[order[i]];
+            entry.setValue(sortedColumn);
+        }
+        sorted = true;
+    }
+
+    /**
+     * Returns the row order that sorts the timestamps ascending, keeping rows with equal
+     * timestamps in their original order. A bottom-up merge sort of primitive row
+     * indices, so no boxed indices or comparator calls are needed.
+     */
+    private int[] timeOrder()
+    {
+        int[] order = new int[size];
+        int[] buffer = new int[size];
+        for (int i = 0; i < size; i++) order[i] = i;
+        for (int width = 1; width < size; width *= 2) {
+            for (int low = 0; low < size; low += 2 * width) {
+                int middle = Math.min(low + width, size);
+                int high = Math.min(low + 2 * width, size);
+                int left = low;
+                int right = middle;
+                int out = low;
+                while (left < middle && right < high) {
+                    buffer[out++] = timestamps[order[right]] < timestamps[order[left]] ? order[right++] : order[left++];
+                }
+                while (left < middle) buffer[out++] = order[left++];
+                while (right < high) buffer[out++] = order[right++];
+            }
+            int[] swap = order;
+            order = buffer;
+            buffer = swap;
+        }
+        return order;
+    }
+}
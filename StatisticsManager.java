@@ -2,9 +2,14 @@ import javafx.scene.control.Label;
 import javafx.scene.control.ListView;
 import javafx.scene.chart.XYChart;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
-import java.util.Set;
-import java.util.HashSet;
+import java.util.Map;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
 
 /**
  * This class handles the maths and operations behind the statistics panel
@@ -20,6 +25,15 @@ public class StatisticsManager {
     private String selectedArea;
     private double averageLatitude;
     private double averageLongitude;
+    private List<AreaSummary> summaries; // per dataset, computed on first use and shared by all tabs
+    private AreaSummary totalSummary;    // all datasets together
+    private KllSketch quantiles;         // all datasets together, built only for the Percentiles tab
+    
+    private static final double SEARCH_TOLERANCE = 1000.0; // 1km tolerance for coordinate lookups
+    private static final int PARALLEL_BATCH_SIZE = 2048; // batches of at least this many locations are looked up in parallel
+    private static final int MAX_HOTSPOTS_LISTED = 50;
+    private static final int DEFAULT_PEAKS_LISTED = 3;
+    private int peaksListed = DEFAULT_PEAKS_LISTED; // the number of entries on the Peak Levels tab
 
     /**
      * Constructor of the manager class.
@@ -36,77 +50,187 @@ public class StatisticsManager {
      * Method for updating the statistics status for average level info. 
      */
     public void updateAverageStats(Label avgLevelLabel) {
-        List<DataPoint> filteredData = getFilteredData();
-        if (filteredData.isEmpty()) {
+        AreaSummary summary = getTotalSummary();
+        if (summary.isEmpty()) {
             avgLevelLabel.setText("Average Level: No data");
             averageLatitude = 0;
             averageLongitude = 0;
             return;
         }
-        double totalLevel = 0;
-        int count = 0;
-        for (DataPoint dataPoint : filteredData) {
-            if (dataPoint.value() >= 0) {
-                totalLevel += dataPoint.value();
-                count++;
-            }
-        }
-        double avgLevel = (count > 0) ? totalLevel / count : 0;
+        double avgLevel = summary.getMeanOrZero();
         
-        // Calculates the average Easting and Northing for the location
-        double avgEasting = 0;
-        double avgNorthing = 0;
-        for (DataPoint dp : filteredData) {
-            avgEasting += dp.x();
-            avgNorthing += dp.y();
-        }
-        avgEasting = (count > 0) ? avgEasting / count : 0;
-        avgNorthing = (count > 0) ? avgNorthing / count : 0;
-
-        // Maps the average location to Latitude and Longitude
-        GridData gridData = new GridData();
-        GridData.LatLon latLon = gridData.mapToLatLon(avgEasting, avgNorthing);
-        averageLatitude = latLon.getLatitude();
-        averageLongitude = latLon.getLongitude();
+        // Finds a place in the selected area with the level closest to the average
+        int[] match = findClosestLevelPoint(avgLevel);
+        if (match != null) {
+            LatLonTable latLonTable = dataSets.get(match[0]).getLatLonTable();
+            averageLatitude = latLonTable.getLatitude(match[1]);
+            averageLongitude = latLonTable.getLongitude(match[1]);
+        }
+        else {
+            averageLatitude = 0;
+            averageLongitude = 0;
+        }
         
         String units = dataSets.isEmpty() ? "ug m-3" : dataSets.get(0).getUnits();
         avgLevelLabel.setText(String.format("Average Level: %.2f %s", avgLevel, dataSets.get(0).getUnits()));
         
     }
 
+    /**
+     * Updates the label showing the median, 90th and 98th percentile of the values in
+     * the selected area, estimated from the quantile sketches of the datasets.
+     */
+    public void updatePercentileStats(Label percentileLabel) {
+        KllSketch quantiles = getQuantiles();
+        if (quantiles.getCount() == 0) {
+            percentileLabel.setText("Percentiles: No data");
+            return;
+        }
+        percentileLabel.setText(String.format("Median: %.2f, P90: %.2f, P98: %.2f %s",
+                quantiles.getQuantile(0.5), quantiles.getQuantile(0.9), quantiles.getQuantile(0.98),
+                dataSets.get(0).getUnits()));
+    }
+
+    /**
+     * Finds the data point in the selected area whose value is closest to a level,
+     * using the value index of each dataset.
+     * 
+     * @param level The pollution level to match
+     * @return The closest data point, or null if there are no valid values in the area
+     */
+    protected DataPoint findClosestLevel(double level) {
+        int[] match = findClosestLevelPoint(level);
+        return match == null ? null : dataSets.get(match[0]).getData().get(match[1]);
+    }
+
+    /**
+     * Finds the point in the selected area whose value is closest to a level.
+     * 
+     * @return The dataset's position in the list and the point's index in it, or null
+     *         if there are no valid values in the area
+     */
+    private int[] findClosestLevelPoint(double level) {
+        int[] closest = null;
+        double closestDistance = Double.POSITIVE_INFINITY;
+        for (int d = 0; d < dataSets.size(); d++) {
+            DataSet dataSet = dataSets.get(d);
+            BitSet selected = getSelectedPoints(dataSet);
+            int point = dataSet.getValueIndex().closest(level, selected::get);
+            if (point < 0) continue;
+            
+            double distance = Math.abs(dataSet.getColumns().getValues()[point] - level);
+            if (distance < closestDistance) {
+                closest = new int[] {d, point};
+                closestDistance = distance;
+            }
+        }
+        return closest;
+    }
+
     /**
      * Updates the Peak Levels tab with the highest recorded pollution levels,
      * including their Latitude and Longitude.
      */
-        public void updatePeakStats(ListView<String> peakList) {
-        List<DataPoint> filteredData = getFilteredData();
-        if (filteredData.isEmpty()) {
+    public void updatePeakStats(ListView<String> peakList) {
+        // Takes the highest points of each dataset in the area, removing duplicates across datasets
+        // and looking up their Lat/Lon in the dataset's coordinate table
+        TopKSelector selector = new TopKSelector(peaksListed);
+        Map<DataPoint, double[]> candidates = new HashMap<>();
+        for (DataSet dataSet : dataSets) {
+            PointColumns columns = dataSet.getColumns();
+            LatLonTable latLonTable = dataSet.getLatLonTable();
+            for (int point : selector.select(dataSet, getSelectionFilter(dataSet))) {
+                candidates.putIfAbsent(columns.get(point),
+                        new double[] {latLonTable.getLatitude(point), latLonTable.getLongitude(point)});
+            }
+        }
+        if (candidates.isEmpty()) {
             peakList.getItems().setAll("No data available");
             return;
         }
-    
-        // Removes duplicates by converting to a Set and back to a List
-        Set<DataPoint> uniqueData = new HashSet<>(filteredData);
-        List<DataPoint> sortedData = new ArrayList<>(uniqueData);
-        
-        // Sorts data points by value in descending order
-        sortedData.removeIf(dp -> dp.value() < 0);
+        List<DataPoint> sortedData = new ArrayList<>(candidates.keySet());
         sortedData.sort((dp1, dp2) -> Double.compare(dp2.value(), dp1.value()));
     
-        // Creates a GridData instance
-        GridData gd = new GridData();
-    
         // Updates the ListView with peak data, including Lat/Lon
         peakList.getItems().clear();
-        for (int i = 0; i < Math.min(3, sortedData.size()); i++) {
+        for (int i = 0; i < Math.min(peaksListed, sortedData.size()); i++) {
             DataPoint dp = sortedData.get(i);
-            GridData.LatLon latLon = gd.mapToLatLon(dp.x(), dp.y());
+            double[] latLon = candidates.get(dp);
             String entry = String.format("Grid %d: %.2f %s (Lat: %.6f, Lon: %.6f)",
-                    dp.gridCode(), dp.value(), dataSets.get(0).getUnits(),
-                    latLon.getLatitude(), latLon.getLongitude());
+                    dp.gridCode(), dp.value(), dataSets.get(0).getUnits(), latLon[0], latLon[1]);
             peakList.getItems().add(entry);
         }
     }
+    
+    /**
+     * Sets the number of entries shown on the Peak Levels tab.
+     */
+    public void setPeaksListed(int peaksListed) {
+        this.peaksListed = peaksListed;
+    }
+
+    /**
+     * Updates the Hotspots tab with the contiguous areas above the pollutant's annual
+     * limit value whose centre lies in the selected area, found in every dataset and
+     * labelled with its year, highest peak first, each located at its cell closest to
+     * the centre.
+     */
+    public void updateHotspotStats(ListView<String> hotspotList) {
+        if (dataSets.isEmpty()) {
+            hotspotList.getItems().setAll("No data available");
+            return;
+        }
+        DataSet first = dataSets.get(0);
+        double limit = HotspotDetector.getLimitValue(first.getPollutant());
+        if (Double.isNaN(limit)) {
+            hotspotList.getItems().setAll("No limit value known for " + first.getPollutant());
+            return;
+        }
+        
+        // Collects the hotspots in the area from every dataset, remembering which one each came from
+        List<Hotspot> hotspots = new ArrayList<>();
+        Map<Hotspot, DataSet> sources = new IdentityHashMap<>();
+        HotspotDetector detector = new HotspotDetector(limit);
+        for (DataSet dataSet : dataSets) {
+            for (Hotspot hotspot : detector.detect(dataSet)) {
+                if (!isInSelectedArea((int) hotspot.centroidX(), (int) hotspot.centroidY())) continue;
+                hotspots.add(hotspot);
+                sources.put(hotspot, dataSet);
+            }
+        }
+        hotspots.sort((h1, h2) -> Double.compare(h2.peakValue(), h1.peakValue()));
+        
+        hotspotList.getItems().clear();
+        for (Hotspot hotspot : hotspots.subList(0, Math.min(MAX_HOTSPOTS_LISTED, hotspots.size()))) {
+            DataSet dataSet = sources.get(hotspot);
+            LatLonTable latLonTable = dataSet.getLatLonTable();
+            int centre = findCentralPoint(hotspot, dataSet.getColumns());
+            String entry = String.format("Hotspot %d (%s): %.1f km², peak %.2f %s, mean %.2f (Lat: %.6f, Lon: %.6f)",
+                    hotspotList.getItems().size() + 1, dataSet.getYear(), hotspot.area() / 1e6, hotspot.peakValue(),
+                    dataSet.getUnits(), hotspot.meanValue(), latLonTable.getLatitude(centre), latLonTable.getLongitude(centre));
+            hotspotList.getItems().add(entry);
+        }
+        if (hotspotList.getItems().isEmpty()) {
+            hotspotList.getItems().add(String.format("No areas above the limit value of %.0f %s", limit, first.getUnits()));
+        }
+    }
+
+    /**
+     * Returns the cell of a hotspot closest to its centroid, whose location is listed for it.
+     */
+    private int findCentralPoint(Hotspot hotspot, PointColumns columns) {
+        int central = hotspot.points()[0];
+        double closestDistance = Double.POSITIVE_INFINITY;
+        for (int point : hotspot.points()) {
+            double dx = columns.getEastings()[point] - hotspot.centroidX();
+            double dy = columns.getNorthings()[point] - hotspot.centroidY();
+            if (dx * dx + dy * dy < closestDistance) {
+                central = point;
+                closestDistance = dx * dx + dy * dy;
+            }
+        }
+        return central;
+    }
 
     /**
      * Method for updating the statistics the graph of the trend as 
@@ -121,22 +245,42 @@ public class StatisticsManager {
         }
         XYChart.Series<Number, Number> series = new XYChart.Series<>();
         series.setName(selectedPollutant + " Levels (" + selectedArea + ")");
-        for (DataSet dataSet : dataSets) {
-            List<DataPoint> filteredData = filterDataByArea(dataSet.getData());
-            double avgLevel = getAverageForCurrentData(filteredData);
+        List<AreaSummary> summaries = getSummaries();
+        for (int i = 0; i < dataSets.size(); i++) {
+            DataSet dataSet = dataSets.get(i);
+            double avgLevel = summaries.get(i).getMeanOrZero();
             series.getData().add(new XYChart.Data<>(Integer.parseInt(dataSet.getYear()), avgLevel));
         }
         lineChart.getData().clear();
         lineChart.getData().add(series);
     }
 
+    /**
+     * Updates the graph of the trend from stored file summaries, without the datasets
+     * themselves having to be loaded.
+     * 
+     * @param lineChart The chart to draw the trend in
+     * @param summaries The summaries of the files of each year (each must include the selected area)
+     */
+    public void updateTrendsStats(XYChart<Number, Number> lineChart, List<FileSummary> summaries) {
+        if (lineChart == null) return;
+        XYChart.Series<Number, Number> series = new XYChart.Series<>();
+        series.setName(selectedPollutant + " Levels (" + selectedArea + ")");
+        for (FileSummary summary : summaries) {
+            double avgLevel = summary.getArea(selectedArea).getMeanOrZero();
+            series.getData().add(new XYChart.Data<>(Integer.parseInt(summary.year()), avgLevel));
+        }
+        lineChart.getData().clear();
+        if (!summaries.isEmpty()) lineChart.getData().add(series);
+    }
+
     /**
      * Getter method for filtered data.
      */
     protected List<DataPoint> getFilteredData() {
         List<DataPoint> allData = new ArrayList<>();
         for (DataSet dataSet : dataSets) {
-            allData.addAll(filterDataByArea(dataSet.getData()));
+            allData.addAll(filterDataSetByArea(dataSet));
         }
         return allData;
     }
@@ -146,30 +290,108 @@ public class StatisticsManager {
      */
     protected List<DataPoint> filterDataByArea(List<DataPoint> data) {
         List<DataPoint> filteredData = new ArrayList<>();
-        GridData edge = new GridData();
         for (DataPoint dp : data) {
-            if (selectedArea.equals("All") || 
-                (selectedArea.equals("London") && dp.x() >= edge.getMaxLeft() && dp.x() <= edge.getMaxRight() && dp.y() >= edge.getMaxBottom() && dp.y() <= edge.getMaxTop())) {
+            if (isInSelectedArea(dp.x(), dp.y())) {
                 filteredData.add(dp);
             }
         }
         return filteredData;
     }
+    
+    /**
+     * A method for filtering a dataset by the area chosen by the user, using the
+     * area's precomputed cell mask instead of testing each point's location.
+     */
+    protected List<DataPoint> filterDataSetByArea(DataSet dataSet) {
+        BitSet selected = getSelectedPoints(dataSet);
+        PointColumns columns = dataSet.getColumns();
+        List<DataPoint> filteredData = new ArrayList<>(selected.cardinality());
+        for (int i = selected.nextSetBit(0); i >= 0; i = selected.nextSetBit(i + 1)) {
+            filteredData.add(columns.get(i));
+        }
+        return filteredData;
+    }
+    
+    /**
+     * Returns the indices of the points of a dataset that lie inside the area chosen by the user.
+     */
+    protected BitSet getSelectedPoints(DataSet dataSet) {
+        if (selectedArea.equals("All")) {
+            BitSet all = new BitSet(dataSet.size());
+            all.set(0, dataSet.size());
+            return all;
+        }
+        return RegionRegistry.getInstance().selectPoints(selectedArea, dataSet);
+    }
+    
+    /**
+     * Returns the points of a dataset in the area chosen by the user as a filter for a
+     * single pass over the columns, or null if all points are in it.
+     */
+    private BitSet getSelectionFilter(DataSet dataSet) {
+        return selectedArea.equals("All") ? null : getSelectedPoints(dataSet);
+    }
+    
+    /**
+     * Returns the summary of each dataset in the area chosen by the user, computing
+     * them on first use in parallel across datasets and column ranges.
+     */
+    protected List<AreaSummary> getSummaries() {
+        if (summaries == null) {
+            List<BitSet> selections = new ArrayList<>(dataSets.size());
+            for (DataSet dataSet : dataSets) {
+                selections.add(getSelectionFilter(dataSet));
+            }
+            List<AreaSummary> computed = new ParallelAggregator().summarise(dataSets, selections);
+            totalSummary = new AggregateEngine().combine(computed);
+            summaries = computed;
+        }
+        return summaries;
+    }
+    
+    /**
+     * Returns the summary of all datasets together in the area chosen by the user.
+     */
+    protected AreaSummary getTotalSummary() {
+        getSummaries();
+        return totalSummary;
+    }
+    
+    /**
+     * Returns the quantile sketch of all datasets together in the area chosen by the user,
+     * built on first use; the other tabs never need it, and feeding every value into a
+     * sketch costs more than all their figures together.
+     */
+    protected KllSketch getQuantiles() {
+        if (quantiles == null) {
+            List<BitSet> selections = new ArrayList<>(dataSets.size());
+            for (DataSet dataSet : dataSets) {
+                selections.add(getSelectionFilter(dataSet));
+            }
+            ParallelAggregator aggregator = new ParallelAggregator(ForkJoinPool.commonPool(), ParallelAggregator.DEFAULT_THRESHOLD, true);
+            quantiles = new AggregateEngine(true).combine(aggregator.summarise(dataSets, selections)).quantiles();
+        }
+        return quantiles;
+    }
+    
+    /**
+     * Checks whether a location lies inside the area chosen by the user.
+     */
+    protected boolean isInSelectedArea(int easting, int northing) {
+        return selectedArea.equals("All") || RegionRegistry.getInstance().contains(selectedArea, easting, northing);
+    }
 
     /**
      * A method for finding the average pollution level for data.
      */
     protected double getAverageForCurrentData(List<DataPoint> data) {
         if (data.isEmpty()) return 0;
-        double totalLevel = 0;
-        int count = 0;
-        for (DataPoint dataPoint : data) {
-            if (dataPoint.value() >= 0) {
-                totalLevel += dataPoint.value();
-                count++;
-            }
+        double[] values = new double[data.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = data.get(i).value();
         }
-        return (count > 0) ? totalLevel / count : 0;
+        Aggregate statistics = ReductionKernels.aggregate(values, null, 0, values.length);
+        return (statistics.getCount() > 0) ? statistics.getMean() : 0;
     }
     
     /**
@@ -216,26 +438,104 @@ public class StatisticsManager {
     
     /**
      * Method for getting the level of pollution for certain coordinates.
+     * Returns the value of the closest data point within 1km, or -1 if there is none.
      */
     public double getPollutionLevelForCoordinates(double easting, double northing) {
-        List<DataPoint> filteredData = getFilteredData();
-        double tolerance = 1000.0;  // 1km tolerance
-        DataPoint closest = null;
-        double minDistance = Double.MAX_VALUE;
-    
-        for (DataPoint dp : filteredData) {
-            double dx = dp.x() - easting;
-            double dy = dp.y() - northing;
-            double distance = Math.sqrt(dx * dx + dy * dy);
-            if (distance < minDistance && distance <= tolerance) {
-                minDistance = distance;
-                closest = dp;
+        int[] closest = new int[1];
+        DataSet dataSet = getClosestDataSet(easting, northing, closest);
+        return dataSet != null ? dataSet.getColumns().getValues()[closest[0]] : -1;
+    }
+    
+    /**
+     * Method for getting a smooth estimate of the level of pollution for certain
+     * coordinates, interpolated in the dataset whose point getPollutionLevelForCoordinates
+     * returns. Returns -1 if there is no such point or too little valid data around it.
+     */
+    public double getInterpolatedLevelForCoordinates(double easting, double northing) {
+        DataSet dataSet = getClosestDataSet(easting, northing, new int[1]);
+        return dataSet != null ? new SpatialInterpolator().interpolate(dataSet, easting, northing) : -1;
+    }
+    
+    /**
+     * Returns the dataset holding the closest data point within 1km in the selected
+     * area, or null if there is none, and stores the point's index in closest[0].
+     */
+    private DataSet getClosestDataSet(double easting, double northing, int[] closest) {
+        double minDistanceSquared = Double.MAX_VALUE;
+        DataSet closestDataSet = null;
+        
+        // Asks each dataset's spatial index for its closest point in the selected area
+        for (DataSet dataSet : dataSets) {
+            PointColumns columns = dataSet.getColumns();
+            int point = dataSet.getSpatialIndex().nearest(easting, northing, SEARCH_TOLERANCE, getAreaFilter(dataSet));
+            if (point < 0) continue;
+            
+            double dx = columns.getEastings()[point] - easting;
+            double dy = columns.getNorthings()[point] - northing;
+            double distanceSquared = dx * dx + dy * dy;
+            if (distanceSquared < minDistanceSquared) {
+                minDistanceSquared = distanceSquared;
+                closestDataSet = dataSet;
+                closest[0] = point;
             }
         }
-        if (closest != null) {
-            System.out.println("Found closest DataPoint at Easting=" + closest.x() + ", Northing=" + closest.y() + ", Distance=" + minDistance);
-            return closest.value();
+        return closestDataSet;
+    }
+    
+    /**
+     * Method for getting the level of pollution for many coordinates at once, in
+     * every dataset of this manager.
+     * 
+     * @param eastings The eastings of the locations
+     * @param northings The northings of the locations (same length as eastings)
+     * @return A matrix with one row per dataset and one column per location, holding the
+     *         value of the closest data point within 1km, or -1 if there is none
+     */
+    public double[][] getPollutionLevelsForCoordinates(double[] eastings, double[] northings) {
+        double[][] levels = new double[dataSets.size()][eastings.length];
+        getPollutionLevelsForCoordinates(eastings, northings, levels);
+        return levels;
+    }
+    
+    /**
+     * Fills the given matrix with the level of pollution for many coordinates, in
+     * every dataset of this manager. Large batches are looked up in parallel.
+     * 
+     * @param eastings The eastings of the locations
+     * @param northings The northings of the locations (same length as eastings)
+     * @param levels The output matrix, [dataset][location]; -1 where no point lies within 1km
+     */
+    public void getPollutionLevelsForCoordinates(double[] eastings, double[] northings, double[][] levels) {
+        if (eastings.length != northings.length) {
+            throw new IllegalArgumentException("Different numbers of eastings and northings");
         }
-        return -1;
+        
+        for (int d = 0; d < dataSets.size(); d++) {
+            DataSet dataSet = dataSets.get(d);
+            double[] values = dataSet.getColumns().getValues();
+            double[] row = levels[d];
+            // build the index and area mask once, before any parallel lookups
+            SpatialIndex index = dataSet.getSpatialIndex();
+            IntPredicate inArea = getAreaFilter(dataSet);
+            
+            IntStream locations = IntStream.range(0, eastings.length);
+            if (eastings.length >= PARALLEL_BATCH_SIZE) locations = locations.parallel();
+            locations.forEach(i -> {
+                int closest = index.nearest(eastings[i], northings[i], SEARCH_TOLERANCE, inArea);
+                row[i] = closest < 0 ? -1 : values[closest];
+            });
+        }
+    }
+    
+    /**
+     * Returns a filter that accepts the points of a dataset lying in the selected area,
+     * or null if all points are in it. Builds the dataset's raster and the area's mask.
+     */
+    private IntPredicate getAreaFilter(DataSet dataSet) {
+        if (selectedArea.equals("All")) return null;
+        GridRaster raster = dataSet.getRaster();
+        BitSet mask = RegionRegistry.getInstance().getMask(selectedArea, raster.getGeometry());
+        if (mask == null) return index -> false;
+        return index -> mask.get(raster.getCellOfPoint(index));
+    }
 }
-}
\ No newline at end of file
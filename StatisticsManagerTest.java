@@ -123,6 +123,29 @@ public class StatisticsManagerTest {
         assertNotEquals(0.0, statsManager.getAverageLongitude());
     }
 
+    /**
+     * Tests updatePercentileStats with valid data.
+     * The values are 10, 10, 20 and 20 (two datasets), so the median is 10 and P90 and P98 are 20.
+     */
+    @Test
+    public void testUpdatePercentileStats_WithValidData() {
+        Label percentileLabel = new Label();
+        statsManager.updatePercentileStats(percentileLabel);
+
+        assertEquals("Median: 10.00, P90: 20.00, P98: 20.00 ug m-3", percentileLabel.getText());
+    }
+
+    /**
+     * Tests findClosestLevel.
+     * Checks that the data point with the closest value is found.
+     */
+    @Test
+    public void testFindClosestLevel() {
+        assertEquals(12345, statsManager.findClosestLevel(12.0).gridCode());
+        assertEquals(67890, statsManager.findClosestLevel(18.0).gridCode());
+        assertNull(new StatisticsManager(new ArrayList<>(), "London").findClosestLevel(15.0));
+    }
+
     /**
      * Tests updateAverageStats with empty data.
      * Verifies "No data" message and zero lat/lon.
@@ -274,4 +297,78 @@ public class StatisticsManagerTest {
         double average = statsManager.getAverageForCurrentData(new ArrayList<>());
         assertEquals(0.0, average, 0.01);
     }
-}
\ No newline at end of file
+
+    /**
+     * Tests getPollutionLevelForCoordinates near a data point.
+     * Verifies the value of the closest point within 1km is returned.
+     */
+    @Test
+    public void testGetPollutionLevelForCoordinates_NearPoint() {
+        assertEquals(20.0, statsManager.getPollutionLevelForCoordinates(530400, 189700), 0.01);
+        assertEquals(10.0, statsManager.getPollutionLevelForCoordinates(520000, 180000), 0.01);
+    }
+
+    /**
+     * Tests getInterpolatedLevelForCoordinates where only the second dataset has data,
+     * and far from all data points.
+     * Verifies the estimate comes from the dataset holding the closest point, and -1
+     * where getPollutionLevelForCoordinates finds nothing.
+     */
+    @Test
+    public void testGetInterpolatedLevelForCoordinates() {
+        DataSet year2022 = new DataSet("NO2", "2022", "Annual Mean", "ug m-3");
+        year2022.setData(Arrays.asList(new DataPoint(1, 100500, 100500, 30)));
+        DataSet year2023 = new DataSet("NO2", "2023", "Annual Mean", "ug m-3");
+        year2023.setData(TestGrids.dataSet(new double[][] {{10, 10, 10}, {10, 10, 10}, {10, 10, 10}}).getData());
+        statsManager = new StatisticsManager(Arrays.asList(year2022, year2023), "All");
+
+        assertEquals(10.0, statsManager.getPollutionLevelForCoordinates(1400, 1700), 0.01);
+        assertEquals(10.0, statsManager.getInterpolatedLevelForCoordinates(1400, 1700), 0.01);
+        assertEquals(-1.0, statsManager.getInterpolatedLevelForCoordinates(50000, 50000), 0.01);
+    }
+
+    /**
+     * Tests getPollutionLevelForCoordinates far from all data points.
+     * Verifies -1 is returned when no point lies within 1km.
+     */
+    @Test
+    public void testGetPollutionLevelForCoordinates_NoPointInRange() {
+        assertEquals(-1.0, statsManager.getPollutionLevelForCoordinates(525000, 185000), 0.01);
+    }
+
+    /**
+     * Tests getPollutionLevelsForCoordinates with several locations.
+     * Verifies one row per dataset and -1 for locations without a nearby point.
+     */
+    @Test
+    public void testGetPollutionLevelsForCoordinates_Batch() {
+        double[] eastings = {520000, 530400, 525000};
+        double[] northings = {180000, 189700, 185000};
+        double[][] levels = statsManager.getPollutionLevelsForCoordinates(eastings, northings);
+
+        assertEquals(2, levels.length);
+        for (double[] levelsOfDataSet : levels) {
+            assertArrayEquals(new double[] {10.0, 20.0, -1.0}, levelsOfDataSet, 0.01);
+        }
+    }
+
+    /**
+     * Tests updateHotspotStats with hotspots in two years of data.
+     * Verifies the hotspots of both datasets are listed, highest peak first, each
+     * labelled with its year.
+     */
+    @Test
+    public void testUpdateHotspotStats_AllYears() {
+        DataSet year2022 = new DataSet("NO2", "2022", "Annual Mean", "ug m-3");
+        year2022.setData(TestGrids.dataSet(new double[][] {{45, 0, 0}, {0, 0, 0}, {0, 0, 0}}).getData());
+        DataSet year2023 = new DataSet("NO2", "2023", "Annual Mean", "ug m-3");
+        year2023.setData(TestGrids.dataSet(new double[][] {{0, 0, 0}, {0, 0, 0}, {0, 0, 60}}).getData());
+        statsManager = new StatisticsManager(Arrays.asList(year2022, year2023), "All");
+
+        ListView<String> hotspotList = new ListView<>();
+        statsManager.updateHotspotStats(hotspotList);
+        assertEquals(2, hotspotList.getItems().size());
+        assertTrue(hotspotList.getItems().get(0).startsWith("Hotspot 1 (2023): 1.0 km², peak 60.00"), hotspotList.getItems().get(0));
+        assertTrue(hotspotList.getItems().get(1).startsWith("Hotspot 2 (2022): 1.0 km², peak 45.00"), hotspotList.getItems().get(1));
+    }
+}
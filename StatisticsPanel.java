@@ -30,13 +30,18 @@ public class StatisticsPanel extends Application {
     private Tab avgTab;
     private Tab peakTab;
     private Tab trendsTab;
+    private Tab hotspotTab;
     private Label avgLevelLabel;
+    private Label percentileLabel;
     private ListView<String> peakList;
+    private ListView<String> hotspotList;
     private VBox trendsPane;
     private Label periodLabel;
     private Label areaLabel;
     private Label avgInfoLabel;
     private Label peakInfoLabel;
+    
+    private static final String[] YEARS = {"2018", "2019", "2020", "2021", "2022", "2023"}; // the years with data files
 
     @Override
     public void start(Stage primaryStage) {
@@ -70,7 +75,13 @@ public class StatisticsPanel extends Application {
         trendsPane.getStyleClass().add("tab-content");
         trendsTab.setContent(trendsPane);
 
-        statsTabs.getTabs().addAll(avgTab, peakTab, trendsTab);
+        hotspotTab = new Tab("Hotspots");
+        hotspotTab.setClosable(false);
+        VBox hotspotContent = createHotspotPane();
+        hotspotContent.getStyleClass().add("tab-content");
+        hotspotTab.setContent(hotspotContent);
+
+        statsTabs.getTabs().addAll(avgTab, peakTab, trendsTab, hotspotTab);
 
         mainLayout.getChildren().addAll(controlsPanel, statsTabs);
         root.setCenter(mainLayout);
@@ -148,7 +159,9 @@ public class StatisticsPanel extends Application {
         // Disables the refresh button and show a loading message
         refreshButton.setDisable(true);
         avgLevelLabel.setText("Loading data...");
+        percentileLabel.setText("");
         peakList.getItems().setAll("Loading data...");
+        hotspotList.getItems().setAll("Loading data...");
         trendsPane.getChildren().retainAll(trendsPane.getChildren().filtered(node -> node instanceof Label));
         
         // Adds loading label to trends pane and store it for later removal
@@ -160,19 +173,16 @@ public class StatisticsPanel extends Application {
             protected StatisticsManager call() throws Exception {
                 DataLoader loader = new DataLoader();
                 List<DataSet> dataSets = new ArrayList<>();
-                String[] years = {"2018", "2019", "2020", "2021", "2022", "2023"};
                 System.out.println("Loading data for pollutant: " + pollutant + ", year: " + year + ", area: " + area);
 
-                if (trendsTab.isSelected() && !pollutant.equals("All")) {
-                    for (String y : years) {
-                        String fileName = getFileName(pollutant, y);
-                        System.out.println("Attempting to load: " + fileName);
-                        DataSet dataSet = loader.loadDataFile(fileName, false); // get the UK's data for the given file name
-                        if (dataSet != null && !dataSet.getData().isEmpty()) {
-                            dataSets.add(dataSet);
-                        }
+                if (trendsTab.isSelected()) {
+                    // The trends are drawn from the stored file summaries; reading them here
+                    // keeps any loading (of files without a summary yet) off the UI thread
+                    String[] trendPollutants = pollutant.equals("All") ? new String[] {"NO2", "PM2.5", "PM10"} : new String[] {pollutant};
+                    for (String p : trendPollutants) {
+                        getTrendSummaries(p, area);
                     }
-                } else if (!trendsTab.isSelected()) {
+                } else {
                     String fileName = getFileName(pollutant, year);
                     System.out.println("Attempting to load: " + fileName);
                     DataSet dataSet = loader.loadDataFile(fileName, false); // get the UK's data for the given file name
@@ -181,7 +191,7 @@ public class StatisticsPanel extends Application {
                     }
                 }
 
-                if (!dataSets.isEmpty() || pollutant.equals("All")) {
+                if (!dataSets.isEmpty() || pollutant.equals("All") || trendsTab.isSelected()) {
                     StatisticsManager manager = new StatisticsManager(dataSets, area);
                     manager.setSelectedPollutant(pollutant);
                     System.out.println("Created StatisticsManager with " + dataSets.size() + " datasets");
@@ -204,10 +214,14 @@ public class StatisticsPanel extends Application {
                 // Ensures Average and Peak labels are updated
                 if (statsManager == null) {
                     avgLevelLabel.setText("Average Level: No data");
+                    percentileLabel.setText("Percentiles: No data");
                     peakList.getItems().setAll("No data available");
+                    hotspotList.getItems().setAll("No data available");
                 } else {
                     statsManager.updateAverageStats(avgLevelLabel);
+                    statsManager.updatePercentileStats(percentileLabel);
                     statsManager.updatePeakStats(peakList);
+                    statsManager.updateHotspotStats(hotspotList);
                 };
             });
         });
@@ -221,7 +235,9 @@ public class StatisticsPanel extends Application {
             trendsPane.getChildren().remove(loadingLabel);
             // Clears other loading messages
             avgLevelLabel.setText("Average Level: No data");
+            percentileLabel.setText("Percentiles: No data");
             peakList.getItems().setAll("No data available");
+            hotspotList.getItems().setAll("No data available");
         });
     
         // Starts the task in a background thread
@@ -250,7 +266,9 @@ public class StatisticsPanel extends Application {
         if (statsManager == null) {
             System.out.println("Setting Average and Peak to 'No data'");
             avgLevelLabel.setText("Average Level: No data");
+            percentileLabel.setText("Percentiles: No data");
             peakList.getItems().setAll("No data available");
+            hotspotList.getItems().setAll("No data available");
             trendsPane.getChildren().clear();
             trendsPane.getChildren().add(new Label("Pollution Trends"));
             periodLabel.setText("Period: " + periodSelector.getValue());
@@ -260,7 +278,9 @@ public class StatisticsPanel extends Application {
 
         System.out.println("Calling updateAverageStats and updatePeakStats");
         statsManager.updateAverageStats(avgLevelLabel);
+        statsManager.updatePercentileStats(percentileLabel);
         statsManager.updatePeakStats(peakList);
+        statsManager.updateHotspotStats(hotspotList);
         updateTrends();
         
         // Updates the period and area labels
@@ -282,25 +302,16 @@ public class StatisticsPanel extends Application {
     
         String pollutant = pollutantSelector.getValue();
         String area = areaSelector.getValue();
-        String[] years = {"2018", "2019", "2020", "2021", "2022", "2023"};
     
         if (pollutant.equals("All")) {
             String[] pollutants = {"NO2", "PM2.5", "PM10"};
             String[] colors = {"blue", "green", "red"};
-            DataLoader loader = new DataLoader();
     
             for (int i = 0; i < pollutants.length; i++) {
-                List<DataSet> pollutantData = new ArrayList<>();
-                for (String y : years) {
-                    String fileName = getFileName(pollutants[i], y);
-                    DataSet dataSet = loader.loadDataFile(fileName, false); // get the UK's data for the given file name
-                    if (dataSet != null && !dataSet.getData().isEmpty()) {
-                        pollutantData.add(dataSet);
-                    }
-                }
+                List<FileSummary> summaries = getTrendSummaries(pollutants[i], area);
     
-                if (!pollutantData.isEmpty()) {
-                    StatisticsManager tempManager = new StatisticsManager(pollutantData, area);
+                if (!summaries.isEmpty()) {
+                    StatisticsManager tempManager = new StatisticsManager(new ArrayList<>(), area);
                     tempManager.setSelectedPollutant(pollutants[i]);
     
                     NumberAxis xAxis = new NumberAxis(2018, 2023, 1);
@@ -311,7 +322,7 @@ public class StatisticsPanel extends Application {
                     chart.setTitle(pollutants[i] + " Trend (" + area + ")");
                     chart.setPrefHeight(200);
     
-                    tempManager.updateTrendsStats(chart);
+                    tempManager.updateTrendsStats(chart, summaries);
                     chart.lookup(".chart-series-line").setStyle("-fx-stroke: " + colors[i] + ";");
     
                     // Add tooltips to data points
@@ -329,7 +340,7 @@ public class StatisticsPanel extends Application {
             LineChart<Number, Number> chart = new LineChart<>(xAxis, yAxis);
             chart.setTitle(pollutant + " Trend (" + area + ")");
     
-            statsManager.updateTrendsStats(chart);
+            statsManager.updateTrendsStats(chart, getTrendSummaries(pollutant, area));
             chart.lookup(".chart-series-line").setStyle("-fx-stroke: blue;");
     
             // Adds tooltips to data points
@@ -340,6 +351,21 @@ public class StatisticsPanel extends Application {
         }
     }
     
+    /**
+     * Returns the stored summaries of a pollutant's files for every year that has data,
+     * loading a file only if it has no up-to-date summary yet.
+     */
+    private List<FileSummary> getTrendSummaries(String pollutant, String area) {
+        List<FileSummary> summaries = new ArrayList<>();
+        for (String y : YEARS) {
+            FileSummary summary = SummaryStore.getInstance().getSummary(getFileName(pollutant, y), area);
+            if (summary != null && summary.getArea("All").pointCount() > 0) {
+                summaries.add(summary);
+            }
+        }
+        return summaries;
+    }
+    
     /**
      * Adds tooltips to each data point in the LineChart showing X,Y coordinates
      */
@@ -367,6 +393,7 @@ public class StatisticsPanel extends Application {
         Label title = new Label("Average Pollution Levels");
         title.getStyleClass().add("title-label");
         avgLevelLabel = new Label("Average Level: ");
+        percentileLabel = new Label("Percentiles: ");
         periodLabel = new Label("Period: ");
         areaLabel = new Label("Location: ");
         Region spacer = new Region();
@@ -378,7 +405,7 @@ public class StatisticsPanel extends Application {
         infoBox.setId("info-box");
         infoBox.setSpacing(0);
         infoBox.setMinWidth(Region.USE_PREF_SIZE);
-        pane.getChildren().addAll(title, avgLevelLabel, periodLabel, areaLabel, spacer, infoBox);
+        pane.getChildren().addAll(title, avgLevelLabel, percentileLabel, periodLabel, areaLabel, spacer, infoBox);
         return pane;
     }
 
@@ -403,6 +430,26 @@ public class StatisticsPanel extends Application {
         return pane;
     }
 
+    /**
+     * Creates the Hotspots tab content.
+     */
+    private VBox createHotspotPane() {
+        VBox pane = new VBox(10);
+        Label title = new Label("Pollution Hotspots");
+        title.getStyleClass().add("title-label");
+        hotspotList = new ListView<>();
+        VBox.setVgrow(hotspotList, Priority.ALWAYS);
+        Label hotspotInfoLabel = new Label("Info: This tab lists the connected areas where the pollution level is above\n" +
+                                           "          the annual limit value, with their size, peak and centre");
+        hotspotInfoLabel.setId("info-label");
+        HBox infoBox = new HBox(hotspotInfoLabel);
+        infoBox.setId("info-box");
+        infoBox.setSpacing(0);
+        infoBox.setMinWidth(Region.USE_PREF_SIZE);
+        pane.getChildren().addAll(title, hotspotList, infoBox);
+        return pane;
+    }
+
     /**
      * Creates the Trends tab content.
      */
@@ -428,7 +475,8 @@ public class StatisticsPanel extends Application {
         pollutantSelector.setValue("NO2");
 
         areaSelector = new ComboBox<>();
-        areaSelector.getItems().addAll("All", "London");
+        areaSelector.getItems().add("All");
+        areaSelector.getItems().addAll(RegionRegistry.getInstance().getRegionNames());
         areaSelector.setValue("All");
 
         refreshButton = new Button("Refresh");
@@ -0,0 +1,341 @@
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+/**
+ * StreamingExporter writes a dataset, or a filtered part of it, to GIS-friendly text
+ * formats: GeoJSON with one polygon per grid cell, or an enriched csv file. It also
+ * writes contour lines as GeoJSON.
+ *
+ * The exporter walks the dataset's columns and writes each cell straight to a
+ * buffered channel, converting its coordinates as it goes, so no DataPoint objects,
+ * coordinate tables or in-memory document are built and the memory use does not grow
+ * with the size of the output. The one exception is the csv rank: ranking the cells
+ * needs a sorted copy of the valid values, which is proportional to the dataset (not
+ * to the output) and costs O(n log n) once per export.
+ *
+ * The csv columns are: gridCode, x, y, latitude, longitude, value, class and rank.
+ * The class is the colour band (1-5) the map uses for the value, or 0 for a missing
+ * value; the rank is 1 for the highest value in the dataset.
+ */
+public class StreamingExporter
+{
+    public static final int DEFAULT_CELL_SIZE = 1000; // 1x1km PCM grid cells
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int COORDINATE_DECIMALS = 6;
+    private static final int COLOR_BANDS = 5; // the number of colour bands on the map
+    private static final IntPredicate ALL_POINTS = index -> true;
+
+    private final GridData gridData;
+    private final double[] latLon; // reused for the cell corner conversions
+
+    /**
+     * Constructor for objects of class StreamingExporter
+     */
+    public StreamingExporter()
+    {
+        gridData = new GridData();
+        latLon = new double[2];
+    }
+
+    /**
+     * Write all cells of a dataset to a GeoJSON file.
+     *
+     * @return True if the file was written, false if an error occurred
+     */
+    public boolean exportGeoJson(DataSet dataSet, File file)
+    {
+        return exportGeoJson(dataSet, ALL_POINTS, DEFAULT_CELL_SIZE, file);
+    }
+
+    /**
+     * Write the selected cells of a dataset to a GeoJSON file.
+     *
+     * @param dataSet The dataset to export
+     * @param filter Selects the point indices to export (e.g. the cells of a region)
+     * @param cellSize The edge length of a grid cell in metres
+     * @param file The file to write to
+     * @return True if the file was written, false if an error occurred
+     */
+    public boolean exportGeoJson(DataSet dataSet, IntPredicate filter, int cellSize, File file)
+    {
+        try (FileChannel channel = openForWriting(file)) {
+            writeGeoJson(dataSet, filter, cellSize, channel);
+            return true;
+        }
+        catch (IOException e) {
+            System.out.println("Could not write file " + file);
+            return false;
+        }
+    }
+
+    /**
+     * Write all cells of a dataset to an enriched csv file.
+     *
+     * @return True if the file was written, false if an error occurred
+     */
+    public boolean exportCsv(DataSet dataSet, File file)
+    {
+        return exportCsv(dataSet, ALL_POINTS, file);
+    }
+
+    /**
+     * Write the selected cells of a dataset to an enriched csv file.
+     *
+     * @param dataSet The dataset to export
+     * @param filter Selects the point indices to export (e.g. the cells of a region)
+     * @param file The file to write to
+     * @return True if the file was written, false if an error occurred
+     */
+    public boolean exportCsv(DataSet dataSet, IntPredicate filter, File file)
+    {
+        try (FileChannel channel = openForWriting(file)) {
+            writeCsv(dataSet, filter, channel);
+            return true;
+        }
+        catch (IOException e) {
+            System.out.println("Could not write file " + file);
+            return false;
+        }
+    }
+
+    /**
+     * Streams the selected cells as a GeoJSON FeatureCollection of cell polygons
+     * (WGS84 longitude/latitude) to the channel. The channel is not closed.
+     *
+     * @param dataSet The dataset to export
+     * @param filter Selects the point indices to export
+     * @param cellSize The edge length of a grid cell in metres
+     * @param channel The channel to write to
+     */
+    public void writeGeoJson(DataSet dataSet, IntPredicate filter, int cellSize, WritableByteChannel channel) throws IOException
+    {
+        Writer out = newWriter(channel);
+        PointColumns columns = dataSet.getColumns();
+        int[] gridCodes = columns.getGridCodes();
+        int[] eastings = columns.getEastings();
+        int[] northings = columns.getNorthings();
+        double[] values = columns.getValues();
+        double half = cellSize / 2.0;
+
+        StringBuilder line = new StringBuilder(512);
+        out.write("{\"type\":\"FeatureCollection\",\"properties\":{\"pollutant\":\"" + JsonReader.escape(dataSet.getPollutant())
+                  + "\",\"year\":\"" + JsonReader.escape(dataSet.getYear()) + "\",\"units\":\"" + JsonReader.escape(dataSet.getUnits())
+                  + "\"},\"features\":[\n");
+        boolean first = true;
+        for (int i = 0; i < columns.size(); i++) {
+            if (!filter.test(i)) continue;
+            line.setLength(0);
+            if (!first) line.append(",\n");
+            first = false;
+
+            line.append("{\"type\":\"Feature\",\"geometry\":{\"type\":\"Polygon\",\"coordinates\":[[");
+            double x = eastings[i];
+            double y = northings[i];
+            appendPosition(line, x - half, y - half).append(',');
+            appendPosition(line, x + half, y - half).append(',');
+            appendPosition(line, x + half, y + half).append(',');
+            appendPosition(line, x - half, y + half).append(',');
+            appendPosition(line, x - half, y - half);
+            line.append("]]},\"properties\":{\"gridCode\":").append(gridCodes[i])
+                .append(",\"x\":").append(eastings[i])
+                .append(",\"y\":").append(northings[i])
+                .append(",\"value\":");
+            if (values[i] < 0) line.append("null");
+            else line.append(values[i]);
+            line.append("}}");
+            out.append(line);
+        }
+        out.write("\n]}\n");
+        out.flush();
+    }
+
+    /**
+     * Streams the selected cells as enriched csv lines to the channel. The channel
+     * is not closed. The ranks are taken against all valid values of the dataset,
+     * whatever the filter selects.
+     *
+     * @param dataSet The dataset to export
+     * @param filter Selects the point indices to export
+     * @param channel The channel to write to
+     */
+    public void writeCsv(DataSet dataSet, IntPredicate filter, WritableByteChannel channel) throws IOException
+    {
+        Writer out = newWriter(channel);
+        PointColumns columns = dataSet.getColumns();
+        int[] gridCodes = columns.getGridCodes();
+        int[] eastings = columns.getEastings();
+        int[] northings = columns.getNorthings();
+        double[] values = columns.getValues();
+        double[] sortedValues = sortedValidValues(values, columns.size());
+        double minValue = dataSet.getMinPollutionValue();
+        double colorRange = (dataSet.getMaxPollutionValue() - minValue) / COLOR_BANDS;
+
+        StringBuilder line = new StringBuilder(128);
+        out.write("gridCode,x,y,latitude,longitude,value,class,rank\n");
+        for (int i = 0; i < columns.size(); i++) {
+            if (!filter.test(i)) continue;
+            double value = values[i];
+
+            line.setLength(0);
+            line.append(gridCodes[i]).append(',').append(eastings[i]).append(',').append(northings[i]).append(',');
+            gridData.toLatLon(eastings[i], northings[i], latLon);
+            appendFixed(line, latLon[0]).append(',');
+            appendFixed(line, latLon[1]).append(',');
+            if (value < 0) {
+                line.append(",0,");
+            }
+            else {
+                line.append(value).append(',')
+                    .append(getColorBand(value, minValue, colorRange)).append(',')
+                    .append(getRank(sortedValues, value));
+            }
+            line.append('\n');
+            out.append(line);
+        }
+        out.flush();
+    }
+
+    /**
+     * Write contour lines to a GeoJSON file.
+     *
+     * @param isolines The contour lines, e.g. from ContourGenerator
+     * @param file The file to write to
+     * @return True if the file was written, false if an error occurred
+     */
+    public boolean exportContours(List<Isoline> isolines, File file)
+    {
+        try (FileChannel channel = openForWriting(file)) {
+            writeContours(isolines, channel);
+            return true;
+        }
+        catch (IOException e) {
+            System.out.println("Could not write file " + file);
+            return false;
+        }
+    }
+
+    /**
+     * Streams contour lines as a GeoJSON FeatureCollection of LineStrings (WGS84
+     * longitude/latitude), one feature per line with its level as a property. The
+     * channel is not closed.
+     *
+     * @param isolines The contour lines
+     * @param channel The channel to write to
+     */
+    public void writeContours(List<Isoline> isolines, WritableByteChannel channel) throws IOException
+    {
+        Writer out = newWriter(channel);
+        StringBuilder line = new StringBuilder(4096);
+        out.write("{\"type\":\"FeatureCollection\",\"features\":[\n");
+        boolean first = true;
+        for (Isoline isoline : isolines) {
+            for (double[] points : isoline.lines()) {
+                line.setLength(0);
+                if (!first) line.append(",\n");
+                first = false;
+
+                line.append("{\"type\":\"Feature\",\"geometry\":{\"type\":\"LineString\",\"coordinates\":[");
+                for (int i = 0; i < points.length; i += 2) {
+                    if (i > 0) line.append(',');
+                    appendPosition(line, points[i], points[i + 1]);
+                }
+                line.append("]},\"properties\":{\"level\":").append(isoline.level()).append("}}");
+                out.append(line);
+            }
+        }
+        out.write("\n]}\n");
+        out.flush();
+    }
+
+    /**
+     * Returns the colour band (1-5) the map uses for a value.
+     */
+    private int getColorBand(double value, double minValue, double colorRange)
+    {
+        for (int band = 1; band < COLOR_BANDS; band++) {
+            if (value <= minValue + colorRange * band) return band;
+        }
+        return COLOR_BANDS;
+    }
+
+    /**
+     * Returns the rank of a value (1 for the highest) using the sorted valid values.
+     */
+    private int getRank(double[] sortedValues, double value)
+    {
+        // the number of values strictly greater than this one, plus one
+        int low = 0;
+        int high = sortedValues.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sortedValues[mid] <= value) low = mid + 1;
+            else high = mid;
+        }
+        return sortedValues.length - low + 1;
+    }
+
+    /**
+     * Returns the valid (non-negative) values in ascending order.
+     */
+    private double[] sortedValidValues(double[] values, int size)
+    {
+        double[] valid = new double[(int) ReductionKernels.count(values, null, 0, size)];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (values[i] >= 0) valid[count++] = values[i];
+        }
+        Arrays.sort(valid);
+        return valid;
+    }
+
+    /**
+     * Appends a National Grid location as a GeoJSON [longitude, latitude] position.
+     */
+    private StringBuilder appendPosition(StringBuilder line, double easting, double northing)
+    {
+        gridData.toLatLon(easting, northing, latLon);
+        line.append('[');
+        appendFixed(line, latLon[1]).append(',');
+        appendFixed(line, latLon[0]);
+        return line.append(']');
+    }
+
+    /**
+     * Appends a coordinate with a fixed number of decimals, without going through
+     * String.format for every number.
+     */
+    private StringBuilder appendFixed(StringBuilder line, double value)
+    {
+        long scale = 1;
+        for (int i = 0; i < COORDINATE_DECIMALS; i++) scale *= 10;
+        long scaled = Math.round(Math.abs(value) * scale);
+        if (value < 0 && scaled != 0) line.append('-');
+        line.append(scaled / scale).append('.');
+        String fraction = Long.toString(scaled % scale);
+        for (int i = fraction.length(); i < COORDINATE_DECIMALS; i++) line.append('0');
+        return line.append(fraction);
+    }
+
+    /**
+     * Wraps a channel in a buffered UTF-8 writer.
+     */
+    private Writer newWriter(WritableByteChannel channel)
+    {
+        return new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    /**
+     * Opens (and truncates) a file for writing.
+     */
+    private FileChannel openForWriting(File file) throws IOException
+    {
+        return FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    }
+}
@@ -0,0 +1,167 @@
+import org.junit.jupiter.api.Test;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the StreamingExporter class, writing small datasets to memory and
+ * reading the GeoJSON and csv output back.
+ */
+public class StreamingExporterTest {
+
+    private static final IntPredicate ALL = index -> true;
+
+    /**
+     * Creates a dataset of five points in central London, one with a missing value and
+     * two with the same value.
+     */
+    private DataSet dataSet(String pollutant) {
+        double[] values = {20, 35.5, -1, 20, 50};
+        List<DataPoint> points = new ArrayList<>();
+        for (int i = 0; i < values.length; i++) {
+            points.add(new DataPoint(100 + i, 530500 + 1000 * i, 180500, values[i]));
+        }
+        DataSet dataSet = new DataSet(pollutant, "2023", "annual mean", "ug m-3");
+        dataSet.setData(points);
+        dataSet.updateMinMaxPollutionValues();
+        return dataSet;
+    }
+
+    /**
+     * Returns the latitude and longitude of a National Grid location.
+     */
+    private double[] latLon(double easting, double northing) {
+        double[] latLon = new double[2];
+        new GridData().toLatLon(easting, northing, latLon);
+        return latLon;
+    }
+
+    /**
+     * Writes the GeoJSON of a dataset to a string.
+     */
+    private String geoJson(DataSet dataSet, IntPredicate filter) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new StreamingExporter().writeGeoJson(dataSet, filter, StreamingExporter.DEFAULT_CELL_SIZE, Channels.newChannel(bytes));
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes the csv of a dataset and returns its lines.
+     */
+    private String[] csv(DataSet dataSet, IntPredicate filter) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new StreamingExporter().writeCsv(dataSet, filter, Channels.newChannel(bytes));
+        return bytes.toString(StandardCharsets.UTF_8).split("\n");
+    }
+
+    /**
+     * Tests the GeoJSON of all cells.
+     * Verifies a parsable FeatureCollection with the dataset's properties, one closed
+     * polygon per cell around its location, and a null value for the missing cell.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testGeoJson() throws IOException {
+        Map<String, Object> collection = (Map<String, Object>) JsonReader.parse(geoJson(dataSet("no2"), ALL));
+        assertEquals("FeatureCollection", collection.get("type"));
+        Map<String, Object> properties = (Map<String, Object>) collection.get("properties");
+        assertEquals("no2", properties.get("pollutant"));
+        assertEquals("2023", properties.get("year"));
+        assertEquals("ug m-3", properties.get("units"));
+
+        List<Object> features = (List<Object>) collection.get("features");
+        assertEquals(5, features.size());
+        double[] latLon = latLon(531500, 180500);
+        for (int i = 0; i < features.size(); i++) {
+            Map<String, Object> feature = (Map<String, Object>) features.get(i);
+            Map<String, Object> cell = (Map<String, Object>) feature.get("properties");
+            assertEquals(100.0 + i, cell.get("gridCode"));
+            assertEquals(530500.0 + 1000 * i, cell.get("x"));
+
+            List<Object> ring = (List<Object>) ((List<Object>) ((Map<String, Object>) feature.get("geometry")).get("coordinates")).get(0);
+            assertEquals(5, ring.size());
+            assertEquals(ring.get(0), ring.get(4));
+            if (i != 1) continue;
+            // the corners lie around the cell centre, [longitude, latitude]
+            List<Object> southWest = (List<Object>) ring.get(0);
+            List<Object> northEast = (List<Object>) ring.get(2);
+            assertTrue((Double) southWest.get(0) < latLon[1] && latLon[1] < (Double) northEast.get(0));
+            assertTrue((Double) southWest.get(1) < latLon[0] && latLon[0] < (Double) northEast.get(1));
+        }
+        assertEquals(35.5, ((Map<String, Object>) ((Map<String, Object>) features.get(1)).get("properties")).get("value"));
+        assertNull(((Map<String, Object>) ((Map<String, Object>) features.get(2)).get("properties")).get("value"));
+    }
+
+    /**
+     * Tests the GeoJSON of a dataset whose names hold quotes, backslashes and a newline,
+     * with a filter that selects some cells, and with one that selects none.
+     * Verifies that the names are escaped so they read back unchanged, and that only
+     * the selected cells are written.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testGeoJson_EscapingAndFilter() throws IOException {
+        String pollutant = "pm\"2.5\"\\a\nb";
+        Map<String, Object> collection = (Map<String, Object>) JsonReader.parse(geoJson(dataSet(pollutant), index -> index % 2 == 0));
+        assertEquals(pollutant, ((Map<String, Object>) collection.get("properties")).get("pollutant"));
+        List<Object> features = (List<Object>) collection.get("features");
+        assertEquals(3, features.size());
+        assertEquals(104.0, ((Map<String, Object>) ((Map<String, Object>) features.get(2)).get("properties")).get("gridCode"));
+
+        collection = (Map<String, Object>) JsonReader.parse(geoJson(dataSet("no2"), index -> false));
+        assertTrue(((List<Object>) collection.get("features")).isEmpty());
+    }
+
+    /**
+     * Tests the csv of all cells.
+     * Verifies the header, the coordinates, value, colour band and rank of every row
+     * (ties share a rank), and empty value and rank fields with class 0 for the
+     * missing cell.
+     */
+    @Test
+    public void testCsv() throws IOException {
+        String[] lines = csv(dataSet("no2"), ALL);
+        assertEquals("gridCode,x,y,latitude,longitude,value,class,rank", lines[0]);
+        assertEquals(6, lines.length);
+
+        double[] latLon = latLon(530500, 180500);
+        String[] first = lines[1].split(",", -1);
+        assertEquals(8, first.length);
+        assertEquals("100", first[0]);
+        assertEquals("530500", first[1]);
+        assertEquals("180500", first[2]);
+        assertEquals(latLon[0], Double.parseDouble(first[3]), 1e-6);
+        assertEquals(latLon[1], Double.parseDouble(first[4]), 1e-6);
+        assertEquals("20.0", first[5]);
+        assertEquals("1", first[6]);
+        assertEquals("3", first[7]);
+
+        assertTrue(lines[2].endsWith(",35.5,3,2"), lines[2]);
+        assertTrue(lines[3].endsWith(",,0,"), lines[3]);
+        assertTrue(lines[4].endsWith(",20.0,1,3"), lines[4]);
+        assertTrue(lines[5].endsWith(",50.0,5,1"), lines[5]);
+    }
+
+    /**
+     * Tests the csv with a filter.
+     * Verifies the header and only the selected rows, ranked against the whole dataset.
+     */
+    @Test
+    public void testCsv_Filter() throws IOException {
+        String[] lines = csv(dataSet("no2"), index -> index >= 3);
+        assertEquals(3, lines.length);
+        assertEquals("gridCode,x,y,latitude,longitude,value,class,rank", lines[0]);
+        assertTrue(lines[1].startsWith("103,533500,180500,"), lines[1]);
+        assertTrue(lines[1].endsWith(",20.0,1,3"), lines[1]);
+        assertTrue(lines[2].endsWith(",50.0,5,1"), lines[2]);
+
+        assertArrayEquals(new String[] {"gridCode,x,y,latitude,longitude,value,class,rank"}, csv(dataSet("no2"), index -> false));
+    }
+}
@@ -0,0 +1,186 @@
+import java.io.*;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * SummaryStore keeps the summary of every pollution data file: the count, mean,
+ * minimum, maximum, variance and quantile sketch of its values over the whole file and
+ * over each registered region (see FileSummary).
+ *
+ * The DataLoader records the summary when it first parses a file, and the store writes
+ * it next to the data file as "<file>.summary". Charts that only need these figures,
+ * such as the Trends tab, then read the small summary files instead of loading every
+ * dataset, also after a restart. A summary file is only used if the data file still
+ * has the length and modification time it was made from; otherwise, or if a region is
+ * missing from it, the data file is loaded again and the summary remade.
+ *
+ * Summary file layout (DataOutputStream): the magic "LPSUM1", the data file's length
+ * and modification time, the pollutant, year and units, the number of areas, and for
+ * each area its name, point count, statistics, centroid and quantile sketch.
+ */
+public class SummaryStore
+{
+    public static final String SUFFIX = ".summary";
+    private static final String MAGIC = "LPSUM1";
+
+    private static SummaryStore instance = null;
+
+    private final Map<String, FileSummary> summaries = new HashMap<>(); // by data file name
+
+    /**
+     * Create an empty store. The application uses the single instance (getInstance);
+     * a separate store only shares the summary files on disk with it.
+     */
+    SummaryStore()
+    {
+    }
+
+    /**
+     * Return the single instance of the store.
+     */
+    public static synchronized SummaryStore getInstance()
+    {
+        if (instance == null) {
+            instance = new SummaryStore();
+        }
+        return instance;
+    }
+
+    /**
+     * Returns the summary of a data file that includes the given area, reading it from
+     * its summary file if needed. If there is no usable summary, the data file is loaded
+     * (which records a new one).
+     *
+     * @param fileName The data file, as passed to the DataLoader
+     * @param area "All" or the name of a region
+     * @return The summary, or null if the data file cannot be read
+     */
+    public synchronized FileSummary getSummary(String fileName, String area)
+    {
+        FileSummary summary = summaries.get(fileName);
+        if (summary == null) {
+            summary = readSummary(fileName);
+            if (summary != null) summaries.put(fileName, summary);
+        }
+        if (summary != null && summary.getArea(area) != null) return summary;
+
+        // no usable summary: load the data, summarising it again if it was already loaded
+        DataSet dataSet = new DataLoader().loadDataFile(fileName, false);
+        if (dataSet == null) return null;
+        summary = summaries.get(fileName);
+        if (summary == null || summary.getArea(area) == null) {
+            record(fileName, dataSet);
+            summary = summaries.get(fileName);
+        }
+        return summary.getArea(area) != null ? summary : null;
+    }
+
+    /**
+     * Summarises a freshly parsed data file over the whole file and every registered
+     * region, and writes the summary file.
+     *
+     * @param fileName The data file, as passed to the DataLoader
+     * @param dataSet The complete (UK) dataset of the file
+     */
+    public synchronized void record(String fileName, DataSet dataSet)
+    {
+        AggregateEngine engine = new AggregateEngine(true);
+        RegionRegistry registry = RegionRegistry.getInstance();
+        Map<String, AreaSummary> areas = new LinkedHashMap<>();
+        areas.put("All", engine.summarise(dataSet, null));
+        for (String region : registry.getRegionNames()) {
+            areas.put(region, engine.summarise(dataSet, registry.selectPoints(region, dataSet)));
+        }
+        FileSummary summary = new FileSummary(dataSet.getPollutant(), dataSet.getYear(), dataSet.getUnits(), areas);
+        summaries.put(fileName, summary);
+
+        File dataFile = getDataFile(fileName);
+        if (dataFile != null) writeSummary(summary, dataFile);
+    }
+
+    /**
+     * Returns the data file on disk, or null if it cannot be found.
+     */
+    private File getDataFile(String fileName)
+    {
+        try {
+            URL url = getClass().getResource(fileName);
+            return url == null ? null : new File(url.toURI());
+        }
+        catch (URISyntaxException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes a summary next to its data file.
+     *
+     * @return True if the file was written, false if an error occurred
+     */
+    private boolean writeSummary(FileSummary summary, File dataFile)
+    {
+        File file = new File(dataFile.getPath() + SUFFIX);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeUTF(MAGIC);
+            out.writeLong(dataFile.length());
+            out.writeLong(dataFile.lastModified());
+            out.writeUTF(summary.pollutant());
+            out.writeUTF(summary.year());
+            out.writeUTF(summary.units());
+            out.writeInt(summary.areas().size());
+            for (Map.Entry<String, AreaSummary> entry : summary.areas().entrySet()) {
+                AreaSummary area = entry.getValue();
+                out.writeUTF(entry.getKey());
+                out.writeLong(area.pointCount());
+                area.statistics().write(out);
+                out.writeDouble(area.centroidX());
+                out.writeDouble(area.centroidY());
+                area.quantiles().write(out);
+            }
+            return true;
+        }
+        catch (IOException e) {
+            System.out.println("Could not write file " + file);
+            return false;
+        }
+    }
+
+    /**
+     * Reads the summary file of a data file.
+     *
+     * @return The summary, or null if there is none or it is out of date
+     */
+    private FileSummary readSummary(String fileName)
+    {
+        File dataFile = getDataFile(fileName);
+        if (dataFile == null) return null;
+        File file = new File(dataFile.getPath() + SUFFIX);
+        if (!file.isFile()) return null;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (!in.readUTF().equals(MAGIC)) return null;
+            if (in.readLong() != dataFile.length() || in.readLong() != dataFile.lastModified()) return null;
+            String pollutant = in.readUTF();
+            String year = in.readUTF();
+            String units = in.readUTF();
+            int areaCount = in.readInt();
+            Map<String, AreaSummary> areas = new LinkedHashMap<>();
+            for (int i = 0; i < areaCount; i++) {
+                String name = in.readUTF();
+                long pointCount = in.readLong();
+                Aggregate statistics = Aggregate.read(in);
+                double centroidX = in.readDouble();
+                double centroidY = in.readDouble();
+                areas.put(name, new AreaSummary(pointCount, statistics, centroidX, centroidY, KllSketch.read(in)));
+            }
+            return new FileSummary(pollutant, year, units, areas);
+        }
+        catch (IOException e) {
+            System.out.println("Could not read file " + file);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the SummaryStore class, using small data files written next to the
+ * test classes (where the DataLoader looks for its resources).
+ *
+ * Each test records a made-up dataset (mean 50) for a data file whose real values have
+ * a mean of 20, so a summary read back from the summary file can be told apart from one
+ * rebuilt by loading the data file.
+ */
+public class SummaryStoreTest {
+
+    private static final String DATA = "no2,,,\n2023,,,\nannual mean,,,\nug m-3,,,\n\ngridcode,x,y,value\n"
+            + "1,500,500,10\n2,1500,500,30\n3,2500,500,MISSING\n";
+
+    private File dataFile;
+
+    @AfterEach
+    public void tearDown() {
+        if (dataFile != null) {
+            dataFile.delete();
+            new File(dataFile.getPath() + SummaryStore.SUFFIX).delete();
+        }
+    }
+
+    /**
+     * Writes a data file into the directory the classes are loaded from.
+     */
+    private String writeDataFile(String name) throws Exception {
+        File root = new File(SummaryStoreTest.class.getResource("SummaryStoreTest.class").toURI()).getParentFile();
+        dataFile = new File(root, name);
+        Files.writeString(dataFile.toPath(), DATA);
+        return name;
+    }
+
+    /**
+     * Creates a dataset whose valid values have a mean of 50.
+     */
+    private DataSet madeUpDataSet() {
+        List<DataPoint> points = new ArrayList<>();
+        points.add(new DataPoint(1, 500, 500, 40));
+        points.add(new DataPoint(2, 1500, 500, 60));
+        DataSet dataSet = new DataSet("no2", "2023", "annual mean", "ug m-3");
+        dataSet.setData(points);
+        return dataSet;
+    }
+
+    /**
+     * Tests recording a summary and reading it back in a store that has not seen it.
+     * Verifies the summary file is written and its figures are read back unchanged.
+     */
+    @Test
+    public void testRecordAndReadBack() throws Exception {
+        String fileName = writeDataFile("summary-test-readback.csv");
+        new SummaryStore().record(fileName, madeUpDataSet());
+        assertTrue(new File(dataFile.getPath() + SummaryStore.SUFFIX).isFile());
+
+        FileSummary summary = new SummaryStore().getSummary(fileName, "All");
+        assertNotNull(summary);
+        assertEquals("no2", summary.pollutant());
+        assertEquals("2023", summary.year());
+        AreaSummary all = summary.getArea("All");
+        assertEquals(2, all.pointCount());
+        assertEquals(50, all.statistics().getMean(), 1e-9);
+        assertEquals(100, all.statistics().getVariance(), 1e-9);
+        assertEquals(1000, all.centroidX(), 1e-9);
+        assertEquals(60, all.quantiles().getQuantile(1), 1e-9);
+    }
+
+    /**
+     * Tests a data file whose modification time changed after its summary was written.
+     * Verifies the summary is rebuilt from the data file.
+     */
+    @Test
+    public void testStaleModificationTime() throws Exception {
+        String fileName = writeDataFile("summary-test-mtime.csv");
+        new SummaryStore().record(fileName, madeUpDataSet());
+        assertTrue(dataFile.setLastModified(dataFile.lastModified() - 60_000));
+
+        AreaSummary all = new SummaryStore().getSummary(fileName, "All").getArea("All");
+        assertEquals(3, all.pointCount());
+        assertEquals(20, all.statistics().getMean(), 1e-9);
+    }
+
+    /**
+     * Tests a data file whose length changed after its summary was written.
+     * Verifies the summary is rebuilt from the data file, and that loading the file
+     * rewrote the summary file for its new length.
+     */
+    @Test
+    public void testStaleLength() throws Exception {
+        String fileName = writeDataFile("summary-test-length.csv");
+        long lastModified = dataFile.lastModified();
+        new SummaryStore().record(fileName, madeUpDataSet());
+        Files.writeString(dataFile.toPath(), DATA + "4,3500,500,MISSING\n");
+        assertTrue(dataFile.setLastModified(lastModified));
+
+        AreaSummary all = new SummaryStore().getSummary(fileName, "All").getArea("All");
+        assertEquals(4, all.pointCount());
+        assertEquals(20, all.statistics().getMean(), 1e-9);
+        try (DataInputStream in = new DataInputStream(new FileInputStream(dataFile.getPath() + SummaryStore.SUFFIX))) {
+            in.readUTF();
+            assertEquals(dataFile.length(), in.readLong());
+        }
+    }
+
+    /**
+     * Tests asking for a region that was registered after the summary was written.
+     * Verifies the summary is rebuilt from the data file and covers the region.
+     */
+    @Test
+    public void testMissingRegion() throws Exception {
+        String fileName = writeDataFile("summary-test-region.csv");
+        new SummaryStore().record(fileName, madeUpDataSet());
+        RegionRegistry.getInstance().addRegion("Summary Test Box",
+                List.of(new double[] {0, 0, 2000, 0, 2000, 1000, 0, 1000}));
+
+        FileSummary summary = new SummaryStore().getSummary(fileName, "Summary Test Box");
+        assertNotNull(summary);
+        assertEquals(20, summary.getArea("All").statistics().getMean(), 1e-9);
+        assertEquals(2, summary.getArea("Summary Test Box").pointCount());
+        assertEquals(20, summary.getArea("Summary Test Box").statistics().getMean(), 1e-9);
+    }
+}
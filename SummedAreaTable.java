@@ -0,0 +1,209 @@
+import java.util.stream.IntStream;
+
+/**
+ * A SummedAreaTable (integral image) holds, for every cell of a dataset's raster, the
+ * sum of the valid values, the sum of their squares and the number of valid cells in
+ * the rectangle from cell (0, 0) up to that cell. The count, mean and variance of any
+ * axis-aligned rectangle then take four lookups per table, whatever its size, which
+ * suits a selection rectangle that is dragged across the map.
+ *
+ * The tables have one extra row and column of zeros so that no edge cases arise. They
+ * are built in two parallel passes: prefix sums along each row, then down each block
+ * of columns.
+ *
+ * The sums are taken of the values minus the mean of the whole raster. The prefix sums
+ * of raw values grow with the number of cells, and a rectangle's total is the difference
+ * of such large sums; its variance is then a further difference of two nearly equal
+ * figures. Shifted values keep the prefix sums and the squares small, so both keep
+ * their precision (the variance is exact up to rounding if the rectangle's mean is near
+ * the raster's).
+ *
+ * The table does not follow later changes to the dataset; DataSet.getSummedAreaTable()
+ * rebuilds it when needed.
+ */
+public class SummedAreaTable
+{
+    private static final int COLUMN_BLOCK = 256; // columns per parallel task in the second pass
+
+    private final GridGeometry geometry;
+    private final int width;      // columns + 1
+    private final double shift;   // the mean of the valid values, subtracted before summing
+    private final double[] sums;
+    private final double[] sumSquares;
+    private final int[] counts;
+
+    /**
+     * Build the tables for a raster.
+     *
+     * @param raster The raster of a dataset
+     */
+    public SummedAreaTable(GridRaster raster)
+    {
+        geometry = raster.getGeometry();
+        int columns = geometry.columns();
+        int rows = geometry.rows();
+        width = columns + 1;
+        sums = new double[width * (rows + 1)];
+        sumSquares = new double[width * (rows + 1)];
+        counts = new int[width * (rows + 1)];
+        double[] values = raster.getValues();
+        double total = 0;
+        int valid = 0;
+        for (double value : values) {
+            if (Double.isNaN(value)) continue;
+            total += value;
+            valid++;
+        }
+        shift = valid > 0 ? total / valid : 0;
+
+        // prefix sums along each row
+        IntStream.range(0, rows).parallel().forEach(row -> {
+            double sum = 0;
+            double sumSquare = 0;
+            int count = 0;
+            int offset = (row + 1) * width + 1;
+            for (int column = 0; column < columns; column++) {
+                double value = values[row * columns + column];
+                if (!Double.isNaN(value)) {
+                    double shifted = value - shift;
+                    sum += shifted;
+                    sumSquare += shifted * shifted;
+                    count++;
+                }
+                sums[offset + column] = sum;
+                sumSquares[offset + column] = sumSquare;
+                counts[offset + column] = count;
+            }
+        });
+
+        // prefix sums down the columns, a block of columns at a time
+        int blocks = (width + COLUMN_BLOCK - 1) / COLUMN_BLOCK;
+        IntStream.range(0, blocks).parallel().forEach(block -> {
+            int first = block * COLUMN_BLOCK;
+            int last = Math.min(width, first + COLUMN_BLOCK);
+            for (int row = 2; row <= rows; row++) {
+                int offset = row * width;
+                for (int column = first; column < last; column++) {
+                    sums[offset + column] += sums[offset - width + column];
+                    sumSquares[offset + column] += sumSquares[offset - width + column];
+                    counts[offset + column] += counts[offset - width + column];
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns the number of valid cells whose centres lie in a rectangle.
+     *
+     * @param minX The west edge (easting)
+     * @param minY The south edge (northing)
+     * @param maxX The east edge (easting)
+     * @param maxY The north edge (northing)
+     */
+    public int getCount(double minX, double minY, double maxX, double maxY)
+    {
+        int[] range = toCellRange(minX, minY, maxX, maxY);
+        return range == null ? 0 : getCellRangeCount(range[0], range[1], range[2], range[3]);
+    }
+
+    /**
+     * Returns the sum of the valid values whose cell centres lie in a rectangle.
+     */
+    public double getSum(double minX, double minY, double maxX, double maxY)
+    {
+        int[] range = toCellRange(minX, minY, maxX, maxY);
+        if (range == null) return 0;
+        return lookup(sums, range[0], range[1], range[2], range[3])
+               + shift * getCellRangeCount(range[0], range[1], range[2], range[3]);
+    }
+
+    /**
+     * Returns the mean of the valid values whose cell centres lie in a rectangle,
+     * or NaN if there are none.
+     */
+    public double getMean(double minX, double minY, double maxX, double maxY)
+    {
+        int[] range = toCellRange(minX, minY, maxX, maxY);
+        return range == null ? Double.NaN : getCellRangeMean(range[0], range[1], range[2], range[3]);
+    }
+
+    /**
+     * Returns the (population) variance of the valid values whose cell centres lie
+     * in a rectangle, or NaN if there are none.
+     */
+    public double getVariance(double minX, double minY, double maxX, double maxY)
+    {
+        int[] range = toCellRange(minX, minY, maxX, maxY);
+        return range == null ? Double.NaN : getCellRangeVariance(range[0], range[1], range[2], range[3]);
+    }
+
+    /**
+     * Returns the number of valid cells in a block of cells (bounds inclusive, clipped
+     * to the raster).
+     */
+    public int getCellRangeCount(int firstColumn, int firstRow, int lastColumn, int lastRow)
+    {
+        firstColumn = Math.max(0, firstColumn);
+        firstRow = Math.max(0, firstRow);
+        lastColumn = Math.min(geometry.columns() - 1, lastColumn);
+        lastRow = Math.min(geometry.rows() - 1, lastRow);
+        if (firstColumn > lastColumn || firstRow > lastRow) return 0;
+        int low = firstRow * width;
+        int high = (lastRow + 1) * width;
+        return counts[high + lastColumn + 1] - counts[low + lastColumn + 1] - counts[high + firstColumn] + counts[low + firstColumn];
+    }
+
+    /**
+     * Returns the mean of the valid values in a block of cells (bounds inclusive,
+     * clipped to the raster), or NaN if there are none.
+     */
+    public double getCellRangeMean(int firstColumn, int firstRow, int lastColumn, int lastRow)
+    {
+        int count = getCellRangeCount(firstColumn, firstRow, lastColumn, lastRow);
+        if (count == 0) return Double.NaN;
+        return shift + lookup(sums, firstColumn, firstRow, lastColumn, lastRow) / count;
+    }
+
+    /**
+     * Returns the (population) variance of the valid values in a block of cells (bounds
+     * inclusive, clipped to the raster), or NaN if there are none.
+     */
+    public double getCellRangeVariance(int firstColumn, int firstRow, int lastColumn, int lastRow)
+    {
+        int count = getCellRangeCount(firstColumn, firstRow, lastColumn, lastRow);
+        if (count == 0) return Double.NaN;
+        double shiftedMean = lookup(sums, firstColumn, firstRow, lastColumn, lastRow) / count;
+        double meanSquare = lookup(sumSquares, firstColumn, firstRow, lastColumn, lastRow) / count;
+        return Math.max(0, meanSquare - shiftedMean * shiftedMean);
+    }
+
+    /**
+     * The total of a table over a block of cells, from the four corner entries. The
+     * block is clipped to the raster and must not be empty after clipping.
+     */
+    private double lookup(double[] table, int firstColumn, int firstRow, int lastColumn, int lastRow)
+    {
+        firstColumn = Math.max(0, firstColumn);
+        firstRow = Math.max(0, firstRow);
+        lastColumn = Math.min(geometry.columns() - 1, lastColumn);
+        lastRow = Math.min(geometry.rows() - 1, lastRow);
+        int low = firstRow * width;
+        int high = (lastRow + 1) * width;
+        return table[high + lastColumn + 1] - table[low + lastColumn + 1] - table[high + firstColumn] + table[low + firstColumn];
+    }
+
+    /**
+     * Returns the cells whose centres lie in a rectangle as {firstColumn, firstRow,
+     * lastColumn, lastRow}, clipped to the raster, or null if there are none.
+     */
+    private int[] toCellRange(double minX, double minY, double maxX, double maxY)
+    {
+        double cellSize = geometry.cellSize();
+        int firstColumn = Math.max(0, (int) Math.ceil((minX - geometry.originX()) / cellSize));
+        int firstRow = Math.max(0, (int) Math.ceil((minY - geometry.originY()) / cellSize));
+        int lastColumn = Math.min(geometry.columns() - 1, (int) Math.floor((maxX - geometry.originX()) / cellSize));
+        int lastRow = Math.min(geometry.rows() - 1, (int) Math.floor((maxY - geometry.originY()) / cellSize));
+        if (firstColumn > lastColumn || firstRow > lastRow) return null;
+        return new int[] {firstColumn, firstRow, lastColumn, lastRow};
+    }
+}
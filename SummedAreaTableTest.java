@@ -0,0 +1,174 @@
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the SummedAreaTable class, comparing its rectangle statistics with a
+ * brute-force scan of the cells.
+ */
+public class SummedAreaTableTest {
+
+    private static final int COLUMNS = 23;
+    private static final int ROWS = 17;
+
+    /**
+     * Creates a dataset on a 1km grid from rows of values; NaN leaves a cell without a point.
+     */
+    private DataSet dataSet(double[][] grid) {
+        List<DataPoint> points = new ArrayList<>();
+        for (int row = 0; row < grid.length; row++) {
+            for (int column = 0; column < grid[row].length; column++) {
+                if (Double.isNaN(grid[row][column])) continue;
+                points.add(new DataPoint(points.size(), 500 + 1000 * column, 500 + 1000 * row, grid[row][column]));
+            }
+        }
+        DataSet dataSet = new DataSet("no2", "2023", "annual mean", "ug m-3");
+        dataSet.setData(points);
+        return dataSet;
+    }
+
+    /**
+     * Creates a grid of random values around a level, with about one cell in six missing
+     * (-1) and one in ten without a point. The corners always hold a value, so the grid
+     * keeps its size.
+     */
+    private double[][] randomGrid(Random random, double level) {
+        double[][] grid = new double[ROWS][COLUMNS];
+        for (int row = 0; row < ROWS; row++) {
+            for (int column = 0; column < COLUMNS; column++) {
+                int kind = random.nextInt(30);
+                grid[row][column] = kind < 5 ? -1 : kind < 8 ? Double.NaN : level + random.nextDouble() * 40;
+            }
+        }
+        grid[0][0] = level;
+        grid[ROWS - 1][COLUMNS - 1] = level;
+        return grid;
+    }
+
+    /**
+     * Returns {count, sum, mean, variance} of the valid values in a block of cells
+     * (bounds inclusive) by a scan; the mean and variance are NaN if there are none.
+     */
+    private double[] scan(double[][] grid, int firstColumn, int firstRow, int lastColumn, int lastRow) {
+        double count = 0, sum = 0;
+        for (int row = Math.max(0, firstRow); row <= Math.min(ROWS - 1, lastRow); row++) {
+            for (int column = Math.max(0, firstColumn); column <= Math.min(COLUMNS - 1, lastColumn); column++) {
+                double value = grid[row][column];
+                if (Double.isNaN(value) || value < 0) continue;
+                count++;
+                sum += value;
+            }
+        }
+        if (count == 0) return new double[] {0, 0, Double.NaN, Double.NaN};
+        double mean = sum / count;
+        double m2 = 0;
+        for (int row = Math.max(0, firstRow); row <= Math.min(ROWS - 1, lastRow); row++) {
+            for (int column = Math.max(0, firstColumn); column <= Math.min(COLUMNS - 1, lastColumn); column++) {
+                double value = grid[row][column];
+                if (Double.isNaN(value) || value < 0) continue;
+                m2 += (value - mean) * (value - mean);
+            }
+        }
+        return new double[] {count, sum, mean, m2 / count};
+    }
+
+    /**
+     * Checks the table against the scan for a block of cells, both by cell range and by
+     * the rectangle through the cell centres at its corners.
+     */
+    private void assertSameAsScan(double[][] grid, SummedAreaTable table, GridGeometry geometry,
+                                  int firstColumn, int firstRow, int lastColumn, int lastRow, double delta) {
+        double[] expected = scan(grid, firstColumn, firstRow, lastColumn, lastRow);
+        String block = firstColumn + "," + firstRow + " to " + lastColumn + "," + lastRow;
+        assertEquals((int) expected[0], table.getCellRangeCount(firstColumn, firstRow, lastColumn, lastRow), block);
+        assertEquals(expected[2], table.getCellRangeMean(firstColumn, firstRow, lastColumn, lastRow), delta, block);
+        assertEquals(expected[3], table.getCellRangeVariance(firstColumn, firstRow, lastColumn, lastRow), delta, block);
+
+        double minX = geometry.originX() + firstColumn * geometry.cellSize();
+        double minY = geometry.originY() + firstRow * geometry.cellSize();
+        double maxX = geometry.originX() + lastColumn * geometry.cellSize();
+        double maxY = geometry.originY() + lastRow * geometry.cellSize();
+        assertEquals((int) expected[0], table.getCount(minX, minY, maxX, maxY), block);
+        assertEquals(expected[1], table.getSum(minX, minY, maxX, maxY), delta * Math.max(1, expected[0]), block);
+        assertEquals(expected[2], table.getMean(minX, minY, maxX, maxY), delta, block);
+        assertEquals(expected[3], table.getVariance(minX, minY, maxX, maxY), delta, block);
+    }
+
+    /**
+     * Tests random blocks, including blocks that reach past every edge of the raster,
+     * on a grid with missing values and cells without points.
+     * Verifies the same count, sum, mean and variance as the scan.
+     */
+    @Test
+    public void testAgainstScan() {
+        Random random = new Random(23);
+        double[][] grid = randomGrid(random, 10);
+        DataSet data = dataSet(grid);
+        SummedAreaTable table = data.getSummedAreaTable();
+        GridGeometry geometry = data.getRaster().getGeometry();
+        for (int trial = 0; trial < 500; trial++) {
+            int firstColumn = random.nextInt(COLUMNS + 6) - 3;
+            int firstRow = random.nextInt(ROWS + 6) - 3;
+            int lastColumn = firstColumn + random.nextInt(COLUMNS);
+            int lastRow = firstRow + random.nextInt(ROWS);
+            assertSameAsScan(grid, table, geometry, firstColumn, firstRow, lastColumn, lastRow, 1e-9);
+        }
+        assertSameAsScan(grid, table, geometry, 0, 0, COLUMNS - 1, ROWS - 1, 1e-9);
+        assertSameAsScan(grid, table, geometry, -100, -100, 100, 100, 1e-9);
+    }
+
+    /**
+     * Tests rectangles that hold no cell centre, lie outside the raster, or hold only
+     * missing cells.
+     * Verifies a count and sum of zero and a NaN mean and variance.
+     */
+    @Test
+    public void testEmptyRectangles() {
+        double[][] grid = new double[ROWS][COLUMNS];
+        grid[2][3] = -1;
+        grid[2][4] = Double.NaN;
+        DataSet data = dataSet(grid);
+        SummedAreaTable table = data.getSummedAreaTable();
+        GridGeometry geometry = data.getRaster().getGeometry();
+        double x = geometry.originX();
+        double y = geometry.originY();
+
+        // between the centres of two neighbouring cells
+        assertEquals(0, table.getCount(x + 100, y + 100, x + 900, y + 900));
+        assertEquals(0, table.getSum(x + 100, y + 100, x + 900, y + 900));
+        assertTrue(Double.isNaN(table.getMean(x + 100, y + 100, x + 900, y + 900)));
+        assertTrue(Double.isNaN(table.getVariance(x + 100, y + 100, x + 900, y + 900)));
+        // outside the raster, and upside down
+        assertEquals(0, table.getCount(x - 5000, y - 5000, x - 2000, y - 2000));
+        assertEquals(0, table.getCount(x + 3000, y + 3000, x + 1000, y + 1000));
+        assertEquals(0, table.getCellRangeCount(COLUMNS, 0, COLUMNS + 4, ROWS - 1));
+        assertTrue(Double.isNaN(table.getCellRangeMean(-5, -5, -1, -1)));
+        // only a missing cell and a cell without a point
+        assertEquals(0, table.getCellRangeCount(3, 2, 4, 2));
+        assertTrue(Double.isNaN(table.getCellRangeVariance(3, 2, 4, 2)));
+        assertEquals(1, table.getCellRangeCount(3, 2, 5, 2));
+    }
+
+    /**
+     * Tests a raster of large values that differ by little, where the raw sums of squares
+     * would cancel out.
+     * Verifies the variance of random blocks to well within the spread of the values.
+     */
+    @Test
+    public void testPrecisionOfLargeValues() {
+        Random random = new Random(29);
+        double[][] grid = randomGrid(random, 1e7);
+        DataSet data = dataSet(grid);
+        SummedAreaTable table = data.getSummedAreaTable();
+        GridGeometry geometry = data.getRaster().getGeometry();
+        for (int trial = 0; trial < 200; trial++) {
+            int firstColumn = random.nextInt(COLUMNS);
+            int firstRow = random.nextInt(ROWS);
+            assertSameAsScan(grid, table, geometry, firstColumn, firstRow,
+                             firstColumn + random.nextInt(COLUMNS), firstRow + random.nextInt(ROWS), 1e-6);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * TestGrids builds the small gridded datasets the unit tests run on: 1km cells whose
+ * centres lie at 500, 1500, ... metres.
+ */
+public class TestGrids
+{
+    /**
+     * The grid helpers are static; no instances are made.
+     */
+    private TestGrids()
+    {
+    }
+
+    /**
+     * Creates a dataset from a grid of values, given row by row from the south; -1 is
+     * missing. Point indices run in the same order.
+     *
+     * @param grid The values, grid[row][column]
+     * @return An annual mean NO2 dataset for 2023
+     */
+    public static DataSet dataSet(double[][] grid)
+    {
+        List<DataPoint> points = new ArrayList<>();
+        for (int row = 0; row < grid.length; row++) {
+            for (int column = 0; column < grid[row].length; column++) {
+                points.add(new DataPoint(points.size(), 500 + 1000 * column, 500 + 1000 * row, grid[row][column]));
+            }
+        }
+        DataSet dataSet = new DataSet("no2", "2023", "annual mean", "ug m-3");
+        dataSet.setData(points);
+        return dataSet;
+    }
+}
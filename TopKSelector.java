@@ -0,0 +1,133 @@
+import java.util.BitSet;
+
+/**
+ * TopKSelector finds the k points with the highest valid values of a dataset, or of
+ * the selected points of a dataset (e.g. those in a region), without sorting them all.
+ *
+ * The points are kept in a min-heap of at most k entries held in two primitive arrays:
+ * the root is the lowest of the best values found so far, so each further point is
+ * compared with the root and only enters the heap if it beats it. That takes
+ * O(n log k) time and O(k) memory, with no boxing.
+ */
+public class TopKSelector
+{
+    private final int k;
+
+    /**
+     * Create a selector.
+     *
+     * @param k The number of points to select
+     */
+    public TopKSelector(int k)
+    {
+        if (k < 0) throw new IllegalArgumentException("Negative k: " + k);
+        this.k = k;
+    }
+
+    /**
+     * Return the number of points this selector selects.
+     */
+    public int getK()
+    {
+        return k;
+    }
+
+    /**
+     * Selects the points of a dataset with the highest valid values.
+     *
+     * @param dataSet The dataset
+     * @param selected The indices of the points to consider, or null for all points
+     * @return Up to k point indices, highest value first; of equal values, the earlier point comes first
+     */
+    public int[] select(DataSet dataSet, BitSet selected)
+    {
+        return select(dataSet.getColumns().getValues(), dataSet.size(), selected);
+    }
+
+    /**
+     * Selects the positions in a value column with the highest valid values.
+     *
+     * @param values The value column; values below 0 are missing
+     * @param size The number of values in use
+     * @param selected The positions to consider, or null for all positions
+     * @return Up to k positions, highest value first; of equal values, the earlier position comes first
+     */
+    public int[] select(double[] values, int size, BitSet selected)
+    {
+        double[] heapValues = new double[k];
+        int[] heapPoints = new int[k];
+        int heapSize = 0;
+        int first = selected == null ? (size > 0 ? 0 : -1) : selected.nextSetBit(0);
+        for (int i = first; i >= 0 && i < size; i = selected == null ? i + 1 : selected.nextSetBit(i + 1)) {
+            double value = values[i];
+            if (value < 0) continue;
+            if (heapSize < k) {
+                heapValues[heapSize] = value;
+                heapPoints[heapSize] = i;
+                siftUp(heapValues, heapPoints, heapSize++);
+            }
+            else if (k > 0 && comesBefore(value, i, heapValues[0], heapPoints[0])) {
+                heapValues[0] = value;
+                heapPoints[0] = i;
+                siftDown(heapValues, heapPoints, 0, heapSize);
+            }
+        }
+
+        // emptying the heap gives the lowest first, so fill the result from the back
+        int[] points = new int[heapSize];
+        for (int last = heapSize - 1; last >= 0; last--) {
+            points[last] = heapPoints[0];
+            heapValues[0] = heapValues[last];
+            heapPoints[0] = heapPoints[last];
+            siftDown(heapValues, heapPoints, 0, last);
+        }
+        return points;
+    }
+
+    /**
+     * Returns true if the first point ranks above the second: it has a higher value, or
+     * the same value and an earlier position.
+     */
+    private static boolean comesBefore(double value, int point, double otherValue, int otherPoint)
+    {
+        return value > otherValue || (value == otherValue && point < otherPoint);
+    }
+
+    /**
+     * Moves the entry at a heap position up until its parent ranks below it.
+     */
+    private static void siftUp(double[] heapValues, int[] heapPoints, int at)
+    {
+        double value = heapValues[at];
+        int point = heapPoints[at];
+        while (at > 0) {
+            int parent = (at - 1) >>> 1;
+            if (!comesBefore(heapValues[parent], heapPoints[parent], value, point)) break;
+            heapValues[at] = heapValues[parent];
+            heapPoints[at] = heapPoints[parent];
+            at = parent;
+        }
+        heapValues[at] = value;
+        heapPoints[at] = point;
+    }
+
+    /**
+     * Moves the entry at a heap position down until both children rank above it.
+     */
+    private static void siftDown(double[] heapValues, int[] heapPoints, int at, int heapSize)
+    {
+        double value = heapValues[at];
+        int point = heapPoints[at];
+        while (true) {
+            int child = 2 * at + 1;
+            if (child >= heapSize) break;
+            if (child + 1 < heapSize && comesBefore(heapValues[child], heapPoints[child], heapValues[child + 1], heapPoints[child + 1])) child++;
+            if (!comesBefore(value, point, heapValues[child], heapPoints[child])) break;
+            heapValues[at] = heapValues[child];
+            heapPoints[at] = heapPoints[child];
+            at = child;
+        }
+        heapValues[at] = value;
+        heapPoints[at] = point;
+    }
+}
@@ -0,0 +1,127 @@
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the TopKSelector class, comparing its selections with a full sort.
+ */
+public class TopKSelectorTest {
+
+    /**
+     * Returns the first k positions of the valid selected values by a full sort, highest
+     * value first and of equal values the earlier position first.
+     */
+    private int[] sorted(double[] values, BitSet selected, int k) {
+        List<Integer> positions = new ArrayList<>();
+        for (int i = 0; i < values.length; i++) {
+            if ((selected == null || selected.get(i)) && values[i] >= 0) positions.add(i);
+        }
+        positions.sort(Comparator.comparingDouble((Integer i) -> -values[i]).thenComparingInt(i -> i));
+        return positions.stream().limit(k).mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Tests a selector with k = 0.
+     * Verifies an empty selection, whatever the values.
+     */
+    @Test
+    public void testZeroK() {
+        assertArrayEquals(new int[0], new TopKSelector(0).select(new double[] {5, 9, 1}, 3, null));
+        assertThrows(IllegalArgumentException.class, () -> new TopKSelector(-1));
+    }
+
+    /**
+     * Tests a k larger than the number of valid values, and a column with none.
+     * Verifies that every valid value is selected, highest first, and nothing more.
+     */
+    @Test
+    public void testKAboveValidCount() {
+        double[] values = {4, -1, 9, -1, 6};
+        assertArrayEquals(new int[] {2, 4, 0}, new TopKSelector(10).select(values, values.length, null));
+        assertArrayEquals(new int[0], new TopKSelector(3).select(new double[] {-1, -1}, 2, null));
+        assertArrayEquals(new int[0], new TopKSelector(3).select(values, 0, null));
+    }
+
+    /**
+     * Tests values with ties, including a tie at the cut-off.
+     * Verifies that of equal values the earlier position is selected first.
+     */
+    @Test
+    public void testTies() {
+        double[] values = {7, 3, 7, 9, 7, 3, 9};
+        assertArrayEquals(new int[] {3, 6, 0, 2}, new TopKSelector(4).select(values, values.length, null));
+        assertArrayEquals(new int[] {3, 6, 0}, new TopKSelector(3).select(values, values.length, null));
+        assertArrayEquals(new int[] {0, 1, 2}, new TopKSelector(3).select(new double[] {2, 2, 2, 2, 2}, 5, null));
+    }
+
+    /**
+     * Tests negative values: the missing value -1, other negative values and -0.0.
+     * Verifies that negative values are never selected, while -0.0 counts as zero.
+     */
+    @Test
+    public void testNegativeValues() {
+        double[] values = {-1, -5, -0.0, -0.5, 1, -100};
+        assertArrayEquals(new int[] {4, 2}, new TopKSelector(5).select(values, values.length, null));
+    }
+
+    /**
+     * Tests a selection of runs of positions and a size below the column's length.
+     * Verifies that only selected positions within the size are chosen.
+     */
+    @Test
+    public void testSelected() {
+        double[] values = {50, 10, 40, 30, 20, 60, 70, 80};
+        BitSet selected = new BitSet();
+        selected.set(1, 4);
+        selected.set(6, 10);
+        assertArrayEquals(new int[] {7, 6, 2}, new TopKSelector(3).select(values, values.length, selected));
+        assertArrayEquals(new int[] {6, 2, 3, 1}, new TopKSelector(5).select(values, 7, selected));
+        assertArrayEquals(new int[0], new TopKSelector(3).select(values, values.length, new BitSet()));
+    }
+
+    /**
+     * Tests random columns with few distinct values, missing values and random
+     * selections, for several k.
+     * Verifies the same positions as a full sort.
+     */
+    @Test
+    public void testAgainstSort() {
+        Random random = new Random(11);
+        for (int trial = 0; trial < 200; trial++) {
+            double[] values = new double[random.nextInt(80)];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = random.nextInt(5) == 0 ? -1 : random.nextInt(20);
+            }
+            BitSet selected = null;
+            if (random.nextBoolean()) {
+                selected = new BitSet();
+                for (int i = 0; i < values.length; i++) {
+                    if (random.nextInt(3) > 0) selected.set(i);
+                }
+            }
+            int k = random.nextInt(15);
+            assertArrayEquals(sorted(values, selected, k), new TopKSelector(k).select(values, values.length, selected));
+        }
+    }
+
+    /**
+     * Tests selecting from a dataset.
+     * Verifies the point indices of the highest values of the dataset.
+     */
+    @Test
+    public void testSelectDataSet() {
+        List<DataPoint> points = new ArrayList<>();
+        double[] values = {12, -1, 30, 25};
+        for (int i = 0; i < values.length; i++) {
+            points.add(new DataPoint(i + 1, 500 + 1000 * i, 500, values[i]));
+        }
+        DataSet dataSet = new DataSet("no2", "2023", "annual mean", "ug m-3");
+        dataSet.setData(points);
+        assertArrayEquals(new int[] {2, 3}, new TopKSelector(2).select(dataSet, null));
+    }
+}
@@ -0,0 +1,226 @@
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * ValueIndex holds the points of a dataset with a valid value sorted by value, so that
+ * the points whose value is closest to a given level, or lies within a range, are
+ * found by binary search instead of a scan over all points.
+ *
+ * The points are sorted once with a least significant digit radix sort on the bit
+ * patterns of the values: for values of zero or more these order the same way as the
+ * values themselves, so the sort works on primitive longs and needs no comparisons.
+ * Points with equal values keep their order in the dataset.
+ */
+public class ValueIndex
+{
+    private static final int RADIX_BITS = 8;
+    private static final int RADIX = 1 << RADIX_BITS;
+
+    private final double[] sortedValues; // the valid values, lowest first
+    private final int[] sortedPoints;    // the point index of each sorted value
+
+    /**
+     * Build the index for the given point columns.
+     *
+     * @param points The point columns of a dataset
+     */
+    public ValueIndex(PointColumns points)
+    {
+        double[] values = points.getValues();
+        int size = 0;
+        for (int i = 0; i < points.size(); i++) {
+            if (values[i] >= 0) size++;
+        }
+
+        long[] keys = new long[size];
+        int[] order = new int[size];
+        int next = 0;
+        for (int i = 0; i < points.size(); i++) {
+            if (values[i] >= 0) {
+                keys[next] = Double.doubleToLongBits(values[i] + 0.0); // + 0.0 turns -0.0 into 0.0
+                order[next++] = i;
+            }
+        }
+        radixSort(keys, order);
+
+        sortedValues = new double[size];
+        sortedPoints = order;
+        for (int i = 0; i < size; i++) {
+            sortedValues[i] = Double.longBitsToDouble(keys[i]);
+        }
+    }
+
+    /**
+     * Return the number of points with a valid value.
+     */
+    public int size()
+    {
+        return sortedPoints.length;
+    }
+
+    /**
+     * Returns the value at a position in the sorted order.
+     *
+     * @param rank The position, 0 for the lowest value
+     */
+    public double getValue(int rank)
+    {
+        return sortedValues[rank];
+    }
+
+    /**
+     * Returns the point index at a position in the sorted order.
+     *
+     * @param rank The position, 0 for the lowest value
+     */
+    public int getPoint(int rank)
+    {
+        return sortedPoints[rank];
+    }
+
+    /**
+     * Returns the position of the first value that is not lower than the given value
+     * (size() if there is none).
+     *
+     * @param value The value to look for
+     */
+    public int lowerBound(double value)
+    {
+        int low = 0;
+        int high = sortedValues.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sortedValues[middle] < value) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+
+    /**
+     * Returns the point whose value is closest to the given value.
+     *
+     * @param value The value to look for
+     * @return The point index, or -1 if there are no valid values
+     */
+    public int closest(double value)
+    {
+        return closest(value, point -> true);
+    }
+
+    /**
+     * Returns the point whose value is closest to the given value among the points
+     * accepted by a filter, e.g. the points inside a region. Points are tried in order
+     * of distance from the value, so only the points closer than the answer are looked at.
+     *
+     * @param value The value to look for
+     * @param filter Accepts the point indices to consider
+     * @return The point index, or -1 if no point is accepted
+     */
+    public int closest(double value, IntPredicate filter)
+    {
+        int above = lowerBound(value);
+        int below = above - 1;
+        while (below >= 0 || above < sortedValues.length) {
+            boolean takeBelow = above >= sortedValues.length
+                             || (below >= 0 && value - sortedValues[below] <= sortedValues[above] - value);
+            int point = takeBelow ? sortedPoints[below--] : sortedPoints[above++];
+            if (filter.test(point)) return point;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the points whose value is closest to the given value.
+     *
+     * @param value The value to look for
+     * @param count The number of points wanted
+     * @return Up to count point indices, closest first
+     */
+    public int[] closest(double value, int count)
+    {
+        int[] points = new int[Math.min(count, sortedPoints.length)];
+        int above = lowerBound(value);
+        int below = above - 1;
+        for (int i = 0; i < points.length; i++) {
+            boolean takeBelow = above >= sortedValues.length
+                             || (below >= 0 && value - sortedValues[below] <= sortedValues[above] - value);
+            points[i] = takeBelow ? sortedPoints[below--] : sortedPoints[above++];
+        }
+        return points;
+    }
+
+    /**
+     * Returns the points whose value lies within a range (bounds inclusive).
+     *
+     * @param low The lowest value
+     * @param high The highest value
+     * @return The point indices, lowest value first
+     */
+    public int[] inRange(double low, double high)
+    {
+        int from = lowerBound(low);
+        int to = upperBound(high);
+        return from < to ? Arrays.copyOfRange(sortedPoints, from, to) : new int[0];
+    }
+
+    /**
+     * Returns the number of points whose value lies within a range (bounds inclusive).
+     *
+     * @param low The lowest value
+     * @param high The highest value
+     */
+    public int countInRange(double low, double high)
+    {
+        return Math.max(0, upperBound(high) - lowerBound(low));
+    }
+
+    /**
+     * Returns the position of the first value that is higher than the given value.
+     */
+    private int upperBound(double value)
+    {
+        int low = 0;
+        int high = sortedValues.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sortedValues[middle] <= value) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+
+    /**
+     * Sorts the keys, and the point indices with them, one byte at a time from the
+     * lowest. A byte that is the same in all keys is skipped.
+     */
+    private static void radixSort(long[] keys, int[] order)
+    {
+        int size = keys.length;
+        long[] keyBuffer = new long[size];
+        int[] orderBuffer = new int[size];
+        int[] counts = new int[RADIX];
+        for (int shift = 0; shift < Long.SIZE; shift += RADIX_BITS) {
+            Arrays.fill(counts, 0);
+            for (int i = 0; i < size; i++) {
+                counts[(int) (keys[i] >>> shift) & (RADIX - 1)]++;
+            }
+            if (size == 0 || counts[(int) (keys[0] >>> shift) & (RADIX - 1)] == size) continue;
+
+            // counts[digit] becomes the first position of the digit
+            int total = 0;
+            for (int digit = 0; digit < RADIX; digit++) {
+                int count = counts[digit];
+                counts[digit] = total;
+                total += count;
+            }
+            for (int i = 0; i < size; i++) {
+                int digit = (int) (keys[i] >>> shift) & (RADIX - 1);
+                int at = counts[digit]++;
+                keyBuffer[at] = keys[i];
+                orderBuffer[at] = order[i];
+            }
+            System.arraycopy(keyBuffer, 0, keys, 0, size);
+            System.arraycopy(orderBuffer, 0, order, 0, size);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the ValueIndex class, comparing its lookups with scans over the
+ * point values.
+ */
+public class ValueIndexTest {
+
+    /**
+     * Creates point columns holding the given values, on a row of 1km cells.
+     */
+    private PointColumns columns(double... values) {
+        PointColumns columns = new PointColumns();
+        for (int i = 0; i < values.length; i++) {
+            columns.add(i, 500 + 1000 * i, 500, values[i]);
+        }
+        return columns;
+    }
+
+    /**
+     * Returns the valid points ordered by value, and of equal values by position; -0.0
+     * equals 0.0.
+     */
+    private List<Integer> sortedByValue(double[] values) {
+        List<Integer> points = new ArrayList<>();
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] >= 0) points.add(i);
+        }
+        points.sort(Comparator.comparingDouble((Integer i) -> values[i] + 0.0).thenComparingInt(i -> i));
+        return points;
+    }
+
+    /**
+     * Tests the sorted order of random values with many duplicates, missing values and -0.0.
+     * Verifies the same order as a stable sort, with missing values left out.
+     */
+    @Test
+    public void testSortedOrder() {
+        Random random = new Random(31);
+        double[] values = new double[2000];
+        for (int i = 0; i < values.length; i++) {
+            int kind = random.nextInt(10);
+            values[i] = kind == 0 ? -1 : kind == 1 ? -0.0 : random.nextInt(50) + random.nextInt(4) * 0.25;
+        }
+        ValueIndex index = new ValueIndex(columns(values));
+        List<Integer> expected = sortedByValue(values);
+        assertEquals(expected.size(), index.size());
+        for (int rank = 0; rank < index.size(); rank++) {
+            assertEquals((int) expected.get(rank), index.getPoint(rank), "rank " + rank);
+            assertEquals(values[expected.get(rank)], index.getValue(rank), 0); // a delta of 0 takes -0.0 as 0.0
+        }
+    }
+
+    /**
+     * Tests range lookups with bounds on duplicated values, between values, covering
+     * everything, and holding nothing.
+     * Verifies the points with values within the bounds (inclusive), lowest first and
+     * duplicates in point order, and matching counts.
+     */
+    @Test
+    public void testInRange() {
+        double[] values = {5, 3, -1, 7, 3, 9, 5, 0, 3};
+        ValueIndex index = new ValueIndex(columns(values));
+        assertArrayEquals(new int[] {1, 4, 8, 0, 6}, index.inRange(3, 5));
+        assertArrayEquals(new int[] {0, 6, 3}, index.inRange(4, 8));
+        assertArrayEquals(new int[] {7, 1, 4, 8, 0, 6, 3, 5}, index.inRange(0, 100));
+        assertArrayEquals(new int[] {5}, index.inRange(9, 9));
+        assertEquals(5, index.countInRange(3, 5));
+        assertEquals(8, index.countInRange(-10, 10));
+
+        // nothing between two values, beyond the ends, or with the bounds upside down
+        assertArrayEquals(new int[0], index.inRange(5.5, 6.5));
+        assertArrayEquals(new int[0], index.inRange(10, 20));
+        assertArrayEquals(new int[0], index.inRange(-5, -1));
+        assertArrayEquals(new int[0], index.inRange(7, 3));
+        assertEquals(0, index.countInRange(7, 3));
+        assertEquals(0, index.countInRange(5.5, 6.5));
+    }
+
+    /**
+     * Tests random ranges on random values.
+     * Verifies the same points as a scan, in the order of the stable sort.
+     */
+    @Test
+    public void testInRangeAgainstScan() {
+        Random random = new Random(37);
+        double[] values = new double[500];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextInt(8) == 0 ? -1 : random.nextInt(100);
+        }
+        ValueIndex index = new ValueIndex(columns(values));
+        List<Integer> sorted = sortedByValue(values);
+        for (int trial = 0; trial < 200; trial++) {
+            double low = random.nextInt(120) - 10;
+            double high = low + random.nextInt(40) - 5;
+            int[] expected = sorted.stream().filter(i -> values[i] >= low && values[i] <= high).mapToInt(Integer::intValue).toArray();
+            assertArrayEquals(expected, index.inRange(low, high), low + " to " + high);
+            assertEquals(expected.length, index.countInRange(low, high));
+        }
+    }
+
+    /**
+     * Tests nearest-value lookups below, above and between the values, on a duplicate
+     * and halfway between two values.
+     * Verifies the closest point (of duplicates, the first met from the looked-up value)
+     * and the lower value on a tie.
+     */
+    @Test
+    public void testClosest() {
+        double[] values = {10, 20, -1, 20, 40};
+        ValueIndex index = new ValueIndex(columns(values));
+        assertEquals(0, index.closest(-5));
+        assertEquals(4, index.closest(1000));
+        assertEquals(1, index.closest(20));
+        assertEquals(3, index.closest(24));
+        assertEquals(0, index.closest(15));
+        assertEquals(4, index.closest(31));
+
+        // the n closest, closest first
+        assertArrayEquals(new int[] {1, 3, 0}, index.closest(18, 3));
+        assertArrayEquals(new int[] {4, 3, 1, 0}, index.closest(100, 10));
+        assertArrayEquals(new int[0], index.closest(18, 0));
+    }
+
+    /**
+     * Tests a filtered nearest-value lookup on random values.
+     * Verifies a point that the filter accepts and that no accepted point is closer,
+     * and -1 if the filter accepts nothing.
+     */
+    @Test
+    public void testClosestWithFilter() {
+        Random random = new Random(41);
+        double[] values = new double[300];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextInt(6) == 0 ? -1 : random.nextDouble() * 80;
+        }
+        ValueIndex index = new ValueIndex(columns(values));
+        for (int trial = 0; trial < 100; trial++) {
+            double level = random.nextDouble() * 100 - 10;
+            int modulus = 2 + random.nextInt(20);
+            int point = index.closest(level, i -> i % modulus == 0);
+            assertEquals(0, point % modulus);
+            for (int i = 0; i < values.length; i += modulus) {
+                if (values[i] >= 0) assertTrue(Math.abs(values[i] - level) >= Math.abs(values[point] - level));
+            }
+        }
+        assertEquals(-1, index.closest(10, i -> false));
+        assertEquals(-1, index.closest(10, i -> values[i] < 0));
+    }
+
+    /**
+     * Tests an index of no valid values.
+     * Verifies it is empty and every lookup finds nothing.
+     */
+    @Test
+    public void testEmpty() {
+        for (ValueIndex index : new ValueIndex[] {new ValueIndex(columns()), new ValueIndex(columns(-1, -1, -1))}) {
+            assertEquals(0, index.size());
+            assertEquals(-1, index.closest(5));
+            assertArrayEquals(new int[0], index.closest(5, 3));
+            assertArrayEquals(new int[0], index.inRange(0, 100));
+            assertEquals(0, index.countInRange(0, 100));
+            assertEquals(0, index.lowerBound(5));
+        }
+    }
+}
@@ -0,0 +1,115 @@
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * ZonalStatistics computes the count, sum, minimum, maximum, mean and variance of
+ * the pollution values in every zone of a label raster, for example every London
+ * borough, in a single pass over the dataset.
+ *
+ * A label raster gives the zone id (0 to zoneCount - 1) of every cell of the dataset's
+ * raster, or -1 for cells that belong to no zone. The cells are split into blocks that
+ * are processed in parallel; each worker thread keeps one Aggregate per zone, and the
+ * per-thread aggregates are merged zone by zone at the end. The work is therefore
+ * proportional to the number of cells, however many zones there are.
+ */
+public class ZonalStatistics
+{
+    private static final int BLOCK_SIZE = 1 << 16; // cells processed per parallel task
+
+    /**
+     * Compute the statistics of every registered region listed.
+     *
+     * @param dataSet The dataset
+     * @param regionNames The names of regions in the RegionRegistry. Where regions
+     *                    overlap, a cell counts towards the last of them.
+     * @return The statistics of each region, in the order given
+     */
+    public static Map<String, Aggregate> computeForRegions(DataSet dataSet, List<String> regionNames)
+    {
+        GridRaster raster = dataSet.getRaster();
+        int[] labels = RegionRegistry.getInstance().getLabelRaster(regionNames, raster.getGeometry());
+        Aggregate[] zones = compute(raster, labels, regionNames.size());
+
+        Map<String, Aggregate> results = new LinkedHashMap<>();
+        for (int zone = 0; zone < zones.length; zone++) {
+            results.put(regionNames.get(zone), zones[zone]);
+        }
+        return results;
+    }
+
+    /**
+     * Compute the statistics of every zone of a label raster.
+     *
+     * @param dataSet The dataset
+     * @param labels The zone id of every cell of dataSet.getRaster(), or -1
+     * @param zoneCount The number of zones
+     * @return The statistics of each zone, indexed by zone id
+     * @throws IllegalArgumentException if the label raster does not match the dataset's raster
+     */
+    public static Aggregate[] compute(DataSet dataSet, int[] labels, int zoneCount)
+    {
+        return compute(dataSet.getRaster(), labels, zoneCount);
+    }
+
+    /**
+     * Compute the statistics of every zone of a label raster.
+     *
+     * @param raster The raster of the dataset
+     * @param labels The zone id of every cell of the raster, or -1
+     * @param zoneCount The number of zones
+     * @return The statistics of each zone, indexed by zone id
+     * @throws IllegalArgumentException if the label raster does not match the raster
+     */
+    public static Aggregate[] compute(GridRaster raster, int[] labels, int zoneCount)
+    {
+        int cells = raster.getGeometry().cellCount();
+        if (labels.length != cells) {
+            throw new IllegalArgumentException("Label raster has " + labels.length + " cells, expected " + cells);
+        }
+        double[] values = raster.getValues();
+        int blocks = (cells + BLOCK_SIZE - 1) / BLOCK_SIZE;
+
+        return IntStream.range(0, blocks).parallel().collect(
+            () -> emptyZones(zoneCount),
+            (accumulators, block) -> add(accumulators, values, labels, block * BLOCK_SIZE, Math.min(cells, (block + 1) * BLOCK_SIZE)),
+            ZonalStatistics::merge);
+    }
+
+    /**
+     * Returns an empty aggregate for every zone.
+     */
+    private static Aggregate[] emptyZones(int zoneCount)
+    {
+        Aggregate[] zones = new Aggregate[zoneCount];
+        for (int zone = 0; zone < zoneCount; zone++) {
+            zones[zone] = new Aggregate();
+        }
+        return zones;
+    }
+
+    /**
+     * Adds the valid cells from start (inclusive) to end (exclusive) to the aggregates
+     * of their zones.
+     */
+    private static void add(Aggregate[] zones, double[] values, int[] labels, int start, int end)
+    {
+        for (int cell = start; cell < end; cell++) {
+            int zone = labels[cell];
+            double value = values[cell];
+            if (zone < 0 || zone >= zones.length || Double.isNaN(value)) continue;
+            zones[zone].add(value);
+        }
+    }
+
+    /**
+     * Merges the aggregates of another worker into these, zone by zone.
+     */
+    private static void merge(Aggregate[] zones, Aggregate[] others)
+    {
+        for (int zone = 0; zone < zones.length; zone++) {
+            zones[zone].merge(others[zone]);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the ZonalStatistics class, comparing the figures of every zone with a
+ * direct computation over the zone's cells.
+ */
+public class ZonalStatisticsTest {
+
+    /**
+     * Creates a dataset on a 1km grid of the given size with random values, about one
+     * in eight missing (-1).
+     */
+    private DataSet dataSet(int columns, int rows, long seed) {
+        Random random = new Random(seed);
+        List<DataPoint> points = new ArrayList<>(columns * rows);
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                double value = random.nextInt(8) == 0 ? -1 : random.nextDouble() * 80;
+                points.add(new DataPoint(points.size(), 500 + 1000 * column, 500 + 1000 * row, value));
+            }
+        }
+        DataSet dataSet = new DataSet("no2", "2023", "annual mean", "ug m-3");
+        dataSet.setData(points);
+        return dataSet;
+    }
+
+    /**
+     * Returns {count, sum, min, max, mean, variance} of the valid cells of one zone by
+     * two plain passes.
+     */
+    private double[] direct(double[] values, int[] labels, int zone) {
+        double count = 0, sum = 0, min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+        for (int cell = 0; cell < values.length; cell++) {
+            if (labels[cell] != zone || Double.isNaN(values[cell])) continue;
+            count++;
+            sum += values[cell];
+            min = Math.min(min, values[cell]);
+            max = Math.max(max, values[cell]);
+        }
+        double mean = sum / count;
+        double m2 = 0;
+        for (int cell = 0; cell < values.length; cell++) {
+            if (labels[cell] != zone || Double.isNaN(values[cell])) continue;
+            m2 += (values[cell] - mean) * (values[cell] - mean);
+        }
+        return new double[] {count, sum, min, max, mean, m2 / count};
+    }
+
+    /**
+     * Checks the aggregate of a zone against the direct computation.
+     */
+    private void assertSameAsDirect(double[] values, int[] labels, int zone, Aggregate actual) {
+        double[] expected = direct(values, labels, zone);
+        assertEquals((long) expected[0], actual.getCount(), "zone " + zone);
+        assertEquals(expected[1], actual.getSum(), 1e-6, "zone " + zone);
+        assertEquals(expected[2], actual.getMin(), "zone " + zone);
+        assertEquals(expected[3], actual.getMax(), "zone " + zone);
+        assertEquals(expected[4], actual.getMean(), 1e-9, "zone " + zone);
+        assertEquals(expected[5], actual.getVariance(), 1e-9, "zone " + zone);
+    }
+
+    /**
+     * Tests random zones on a raster large enough to be split into several parallel
+     * blocks, with cells outside every zone and labels beyond the zone count.
+     * Verifies the count, sum, minimum, maximum, mean and variance of every zone.
+     */
+    @Test
+    public void testAgainstDirect() {
+        DataSet data = dataSet(300, 250, 7);
+        GridRaster raster = data.getRaster();
+        double[] values = raster.getValues();
+        Random random = new Random(8);
+        int[] labels = new int[values.length];
+        for (int cell = 0; cell < labels.length; cell++) {
+            labels[cell] = random.nextInt(12) - 1; // -1 (no zone) to 10, one past the last zone
+        }
+
+        Aggregate[] zones = ZonalStatistics.compute(data, labels, 10);
+        assertEquals(10, zones.length);
+        for (int zone = 0; zone < zones.length; zone++) {
+            assertSameAsDirect(values, labels, zone, zones[zone]);
+        }
+    }
+
+    /**
+     * Tests zones with no cells, and a zone whose cells are all missing.
+     * Verifies empty aggregates for both, next to a zone with values.
+     */
+    @Test
+    public void testEmptyZones() {
+        DataSet data = dataSet(4, 3, 9);
+        data.getColumns().set(5, new DataPoint(5, 1500, 1500, -1)); // the only cell of zone 2 is missing
+        double[] values = data.getRaster().getValues();
+        int[] labels = new int[values.length];
+        Arrays.fill(labels, 0);
+        labels[5] = 2;
+
+        Aggregate[] zones = ZonalStatistics.compute(data, labels, 4);
+        assertSameAsDirect(values, labels, 0, zones[0]);
+        for (int zone = 1; zone < 4; zone++) {
+            assertEquals(0, zones[zone].getCount(), "zone " + zone);
+            assertEquals(0, zones[zone].getSum(), "zone " + zone);
+            assertTrue(Double.isNaN(zones[zone].getVariance()), "zone " + zone);
+        }
+    }
+
+    /**
+     * Tests a label raster of the wrong size.
+     * Verifies an IllegalArgumentException.
+     */
+    @Test
+    public void testLabelSizeMismatch() {
+        DataSet data = dataSet(4, 3, 10);
+        assertThrows(IllegalArgumentException.class, () -> ZonalStatistics.compute(data, new int[11], 1));
+    }
+
+    /**
+     * Tests the statistics of registered regions, including an unknown one.
+     * Verifies each region's figures against the direct computation over its mask, in
+     * the order given, and an empty aggregate for the unknown region.
+     */
+    @Test
+    public void testComputeForRegions() {
+        DataSet data = dataSet(20, 10, 11);
+        RegionRegistry registry = RegionRegistry.getInstance();
+        registry.addRegion("ZonalStatisticsTest West", List.of(new double[] {0, 0, 8000, 0, 8000, 10000, 0, 10000}));
+        registry.addRegion("ZonalStatisticsTest East", List.of(new double[] {12000, 0, 20000, 0, 20000, 10000, 12000, 10000}));
+        List<String> names = Arrays.asList("ZonalStatisticsTest East", "ZonalStatisticsTest Nowhere", "ZonalStatisticsTest West");
+
+        Map<String, Aggregate> results = ZonalStatistics.computeForRegions(data, names);
+        assertEquals(names, new ArrayList<>(results.keySet()));
+        GridRaster raster = data.getRaster();
+        int[] labels = registry.getLabelRaster(names, raster.getGeometry());
+        assertSameAsDirect(raster.getValues(), labels, 0, results.get("ZonalStatisticsTest East"));
+        assertSameAsDirect(raster.getValues(), labels, 2, results.get("ZonalStatisticsTest West"));
+        assertEquals(0, results.get("ZonalStatisticsTest Nowhere").getCount());
+        assertTrue(results.get("ZonalStatisticsTest West").getCount() > 50);
+    }
+}